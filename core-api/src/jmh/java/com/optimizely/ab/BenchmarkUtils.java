@@ -23,9 +23,25 @@ import java.io.IOException;
 
 public final class BenchmarkUtils {
 
+    private static final int MAX_PROFILING_EXPERIMENTS = 50;
+
     private BenchmarkUtils() {}
 
     public static String getProfilingDatafile(String datafilePath) throws IOException {
         return Resources.toString(Resources.getResource(datafilePath), Charsets.UTF_8);
     }
+
+    /**
+     * @param datafilePathTemplate the path template of the profiling datafiles
+     * @param numExperiments       10, 25 or 50 for the profiling datafile with that many experiments, or a larger
+     *                             number for a datafile with that many feature flags, each backed by an experiment,
+     *                             generated with {@link DatafileGenerator#forScale(int)}
+     * @return the datafile json
+     */
+    public static String getDatafile(String datafilePathTemplate, int numExperiments) throws IOException {
+        if (numExperiments <= MAX_PROFILING_EXPERIMENTS) {
+            return getProfilingDatafile(String.format(datafilePathTemplate, numExperiments));
+        }
+        return DatafileGenerator.forScale(numExperiments).generate();
+    }
 }
@@ -0,0 +1,511 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates v4 datafiles of any size for scale benchmarks. The same settings and seed always generate the same
+ * datafile.
+ * <p>
+ * Besides the generated entities, every datafile contains the experiments, mutex group and event the
+ * {@link OptimizelyBenchmark} decisions use from the profiling datafiles: {@code testExperiment2},
+ * {@code testExperimentWithFirefoxAudience}, {@code mutex_exp1}, {@code mutex_exp2} and
+ * {@code testEventWithMultipleExperiments}, with the same variations, forced variations and
+ * {@code browser_type} audiences.
+ */
+public final class DatafileGenerator {
+
+    private static final String[] VARIABLE_TYPES = {"string", "integer", "double", "boolean"};
+    private static final String[] ALL_MATCH_TYPES = {"exact", "exists", "gt", "lt", "substring"};
+    private static final int EXPERIMENTS_PER_EVENT = 5;
+
+    private final long seed;
+    private final int experiments;
+    private final int mutexGroups;
+    private final int experimentsPerGroup;
+    private final int featureFlags;
+    private final int variablesPerFlag;
+    private final int rolloutRules;
+    private final int typedAudiences;
+    private final int audienceDepth;
+    private final List<String> matchTypes;
+    private final int attributes;
+    private final int forcedVariations;
+
+    private DatafileGenerator(Builder builder) {
+        this.seed = builder.seed;
+        this.experiments = builder.experiments;
+        this.mutexGroups = builder.mutexGroups;
+        this.experimentsPerGroup = builder.experimentsPerGroup;
+        this.featureFlags = builder.featureFlags;
+        this.variablesPerFlag = builder.variablesPerFlag;
+        this.rolloutRules = builder.rolloutRules;
+        this.typedAudiences = builder.typedAudiences;
+        this.audienceDepth = builder.audienceDepth;
+        this.matchTypes = builder.matchTypes;
+        this.attributes = builder.attributes;
+        this.forcedVariations = builder.forcedVariations;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The shape the benchmarks use for a given scale: one feature test and a three rule rollout per flag, a tenth
+     * as many A/B tests, a mutex group per hundred flags and typed audiences three levels deep.
+     *
+     * @param numFeatureFlags the number of feature flags
+     * @return a generator for a datafile of the given scale
+     */
+    public static DatafileGenerator forScale(int numFeatureFlags) {
+        return builder()
+            .withFeatureFlags(numFeatureFlags)
+            .withExperiments(numFeatureFlags / 10)
+            .withMutexGroups(Math.max(1, numFeatureFlags / 100), 3)
+            .withVariablesPerFlag(4)
+            .withRolloutRules(3)
+            .withTypedAudiences(Math.max(10, numFeatureFlags / 20), 3)
+            .withAttributes(20)
+            .withForcedVariations(10)
+            .build();
+    }
+
+    /**
+     * @return the datafile json
+     */
+    public String generate() {
+        return new Generation().generate();
+    }
+
+    //======== Helper classes ========//
+
+    /**
+     * The state of a single {@link #generate()} call.
+     */
+    private final class Generation {
+
+        private final Random random = new Random(seed);
+        private final List<String> audienceIds = new ArrayList<String>();
+        private final List<String> experimentIds = new ArrayList<String>();
+        private final StringBuilder experimentsJson = new StringBuilder();
+        private long nextId = 1000000000L;
+
+        private String generate() {
+            String projectId = nextId();
+            String accountId = nextId();
+
+            StringBuilder attributesJson = new StringBuilder();
+            append(attributesJson, "{\"id\":\"" + nextId() + "\",\"key\":\"browser_type\"}");
+            for (int i = 0; i < attributes; i++) {
+                append(attributesJson, "{\"id\":\"" + nextId() + "\",\"key\":\"" + attributeKey(i) + "\"}");
+            }
+
+            StringBuilder audiencesJson = new StringBuilder();
+            String firefoxAudienceId = browserAudience(audiencesJson, "firefox");
+            String chromeAudienceId = browserAudience(audiencesJson, "chrome");
+            for (int i = 0; i < typedAudiences; i++) {
+                String id = nextId();
+                StringBuilder conditions = new StringBuilder();
+                condition(conditions, audienceDepth);
+                append(audiencesJson, "{\"id\":\"" + id + "\",\"name\":\"audience_" + i + "\",\"conditions\":"
+                    + conditions + "}");
+                audienceIds.add(id);
+            }
+
+            String[] abVariations = {"control", "variation"};
+            List<String> anchorExperimentIds = new ArrayList<String>();
+            anchorExperimentIds.add(experiment(experimentsJson, "testExperiment2", null,
+                Collections.<String>emptyList(), abVariations, null,
+                "{\"variation_user\":\"variation\",\"control_user\":\"control\"}"));
+            anchorExperimentIds.add(experiment(experimentsJson, "testExperimentWithFirefoxAudience", null,
+                Collections.singletonList(firefoxAudienceId), abVariations, null, "{}"));
+            for (int i = 0; i < experiments; i++) {
+                experiment(experimentsJson, "exp_" + i, null, randomAudienceIds(), abVariations, null,
+                    forcedVariations(abVariations));
+            }
+
+            StringBuilder groupsJson = new StringBuilder();
+            String[] groupVariations = {"a", "b"};
+            StringBuilder anchorGroupExperiments = new StringBuilder();
+            String mutexExp1 = experiment(anchorGroupExperiments, "mutex_exp1", null,
+                Collections.singletonList(chromeAudienceId), groupVariations, null, "{}");
+            String mutexExp2 = experiment(anchorGroupExperiments, "mutex_exp2", null,
+                Collections.<String>emptyList(), groupVariations, null, "{\"user_b\":\"b\",\"user_a\":\"a\"}");
+            anchorExperimentIds.add(mutexExp1);
+            anchorExperimentIds.add(mutexExp2);
+            group(groupsJson, anchorGroupExperiments, Arrays.asList(mutexExp1, mutexExp2));
+            for (int g = 0; g < mutexGroups; g++) {
+                StringBuilder groupExperiments = new StringBuilder();
+                List<String> groupExperimentIds = new ArrayList<String>();
+                for (int i = 0; i < experimentsPerGroup; i++) {
+                    groupExperimentIds.add(experiment(groupExperiments, "group_" + g + "_exp_" + i, null,
+                        randomAudienceIds(), groupVariations, null, forcedVariations(groupVariations)));
+                }
+                group(groupsJson, groupExperiments, groupExperimentIds);
+            }
+
+            StringBuilder featureFlagsJson = new StringBuilder();
+            StringBuilder rolloutsJson = new StringBuilder();
+            String[] featureVariations = {"on", "off"};
+            for (int i = 0; i < featureFlags; i++) {
+                List<String> variableIds = new ArrayList<String>();
+                StringBuilder variablesJson = new StringBuilder();
+                for (int v = 0; v < variablesPerFlag; v++) {
+                    String variableId = nextId();
+                    String type = VARIABLE_TYPES[v % VARIABLE_TYPES.length];
+                    variableIds.add(variableId);
+                    append(variablesJson, "{\"id\":\"" + variableId + "\",\"key\":\"var_" + v + "\",\"type\":\""
+                        + type + "\",\"defaultValue\":\"" + variableValue(type) + "\"}");
+                }
+
+                String rolloutId = nextId();
+                StringBuilder rules = new StringBuilder();
+                for (int r = 0; r < rolloutRules; r++) {
+                    // the last rule is the "everyone else" rule, without an audience and with all the traffic
+                    boolean everyoneElse = r == rolloutRules - 1;
+                    experiment(rules, "flag_" + i + "_rule_" + r, rolloutId,
+                        everyoneElse ? Collections.<String>emptyList() : randomAudienceIds(),
+                        new String[]{"on"}, variableIds, "{}");
+                }
+                append(rolloutsJson, "{\"id\":\"" + rolloutId + "\",\"experiments\":[" + rules + "]}");
+
+                String experimentId = experiment(experimentsJson, "flag_" + i + "_test", null, randomAudienceIds(),
+                    featureVariations, variableIds, forcedVariations(featureVariations));
+                append(featureFlagsJson, "{\"id\":\"" + nextId() + "\",\"key\":\"flag_" + i + "\",\"rolloutId\":\""
+                    + rolloutId + "\",\"experimentIds\":[\"" + experimentId + "\"],\"variables\":["
+                    + variablesJson + "]}");
+            }
+
+            StringBuilder eventsJson = new StringBuilder();
+            append(eventsJson, event("testEventWithMultipleExperiments", anchorExperimentIds));
+            int numEvents = experimentIds.size() / EXPERIMENTS_PER_EVENT;
+            for (int i = 0; i < numEvents; i++) {
+                List<String> eventExperimentIds = new ArrayList<String>();
+                for (int e = 0; e < EXPERIMENTS_PER_EVENT; e++) {
+                    eventExperimentIds.add(experimentIds.get(random.nextInt(experimentIds.size())));
+                }
+                append(eventsJson, event("event_" + i, eventExperimentIds));
+            }
+
+            return "{\"version\":\"4\",\"projectId\":\"" + projectId + "\",\"accountId\":\"" + accountId + "\","
+                + "\"revision\":\"1\",\"anonymizeIP\":true,\"botFiltering\":false,"
+                + "\"attributes\":[" + attributesJson + "],"
+                + "\"audiences\":[],"
+                + "\"typedAudiences\":[" + audiencesJson + "],"
+                + "\"events\":[" + eventsJson + "],"
+                + "\"groups\":[" + groupsJson + "],"
+                + "\"experiments\":[" + experimentsJson + "],"
+                + "\"featureFlags\":[" + featureFlagsJson + "],"
+                + "\"rollouts\":[" + rolloutsJson + "]}";
+        }
+
+        /**
+         * Appends an experiment with an even traffic split, or a single rollout rule when it has one variation.
+         *
+         * @param layerId     the rollout id for rollout rules, otherwise {@code null} to use a new layer
+         * @param variableIds the variables of the flag to give the variations values for, or {@code null}
+         * @return the experiment id
+         */
+        private String experiment(StringBuilder out,
+                                  String key,
+                                  String layerId,
+                                  List<String> experimentAudienceIds,
+                                  String[] variationKeys,
+                                  List<String> variableIds,
+                                  String forcedVariationsJson) {
+            String id = nextId();
+            if (layerId == null) {
+                layerId = nextId();
+                experimentIds.add(id);
+            }
+
+            StringBuilder variations = new StringBuilder();
+            StringBuilder trafficAllocation = new StringBuilder();
+            int endOfRange = variationKeys.length == 1 ? 1000 + random.nextInt(9001) : 0;
+            for (int i = 0; i < variationKeys.length; i++) {
+                String variationId = nextId();
+                StringBuilder variables = new StringBuilder();
+                if (variableIds != null) {
+                    for (int v = 0; v < variableIds.size(); v++) {
+                        append(variables, "{\"id\":\"" + variableIds.get(v) + "\",\"value\":\""
+                            + variableValue(VARIABLE_TYPES[v % VARIABLE_TYPES.length]) + "\"}");
+                    }
+                }
+                boolean featureEnabled = variableIds != null && i == 0;
+                append(variations, "{\"id\":\"" + variationId + "\",\"key\":\"" + variationKeys[i]
+                    + "\",\"featureEnabled\":" + featureEnabled + ",\"variables\":[" + variables + "]}");
+
+                if (variationKeys.length > 1) {
+                    endOfRange = 10000 * (i + 1) / variationKeys.length;
+                }
+                append(trafficAllocation, "{\"entityId\":\"" + variationId + "\",\"endOfRange\":" + endOfRange + "}");
+            }
+
+            append(out, "{\"id\":\"" + id + "\",\"key\":\"" + key + "\",\"status\":\"Running\",\"layerId\":\""
+                + layerId + "\",\"audienceIds\":" + stringArray(experimentAudienceIds) + ",\"forcedVariations\":"
+                + forcedVariationsJson + ",\"variations\":[" + variations + "],\"trafficAllocation\":["
+                + trafficAllocation + "]}");
+            return id;
+        }
+
+        private void group(StringBuilder out, StringBuilder groupExperiments, List<String> groupExperimentIds) {
+            StringBuilder trafficAllocation = new StringBuilder();
+            for (int i = 0; i < groupExperimentIds.size(); i++) {
+                append(trafficAllocation, "{\"entityId\":\"" + groupExperimentIds.get(i) + "\",\"endOfRange\":"
+                    + 10000 * (i + 1) / groupExperimentIds.size() + "}");
+            }
+            append(out, "{\"id\":\"" + nextId() + "\",\"policy\":\"random\",\"trafficAllocation\":["
+                + trafficAllocation + "],\"experiments\":[" + groupExperiments + "]}");
+        }
+
+        private String event(String key, List<String> eventExperimentIds) {
+            return "{\"id\":\"" + nextId() + "\",\"key\":\"" + key + "\",\"experimentIds\":"
+                + stringArray(eventExperimentIds) + "}";
+        }
+
+        private String browserAudience(StringBuilder out, String browser) {
+            String id = nextId();
+            append(out, "{\"id\":\"" + id + "\",\"name\":\"" + browser + "\",\"conditions\":[\"or\","
+                + "{\"name\":\"browser_type\",\"type\":\"custom_attribute\",\"match\":\"exact\",\"value\":\""
+                + browser + "\"}]}");
+            return id;
+        }
+
+        /**
+         * Appends a tree of alternating "and" and "or" conditions with two children per level, and leaves using
+         * the configured match types.
+         */
+        private void condition(StringBuilder out, int depth) {
+            if (depth == 0) {
+                String match = matchTypes.get(random.nextInt(matchTypes.size()));
+                boolean numeric = "gt".equals(match) || "lt".equals(match);
+                out.append("{\"name\":\"").append(attributeKey(randomAttribute(numeric)))
+                    .append("\",\"type\":\"custom_attribute\",\"match\":\"").append(match).append('"');
+                if (numeric) {
+                    out.append(",\"value\":").append(random.nextInt(100));
+                } else if ("exact".equals(match)) {
+                    out.append(",\"value\":\"value_").append(random.nextInt(10)).append('"');
+                } else if ("substring".equals(match)) {
+                    out.append(",\"value\":\"value\"");
+                }
+                out.append('}');
+                return;
+            }
+
+            out.append("[\"").append(depth % 2 == 0 ? "or" : "and").append('"');
+            for (int i = 0; i < 2; i++) {
+                out.append(',');
+                condition(out, depth - 1);
+            }
+            out.append(']');
+        }
+
+        /**
+         * Even attributes hold strings and odd attributes numbers.
+         */
+        private int randomAttribute(boolean numeric) {
+            if (attributes < 2) {
+                return 0;
+            }
+            int index = 2 * random.nextInt(attributes / 2);
+            return numeric ? index + 1 : index;
+        }
+
+        private List<String> randomAudienceIds() {
+            if (audienceIds.isEmpty()) {
+                return Collections.emptyList();
+            }
+            int count = random.nextInt(3);
+            List<String> ids = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++) {
+                ids.add(audienceIds.get(random.nextInt(audienceIds.size())));
+            }
+            return ids;
+        }
+
+        private String forcedVariations(String[] variationKeys) {
+            StringBuilder out = new StringBuilder("{");
+            for (int i = 0; i < forcedVariations; i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append("\"forced_user_").append(i).append("\":\"")
+                    .append(variationKeys[i % variationKeys.length]).append('"');
+            }
+            return out.append('}').toString();
+        }
+
+        private String variableValue(String type) {
+            int value = random.nextInt(1000);
+            if ("integer".equals(type)) {
+                return String.valueOf(value);
+            } else if ("double".equals(type)) {
+                return value + ".5";
+            } else if ("boolean".equals(type)) {
+                return String.valueOf(value % 2 == 0);
+            }
+            return "value_" + value;
+        }
+
+        private String nextId() {
+            return String.valueOf(nextId++);
+        }
+    }
+
+    //======== Helper methods ========//
+
+    private static String attributeKey(int index) {
+        return "attr_" + index;
+    }
+
+    private static void append(StringBuilder out, String element) {
+        if (out.length() > 0) {
+            out.append(',');
+        }
+        out.append(element);
+    }
+
+    private static String stringArray(List<String> values) {
+        StringBuilder out = new StringBuilder("[");
+        for (int i = 0; i < values.size(); i++) {
+            out.append(i == 0 ? "\"" : ",\"").append(values.get(i)).append('"');
+        }
+        return out.append(']').toString();
+    }
+
+    //======== Builder ========//
+
+    public static class Builder {
+
+        private long seed = 42;
+        private int experiments = 10;
+        private int mutexGroups = 1;
+        private int experimentsPerGroup = 2;
+        private int featureFlags = 10;
+        private int variablesPerFlag = 2;
+        private int rolloutRules = 2;
+        private int typedAudiences = 10;
+        private int audienceDepth = 2;
+        private List<String> matchTypes = Arrays.asList(ALL_MATCH_TYPES);
+        private int attributes = 10;
+        private int forcedVariations = 2;
+
+        private Builder() {
+        }
+
+        public Builder withSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * @param experiments the number of A/B tests, besides the feature tests and the grouped experiments
+         */
+        public Builder withExperiments(int experiments) {
+            this.experiments = requireNonNegative(experiments, "experiments");
+            return this;
+        }
+
+        public Builder withMutexGroups(int mutexGroups, int experimentsPerGroup) {
+            this.mutexGroups = requireNonNegative(mutexGroups, "mutex groups");
+            this.experimentsPerGroup = requireNonNegative(experimentsPerGroup, "experiments per group");
+            return this;
+        }
+
+        /**
+         * @param featureFlags the number of feature flags, each with a feature test and a rollout
+         */
+        public Builder withFeatureFlags(int featureFlags) {
+            this.featureFlags = requireNonNegative(featureFlags, "feature flags");
+            return this;
+        }
+
+        public Builder withVariablesPerFlag(int variablesPerFlag) {
+            this.variablesPerFlag = requireNonNegative(variablesPerFlag, "variables per flag");
+            return this;
+        }
+
+        /**
+         * @param rolloutRules the number of rules of every rollout, the last of which targets everyone
+         */
+        public Builder withRolloutRules(int rolloutRules) {
+            if (rolloutRules < 1) {
+                throw new IllegalArgumentException("rollout rules must be > 0");
+            }
+            this.rolloutRules = rolloutRules;
+            return this;
+        }
+
+        /**
+         * @param typedAudiences the number of typed audiences
+         * @param depth          the number of "and" and "or" levels above the leaf conditions of every audience
+         */
+        public Builder withTypedAudiences(int typedAudiences, int depth) {
+            if (depth < 1) {
+                throw new IllegalArgumentException("audience depth must be > 0");
+            }
+            this.typedAudiences = requireNonNegative(typedAudiences, "typed audiences");
+            this.audienceDepth = depth;
+            return this;
+        }
+
+        /**
+         * @param matchTypes the match types of the leaf conditions, among "exact", "exists", "gt", "lt" and
+         *                   "substring"
+         */
+        public Builder withMatchTypes(String... matchTypes) {
+            if (matchTypes.length == 0 || !Arrays.asList(ALL_MATCH_TYPES).containsAll(Arrays.asList(matchTypes))) {
+                throw new IllegalArgumentException("unsupported match types: " + Arrays.toString(matchTypes));
+            }
+            this.matchTypes = Arrays.asList(matchTypes.clone());
+            return this;
+        }
+
+        public Builder withAttributes(int attributes) {
+            if (attributes < 1) {
+                throw new IllegalArgumentException("attributes must be > 0");
+            }
+            this.attributes = attributes;
+            return this;
+        }
+
+        /**
+         * @param forcedVariations the number of whitelisted users of every generated experiment
+         */
+        public Builder withForcedVariations(int forcedVariations) {
+            this.forcedVariations = requireNonNegative(forcedVariations, "forced variations");
+            return this;
+        }
+
+        public DatafileGenerator build() {
+            return new DatafileGenerator(this);
+        }
+
+        private static int requireNonNegative(int value, String name) {
+            if (value < 0) {
+                throw new IllegalArgumentException(name + " must be >= 0");
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JMH state holding a datafile {@link DatafileGenerator#forScale(int) generated} for a number of feature flags, for
+ * benchmarks that otherwise only cover fixed datafiles.
+ */
+@State(Scope.Benchmark)
+public class GeneratedDatafile {
+
+    @Param({"100", "1000", "10000"})
+    private int numFeatureFlags;
+
+    private String json;
+    private byte[] utf8Json;
+
+    @Setup
+    public void setup() {
+        json = DatafileGenerator.forScale(numFeatureFlags).generate();
+        utf8Json = json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String getJson() {
+        return json;
+    }
+
+    public byte[] getUtf8Json() {
+        return utf8Json;
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab;
+
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Heap footprint of everything reachable from a root object, computed the way JOL's {@code GraphLayout} does: the
+ * graph is walked through the instance fields, and every object is sized from the field offsets the running VM
+ * reports, rounded up to the 8 byte object alignment.
+ * <p>
+ * Objects shared with other graphs, like enum constants or string literals, are counted as well, so the footprint
+ * is an upper bound of the retained size. {@link Class} objects are neither counted nor followed.
+ */
+public final class ObjectGraphFootprint {
+
+    private static final int OBJECT_ALIGNMENT = 8;
+
+    private static final Unsafe UNSAFE = loadUnsafe();
+    private static final long HEADER_SIZE = UNSAFE.objectFieldOffset(fieldOf(HeaderProbe.class, "field"));
+    private static final Map<Class<?>, ClassLayout> LAYOUTS = new HashMap<Class<?>, ClassLayout>();
+
+    private final long objectCount;
+    private final long totalSize;
+
+    private ObjectGraphFootprint(long objectCount, long totalSize) {
+        this.objectCount = objectCount;
+        this.totalSize = totalSize;
+    }
+
+    /**
+     * @param root the object to start the walk from
+     * @return the footprint of the root and of everything reachable from it
+     */
+    public static synchronized ObjectGraphFootprint of(Object root) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        Deque<Object> pending = new ArrayDeque<Object>();
+        pending.push(root);
+
+        long objectCount = 0;
+        long totalSize = 0;
+        while (!pending.isEmpty()) {
+            Object object = pending.pop();
+            if (object instanceof Class || !visited.add(object)) {
+                continue;
+            }
+
+            Class<?> type = object.getClass();
+            objectCount++;
+            if (type.isArray()) {
+                int length = Array.getLength(object);
+                totalSize += align(UNSAFE.arrayBaseOffset(type) + (long) UNSAFE.arrayIndexScale(type) * length);
+                if (!type.getComponentType().isPrimitive()) {
+                    for (Object element : (Object[]) object) {
+                        if (element != null) {
+                            pending.push(element);
+                        }
+                    }
+                }
+            } else {
+                ClassLayout layout = layoutOf(type);
+                totalSize += layout.instanceSize;
+                for (long offset : layout.referenceOffsets) {
+                    Object referent = UNSAFE.getObject(object, offset);
+                    if (referent != null) {
+                        pending.push(referent);
+                    }
+                }
+            }
+        }
+
+        return new ObjectGraphFootprint(objectCount, totalSize);
+    }
+
+    public long getObjectCount() {
+        return objectCount;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    //======== Helper methods ========//
+
+    private static ClassLayout layoutOf(Class<?> type) {
+        ClassLayout layout = LAYOUTS.get(type);
+        if (layout == null) {
+            layout = new ClassLayout(type);
+            LAYOUTS.put(type, layout);
+        }
+        return layout;
+    }
+
+    private static long align(long size) {
+        return (size + OBJECT_ALIGNMENT - 1) / OBJECT_ALIGNMENT * OBJECT_ALIGNMENT;
+    }
+
+    private static long sizeOf(Class<?> fieldType) {
+        if (fieldType == long.class || fieldType == double.class) {
+            return 8;
+        } else if (fieldType == int.class || fieldType == float.class) {
+            return 4;
+        } else if (fieldType == short.class || fieldType == char.class) {
+            return 2;
+        } else if (fieldType == byte.class || fieldType == boolean.class) {
+            return 1;
+        }
+        return UNSAFE.arrayIndexScale(Object[].class);
+    }
+
+    private static Unsafe loadUnsafe() {
+        try {
+            Field field = fieldOf(Unsafe.class, "theUnsafe");
+            field.setAccessible(true);
+            return (Unsafe) field.get(null);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to access sun.misc.Unsafe.", e);
+        }
+    }
+
+    private static Field fieldOf(Class<?> type, String name) {
+        try {
+            return type.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //======== Helper classes ========//
+
+    /**
+     * The instance size and reference field offsets of a class, including the fields of its superclasses.
+     */
+    private static final class ClassLayout {
+
+        private final long instanceSize;
+        private final long[] referenceOffsets;
+
+        private ClassLayout(Class<?> type) {
+            long end = HEADER_SIZE;
+            List<Long> offsets = new ArrayList<Long>();
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    long offset = UNSAFE.objectFieldOffset(field);
+                    end = Math.max(end, offset + sizeOf(field.getType()));
+                    if (!field.getType().isPrimitive()) {
+                        offsets.add(offset);
+                    }
+                }
+            }
+
+            instanceSize = align(end);
+            referenceOffsets = new long[offsets.size()];
+            for (int i = 0; i < referenceOffsets.length; i++) {
+                referenceOffsets[i] = offsets.get(i);
+            }
+        }
+    }
+
+    /**
+     * Its only field is laid out right after the object header.
+     */
+    @SuppressWarnings("unused")
+    private static final class HeaderProbe {
+        private int field;
+    }
+}
@@ -53,6 +53,9 @@ import java.util.concurrent.TimeUnit;
 @State(Scope.Benchmark)
 public class OptimizelyBenchmark {
 
+    // for the generated datafiles, which have no user ids picked for their group experiments
+    private static final String DEFAULT_USER_ID = "optimizely_user";
+
     private Optimizely optimizely;
     private Random random = new Random();
 
@@ -61,7 +64,10 @@ public class OptimizelyBenchmark {
     private String trackGroupExperimentUserId;
     private String trackGroupExperimentAttributesUserId;
 
-    @Param({"10", "25", "50"})
+    /**
+     * Number of experiments, the profiling datafiles have 10, 25 and 50, larger numbers use a generated datafile.
+     */
+    @Param({"10", "25", "50", "1000", "10000"})
     private int numExperiments;
 
     @Setup
@@ -73,27 +79,26 @@ public class OptimizelyBenchmark {
         propertiesStream.close();
 
         String datafilePathTemplate = properties.getProperty("datafilePathTemplate");
-        String datafilePath = String.format(datafilePathTemplate, numExperiments);
 
         String activateGroupExperimentPropTemplate = properties.getProperty("activateGroupExperimentUserIdPropTemplate");
         activateGroupExperimentUserId = properties.getProperty(
-                String.format(activateGroupExperimentPropTemplate, numExperiments));
+                String.format(activateGroupExperimentPropTemplate, numExperiments), DEFAULT_USER_ID);
 
         String activateGroupExperimentAttributesPropTemplate =
                 properties.getProperty("activateGroupExperimentAttributesUserIdPropTemplate");
         activateGroupExperimentAttributesUserId = properties.getProperty(
-                String.format(activateGroupExperimentAttributesPropTemplate, numExperiments));
+                String.format(activateGroupExperimentAttributesPropTemplate, numExperiments), DEFAULT_USER_ID);
 
         String trackGroupExperimentPropTemplate = properties.getProperty("trackGroupExperimentUserIdPropTemplate");
         trackGroupExperimentUserId = properties.getProperty(
-                String.format(trackGroupExperimentPropTemplate, numExperiments));
+                String.format(trackGroupExperimentPropTemplate, numExperiments), DEFAULT_USER_ID);
 
         String trackGroupExperimentAttributesPropTemplate =
                 properties.getProperty("trackGroupExperimentAttributesUserIdPropTemplate");
         trackGroupExperimentAttributesUserId = properties.getProperty(
-                String.format(trackGroupExperimentAttributesPropTemplate, numExperiments));
+                String.format(trackGroupExperimentAttributesPropTemplate, numExperiments), DEFAULT_USER_ID);
 
-        optimizely = Optimizely.builder(BenchmarkUtils.getProfilingDatafile(datafilePath),
+        optimizely = Optimizely.builder(BenchmarkUtils.getDatafile(datafilePathTemplate, numExperiments),
                                         new NoopEventHandler()).build();
     }
 
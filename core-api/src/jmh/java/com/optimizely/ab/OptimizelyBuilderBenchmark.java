@@ -50,7 +50,10 @@ public class OptimizelyBuilderBenchmark {
 
     public EventHandler eventHandler = new NoopEventHandler();
 
-    @Param({"10", "25", "50"})
+    /**
+     * Number of experiments, the profiling datafiles have 10, 25 and 50, larger numbers use a generated datafile.
+     */
+    @Param({"10", "25", "50", "1000", "10000"})
     private int numExperiments;
 
     private String datafile;
@@ -64,8 +67,7 @@ public class OptimizelyBuilderBenchmark {
         propertiesStream.close();
 
         String datafilePathTemplate = properties.getProperty("datafilePathTemplate");
-        String datafilePath = String.format(datafilePathTemplate, numExperiments);
-        datafile = BenchmarkUtils.getProfilingDatafile(datafilePath);
+        datafile = BenchmarkUtils.getDatafile(datafilePathTemplate, numExperiments);
     }
 
     @Benchmark
@@ -0,0 +1,91 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.bucketing;
+
+import com.optimizely.ab.config.Experiment;
+import com.optimizely.ab.config.ProjectConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV4;
+import static com.optimizely.ab.config.ValidProjectConfigV4.EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1;
+
+/**
+ * JMH benchmarks for re-bucketing many users into a grouped experiment, one {@link Bucketer#bucket} call per user
+ * versus one {@link BatchBucketer} call for all of them. Times are per bucketing id.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class BatchBucketerBenchmark {
+
+    private static final int BATCH_SIZE = 10000;
+
+    private ProjectConfig projectConfig;
+    private Experiment experiment;
+    private Bucketer bucketer;
+    private BatchBucketer batchBucketer;
+    private String[] bucketingIds;
+    private int[] variationOrdinals;
+
+    @Setup
+    public void setup() {
+        projectConfig = validProjectConfigV4();
+        experiment = EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1;
+        bucketer = new Bucketer(projectConfig);
+        batchBucketer = new BatchBucketer(projectConfig);
+
+        bucketingIds = new String[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            bucketingIds[i] = "optimizely_user" + i;
+        }
+        variationOrdinals = new int[BATCH_SIZE];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int bucketEach() {
+        int bucketed = 0;
+        for (String bucketingId : bucketingIds) {
+            if (bucketer.bucket(experiment, bucketingId, projectConfig) != null) {
+                bucketed++;
+            }
+        }
+        return bucketed;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] bucketBatch() {
+        batchBucketer.variationOrdinals(experiment, bucketingIds, variationOrdinals);
+        return variationOrdinals;
+    }
+}
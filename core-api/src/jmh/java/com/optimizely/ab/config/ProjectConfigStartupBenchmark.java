@@ -0,0 +1,147 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.optimizely.ab.BenchmarkUtils;
+import com.optimizely.ab.config.parser.ConfigParseException;
+import com.optimizely.ab.config.parser.DatafileProjection;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for building a {@link ProjectConfig} with eager and with lazy indexes, with the datafile parsed
+ * in parallel on the common pool, and projected onto a few flags, covering the profiling datafiles and generated
+ * v4 datafiles with up to ten thousand flags.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ProjectConfigStartupBenchmark {
+
+    private static final int PROJECTED_KEYS = 10;
+
+    /**
+     * Number of experiments, the profiling datafiles have 10, 25 and 50, larger numbers use a generated datafile.
+     */
+    @Param({"10", "25", "50", "1000", "10000"})
+    private int numExperiments;
+
+    private byte[] datafile;
+    private String experimentKey;
+    private DatafileProjection projection;
+
+    @Setup
+    @SuppressFBWarnings(value="OBL_UNSATISFIED_OBLIGATION_EXCEPTION_EDGE", justification="stream is safely closed")
+    public void setup() throws IOException, ConfigParseException {
+        Properties properties = new Properties();
+        InputStream propertiesStream = getClass().getResourceAsStream("/benchmark.properties");
+        properties.load(propertiesStream);
+        propertiesStream.close();
+
+        String datafilePathTemplate = properties.getProperty("datafilePathTemplate");
+        datafile = BenchmarkUtils.getDatafile(datafilePathTemplate, numExperiments).getBytes(StandardCharsets.UTF_8);
+
+        ProjectConfig projectConfig = new ProjectConfig.Builder().withUtf8Datafile(datafile).build();
+        experimentKey = projectConfig.getExperiments().get(projectConfig.getExperiments().size() / 2).getKey();
+
+        // the handful of flags a narrow service evaluates, or experiments for the datafiles without flags
+        List<String> featureKeys = new ArrayList<String>();
+        for (FeatureFlag featureFlag : projectConfig.getFeatureFlags()) {
+            if (featureKeys.size() < PROJECTED_KEYS) {
+                featureKeys.add(featureFlag.getKey());
+            }
+        }
+        List<String> experimentKeys = new ArrayList<String>();
+        for (Experiment experiment : projectConfig.getExperiments()) {
+            if (featureKeys.isEmpty() && experimentKeys.size() < PROJECTED_KEYS) {
+                experimentKeys.add(experiment.getKey());
+            }
+        }
+        projection = DatafileProjection.of(featureKeys, experimentKeys);
+    }
+
+    @Benchmark
+    public ProjectConfig eagerBuild() throws ConfigParseException {
+        return new ProjectConfig.Builder()
+            .withUtf8Datafile(datafile)
+            .build();
+    }
+
+    @Benchmark
+    public ProjectConfig lazyBuild() throws ConfigParseException {
+        return new ProjectConfig.Builder()
+            .withUtf8Datafile(datafile)
+            .withLazyIndexes(true)
+            .build();
+    }
+
+    /**
+     * Only datafiles from a few hundred kilobytes, here the generated ones, are actually split up.
+     */
+    @Benchmark
+    public ProjectConfig parallelBuild() throws ConfigParseException {
+        return new ProjectConfig.Builder()
+            .withUtf8Datafile(datafile)
+            .withParsingPool(ForkJoinPool.commonPool())
+            .build();
+    }
+
+    /**
+     * Only builds ten flags, or experiments, and what they depend on.
+     */
+    @Benchmark
+    public ProjectConfig projectedBuild() throws ConfigParseException {
+        return new ProjectConfig.Builder()
+            .withUtf8Datafile(datafile)
+            .withProjection(projection)
+            .build();
+    }
+
+    /**
+     * A lazy build followed by the single lookup a short-lived process typically makes.
+     */
+    @Benchmark
+    public Experiment lazyBuildAndLookup() throws ConfigParseException {
+        ProjectConfig projectConfig = new ProjectConfig.Builder()
+            .withUtf8Datafile(datafile)
+            .withLazyIndexes(true)
+            .build();
+        return projectConfig.getExperimentKeyMapping().get(experimentKey);
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config.parser;
+
+import com.optimizely.ab.BenchmarkUtils;
+import com.optimizely.ab.DatafileGenerator;
+import com.optimizely.ab.ObjectGraphFootprint;
+import com.optimizely.ab.config.Attribute;
+import com.optimizely.ab.config.EventType;
+import com.optimizely.ab.config.Experiment;
+import com.optimizely.ab.config.ProjectConfig;
+import com.optimizely.ab.event.LogEvent;
+import com.optimizely.ab.event.internal.EventFactory;
+import com.optimizely.ab.event.internal.payload.EventBatch;
+import com.optimizely.ab.internal.ReservedEventKey;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Reports the heap footprint of a {@link ProjectConfig} parsed with each parser, and of the {@link LogEvent} and
+ * {@link EventBatch} created for an impression and a conversion, for the profiling datafiles and for generated
+ * datafiles with thousands of flags. Unlike the retained size printed by
+ * {@link ProjectConfigFootprintBenchmark}, the footprint is computed with an {@link ObjectGraphFootprint} walk and
+ * doesn't depend on the collector.
+ * <p>
+ * The report is a JSON array with one {@code {"benchmark", "datafile", "objects", "bytes"}} entry per measurement,
+ * printed to standard output and written to the file given as the only argument, if any.
+ */
+public final class FootprintReport {
+
+    private static final int[] PROFILING_EXPERIMENTS = {10, 25, 50};
+    private static final int[] GENERATED_FEATURE_FLAGS = {1000, 10000};
+
+    private final List<String> entries = new ArrayList<String>();
+
+    private FootprintReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, ConfigParser> parsers = new LinkedHashMap<String, ConfigParser>();
+        parsers.put("builtin", new BuiltInConfigParser());
+        parsers.put("jackson", new JacksonConfigParser());
+        parsers.put("gson", new GsonConfigParser());
+        parsers.put("json", new JsonConfigParser());
+        parsers.put("json-simple", new JsonSimpleConfigParser());
+
+        Map<String, byte[]> datafiles = new LinkedHashMap<String, byte[]>();
+        String datafilePathTemplate = loadBenchmarkProperties().getProperty("datafilePathTemplate");
+        for (int numExperiments : PROFILING_EXPERIMENTS) {
+            String datafile = BenchmarkUtils.getProfilingDatafile(String.format(datafilePathTemplate, numExperiments));
+            datafiles.put(numExperiments + "-experiments", datafile.getBytes(StandardCharsets.UTF_8));
+        }
+        for (int numFeatureFlags : GENERATED_FEATURE_FLAGS) {
+            String datafile = DatafileGenerator.forScale(numFeatureFlags).generate();
+            datafiles.put("generated-" + numFeatureFlags + "-flags", datafile.getBytes(StandardCharsets.UTF_8));
+        }
+
+        FootprintReport report = new FootprintReport();
+        for (Map.Entry<String, byte[]> datafile : datafiles.entrySet()) {
+            for (Map.Entry<String, ConfigParser> parser : parsers.entrySet()) {
+                ProjectConfig projectConfig = parser.getValue().parseProjectConfig(datafile.getValue());
+                // the decision tables are compiled before a config is published, so they are part of its footprint
+                projectConfig.getDecisionTables();
+                report.add("ProjectConfig." + parser.getKey(), datafile.getKey(), projectConfig);
+            }
+
+            ProjectConfig projectConfig = parsers.get("builtin").parseProjectConfig(datafile.getValue());
+            report.addEvents(datafile.getKey(), projectConfig);
+        }
+
+        String json = report.toJson();
+        System.out.print(json);
+        if (args.length > 0) {
+            report.write(new File(args[0]), json);
+        }
+    }
+
+    //======== Helper methods ========//
+
+    private void addEvents(String datafile, ProjectConfig projectConfig) {
+        EventFactory eventFactory = new EventFactory();
+        Map<String, String> attributes = new HashMap<String, String>();
+        for (Attribute attribute : projectConfig.getAttributes()) {
+            attributes.put(attribute.getKey(), "value");
+        }
+
+        Experiment experiment = projectConfig.getExperiments().get(0);
+        LogEvent impressionEvent = eventFactory.createImpressionEvent(projectConfig, experiment,
+            experiment.getVariations().get(0), "user", attributes);
+        add("LogEvent.impression", datafile, impressionEvent);
+        add("EventBatch.impression", datafile, impressionEvent.getEventBatch());
+
+        EventType eventType = projectConfig.getEventTypes().get(0);
+        Map<String, Object> eventTags = new HashMap<String, Object>();
+        eventTags.put(ReservedEventKey.REVENUE.toString(), 100L);
+        eventTags.put(ReservedEventKey.VALUE.toString(), 1.5);
+        LogEvent conversionEvent = eventFactory.createConversionEvent(projectConfig, "user", eventType.getId(),
+            eventType.getKey(), attributes, eventTags);
+        add("LogEvent.conversion", datafile, conversionEvent);
+        add("EventBatch.conversion", datafile, conversionEvent.getEventBatch());
+    }
+
+    private void add(String benchmark, String datafile, Object root) {
+        ObjectGraphFootprint footprint = ObjectGraphFootprint.of(root);
+        entries.add("  {\"benchmark\": \"" + benchmark + "\", \"datafile\": \"" + datafile
+            + "\", \"objects\": " + footprint.getObjectCount() + ", \"bytes\": " + footprint.getTotalSize() + "}");
+    }
+
+    private String toJson() {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < entries.size(); i++) {
+            json.append(entries.get(i)).append(i == entries.size() - 1 ? "\n" : ",\n");
+        }
+        return json.append("]\n").toString();
+    }
+
+    private void write(File file, String json) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+        try {
+            writer.write(json);
+        } finally {
+            writer.close();
+        }
+    }
+
+    @SuppressFBWarnings(value="OBL_UNSATISFIED_OBLIGATION_EXCEPTION_EDGE", justification="stream is safely closed")
+    private static Properties loadBenchmarkProperties() throws IOException {
+        Properties properties = new Properties();
+        InputStream propertiesStream = FootprintReport.class.getResourceAsStream("/benchmark.properties");
+        properties.load(propertiesStream);
+        propertiesStream.close();
+        return properties;
+    }
+}
@@ -16,6 +16,7 @@
  */
 package com.optimizely.ab.config.parser;
 
+import com.optimizely.ab.GeneratedDatafile;
 import com.optimizely.ab.config.ProjectConfig;
 import com.optimizely.ab.config.ProjectConfigTestUtils;
 import org.openjdk.jmh.annotations.*;
@@ -57,4 +58,9 @@ public class JacksonConfigParserBenchmark {
     public ProjectConfig parseV4() throws ConfigParseException {
         return parser.parseProjectConfig(jsonV4);
     }
+
+    @Benchmark
+    public ProjectConfig parseGenerated(GeneratedDatafile datafile) throws ConfigParseException {
+        return parser.parseProjectConfig(datafile.getJson());
+    }
 }
@@ -0,0 +1,135 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config.parser;
+
+import com.optimizely.ab.BenchmarkUtils;
+import com.optimizely.ab.config.ProjectConfig;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for parsing the profiling datafiles with each parser, which also reports the retained heap size of
+ * the resulting {@link ProjectConfig}.
+ * <p>
+ * The retained size is measured once per trial as the growth of the used heap, after full collections, while a batch
+ * of configs is kept reachable. It is printed to the output of the forked benchmark JVM as
+ * {@code retained-size <parser> <experiments> <bytes>}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseSerialGC")
+@Warmup(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ProjectConfigFootprintBenchmark {
+
+    private static final int RETAINED_CONFIGS = 200;
+    private static final int RETAINED_EXPERIMENTS = RETAINED_CONFIGS * 50;
+
+    /**
+     * Number of experiments, the profiling datafiles have 10, 25 and 50, larger numbers use a generated datafile.
+     */
+    @Param({"10", "25", "50", "1000", "10000"})
+    private int numExperiments;
+
+    @Param({"builtin", "jackson", "gson"})
+    private String parserName;
+
+    private ConfigParser parser;
+    private byte[] datafile;
+
+    @Setup
+    @SuppressFBWarnings(value="OBL_UNSATISFIED_OBLIGATION_EXCEPTION_EDGE", justification="stream is safely closed")
+    public void setup() throws IOException, ConfigParseException {
+        Properties properties = new Properties();
+        InputStream propertiesStream = getClass().getResourceAsStream("/benchmark.properties");
+        properties.load(propertiesStream);
+        propertiesStream.close();
+
+        String datafilePathTemplate = properties.getProperty("datafilePathTemplate");
+        datafile = BenchmarkUtils.getDatafile(datafilePathTemplate, numExperiments).getBytes(StandardCharsets.UTF_8);
+
+        if ("jackson".equals(parserName)) {
+            parser = new JacksonConfigParser();
+        } else if ("gson".equals(parserName)) {
+            parser = new GsonConfigParser();
+        } else {
+            parser = new BuiltInConfigParser();
+        }
+
+        System.out.println("retained-size " + parserName + " " + numExperiments + " " + measureRetainedSize());
+    }
+
+    @Benchmark
+    public ProjectConfig parse() throws ConfigParseException {
+        return parser.parseProjectConfig(datafile);
+    }
+
+    //======== Helper methods ========//
+
+    /**
+     * @return the average number of bytes held by one parsed config, including its decision tables
+     */
+    private long measureRetainedSize() throws ConfigParseException {
+        // fewer of the generated configs, so they fit in the default heap
+        int retainedConfigs = Math.max(1, RETAINED_EXPERIMENTS / Math.max(50, numExperiments));
+        ProjectConfig[] projectConfigs = new ProjectConfig[retainedConfigs];
+        long before = usedHeapAfterGc();
+        for (int i = 0; i < projectConfigs.length; i++) {
+            projectConfigs[i] = parser.parseProjectConfig(datafile);
+            projectConfigs[i].getDecisionTables();
+        }
+        long after = usedHeapAfterGc();
+
+        // keep the configs reachable until the heap has been measured
+        if (projectConfigs[projectConfigs.length - 1] == null) {
+            throw new IllegalStateException();
+        }
+        return (after - before) / projectConfigs.length;
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // repeat until a collection frees nothing more
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used) {
+                break;
+            }
+            used = current;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config.parser;
+
+import com.optimizely.ab.DatafileGenerator;
+import com.optimizely.ab.config.ProjectConfig;
+import com.optimizely.ab.config.ProjectConfigTestUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@State(Scope.Benchmark)
+public class ProjectConfigSnapshotBenchmark {
+    BuiltInConfigParser parser;
+    byte[] jsonV4;
+    ByteBuffer snapshotV4;
+
+    @Setup
+    public void setUp() throws IOException {
+        parser = new BuiltInConfigParser();
+        jsonV4 = ProjectConfigTestUtils.validConfigJsonV4().getBytes(StandardCharsets.UTF_8);
+        snapshotV4 = directBuffer(ProjectConfigSnapshot.toBytes(ProjectConfigTestUtils.validProjectConfigV4()));
+    }
+
+    @Benchmark
+    public ProjectConfig parseV4() throws ConfigParseException {
+        return parser.parseProjectConfig(jsonV4);
+    }
+
+    @Benchmark
+    public ProjectConfig readSnapshotV4() {
+        return ProjectConfigSnapshot.read(snapshotV4.duplicate(), null);
+    }
+
+    @Benchmark
+    public ProjectConfig parseGenerated(GeneratedSnapshot generated) throws ConfigParseException {
+        return parser.parseProjectConfig(generated.json);
+    }
+
+    @Benchmark
+    public ProjectConfig readGeneratedSnapshot(GeneratedSnapshot generated) {
+        return ProjectConfigSnapshot.read(generated.snapshot.duplicate(), null);
+    }
+
+    /**
+     * Direct, like the mapped buffer a snapshot file is read from.
+     */
+    static ByteBuffer directBuffer(byte[] snapshot) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(snapshot.length);
+        buffer.put(snapshot);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * A datafile generated for a number of feature flags, and its snapshot.
+     */
+    @State(Scope.Benchmark)
+    public static class GeneratedSnapshot {
+        @Param({"100", "1000", "10000"})
+        int numFeatureFlags;
+        byte[] json;
+        ByteBuffer snapshot;
+
+        @Setup
+        public void setUp() throws ConfigParseException, IOException {
+            json = DatafileGenerator.forScale(numFeatureFlags).generate().getBytes(StandardCharsets.UTF_8);
+            snapshot = directBuffer(ProjectConfigSnapshot.toBytes(new BuiltInConfigParser().parseProjectConfig(json)));
+        }
+    }
+}
@@ -20,13 +20,25 @@ import com.optimizely.ab.bucketing.Bucketer;
 import com.optimizely.ab.bucketing.DecisionService;
 import com.optimizely.ab.bucketing.FeatureDecision;
 import com.optimizely.ab.bucketing.UserProfileService;
+import com.optimizely.ab.config.AtomicProjectConfigManager;
 import com.optimizely.ab.config.EventType;
 import com.optimizely.ab.config.Experiment;
 import com.optimizely.ab.config.FeatureFlag;
 import com.optimizely.ab.config.FeatureVariable;
 import com.optimizely.ab.config.FeatureVariableUsageInstance;
+import com.optimizely.ab.config.ObservableProjectConfigManager;
 import com.optimizely.ab.config.ProjectConfig;
+import com.optimizely.ab.config.ProjectConfigDiff;
+import com.optimizely.ab.config.ProjectConfigManager;
+import com.optimizely.ab.config.ProjectConfigRegistry;
+import com.optimizely.ab.config.Rollout;
 import com.optimizely.ab.config.Variation;
+import com.optimizely.ab.config.audience.AndCondition;
+import com.optimizely.ab.config.audience.Audience;
+import com.optimizely.ab.config.audience.Condition;
+import com.optimizely.ab.config.audience.NotCondition;
+import com.optimizely.ab.config.audience.OrCondition;
+import com.optimizely.ab.config.audience.UserAttribute;
 import com.optimizely.ab.config.parser.ConfigParseException;
 import com.optimizely.ab.error.ErrorHandler;
 import com.optimizely.ab.error.NoOpErrorHandler;
@@ -47,6 +59,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Top-level container class for Optimizely functionality.
@@ -72,9 +88,29 @@ import java.util.Map;
  * <b>NOTE:</b> by default, all exceptions originating from {@code Optimizely} calls are suppressed.
  * For example, attempting to activate an experiment that does not exist in the project config will cause an error
  * to be logged, and for the "control" variation to be returned.
+ *
+ * The project config is read from a {@link ProjectConfigManager} at the start of every call, so a manager that
+ * refreshes the datafile in the background (e.g. {@link com.optimizely.ab.config.PollingProjectConfigManager})
+ * takes effect without rebuilding the client:
+ * <pre>
+ *     Optimizely optimizely = Optimizely.builder()
+ *         .withConfigManager(projectConfigManager)
+ *         .withEventHandler(eventHandler)
+ *         .build();
+ * </pre>
+ * To not hold up application startup until the first config is fetched and parsed, the client can be built with a
+ * startup timeout. It then returns defaults until the config is available:
+ * <pre>
+ *     Optimizely optimizely = Optimizely.builder()
+ *         .withConfigManager(projectConfigManager)
+ *         .withEventHandler(eventHandler)
+ *         .withStartupTimeout(2, TimeUnit.SECONDS)
+ *         .build();
+ *     optimizely.getStartupFuture().thenAccept(...);
+ * </pre>
  */
 @ThreadSafe
-public class Optimizely {
+public class Optimizely implements AutoCloseable {
 
     private static final Logger logger = LoggerFactory.getLogger(Optimizely.class);
 
@@ -83,67 +119,180 @@ public class Optimizely {
     @VisibleForTesting
     final EventFactory eventFactory;
     @VisibleForTesting
-    ProjectConfig projectConfig;
+    ProjectConfigManager projectConfigManager;
     @VisibleForTesting
     final EventHandler eventHandler;
     @VisibleForTesting
     final ErrorHandler errorHandler;
-    private boolean isValid;
     public final NotificationCenter notificationCenter = new NotificationCenter();
 
     @Nullable
     private final UserProfileService userProfileService;
 
+    @Nullable
+    private volatile ProjectConfigRegistry.Lease configLease;
+
+    @Nullable
+    private Startup startup;
+
+    @Nullable
+    private ObservableProjectConfigManager.Listener configUpdateListener;
+
     private Optimizely(@Nonnull EventHandler eventHandler,
                        @Nonnull EventFactory eventFactory,
                        @Nonnull ErrorHandler errorHandler,
                        @Nullable DecisionService decisionService,
-                       @Nullable UserProfileService userProfileService) {
+                       @Nullable UserProfileService userProfileService,
+                       @Nullable ProjectConfigManager projectConfigManager) {
         this.decisionService = decisionService;
         this.eventHandler = eventHandler;
         this.eventFactory = eventFactory;
         this.errorHandler = errorHandler;
         this.userProfileService = userProfileService;
+        this.projectConfigManager = projectConfigManager;
     }
 
     /**
-     * Initializes the SDK state. Can conceivably re-use this in the future with datafile sync where
-     * we can re-initialize the SDK instead of re-instantiating.
+     * Initializes the SDK state. When no {@link ProjectConfigManager} was provided, the datafile is parsed once
+     * and held by a static manager.
      */
     @VisibleForTesting
-    void initialize(@Nonnull String datafile, @Nullable ProjectConfig projectConfig) {
-        if (projectConfig == null) {
-            try {
-                projectConfig = new ProjectConfig.Builder()
-                    .withDatafile(datafile)
-                    .build();
-                isValid = true;
-                logger.info("Datafile is valid");
-            } catch (ConfigParseException ex) {
-                logger.error("Unable to parse the datafile", ex);
-                logger.info("Datafile is invalid");
-                errorHandler.handleError(new OptimizelyRuntimeException(ex));
+    void initialize(@Nullable String datafile, @Nullable ProjectConfig projectConfig) {
+        initialize(datafile, projectConfig, null, -1, null);
+    }
+
+    /**
+     * @param configRegistry     when given, the config is leased from it instead of being parsed for this instance
+     * @param startupTimeout     when not negative, the config is awaited, or the datafile parsed, in the background
+     *                           and {@link #getStartupFuture()} completes at the latest after this timeout
+     * @param startupTimeoutUnit the time unit of the startup timeout argument
+     */
+    private void initialize(@Nullable final String datafile,
+                            @Nullable ProjectConfig projectConfig,
+                            @Nullable final ProjectConfigRegistry configRegistry,
+                            long startupTimeout,
+                            @Nullable TimeUnit startupTimeoutUnit) {
+        if (startupTimeout >= 0) {
+            startup = new Startup();
+        }
+
+        Runnable startupTask = null;
+        if (projectConfigManager == null) {
+            if (projectConfig == null && startup != null) {
+                // the datafile is parsed off the calling thread, like a config fetched by a manager
+                final AtomicProjectConfigManager atomicProjectConfigManager = new AtomicProjectConfigManager();
+                projectConfigManager = atomicProjectConfigManager;
+                startupTask = new Runnable() {
+                    @Override
+                    public void run() {
+                        ProjectConfig parsedConfig = parseDatafile(datafile, configRegistry);
+                        if (parsedConfig == null) {
+                            // nothing else is going to provide a config
+                            startup.complete();
+                            return;
+                        }
+                        atomicProjectConfigManager.setConfig(parsedConfig);
+                    }
+                };
+            } else {
+                if (projectConfig == null) {
+                    projectConfig = parseDatafile(datafile, configRegistry);
+                }
+                projectConfigManager = new AtomicProjectConfigManager(projectConfig);
             }
-        } else {
-            isValid = true;
         }
 
-        this.projectConfig = projectConfig;
+        if (projectConfigManager instanceof ObservableProjectConfigManager) {
+            configUpdateListener = new ObservableProjectConfigManager.Listener() {
+                @Override
+                public void onConfigPublished(@Nullable ProjectConfig previousConfig,
+                                              @Nonnull ProjectConfig projectConfig) {
+                    onConfigUpdate(previousConfig, projectConfig);
+                }
+            };
+            ((ObservableProjectConfigManager) projectConfigManager).addListener(configUpdateListener);
+        }
+
         if (decisionService == null) {
-            Bucketer bucketer = new Bucketer(projectConfig);
-            decisionService = new DecisionService(bucketer, errorHandler, projectConfig, userProfileService);
+            Bucketer bucketer = new Bucketer(projectConfigManager);
+            decisionService = new DecisionService(bucketer, errorHandler, projectConfigManager, userProfileService);
+        }
+
+        if (startup != null) {
+            startup.start(startupTimeout, startupTimeoutUnit, startupTask);
         }
     }
 
+    /**
+     * @return the parsed datafile, or {@code null} if it is invalid
+     */
+    @Nullable
+    private ProjectConfig parseDatafile(@Nullable String datafile, @Nullable ProjectConfigRegistry configRegistry) {
+        ProjectConfig projectConfig = null;
+        try {
+            if (configRegistry != null) {
+                configLease = configRegistry.acquire(datafile);
+                projectConfig = configLease.getConfig();
+            } else {
+                projectConfig = new ProjectConfig.Builder()
+                    .withDatafile(datafile)
+                    .build();
+            }
+            logger.info("Datafile is valid");
+        } catch (ConfigParseException ex) {
+            logger.error("Unable to parse the datafile", ex);
+            logger.info("Datafile is invalid");
+            errorHandler.handleError(new OptimizelyRuntimeException(ex));
+        }
+        return projectConfig;
+    }
+
     /**
      * Determine if the instance of the Optimizely client is valid. An instance can be deemed invalid if it was not
-     * initialized properly due to an invalid datafile being passed in.
+     * initialized properly due to an invalid datafile being passed in, or if its {@link ProjectConfigManager} has
+     * not produced a config yet.
      *
      * @return True if the Optimizely instance is valid.
      * False if the Optimizely instance is not valid.
      */
     public boolean isValid() {
-        return isValid;
+        return getProjectConfig() != null;
+    }
+
+    /**
+     * For a client built with a startup timeout, see {@link Builder#withStartupTimeout(long, TimeUnit)}, the returned
+     * future completes with this client once it has a project config, or once the startup timeout has elapsed,
+     * whichever comes first. Until it has a config, the client returns the same defaults as an invalid one:
+     * disabled features, {@code null} variations and variable values.
+     *
+     * @return the startup future, already completed for a client built without a startup timeout
+     */
+    public CompletableFuture<Optimizely> getStartupFuture() {
+        return startup == null ? CompletableFuture.completedFuture(this) : startup.future;
+    }
+
+    /**
+     * Releases the resources held by the {@link ProjectConfigManager}, such as a background polling thread, and the
+     * lease on a config shared through a {@link ProjectConfigRegistry}.
+     */
+    @Override
+    public void close() {
+        if (startup != null) {
+            startup.close();
+        }
+        if (configUpdateListener != null) {
+            ((ObservableProjectConfigManager) projectConfigManager).removeListener(configUpdateListener);
+        }
+        if (configLease != null) {
+            configLease.close();
+        }
+        if (projectConfigManager instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) projectConfigManager).close();
+            } catch (Exception e) {
+                logger.warn("Unexpected exception closing the project config manager", e);
+            }
+        }
     }
 
     //======== activate calls ========//
@@ -158,7 +307,8 @@ public class Optimizely {
     public Variation activate(@Nonnull String experimentKey,
                               @Nonnull String userId,
                               @Nonnull Map<String, ?> attributes) throws UnknownExperimentException {
-        if (!isValid) {
+        ProjectConfig currentConfig = getProjectConfig();
+        if (currentConfig == null) {
             logger.error("Optimizely instance is not valid, failing activate call.");
             return null;
         }
@@ -173,8 +323,6 @@ public class Optimizely {
             return null;
         }
 
-        ProjectConfig currentConfig = getProjectConfig();
-
         Experiment experiment = currentConfig.getExperimentForKey(experimentKey, errorHandler);
         if (experiment == null) {
             // if we're unable to retrieve the associated experiment, return null
@@ -202,11 +350,11 @@ public class Optimizely {
     }
 
     @Nullable
-    private Variation activate(@Nonnull ProjectConfig projectConfig,
+    private Variation activate(@Nullable ProjectConfig projectConfig,
                                @Nonnull Experiment experiment,
                                @Nonnull String userId,
                                @Nonnull Map<String, ?> attributes) {
-        if (!isValid) {
+        if (projectConfig == null) {
             logger.error("Optimizely instance is not valid, failing activate call.");
             return null;
         }
@@ -217,7 +365,7 @@ public class Optimizely {
         }
         Map<String, ?> copiedAttributes = copyAttributes(attributes);
         // bucket the user to the given experiment and dispatch an impression event
-        Variation variation = decisionService.getVariation(experiment, userId, copiedAttributes);
+        Variation variation = decisionService.getVariation(experiment, userId, copiedAttributes, projectConfig);
         if (variation == null) {
             logger.info("Not activating user \"{}\" for experiment \"{}\".", userId, experiment.getKey());
             return null;
@@ -278,7 +426,8 @@ public class Optimizely {
                       @Nonnull String userId,
                       @Nonnull Map<String, ?> attributes,
                       @Nonnull Map<String, ?> eventTags) throws UnknownEventTypeException {
-        if (!isValid) {
+        ProjectConfig currentConfig = getProjectConfig();
+        if (currentConfig == null) {
             logger.error("Optimizely instance is not valid, failing track call.");
             return;
         }
@@ -294,7 +443,6 @@ public class Optimizely {
             return;
         }
 
-        ProjectConfig currentConfig = getProjectConfig();
         Map<String, ?> copiedAttributes = copyAttributes(attributes);
 
         EventType eventType = currentConfig.getEventTypeForName(eventName, errorHandler);
@@ -310,7 +458,7 @@ public class Optimizely {
 
         // create the conversion event request parameters, then dispatch
         LogEvent conversionEvent = eventFactory.createConversionEvent(
-            projectConfig,
+            currentConfig,
             userId,
             eventType.getId(),
             eventType.getKey(),
@@ -367,7 +515,8 @@ public class Optimizely {
     public Boolean isFeatureEnabled(@Nonnull String featureKey,
                                     @Nonnull String userId,
                                     @Nonnull Map<String, ?> attributes) {
-        if (!isValid) {
+        ProjectConfig currentConfig = getProjectConfig();
+        if (currentConfig == null) {
             logger.error("Optimizely instance is not valid, failing isFeatureEnabled call.");
             return false;
         }
@@ -379,19 +528,21 @@ public class Optimizely {
             logger.warn("The userId parameter must be nonnull.");
             return false;
         }
-        FeatureFlag featureFlag = projectConfig.getFeatureKeyMapping().get(featureKey);
+
+        FeatureFlag featureFlag = currentConfig.getFeatureKeyMapping().get(featureKey);
         if (featureFlag == null) {
             logger.info("No feature flag was found for key \"{}\".", featureKey);
             return false;
         }
 
         Map<String, ?> copiedAttributes = copyAttributes(attributes);
-        FeatureDecision featureDecision = decisionService.getVariationForFeature(featureFlag, userId, copiedAttributes);
+        FeatureDecision featureDecision = decisionService.getVariationForFeature(featureFlag, userId, copiedAttributes,
+            currentConfig);
 
         if (featureDecision.variation != null) {
             if (featureDecision.decisionSource.equals(FeatureDecision.DecisionSource.EXPERIMENT)) {
                 sendImpression(
-                    projectConfig,
+                    currentConfig,
                     featureDecision.experiment,
                     userId,
                     copiedAttributes,
@@ -441,11 +592,6 @@ public class Optimizely {
                                              @Nonnull String variableKey,
                                              @Nonnull String userId,
                                              @Nonnull Map<String, ?> attributes) {
-        if (!isValid) {
-            logger.error("Optimizely instance is not valid, failing getFeatureVariableBoolean call.");
-            return null;
-        }
-
         String variableValue = getFeatureVariableValueForType(
             featureKey,
             variableKey,
@@ -490,11 +636,6 @@ public class Optimizely {
                                            @Nonnull String variableKey,
                                            @Nonnull String userId,
                                            @Nonnull Map<String, ?> attributes) {
-        if (!isValid) {
-            logger.error("Optimizely instance is not valid, failing getFeatureVariableDouble call.");
-            return null;
-        }
-
         String variableValue = getFeatureVariableValueForType(
             featureKey,
             variableKey,
@@ -544,11 +685,6 @@ public class Optimizely {
                                              @Nonnull String variableKey,
                                              @Nonnull String userId,
                                              @Nonnull Map<String, ?> attributes) {
-        if (!isValid) {
-            logger.error("Optimizely instance is not valid, failing getFeatureVariableInteger call.");
-            return null;
-        }
-
         String variableValue = getFeatureVariableValueForType(
             featureKey,
             variableKey,
@@ -598,11 +734,6 @@ public class Optimizely {
                                            @Nonnull String variableKey,
                                            @Nonnull String userId,
                                            @Nonnull Map<String, ?> attributes) {
-        if (!isValid) {
-            logger.error("Optimizely instance is not valid, failing getFeatureVariableString call.");
-            return null;
-        }
-
         return getFeatureVariableValueForType(
             featureKey,
             variableKey,
@@ -627,7 +758,14 @@ public class Optimizely {
             logger.warn("The userId parameter must be nonnull.");
             return null;
         }
-        FeatureFlag featureFlag = projectConfig.getFeatureKeyMapping().get(featureKey);
+
+        ProjectConfig currentConfig = getProjectConfig();
+        if (currentConfig == null) {
+            logger.error("Optimizely instance is not valid, failing getFeatureVariableValueForType call.");
+            return null;
+        }
+
+        FeatureFlag featureFlag = currentConfig.getFeatureKeyMapping().get(featureKey);
         if (featureFlag == null) {
             logger.info("No feature flag was found for key \"{}\".", featureKey);
             return null;
@@ -648,7 +786,8 @@ public class Optimizely {
 
         String variableValue = variable.getDefaultValue();
         Map<String, ?> copiedAttributes = copyAttributes(attributes);
-        FeatureDecision featureDecision = decisionService.getVariationForFeature(featureFlag, userId, copiedAttributes);
+        FeatureDecision featureDecision = decisionService.getVariationForFeature(featureFlag, userId, copiedAttributes,
+            currentConfig);
         if (featureDecision.variation != null) {
             FeatureVariableUsageInstance featureVariableUsageInstance =
                 featureDecision.variation.getVariableIdToFeatureVariableUsageInstanceMap().get(variable.getId());
@@ -678,7 +817,8 @@ public class Optimizely {
     public List<String> getEnabledFeatures(@Nonnull String userId, @Nonnull Map<String, ?> attributes) {
         List<String> enabledFeaturesList = new ArrayList<String>();
 
-        if (!isValid) {
+        ProjectConfig currentConfig = getProjectConfig();
+        if (currentConfig == null) {
             logger.error("Optimizely instance is not valid, failing getEnabledFeatures call.");
             return enabledFeaturesList;
         }
@@ -688,7 +828,7 @@ public class Optimizely {
         }
 
         Map<String, ?> copiedAttributes = copyAttributes(attributes);
-        for (FeatureFlag featureFlag : projectConfig.getFeatureFlags()) {
+        for (FeatureFlag featureFlag : currentConfig.getFeatureFlags()) {
             String featureKey = featureFlag.getKey();
             if (isFeatureEnabled(featureKey, userId, copiedAttributes))
                 enabledFeaturesList.add(featureKey);
@@ -710,9 +850,15 @@ public class Optimizely {
     public Variation getVariation(@Nonnull Experiment experiment,
                                   @Nonnull String userId,
                                   @Nonnull Map<String, ?> attributes) throws UnknownExperimentException {
+        ProjectConfig currentConfig = getProjectConfig();
+        if (currentConfig == null) {
+            logger.error("Optimizely instance is not valid, failing getVariation call.");
+            return null;
+        }
+
         Map<String, ?> copiedAttributes = copyAttributes(attributes);
 
-        return decisionService.getVariation(experiment, userId, copiedAttributes);
+        return decisionService.getVariation(experiment, userId, copiedAttributes, currentConfig);
     }
 
     @Nullable
@@ -726,7 +872,8 @@ public class Optimizely {
     public Variation getVariation(@Nonnull String experimentKey,
                                   @Nonnull String userId,
                                   @Nonnull Map<String, ?> attributes) {
-        if (!isValid) {
+        ProjectConfig currentConfig = getProjectConfig();
+        if (currentConfig == null) {
             logger.error("Optimizely instance is not valid, failing getVariation call.");
             return null;
         }
@@ -740,15 +887,13 @@ public class Optimizely {
             return null;
         }
 
-        ProjectConfig currentConfig = getProjectConfig();
-
         Experiment experiment = currentConfig.getExperimentForKey(experimentKey, errorHandler);
         if (experiment == null) {
             // if we're unable to retrieve the associated experiment, return null
             return null;
         }
         Map<String, ?> copiedAttributes = copyAttributes(attributes);
-        return decisionService.getVariation(experiment, userId, copiedAttributes);
+        return decisionService.getVariation(experiment, userId, copiedAttributes, currentConfig);
     }
 
     /**
@@ -766,18 +911,27 @@ public class Optimizely {
     public boolean setForcedVariation(@Nonnull String experimentKey,
                                       @Nonnull String userId,
                                       @Nullable String variationKey) {
-        if (!isValid) {
+        ProjectConfig currentConfig = getProjectConfig();
+        if (currentConfig == null) {
             logger.error("Optimizely instance is not valid, failing setForcedVariation call.");
             return false;
         }
 
-        return projectConfig.setForcedVariation(experimentKey, userId, variationKey);
+        // if the experiment is not a valid experiment key, don't set it.
+        Experiment experiment = currentConfig.getExperimentKeyMapping().get(experimentKey);
+        if (experiment == null) {
+            logger.error("Experiment {} does not exist in ProjectConfig for project {}",
+                experimentKey, currentConfig.getProjectId());
+            return false;
+        }
+
+        return decisionService.setForcedVariation(experiment, userId, variationKey);
     }
 
     /**
      * Gets the forced variation for a given user and experiment.
-     * This method just calls into the {@link com.optimizely.ab.config.ProjectConfig#getForcedVariation(String, String)}
-     * method of the same signature.
+     * This method just calls into the {@link DecisionService#getForcedVariation(Experiment, String)}
+     * method with the experiment of the current config.
      *
      * @param experimentKey The key for the experiment.
      * @param userId        The user ID to be used for bucketing.
@@ -787,20 +941,36 @@ public class Optimizely {
     @Nullable
     public Variation getForcedVariation(@Nonnull String experimentKey,
                                         @Nonnull String userId) {
-        if (!isValid) {
+        ProjectConfig currentConfig = getProjectConfig();
+        if (currentConfig == null) {
             logger.error("Optimizely instance is not valid, failing getForcedVariation call.");
             return null;
         }
 
-        return projectConfig.getForcedVariation(experimentKey, userId);
+        if (experimentKey == null || experimentKey.isEmpty()) {
+            logger.error("experiment key is invalid");
+            return null;
+        }
+
+        Experiment experiment = currentConfig.getExperimentKeyMapping().get(experimentKey);
+        if (experiment == null) {
+            logger.debug("No experiment \"{}\" mapped to user \"{}\" in the forced variation map ", experimentKey, userId);
+            return null;
+        }
+
+        return decisionService.getForcedVariation(experiment, userId);
     }
 
     /**
-     * @return the current {@link ProjectConfig} instance.
+     * @return the current {@link ProjectConfig} instance, or {@code null} if none is available.
      */
-    @Nonnull
+    @Nullable
     public ProjectConfig getProjectConfig() {
-        return projectConfig;
+        // during startup the manager is not asked until it has a config, as it may block until it has one
+        if (startup != null && !startup.ready) {
+            return null;
+        }
+        return projectConfigManager.getConfig();
     }
 
     @Nullable
@@ -808,8 +978,128 @@ public class Optimizely {
         return userProfileService;
     }
 
+    //======== warmup ========//
+
+    /**
+     * Runs synthetic users through every experiment, rollout rule and audience of the current config, and builds
+     * the impression and conversion events they would send, so the decision and event paths are compiled before
+     * the client takes traffic.
+     * <p>
+     * Decisions are made by a separate {@link DecisionService} without a {@link UserProfileService}, so no profiles
+     * are read or written. Events are built and serialized but never dispatched, and no notifications are sent.
+     *
+     * @param iterations the number of synthetic users to run, every user is decided for the whole config
+     * @return whether the warmup ran, false if the client has no config yet
+     */
+    public boolean warmup(int iterations) {
+        if (iterations < 0) {
+            throw new IllegalArgumentException("warmup iterations must be >= 0");
+        }
+
+        ProjectConfig projectConfig = getProjectConfig();
+        if (projectConfig == null) {
+            logger.error("Optimizely instance is not valid, failing warmup call.");
+            return false;
+        }
+
+        DecisionService warmupDecisionService =
+            new DecisionService(new Bucketer(projectConfig), errorHandler, projectConfig, null);
+        // alternate between users without attributes and users matching the audience conditions
+        List<Map<String, ?>> attributeSets = new ArrayList<Map<String, ?>>(2);
+        attributeSets.add(Collections.<String, Object>emptyMap());
+        attributeSets.add(warmupAttributes(projectConfig));
+
+        long startTime = System.nanoTime();
+        long decisions = 0;
+        for (int i = 0; i < iterations; i++) {
+            String userId = "warmup-user-" + i;
+            Map<String, ?> attributes = attributeSets.get(i % attributeSets.size());
+
+            for (Experiment experiment : projectConfig.getExperiments()) {
+                Variation variation = warmupDecisionService.getVariation(experiment, userId, attributes);
+                if (variation != null) {
+                    eventFactory.createImpressionEvent(projectConfig, experiment, variation, userId, attributes)
+                        .getBody();
+                }
+                decisions++;
+            }
+            for (Rollout rollout : projectConfig.getRollouts()) {
+                for (Experiment rule : rollout.getExperiments()) {
+                    warmupDecisionService.getVariation(rule, userId, attributes);
+                    decisions++;
+                }
+            }
+            for (FeatureFlag featureFlag : projectConfig.getFeatureFlags()) {
+                warmupDecisionService.getVariationForFeature(featureFlag, userId, attributes);
+                decisions++;
+            }
+            for (EventType eventType : projectConfig.getEventTypes()) {
+                eventFactory.createConversionEvent(projectConfig, userId, eventType.getId(), eventType.getKey(),
+                    attributes, Collections.<String, Object>emptyMap()).getBody();
+            }
+        }
+
+        logger.info("Warmup made {} decisions for {} users in {} ms.", decisions, iterations,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        return true;
+    }
+
     //======== Helper methods ========//
 
+    /**
+     * Collects an attribute value from every leaf condition of the config's audiences, so that synthetic users
+     * carrying them evaluate the conditions through to their match types. Conflicting values keep the first one.
+     */
+    private static Map<String, Object> warmupAttributes(@Nonnull ProjectConfig projectConfig) {
+        Map<String, Object> attributes = new HashMap<String, Object>();
+        List<Audience> audiences = new ArrayList<Audience>(projectConfig.getAudiences());
+        audiences.addAll(projectConfig.getTypedAudiences());
+        for (Audience audience : audiences) {
+            collectAttributes(audience.getConditions(), attributes);
+        }
+        return attributes;
+    }
+
+    private static void collectAttributes(@Nullable Condition condition, @Nonnull Map<String, Object> attributes) {
+        if (condition instanceof UserAttribute) {
+            UserAttribute<?> userAttribute = (UserAttribute<?>) condition;
+            if (userAttribute.getValue() != null && !attributes.containsKey(userAttribute.getName())) {
+                attributes.put(userAttribute.getName(), userAttribute.getValue());
+            }
+        } else if (condition instanceof AndCondition) {
+            for (Condition child : ((AndCondition<?>) condition).getConditions()) {
+                collectAttributes(child, attributes);
+            }
+        } else if (condition instanceof OrCondition) {
+            for (Condition child : ((OrCondition<?>) condition).getConditions()) {
+                collectAttributes(child, attributes);
+            }
+        } else if (condition instanceof NotCondition) {
+            collectAttributes(((NotCondition<?>) condition).getCondition(), attributes);
+        }
+    }
+
+    /**
+     * Sends the {@link NotificationCenter.NotificationType#ConfigUpdate} notification for a config that replaced
+     * another one. Called by the {@link ObservableProjectConfigManager} on the thread that published it, so the diff
+     * is computed once per new config and never on the thread of a call.
+     */
+    private void onConfigUpdate(@Nullable ProjectConfig previousConfig, @Nonnull ProjectConfig projectConfig) {
+        if (previousConfig == projectConfig) {
+            return;
+        }
+        if (!notificationCenter.hasNotificationListeners(NotificationCenter.NotificationType.ConfigUpdate)) {
+            return;
+        }
+
+        // with no config before it, e.g. the first one or the first after a reset, everything has been added
+        ProjectConfigDiff diff = previousConfig == null
+            ? ProjectConfigDiff.added(projectConfig)
+            : ProjectConfigDiff.between(previousConfig, projectConfig);
+        logger.debug("Project config updated from revision {} to {}.", diff.getPreviousRevision(), diff.getRevision());
+        notificationCenter.sendNotifications(NotificationCenter.NotificationType.ConfigUpdate, diff);
+    }
+
     /**
      * Helper function to check that the provided userId is valid
      *
@@ -846,6 +1136,14 @@ public class Optimizely {
         return new Builder(datafile, eventHandler);
     }
 
+    /**
+     * @return a builder without a datafile, for a client that reads its config from a {@link ProjectConfigManager},
+     * see {@link Builder#withConfigManager(ProjectConfigManager)}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
     /**
      * {@link Optimizely} instance builder.
      * <p>
@@ -853,9 +1151,12 @@ public class Optimizely {
      * created {@link Optimizely} object will <b>NOT</b> throw exceptions unless otherwise specified.
      *
      * @see #builder(String, EventHandler)
+     * @see #builder()
      */
     public static class Builder {
 
+        public static final long DEFAULT_STARTUP_TIMEOUT_SECONDS = 10;
+
         private String datafile;
         private Bucketer bucketer;
         private DecisionService decisionService;
@@ -866,6 +1167,10 @@ public class Optimizely {
         private String clientVersion;
         private ProjectConfig projectConfig;
         private UserProfileService userProfileService;
+        private ProjectConfigManager projectConfigManager;
+        private ProjectConfigRegistry configRegistry;
+        private long startupTimeout = -1;
+        private TimeUnit startupTimeoutUnit;
 
         public Builder(@Nonnull String datafile,
                        @Nonnull EventHandler eventHandler) {
@@ -873,6 +1178,23 @@ public class Optimizely {
             this.eventHandler = eventHandler;
         }
 
+        public Builder() {
+        }
+
+        public Builder withEventHandler(EventHandler eventHandler) {
+            this.eventHandler = eventHandler;
+            return this;
+        }
+
+        /**
+         * Reads the project config from the given manager at the start of every call, rather than parsing a
+         * datafile once.
+         */
+        public Builder withConfigManager(ProjectConfigManager projectConfigManager) {
+            this.projectConfigManager = projectConfigManager;
+            return this;
+        }
+
         protected Builder withBucketing(Bucketer bucketer) {
             this.bucketer = bucketer;
             return this;
@@ -908,6 +1230,42 @@ public class Optimizely {
             return this;
         }
 
+        /**
+         * Shares the parsed datafile through the given registry with every other instance built from the same
+         * project revision, e.g. {@link ProjectConfigRegistry#getDefault()}. The config is released when the
+         * instance is {@link Optimizely#close() closed}. Forced variations are kept by each instance, so sharing
+         * the config does not share them.
+         * <p>
+         * The registry only applies to a config parsed from the datafile, so it can't be combined with
+         * {@link #withConfigManager(ProjectConfigManager)}, and {@link #build()} rejects the combination.
+         */
+        public Builder withConfigRegistry(ProjectConfigRegistry configRegistry) {
+            this.configRegistry = configRegistry;
+            return this;
+        }
+
+        /**
+         * Makes the built client usable right away, without blocking on the first project config. The config is
+         * awaited from the {@link ProjectConfigManager}, or the datafile parsed, in the background, and calls made
+         * before it is available return defaults. {@link Optimizely#getStartupFuture()} completes once the config
+         * is available, or after the given timeout, whichever comes first.
+         * <p>
+         * An {@link ObservableProjectConfigManager} signals its first config as it publishes it. Other managers are
+         * asked once, on a background thread, and are asked on every call after they have answered.
+         *
+         * @param timeout  the longest time the startup future waits for the config, the client switches over to
+         *                 a config that only becomes available later
+         * @param timeUnit the time unit of the timeout argument
+         */
+        public Builder withStartupTimeout(long timeout, @Nonnull TimeUnit timeUnit) {
+            if (timeout < 0) {
+                throw new IllegalArgumentException("startup timeout must be >= 0");
+            }
+            this.startupTimeout = timeout;
+            this.startupTimeoutUnit = timeUnit;
+            return this;
+        }
+
         // Helper function for making testing easier
         protected Builder withConfig(ProjectConfig projectConfig) {
             this.projectConfig = projectConfig;
@@ -915,6 +1273,10 @@ public class Optimizely {
         }
 
         public Optimizely build() {
+            if (configRegistry != null && projectConfigManager != null) {
+                throw new IllegalArgumentException("A config registry can't be combined with a project config manager");
+            }
+
             if (clientEngine == null) {
                 clientEngine = ClientEngine.JAVA_SDK;
             }
@@ -934,12 +1296,125 @@ public class Optimizely {
 
             // Used for convenience while unit testing to override/mock bucketing. This interface is NOT public and should be refactored out.
             if (bucketer != null && decisionService == null) {
-                decisionService = new DecisionService(bucketer, errorHandler, projectConfig, userProfileService);
+                if (projectConfigManager != null) {
+                    decisionService = new DecisionService(bucketer, errorHandler, projectConfigManager, userProfileService);
+                } else {
+                    decisionService = new DecisionService(bucketer, errorHandler, projectConfig, userProfileService);
+                }
             }
 
-            Optimizely optimizely = new Optimizely(eventHandler, eventFactory, errorHandler, decisionService, userProfileService);
-            optimizely.initialize(datafile, projectConfig);
+            Optimizely optimizely = new Optimizely(eventHandler, eventFactory, errorHandler, decisionService,
+                userProfileService, projectConfigManager);
+            optimizely.initialize(datafile, projectConfig, configRegistry, startupTimeout, startupTimeoutUnit);
             return optimizely;
         }
+
+        /**
+         * Builds a client that waits for its project config in the background, with a startup timeout of
+         * {@value #DEFAULT_STARTUP_TIMEOUT_SECONDS} seconds unless {@link #withStartupTimeout(long, TimeUnit)} set
+         * another. To make calls before the config is available, {@link #build()} the client with a startup
+         * timeout instead, and wait on its {@link Optimizely#getStartupFuture()}.
+         *
+         * @return a future completed with the client once it has a project config or the startup timeout elapsed
+         */
+        public CompletableFuture<Optimizely> buildAsync() {
+            if (startupTimeout < 0) {
+                withStartupTimeout(DEFAULT_STARTUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            return build().getStartupFuture();
+        }
+    }
+
+    //======== Helper classes ========//
+
+    /**
+     * Brings up a client built with a startup timeout. {@link #future} completes when the manager publishes its
+     * first config or the timeout elapses, whichever comes first. Until the manager has a config, calls don't ask it
+     * for one, as it may block until it has.
+     */
+    private final class Startup implements ObservableProjectConfigManager.Listener {
+        private final CompletableFuture<Optimizely> future = new CompletableFuture<Optimizely>();
+        private volatile boolean ready;
+        private volatile ScheduledFuture<?> timeoutFuture;
+
+        /**
+         * @param task run on a background thread, e.g. to parse the datafile
+         */
+        void start(final long timeout, final TimeUnit timeUnit, @Nullable Runnable task) {
+            timeoutFuture = StartupTimer.EXECUTOR.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (future.complete(Optimizely.this)) {
+                        logger.warn("No project config after a startup timeout of {} {}. Returning defaults until " +
+                            "there is one.", timeout, timeUnit);
+                    }
+                }
+            }, timeout, timeUnit);
+
+            if (projectConfigManager instanceof ObservableProjectConfigManager) {
+                ((ObservableProjectConfigManager) projectConfigManager).addListener(this);
+            } else if (task == null) {
+                // without a way to be told, ask the manager once, off the calling thread
+                task = new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            if (projectConfigManager.getConfig() != null) {
+                                complete();
+                                return;
+                            }
+                        } catch (Exception e) {
+                            logger.error("Unexpected exception waiting for the project config", e);
+                        }
+                        // the manager has answered, so it doesn't block and can be asked on every call
+                        ready = true;
+                    }
+                };
+            }
+
+            if (task != null) {
+                StartupTimer.THREAD_FACTORY.newThread(task).start();
+            }
+        }
+
+        @Override
+        public void onConfigPublished(@Nullable ProjectConfig previousConfig, @Nonnull ProjectConfig projectConfig) {
+            complete();
+        }
+
+        /**
+         * Lets calls through to the manager and completes the startup, called once the manager has a config or none
+         * is going to be available.
+         */
+        void complete() {
+            ready = true;
+            future.complete(Optimizely.this);
+            close();
+        }
+
+        void close() {
+            ScheduledFuture<?> timeout = timeoutFuture;
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            if (projectConfigManager instanceof ObservableProjectConfigManager) {
+                ((ObservableProjectConfigManager) projectConfigManager).removeListener(this);
+            }
+        }
+    }
+
+    /**
+     * Shared by all clients, as enforcing a startup timeout only completes a future.
+     */
+    private static final class StartupTimer {
+        static final NamedThreadFactory THREAD_FACTORY = new NamedThreadFactory("optimizely-startup-thread-%s", true);
+        static final ScheduledThreadPoolExecutor EXECUTOR = new ScheduledThreadPoolExecutor(1, THREAD_FACTORY);
+
+        static {
+            EXECUTOR.setRemoveOnCancelPolicy(true);
+            // no thread lingers once the clients have started
+            EXECUTOR.setKeepAliveTime(1, TimeUnit.SECONDS);
+            EXECUTOR.allowCoreThreadTimeOut(true);
+        }
     }
 }
@@ -0,0 +1,126 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.bucketing;
+
+import com.optimizely.ab.bucketing.internal.MurmurHash3;
+import com.optimizely.ab.config.DecisionTables;
+import com.optimizely.ab.config.DecisionTables.CompiledExperiment;
+import com.optimizely.ab.config.DecisionTables.CompiledGroup;
+import com.optimizely.ab.config.Experiment;
+import com.optimizely.ab.config.ProjectConfig;
+import com.optimizely.ab.config.Variation;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buckets many bucketing ids into one experiment at a time, for offline jobs that re-bucket whole user bases.
+ * <p>
+ * Results are written to primitive arrays and are the same as one {@link Bucketer#bucket(Experiment, String)} call
+ * per bucketing id. The group and experiment ids each are encoded once per batch rather than concatenated to and
+ * hashed with every bucketing id, and no logging, user profiles or forced variations are involved.
+ */
+@Immutable
+public class BatchBucketer {
+
+    private final ProjectConfig projectConfig;
+    private final Bucketer bucketer;
+
+    public BatchBucketer(@Nonnull ProjectConfig projectConfig) {
+        this.projectConfig = projectConfig;
+        this.bucketer = new Bucketer(projectConfig);
+    }
+
+    /**
+     * Computes the bucket value of each bucketing id, "salted" with the given group or experiment id.
+     *
+     * @param salt         the id of the group or experiment
+     * @param bucketingIds the bucketing ids
+     * @param bucketValues receives the bucket value in the range [0, 10000) of each bucketing id, at the same index
+     */
+    public void bucketValues(@Nonnull String salt,
+                             @Nonnull CharSequence[] bucketingIds,
+                             @Nonnull int[] bucketValues) {
+        checkLength(bucketingIds, bucketValues);
+
+        MurmurHash3.Suffix encodedSalt = MurmurHash3.suffix(salt);
+        for (int i = 0; i < bucketingIds.length; i++) {
+            int hashCode = encodedSalt.hashWithPrefix(bucketingIds[i], Bucketer.MURMUR_HASH_SEED);
+            bucketValues[i] = bucketer.generateBucketValue(hashCode);
+        }
+    }
+
+    /**
+     * Buckets each bucketing id into a variation of the experiment, through its mutually exclusive group if it has
+     * one.
+     *
+     * @param experiment        the experiment to bucket into
+     * @param bucketingIds      the bucketing ids
+     * @param variationOrdinals receives the index in {@link Experiment#getVariations()} of the variation of each
+     *                          bucketing id, at the same index, or -1 if it is not bucketed into the experiment
+     */
+    public void variationOrdinals(@Nonnull Experiment experiment,
+                                  @Nonnull CharSequence[] bucketingIds,
+                                  @Nonnull int[] variationOrdinals) {
+        checkLength(bucketingIds, variationOrdinals);
+
+        DecisionTables decisionTables = projectConfig.getDecisionTables();
+        CompiledExperiment compiledExperiment = decisionTables.getExperiment(experiment);
+        CompiledGroup group = decisionTables.getGroup(compiledExperiment);
+
+        List<Variation> variations = experiment.getVariations();
+        Map<Variation, Integer> ordinalsByVariation = new IdentityHashMap<Variation, Integer>(variations.size());
+        for (int i = 0; i < variations.size(); i++) {
+            ordinalsByVariation.put(variations.get(i), i);
+        }
+
+        MurmurHash3.Suffix encodedGroupId = group == null ? null : MurmurHash3.suffix(group.getGroup().getId());
+        MurmurHash3.Suffix encodedExperimentId = MurmurHash3.suffix(experiment.getId());
+        for (int i = 0; i < bucketingIds.length; i++) {
+            CharSequence bucketingId = bucketingIds[i];
+            variationOrdinals[i] = -1;
+
+            if (group != null) {
+                int hashCode = encodedGroupId.hashWithPrefix(bucketingId, Bucketer.MURMUR_HASH_SEED);
+                int bucketedExperimentOrdinal = group.getExperimentOrdinalForBucketValue(
+                    bucketer.generateBucketValue(hashCode));
+                if (bucketedExperimentOrdinal < 0 || bucketedExperimentOrdinal != compiledExperiment.getOrdinal()) {
+                    continue;
+                }
+            }
+
+            int hashCode = encodedExperimentId.hashWithPrefix(bucketingId, Bucketer.MURMUR_HASH_SEED);
+            Variation variation = compiledExperiment.getVariationForBucketValue(bucketer.generateBucketValue(hashCode));
+            if (variation != null) {
+                Integer ordinal = ordinalsByVariation.get(variation);
+                variationOrdinals[i] = ordinal == null ? -1 : ordinal;
+            }
+        }
+    }
+
+    //======== Helper methods ========//
+
+    private static void checkLength(CharSequence[] bucketingIds, int[] results) {
+        if (results.length < bucketingIds.length) {
+            throw new IllegalArgumentException("Results array of length " + results.length +
+                " is shorter than the " + bucketingIds.length + " bucketing ids.");
+        }
+    }
+}
@@ -18,10 +18,13 @@ package com.optimizely.ab.bucketing;
 
 import com.optimizely.ab.annotations.VisibleForTesting;
 import com.optimizely.ab.bucketing.internal.MurmurHash3;
+import com.optimizely.ab.config.AtomicProjectConfigManager;
+import com.optimizely.ab.config.DecisionTables;
+import com.optimizely.ab.config.DecisionTables.CompiledExperiment;
+import com.optimizely.ab.config.DecisionTables.CompiledGroup;
 import com.optimizely.ab.config.Experiment;
-import com.optimizely.ab.config.Group;
 import com.optimizely.ab.config.ProjectConfig;
-import com.optimizely.ab.config.TrafficAllocation;
+import com.optimizely.ab.config.ProjectConfigManager;
 import com.optimizely.ab.config.Variation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,7 +32,6 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
-import java.util.List;
 
 /**
  * Default Optimizely bucketing algorithm that evenly distributes users using the Murmur3 hash of some provided
@@ -43,11 +45,11 @@ import java.util.List;
 @Immutable
 public class Bucketer {
 
-    private final ProjectConfig projectConfig;
+    private final ProjectConfigManager projectConfigManager;
 
     private static final Logger logger = LoggerFactory.getLogger(Bucketer.class);
 
-    private static final int MURMUR_HASH_SEED = 1;
+    static final int MURMUR_HASH_SEED = 1;
 
     /**
      * The maximum bucket value (represents 100 Basis Points).
@@ -56,64 +58,40 @@ public class Bucketer {
     static final int MAX_TRAFFIC_VALUE = 10000;
 
     public Bucketer(ProjectConfig projectConfig) {
-        this.projectConfig = projectConfig;
+        this(new AtomicProjectConfigManager(projectConfig));
     }
 
-    private String bucketToEntity(int bucketValue, List<TrafficAllocation> trafficAllocations) {
-        int currentEndOfRange;
-        for (TrafficAllocation currAllocation : trafficAllocations) {
-            currentEndOfRange = currAllocation.getEndOfRange();
-            if (bucketValue < currentEndOfRange) {
-                // for mutually exclusive bucketing, de-allocated space is represented by an empty string
-                if (currAllocation.getEntityId().isEmpty()) {
-                    return null;
-                }
-                return currAllocation.getEntityId();
-            }
-        }
-
-        return null;
+    public Bucketer(ProjectConfigManager projectConfigManager) {
+        this.projectConfigManager = projectConfigManager;
     }
 
-    private Experiment bucketToExperiment(@Nonnull Group group,
-                                          @Nonnull String bucketingId) {
+    private int bucketToExperiment(@Nonnull CompiledGroup group,
+                                   @Nonnull String bucketingId,
+                                   @Nonnull MurmurHash3.Prefix bucketingIdHash) {
         // "salt" the bucket id using the group id
-        String bucketKey = bucketingId + group.getId();
-
-        List<TrafficAllocation> trafficAllocations = group.getTrafficAllocation();
-
-        int hashCode = MurmurHash3.murmurhash3_x86_32(bucketKey, 0, bucketKey.length(), MURMUR_HASH_SEED);
+        int hashCode = bucketingIdHash.hashWithSuffix(group.getGroup().getId());
         int bucketValue = generateBucketValue(hashCode);
         logger.debug("Assigned bucket {} to user with bucketingId \"{}\" during experiment bucketing.", bucketValue, bucketingId);
 
-        String bucketedExperimentId = bucketToEntity(bucketValue, trafficAllocations);
-        if (bucketedExperimentId != null) {
-            return projectConfig.getExperimentIdMapping().get(bucketedExperimentId);
-        }
-
-        // user was not bucketed to an experiment in the group
-        return null;
+        // -1 if the user was not bucketed to an experiment in the group
+        return group.getExperimentOrdinalForBucketValue(bucketValue);
     }
 
-    private Variation bucketToVariation(@Nonnull Experiment experiment,
-                                        @Nonnull String bucketingId) {
+    private Variation bucketToVariation(@Nonnull CompiledExperiment compiledExperiment,
+                                        @Nonnull String bucketingId,
+                                        @Nonnull MurmurHash3.Prefix bucketingIdHash) {
         // "salt" the bucket id using the experiment id
-        String experimentId = experiment.getId();
+        Experiment experiment = compiledExperiment.getExperiment();
         String experimentKey = experiment.getKey();
-        String combinedBucketId = bucketingId + experimentId;
 
-        List<TrafficAllocation> trafficAllocations = experiment.getTrafficAllocation();
-
-        int hashCode = MurmurHash3.murmurhash3_x86_32(combinedBucketId, 0, combinedBucketId.length(), MURMUR_HASH_SEED);
+        int hashCode = bucketingIdHash.hashWithSuffix(experiment.getId());
         int bucketValue = generateBucketValue(hashCode);
         logger.debug("Assigned bucket {} to user with bucketingId \"{}\" when bucketing to a variation.", bucketValue, bucketingId);
 
-        String bucketedVariationId = bucketToEntity(bucketValue, trafficAllocations);
-        if (bucketedVariationId != null) {
-            Variation bucketedVariation = experiment.getVariationIdToVariationMap().get(bucketedVariationId);
-            String variationKey = bucketedVariation.getKey();
-            logger.info("User with bucketingId \"{}\" is in variation \"{}\" of experiment \"{}\".", bucketingId, variationKey,
-                experimentKey);
+        Variation bucketedVariation = compiledExperiment.getVariationForBucketValue(bucketValue);
+        if (bucketedVariation != null) {
+            logger.info("User with bucketingId \"{}\" is in variation \"{}\" of experiment \"{}\".", bucketingId,
+                bucketedVariation.getKey(), experimentKey);
 
             return bucketedVariation;
         }
@@ -133,34 +111,51 @@ public class Bucketer {
     @Nullable
     public Variation bucket(@Nonnull Experiment experiment,
                             @Nonnull String bucketingId) {
+        return bucket(experiment, bucketingId, projectConfigManager.getConfig());
+    }
+
+    /**
+     * Assign a {@link Variation} of an {@link Experiment} to a user, bucketing with the traffic allocation of the
+     * given config rather than the current one of the {@link ProjectConfigManager}.
+     *
+     * @param experiment    The Experiment in which the user is to be bucketed.
+     * @param bucketingId   string A customer-assigned value used to create the key for the murmur hash.
+     * @param projectConfig The config the rest of the decision is made with.
+     * @return Variation the user is bucketed into or null.
+     */
+    @Nullable
+    public Variation bucket(@Nonnull Experiment experiment,
+                            @Nonnull String bucketingId,
+                            @Nonnull ProjectConfig projectConfig) {
+        DecisionTables decisionTables = projectConfig.getDecisionTables();
+        CompiledExperiment compiledExperiment = decisionTables.getExperiment(experiment);
+
         // ---------- Bucket User ----------
-        String groupId = experiment.getGroupId();
-        // check whether the experiment belongs to a group
-        if (!groupId.isEmpty()) {
-            Group experimentGroup = projectConfig.getGroupIdMapping().get(groupId);
-            // bucket to an experiment only if group entities are to be mutually exclusive
-            if (experimentGroup.getPolicy().equals(Group.RANDOM_POLICY)) {
-                Experiment bucketedExperiment = bucketToExperiment(experimentGroup, bucketingId);
-                if (bucketedExperiment == null) {
-                    logger.info("User with bucketingId \"{}\" is not in any experiment of group {}.", bucketingId, experimentGroup.getId());
-                    return null;
-                } else {
-
-                }
-                // if the experiment a user is bucketed in within a group isn't the same as the experiment provided,
-                // don't perform further bucketing within the experiment
-                if (!bucketedExperiment.getId().equals(experiment.getId())) {
-                    logger.info("User with bucketingId \"{}\" is not in experiment \"{}\" of group {}.", bucketingId, experiment.getKey(),
-                        experimentGroup.getId());
-                    return null;
-                }
-
-                logger.info("User with bucketingId \"{}\" is in experiment \"{}\" of group {}.", bucketingId, experiment.getKey(),
-                    experimentGroup.getId());
+        // the bucketing id is hashed once, and each salt is only appended to the hash state
+        MurmurHash3.Prefix bucketingIdHash = MurmurHash3.prefix(bucketingId, MURMUR_HASH_SEED);
+
+        // bucket to an experiment first if the experiment belongs to a mutually exclusive group
+        CompiledGroup experimentGroup = decisionTables.getGroup(compiledExperiment);
+        if (experimentGroup != null) {
+            String groupId = experimentGroup.getGroup().getId();
+            int bucketedExperimentOrdinal = bucketToExperiment(experimentGroup, bucketingId, bucketingIdHash);
+            if (bucketedExperimentOrdinal < 0) {
+                logger.info("User with bucketingId \"{}\" is not in any experiment of group {}.", bucketingId, groupId);
+                return null;
             }
+            // if the experiment a user is bucketed in within a group isn't the same as the experiment provided,
+            // don't perform further bucketing within the experiment
+            if (bucketedExperimentOrdinal != compiledExperiment.getOrdinal()) {
+                logger.info("User with bucketingId \"{}\" is not in experiment \"{}\" of group {}.", bucketingId, experiment.getKey(),
+                    groupId);
+                return null;
+            }
+
+            logger.info("User with bucketingId \"{}\" is in experiment \"{}\" of group {}.", bucketingId, experiment.getKey(),
+                groupId);
         }
 
-        return bucketToVariation(experiment, bucketingId);
+        return bucketToVariation(compiledExperiment, bucketingId, bucketingIdHash);
     }
 
 
@@ -174,9 +169,9 @@ public class Bucketer {
      */
     @VisibleForTesting
     int generateBucketValue(int hashCode) {
-        // map the hashCode into the range [0, BucketAlgorithm.MAX_TRAFFIC_VALUE)
-        double ratio = (double) (hashCode & 0xFFFFFFFFL) / Math.pow(2, 32);
-        return (int) Math.floor(MAX_TRAFFIC_VALUE * ratio);
+        // map the hashCode into the range [0, BucketAlgorithm.MAX_TRAFFIC_VALUE), as floor(MAX_TRAFFIC_VALUE *
+        // unsigned hashCode / 2^32), which is exact in 64 bit integer arithmetic
+        return (int) (((hashCode & 0xFFFFFFFFL) * MAX_TRAFFIC_VALUE) >>> 32);
     }
 
 
@@ -0,0 +1,633 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.bucketing;
+
+import com.optimizely.ab.annotations.VisibleForTesting;
+import com.optimizely.ab.config.DecisionTables;
+import com.optimizely.ab.config.DecisionTables.CompiledExperiment;
+import com.optimizely.ab.config.DecisionTables.CompiledGroup;
+import com.optimizely.ab.config.Experiment;
+import com.optimizely.ab.config.Group;
+import com.optimizely.ab.config.ProjectConfig;
+import com.optimizely.ab.config.Variation;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Buckets a large sample of users into every experiment and mutually exclusive group of a {@link ProjectConfig} and
+ * compares the observed distribution with the one the traffic allocation calls for, to verify unusual splits before
+ * they are launched.
+ * <p>
+ * User ids are bucketed in chunks on a {@link ForkJoinPool} with a {@link BatchBucketer}, and only per-chunk counts
+ * are kept, so memory does not grow with the sample size. Each experiment is bucketed like
+ * {@link Bucketer#bucket(Experiment, String)} with the user id as bucketing id, ignoring audiences, forced
+ * variations and user profiles. Rollout rules are not simulated.
+ */
+@Immutable
+public class BucketingSimulator {
+
+    @VisibleForTesting
+    static final int CHUNK_SIZE = 4096;
+
+    private static final String NOT_BUCKETED = "(not bucketed)";
+    private static final String NO_EXPERIMENT = "(no experiment)";
+
+    private final ForkJoinPool pool;
+    private final BatchBucketer batchBucketer;
+    private final List<Tally> experimentTallies;
+    private final List<Tally> groupTallies;
+    private final int categoryCount;
+
+    public BucketingSimulator(@Nonnull ProjectConfig projectConfig) {
+        this(projectConfig, ForkJoinPool.commonPool());
+    }
+
+    public BucketingSimulator(@Nonnull ProjectConfig projectConfig, @Nonnull ForkJoinPool pool) {
+        this.pool = pool;
+        this.batchBucketer = new BatchBucketer(projectConfig);
+
+        DecisionTables decisionTables = projectConfig.getDecisionTables();
+        int offset = 0;
+
+        experimentTallies = new ArrayList<Tally>();
+        for (Experiment experiment : projectConfig.getExperiments()) {
+            Tally tally = experimentTally(decisionTables, experiment, offset);
+            experimentTallies.add(tally);
+            offset += tally.categories.size();
+        }
+
+        groupTallies = new ArrayList<Tally>();
+        List<Group> groups = projectConfig.getGroups();
+        for (int i = 0; i < groups.size(); i++) {
+            if (groups.get(i).getPolicy().equals(Group.RANDOM_POLICY)) {
+                Tally tally = groupTally(decisionTables, decisionTables.getGroup(i), offset);
+                groupTallies.add(tally);
+                offset += tally.categories.size();
+            }
+        }
+
+        categoryCount = offset;
+    }
+
+    /**
+     * Generates and buckets the given number of user ids.
+     *
+     * @param userIds    the user ids to bucket
+     * @param sampleSize the number of user ids, generated with the indexes 0 to sampleSize - 1
+     * @return the observed and expected distributions
+     */
+    @Nonnull
+    public Report simulate(@Nonnull UserIdGenerator userIds, long sampleSize) {
+        Counter counter = new Counter();
+        for (long from = 0; from < sampleSize; from += CHUNK_SIZE) {
+            counter.submit(new Chunk(userIds, from, (int) Math.min(CHUNK_SIZE, sampleSize - from)));
+        }
+        return counter.finish();
+    }
+
+    /**
+     * Buckets the user ids read from the given reader, one per line. Empty lines are skipped.
+     *
+     * @param userIds the reader to read the user ids from, which is not closed
+     * @return the observed and expected distributions
+     * @throws IOException if reading fails
+     */
+    @Nonnull
+    public Report simulate(@Nonnull Reader userIds) throws IOException {
+        BufferedReader reader = userIds instanceof BufferedReader
+            ? (BufferedReader) userIds : new BufferedReader(userIds);
+        Counter counter = new Counter();
+
+        String[] chunk = new String[CHUNK_SIZE];
+        int size = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            chunk[size++] = line;
+            if (size == CHUNK_SIZE) {
+                counter.submit(new Chunk(chunk));
+                chunk = new String[CHUNK_SIZE];
+                size = 0;
+            }
+        }
+        if (size > 0) {
+            counter.submit(new Chunk(Arrays.copyOf(chunk, size)));
+        }
+        return counter.finish();
+    }
+
+    /**
+     * @return user ids made of the given prefix followed by their index
+     */
+    @Nonnull
+    public static UserIdGenerator sequentialUserIds(@Nonnull final String prefix) {
+        return new UserIdGenerator() {
+            @Nonnull
+            @Override
+            public String getUserId(long index) {
+                return prefix + index;
+            }
+        };
+    }
+
+    /**
+     * @return pseudo-random hexadecimal user ids, which are the same for the same seed and index
+     */
+    @Nonnull
+    public static UserIdGenerator randomUserIds(final long seed) {
+        return new UserIdGenerator() {
+            @Nonnull
+            @Override
+            public String getUserId(long index) {
+                // SplitMix64
+                long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+                z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+                z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+                return Long.toHexString(z ^ (z >>> 31));
+            }
+        };
+    }
+
+    //======== Helper methods ========//
+
+    private static Tally experimentTally(DecisionTables decisionTables, Experiment experiment, int offset) {
+        CompiledExperiment compiledExperiment = decisionTables.getExperiment(experiment);
+        CompiledGroup group = decisionTables.getGroup(compiledExperiment);
+
+        // the share of users the group leaves to this experiment
+        double groupShare = 1;
+        if (group != null) {
+            groupShare = 0;
+            for (int bucketValue = 0; bucketValue < Bucketer.MAX_TRAFFIC_VALUE; bucketValue++) {
+                if (group.getExperimentOrdinalForBucketValue(bucketValue) == compiledExperiment.getOrdinal()
+                    && compiledExperiment.getOrdinal() >= 0) {
+                    groupShare += bucketValueShare(bucketValue);
+                }
+            }
+        }
+
+        List<Variation> variations = experiment.getVariations();
+        Map<Variation, Integer> ordinalsByVariation = new IdentityHashMap<Variation, Integer>(variations.size());
+        List<String> categories = new ArrayList<String>(variations.size() + 1);
+        for (int i = 0; i < variations.size(); i++) {
+            ordinalsByVariation.put(variations.get(i), i);
+            categories.add(variations.get(i).getKey());
+        }
+        categories.add(NOT_BUCKETED);
+
+        double[] expectedShares = new double[categories.size()];
+        for (int bucketValue = 0; bucketValue < Bucketer.MAX_TRAFFIC_VALUE; bucketValue++) {
+            Variation variation = compiledExperiment.getVariationForBucketValue(bucketValue);
+            Integer ordinal = variation == null ? null : ordinalsByVariation.get(variation);
+            if (ordinal != null) {
+                expectedShares[ordinal] += groupShare * bucketValueShare(bucketValue);
+            }
+        }
+        expectedShares[variations.size()] = notAllocatedShare(expectedShares);
+
+        return new Tally(experiment.getKey(), experiment, null, offset, categories, expectedShares, null);
+    }
+
+    private static Tally groupTally(DecisionTables decisionTables, CompiledGroup group, int offset) {
+        List<Experiment> experiments = group.getGroup().getExperiments();
+        List<String> categories = new ArrayList<String>(experiments.size() + 1);
+        for (Experiment experiment : experiments) {
+            categories.add(experiment.getKey());
+        }
+        categories.add(NO_EXPERIMENT);
+
+        // the category of each bucket value, so counting needs no lookups
+        int[] categoryByBucketValue = new int[Bucketer.MAX_TRAFFIC_VALUE];
+        double[] expectedShares = new double[categories.size()];
+        for (int bucketValue = 0; bucketValue < Bucketer.MAX_TRAFFIC_VALUE; bucketValue++) {
+            int experimentOrdinal = group.getExperimentOrdinalForBucketValue(bucketValue);
+            int category = experiments.size();
+            for (int i = 0; i < experiments.size() && experimentOrdinal >= 0; i++) {
+                if (decisionTables.getExperiment(experiments.get(i)).getOrdinal() == experimentOrdinal) {
+                    category = i;
+                    break;
+                }
+            }
+            categoryByBucketValue[bucketValue] = category;
+            expectedShares[category] += bucketValueShare(bucketValue);
+        }
+
+        String groupId = group.getGroup().getId();
+        return new Tally(groupId, null, groupId, offset, categories, expectedShares, categoryByBucketValue);
+    }
+
+    /**
+     * @return the share of 32-bit hash codes that {@link Bucketer#generateBucketValue(int)} maps to the bucket value,
+     * which is not exactly the same for every bucket value as 2^32 isn't a multiple of 10000
+     */
+    private static double bucketValueShare(int bucketValue) {
+        long first = ((long) bucketValue << 32) + Bucketer.MAX_TRAFFIC_VALUE - 1;
+        long next = ((long) (bucketValue + 1) << 32) + Bucketer.MAX_TRAFFIC_VALUE - 1;
+        return (double) (next / Bucketer.MAX_TRAFFIC_VALUE - first / Bucketer.MAX_TRAFFIC_VALUE) / (1L << 32);
+    }
+
+    private static double notAllocatedShare(double[] expectedShares) {
+        double allocatedShare = 0;
+        for (int i = 0; i < expectedShares.length - 1; i++) {
+            allocatedShare += expectedShares[i];
+        }
+        return Math.max(0, 1 - allocatedShare);
+    }
+
+    /**
+     * @return the probability that a chi-square distributed value with the given degrees of freedom is at least as
+     * large as the given one
+     */
+    @VisibleForTesting
+    static double chiSquarePValue(double chiSquare, int degreesOfFreedom) {
+        if (degreesOfFreedom <= 0 || chiSquare <= 0) {
+            return 1;
+        }
+        if (Double.isInfinite(chiSquare)) {
+            return 0;
+        }
+        return regularizedGammaQ(degreesOfFreedom / 2.0, chiSquare / 2);
+    }
+
+    /**
+     * The upper regularized incomplete gamma function, by series below a + 1 and by continued fraction above, as
+     * in Numerical Recipes.
+     */
+    private static double regularizedGammaQ(double a, double x) {
+        double logPrefactor = -x + a * Math.log(x) - logGamma(a);
+        if (x < a + 1) {
+            double term = 1 / a;
+            double sum = term;
+            for (int n = 1; n < 10000 && Math.abs(term) > Math.abs(sum) * 1e-15; n++) {
+                term *= x / (a + n);
+                sum += term;
+            }
+            return Math.max(0, 1 - sum * Math.exp(logPrefactor));
+        }
+
+        double tiny = 1e-300;
+        double b = x + 1 - a;
+        double c = 1 / tiny;
+        double d = 1 / b;
+        double fraction = d;
+        for (int i = 1; i < 10000; i++) {
+            double an = -i * (i - a);
+            b += 2;
+            d = an * d + b;
+            d = Math.abs(d) < tiny ? tiny : d;
+            c = b + an / c;
+            c = Math.abs(c) < tiny ? tiny : c;
+            d = 1 / d;
+            double delta = d * c;
+            fraction *= delta;
+            if (Math.abs(delta - 1) < 1e-15) {
+                break;
+            }
+        }
+        return Math.exp(logPrefactor) * fraction;
+    }
+
+    /**
+     * The natural logarithm of the gamma function, by the Lanczos approximation.
+     */
+    private static double logGamma(double x) {
+        double[] coefficients = {76.18009172947146, -86.50532032941677, 24.01409824083091, -1.231739572450155,
+            0.1208650973866179e-2, -0.5395239384953e-5};
+        double y = x;
+        double tmp = x + 5.5;
+        tmp -= (x + 0.5) * Math.log(tmp);
+        double series = 1.000000000190015;
+        for (double coefficient : coefficients) {
+            series += coefficient / ++y;
+        }
+        return -tmp + Math.log(2.5066282746310005 * series / x);
+    }
+
+    //======== Helper classes ========//
+
+    /**
+     * Generates the user ids of a simulation by index, so chunks of them can be generated concurrently.
+     */
+    public interface UserIdGenerator {
+
+        /**
+         * @param index the index of the user id in the sample
+         * @return the user id, the same every time for the same index
+         */
+        @Nonnull
+        String getUserId(long index);
+    }
+
+    /**
+     * Where an experiment or group keeps its counts in the flat count array of a chunk, and what it expects.
+     */
+    private static final class Tally {
+
+        private final String key;
+        private final Experiment experiment;
+        private final String groupId;
+        private final int offset;
+        private final List<String> categories;
+        private final double[] expectedShares;
+        private final int[] categoryByBucketValue;
+
+        private Tally(String key,
+                      Experiment experiment,
+                      String groupId,
+                      int offset,
+                      List<String> categories,
+                      double[] expectedShares,
+                      int[] categoryByBucketValue) {
+            this.key = key;
+            this.experiment = experiment;
+            this.groupId = groupId;
+            this.offset = offset;
+            this.categories = categories;
+            this.expectedShares = expectedShares;
+            this.categoryByBucketValue = categoryByBucketValue;
+        }
+    }
+
+    /**
+     * Buckets one chunk of user ids into every experiment and group, counting into a fresh array.
+     */
+    private final class Chunk implements Callable<long[]> {
+
+        private final String[] userIds;
+        private final UserIdGenerator userIdGenerator;
+        private final long from;
+        private final int size;
+
+        private Chunk(String[] userIds) {
+            this.userIds = userIds;
+            this.userIdGenerator = null;
+            this.from = 0;
+            this.size = userIds.length;
+        }
+
+        private Chunk(UserIdGenerator userIdGenerator, long from, int size) {
+            this.userIds = null;
+            this.userIdGenerator = userIdGenerator;
+            this.from = from;
+            this.size = size;
+        }
+
+        @Override
+        public long[] call() {
+            String[] ids = userIds;
+            if (ids == null) {
+                ids = new String[size];
+                for (int i = 0; i < size; i++) {
+                    ids[i] = userIdGenerator.getUserId(from + i);
+                }
+            }
+
+            long[] counts = new long[categoryCount];
+            int[] results = new int[size];
+            for (Tally tally : experimentTallies) {
+                batchBucketer.variationOrdinals(tally.experiment, ids, results);
+                int notBucketed = tally.categories.size() - 1;
+                for (int result : results) {
+                    counts[tally.offset + (result < 0 ? notBucketed : result)]++;
+                }
+            }
+            for (Tally tally : groupTallies) {
+                batchBucketer.bucketValues(tally.groupId, ids, results);
+                for (int bucketValue : results) {
+                    counts[tally.offset + tally.categoryByBucketValue[bucketValue]]++;
+                }
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Keeps a bounded number of chunks in flight on the pool and adds up their counts as they complete.
+     */
+    private final class Counter {
+
+        private final Queue<ForkJoinTask<long[]>> inFlight = new ArrayDeque<ForkJoinTask<long[]>>();
+        private final int maxInFlight = 2 * pool.getParallelism();
+        private final long[] counts = new long[categoryCount];
+        private long sampleSize;
+
+        void submit(Chunk chunk) {
+            if (inFlight.size() >= maxInFlight) {
+                add(inFlight.remove().join());
+            }
+            inFlight.add(pool.submit(chunk));
+            sampleSize += chunk.size;
+        }
+
+        Report finish() {
+            while (!inFlight.isEmpty()) {
+                add(inFlight.remove().join());
+            }
+            return new Report(sampleSize, distributions(experimentTallies), distributions(groupTallies));
+        }
+
+        private void add(long[] chunkCounts) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += chunkCounts[i];
+            }
+        }
+
+        private List<Distribution> distributions(List<Tally> tallies) {
+            List<Distribution> distributions = new ArrayList<Distribution>(tallies.size());
+            for (Tally tally : tallies) {
+                long[] tallyCounts = Arrays.copyOfRange(counts, tally.offset, tally.offset + tally.categories.size());
+                distributions.add(new Distribution(tally.key, tally.categories, tallyCounts, tally.expectedShares));
+            }
+            return Collections.unmodifiableList(distributions);
+        }
+    }
+
+    /**
+     * The results of a simulation.
+     */
+    @Immutable
+    public static final class Report {
+
+        private final long sampleSize;
+        private final List<Distribution> experiments;
+        private final List<Distribution> groups;
+
+        private Report(long sampleSize, List<Distribution> experiments, List<Distribution> groups) {
+            this.sampleSize = sampleSize;
+            this.experiments = experiments;
+            this.groups = groups;
+        }
+
+        public long getSampleSize() {
+            return sampleSize;
+        }
+
+        /**
+         * @return the distribution of the users over the variations of each experiment, in datafile order
+         */
+        @Nonnull
+        public List<Distribution> getExperiments() {
+            return experiments;
+        }
+
+        /**
+         * @return the distribution of the users over the experiments of each mutually exclusive group, in datafile
+         * order
+         */
+        @Nonnull
+        public List<Distribution> getGroups() {
+            return groups;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format(Locale.ROOT, "%d users%n", sampleSize));
+            for (Distribution distribution : experiments) {
+                report.append("experiment ").append(distribution);
+            }
+            for (Distribution distribution : groups) {
+                report.append("group ").append(distribution);
+            }
+            return report.toString();
+        }
+    }
+
+    /**
+     * The observed and expected distribution of the users over the variations of an experiment, or over the
+     * experiments of a group, with Pearson's chi-square test of how well they agree.
+     * <p>
+     * The last category is the users who are not bucketed into any variation or experiment. Categories that no
+     * users are expected in are left out of the test, and any user counted in one fails it outright.
+     */
+    @Immutable
+    public static final class Distribution {
+
+        private final String key;
+        private final List<String> categories;
+        private final long[] counts;
+        private final double[] expectedShares;
+        private final double chiSquare;
+        private final int degreesOfFreedom;
+
+        private Distribution(String key, List<String> categories, long[] counts, double[] expectedShares) {
+            this.key = key;
+            this.categories = Collections.unmodifiableList(categories);
+            this.counts = counts;
+            this.expectedShares = expectedShares;
+
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            double chiSquare = 0;
+            int testedCategories = 0;
+            for (int i = 0; i < counts.length; i++) {
+                double expected = expectedShares[i] * total;
+                if (expected > 0) {
+                    double deviation = counts[i] - expected;
+                    chiSquare += deviation * deviation / expected;
+                    testedCategories++;
+                } else if (counts[i] > 0) {
+                    chiSquare = Double.POSITIVE_INFINITY;
+                }
+            }
+            this.chiSquare = total == 0 ? 0 : chiSquare;
+            this.degreesOfFreedom = Math.max(0, testedCategories - 1);
+        }
+
+        /**
+         * @return the experiment key, or the group id
+         */
+        @Nonnull
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return the variation keys, or experiment keys of a group, followed by a category for the rest of the users
+         */
+        @Nonnull
+        public List<String> getCategories() {
+            return categories;
+        }
+
+        public long getCount(int category) {
+            return counts[category];
+        }
+
+        /**
+         * @return the share of users the traffic allocation puts in the category
+         */
+        public double getExpectedShare(int category) {
+            return expectedShares[category];
+        }
+
+        public double getChiSquare() {
+            return chiSquare;
+        }
+
+        public int getDegreesOfFreedom() {
+            return degreesOfFreedom;
+        }
+
+        /**
+         * @return the probability of a deviation from the expected distribution at least as large as the observed one
+         * if bucketing follows the traffic allocation; a small value means it most likely doesn't
+         */
+        public double getPValue() {
+            return chiSquarePValue(chiSquare, degreesOfFreedom);
+        }
+
+        @Override
+        public String toString() {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+
+            StringBuilder distribution = new StringBuilder();
+            distribution.append(String.format(Locale.ROOT,
+                "\"%s\": chi-square %.3f with %d degrees of freedom, p-value %.4f%n",
+                key, chiSquare, degreesOfFreedom, getPValue()));
+            for (int i = 0; i < counts.length; i++) {
+                double observedShare = total == 0 ? 0 : (double) counts[i] / total;
+                distribution.append(String.format(Locale.ROOT, "    %s: %d (%.4f%%, expected %.4f%%)%n",
+                    categories.get(i), counts[i], 100 * observedShare, 100 * expectedShares[i]));
+            }
+            return distribution.toString();
+        }
+    }
+}
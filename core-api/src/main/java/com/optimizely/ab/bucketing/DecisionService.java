@@ -16,12 +16,15 @@
 package com.optimizely.ab.bucketing;
 
 import com.optimizely.ab.OptimizelyRuntimeException;
+import com.optimizely.ab.config.AtomicProjectConfigManager;
+import com.optimizely.ab.config.DecisionTables;
+import com.optimizely.ab.config.DecisionTables.CompiledExperiment;
+import com.optimizely.ab.config.DecisionTables.CompiledRollout;
 import com.optimizely.ab.config.Experiment;
 import com.optimizely.ab.config.FeatureFlag;
 import com.optimizely.ab.config.ProjectConfig;
-import com.optimizely.ab.config.Rollout;
+import com.optimizely.ab.config.ProjectConfigManager;
 import com.optimizely.ab.config.Variation;
-import com.optimizely.ab.config.audience.Audience;
 import com.optimizely.ab.error.ErrorHandler;
 import com.optimizely.ab.internal.ExperimentUtils;
 import com.optimizely.ab.internal.ControlAttribute;
@@ -31,6 +34,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -49,10 +53,20 @@ public class DecisionService {
 
     private final Bucketer bucketer;
     private final ErrorHandler errorHandler;
-    private final ProjectConfig projectConfig;
+    private final ProjectConfigManager projectConfigManager;
     private final UserProfileService userProfileService;
     private static final Logger logger = LoggerFactory.getLogger(DecisionService.class);
 
+    /**
+     * Forced variations supersede any other mappings.  They are transient and are not persistent or part of
+     * the actual datafile. This contains all the forced variations set by the user by calling
+     * {@link DecisionService#setForcedVariation(Experiment, String, String)} (it is not the same as the
+     * whitelisting forcedVariations data structure in the Experiments class). They are kept by user ID and
+     * experiment ID, so they belong to this client only and outlive a refreshed config.
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, String>> forcedVariationMapping =
+        new ConcurrentHashMap<String, ConcurrentHashMap<String, String>>();
+
     /**
      * Initialize a decision service for the Optimizely client.
      *
@@ -65,9 +79,25 @@ public class DecisionService {
                            @Nonnull ErrorHandler errorHandler,
                            @Nullable ProjectConfig projectConfig,
                            @Nullable UserProfileService userProfileService) {
+        this(bucketer, errorHandler, new AtomicProjectConfigManager(projectConfig), userProfileService);
+    }
+
+    /**
+     * Initialize a decision service that reads the current config from the given {@link ProjectConfigManager},
+     * so a refreshed config is picked up without rebuilding the service.
+     *
+     * @param bucketer             Base bucketer to allocate new users to an experiment.
+     * @param errorHandler         The error handler of the Optimizely client.
+     * @param projectConfigManager Source of the Optimizely Project Config representing the datafile.
+     * @param userProfileService   UserProfileService implementation for storing user info.
+     */
+    public DecisionService(@Nonnull Bucketer bucketer,
+                           @Nonnull ErrorHandler errorHandler,
+                           @Nonnull ProjectConfigManager projectConfigManager,
+                           @Nullable UserProfileService userProfileService) {
         this.bucketer = bucketer;
         this.errorHandler = errorHandler;
-        this.projectConfig = projectConfig;
+        this.projectConfigManager = projectConfigManager;
         this.userProfileService = userProfileService;
     }
 
@@ -83,13 +113,32 @@ public class DecisionService {
     public Variation getVariation(@Nonnull Experiment experiment,
                                   @Nonnull String userId,
                                   @Nonnull Map<String, ?> filteredAttributes) {
+        return getVariation(experiment, userId, filteredAttributes, projectConfigManager.getConfig());
+    }
+
+    /**
+     * Get a {@link Variation} of an {@link Experiment} for a user to be allocated into, deciding with the given
+     * config only. Callers read the config once per call and pass it down, so a config refreshed mid-call can't
+     * mix two revisions into one decision.
+     *
+     * @param experiment         The Experiment the user will be bucketed into.
+     * @param userId             The userId of the user.
+     * @param filteredAttributes The user's attributes. This should be filtered to just attributes in the Datafile.
+     * @param projectConfig      The config to decide with.
+     * @return The {@link Variation} the user is allocated into.
+     */
+    @Nullable
+    public Variation getVariation(@Nonnull Experiment experiment,
+                                  @Nonnull String userId,
+                                  @Nonnull Map<String, ?> filteredAttributes,
+                                  @Nonnull ProjectConfig projectConfig) {
 
         if (!ExperimentUtils.isExperimentActive(experiment)) {
             return null;
         }
 
         // look for forced bucketing first.
-        Variation variation = projectConfig.getForcedVariation(experiment.getKey(), userId);
+        Variation variation = getForcedVariation(experiment, userId);
 
         // check for whitelisting
         if (variation == null) {
@@ -121,7 +170,7 @@ public class DecisionService {
 
         // check if user exists in user profile
         if (userProfile != null) {
-            variation = getStoredVariation(experiment, userProfile);
+            variation = getStoredVariation(experiment, userProfile, projectConfig);
             // return the stored variation if it exists
             if (variation != null) {
                 return variation;
@@ -132,7 +181,7 @@ public class DecisionService {
 
         if (ExperimentUtils.isUserInExperiment(projectConfig, experiment, filteredAttributes)) {
             String bucketingId = getBucketingId(userId, filteredAttributes);
-            variation = bucketer.bucket(experiment, bucketingId);
+            variation = bucketer.bucket(experiment, bucketingId, projectConfig);
 
             if (variation != null) {
                 if (userProfileService != null) {
@@ -161,10 +210,29 @@ public class DecisionService {
     public FeatureDecision getVariationForFeature(@Nonnull FeatureFlag featureFlag,
                                            @Nonnull String userId,
                                            @Nonnull Map<String, ?> filteredAttributes) {
-        if (!featureFlag.getExperimentIds().isEmpty()) {
-            for (String experimentId : featureFlag.getExperimentIds()) {
-                Experiment experiment = projectConfig.getExperimentIdMapping().get(experimentId);
-                Variation variation = this.getVariation(experiment, userId, filteredAttributes);
+        return getVariationForFeature(featureFlag, userId, filteredAttributes, projectConfigManager.getConfig());
+    }
+
+    /**
+     * Get the variation the user is bucketed into for the FeatureFlag, deciding with the given config only.
+     *
+     * @param featureFlag        The feature flag the user wants to access.
+     * @param userId             User Identifier
+     * @param filteredAttributes A map of filtered attributes.
+     * @param projectConfig      The config to decide with.
+     * @return {@link FeatureDecision}
+     */
+    @Nonnull
+    public FeatureDecision getVariationForFeature(@Nonnull FeatureFlag featureFlag,
+                                                  @Nonnull String userId,
+                                                  @Nonnull Map<String, ?> filteredAttributes,
+                                                  @Nonnull ProjectConfig projectConfig) {
+        DecisionTables decisionTables = projectConfig.getDecisionTables();
+        CompiledExperiment[] featureExperiments = decisionTables.getFeatureExperiments(featureFlag);
+        if (featureExperiments.length > 0) {
+            for (CompiledExperiment featureExperiment : featureExperiments) {
+                Experiment experiment = featureExperiment.getExperiment();
+                Variation variation = this.getVariation(experiment, userId, filteredAttributes, projectConfig);
                 if (variation != null) {
                     return new FeatureDecision(experiment, variation,
                         FeatureDecision.DecisionSource.EXPERIMENT);
@@ -174,7 +242,8 @@ public class DecisionService {
             logger.info("The feature flag \"{}\" is not used in any experiments.", featureFlag.getKey());
         }
 
-        FeatureDecision featureDecision = getVariationForFeatureInRollout(featureFlag, userId, filteredAttributes);
+        FeatureDecision featureDecision = getVariationForFeatureInRollout(featureFlag, userId, filteredAttributes,
+            projectConfig);
         if (featureDecision.variation == null) {
             logger.info("The user \"{}\" was not bucketed into a rollout for feature flag \"{}\".",
                 userId, featureFlag.getKey());
@@ -199,27 +268,36 @@ public class DecisionService {
     FeatureDecision getVariationForFeatureInRollout(@Nonnull FeatureFlag featureFlag,
                                                     @Nonnull String userId,
                                                     @Nonnull Map<String, ?> filteredAttributes) {
+        return getVariationForFeatureInRollout(featureFlag, userId, filteredAttributes,
+            projectConfigManager.getConfig());
+    }
+
+    @Nonnull
+    FeatureDecision getVariationForFeatureInRollout(@Nonnull FeatureFlag featureFlag,
+                                                    @Nonnull String userId,
+                                                    @Nonnull Map<String, ?> filteredAttributes,
+                                                    @Nonnull ProjectConfig projectConfig) {
+        CompiledRollout rollout = projectConfig.getDecisionTables().getFeatureRollout(featureFlag);
+
         // use rollout to get variation for feature
-        if (featureFlag.getRolloutId().isEmpty()) {
+        if (rollout.getRolloutId().isEmpty()) {
             logger.info("The feature flag \"{}\" is not used in a rollout.", featureFlag.getKey());
             return new FeatureDecision(null, null, null);
         }
-        Rollout rollout = projectConfig.getRolloutIdMapping().get(featureFlag.getRolloutId());
-        if (rollout == null) {
+        if (rollout.getRollout() == null) {
             logger.error("The rollout with id \"{}\" was not found in the datafile for feature flag \"{}\".",
-                featureFlag.getRolloutId(), featureFlag.getKey());
+                rollout.getRolloutId(), featureFlag.getKey());
             return new FeatureDecision(null, null, null);
         }
 
         // for all rules before the everyone else rule
-        int rolloutRulesLength = rollout.getExperiments().size();
+        int rolloutRulesLength = rollout.getRuleCount();
         String bucketingId = getBucketingId(userId, filteredAttributes);
         Variation variation;
         for (int i = 0; i < rolloutRulesLength - 1; i++) {
-            Experiment rolloutRule = rollout.getExperiments().get(i);
-            Audience audience = projectConfig.getAudienceIdMapping().get(rolloutRule.getAudienceIds().get(0));
+            Experiment rolloutRule = rollout.getRule(i).getExperiment();
             if (ExperimentUtils.isUserInExperiment(projectConfig, rolloutRule, filteredAttributes)) {
-                variation = bucketer.bucket(rolloutRule, bucketingId);
+                variation = bucketer.bucket(rolloutRule, bucketingId, projectConfig);
                 if (variation == null) {
                     break;
                 }
@@ -227,14 +305,14 @@ public class DecisionService {
                     FeatureDecision.DecisionSource.ROLLOUT);
             } else {
                 logger.debug("User \"{}\" did not meet the conditions to be in rollout rule for audience \"{}\".",
-                    userId, audience.getName());
+                    userId, rollout.getRuleAudienceName(i));
             }
         }
 
         // get last rule which is the fall back rule
-        Experiment finalRule = rollout.getExperiments().get(rolloutRulesLength - 1);
+        Experiment finalRule = rollout.getRule(rolloutRulesLength - 1).getExperiment();
         if (ExperimentUtils.isUserInExperiment(projectConfig, finalRule, filteredAttributes)) {
-            variation = bucketer.bucket(finalRule, bucketingId);
+            variation = bucketer.bucket(finalRule, bucketingId, projectConfig);
             if (variation != null) {
                 return new FeatureDecision(finalRule, variation,
                     FeatureDecision.DecisionSource.ROLLOUT);
@@ -243,6 +321,110 @@ public class DecisionService {
         return new FeatureDecision(null, null, null);
     }
 
+    /**
+     * Force a user into a variation for a given experiment.
+     * The forced variation value does not persist across application launches.
+     * If the variation key is not in the experiment, this call fails and returns false.
+     *
+     * @param experiment   The experiment to force the user into.
+     * @param userId       The user ID to be used for bucketing.
+     * @param variationKey The variation key to force the user into.  If the variation key is null
+     *                     then the forcedVariation for that experiment is removed.
+     * @return boolean A boolean value that indicates if the set completed successfully.
+     */
+    public boolean setForcedVariation(@Nonnull Experiment experiment,
+                                      @Nonnull String userId,
+                                      @Nullable String variationKey) {
+
+        Variation variation = null;
+
+        // keep in mind that you can pass in a variationKey that is null if you want to
+        // remove the variation.
+        if (variationKey != null) {
+            variation = experiment.getVariationKeyToVariationMap().get(variationKey);
+            // if the variation is not part of the experiment, return false.
+            if (variation == null) {
+                logger.error("Variation {} does not exist for experiment {}", variationKey, experiment.getKey());
+                return false;
+            }
+        }
+
+        // if the user id is invalid, return false.
+        if (!validateUserId(userId)) {
+            return false;
+        }
+
+        ConcurrentHashMap<String, String> experimentToVariation;
+        if (!forcedVariationMapping.containsKey(userId)) {
+            forcedVariationMapping.putIfAbsent(userId, new ConcurrentHashMap<String, String>());
+        }
+        experimentToVariation = forcedVariationMapping.get(userId);
+
+        boolean retVal = true;
+        // if it is null remove the variation if it exists.
+        if (variationKey == null) {
+            String removedVariationId = experimentToVariation.remove(experiment.getId());
+            if (removedVariationId != null) {
+                Variation removedVariation = experiment.getVariationIdToVariationMap().get(removedVariationId);
+                if (removedVariation != null) {
+                    logger.debug("Variation mapped to experiment \"{}\" has been removed for user \"{}\"", experiment.getKey(), userId);
+                } else {
+                    logger.debug("Removed forced variation that did not exist in experiment");
+                }
+            } else {
+                logger.debug("No variation for experiment {}", experiment.getKey());
+                retVal = false;
+            }
+        } else {
+            String previous = experimentToVariation.put(experiment.getId(), variation.getId());
+            logger.debug("Set variation \"{}\" for experiment \"{}\" and user \"{}\" in the forced variation map.",
+                variation.getKey(), experiment.getKey(), userId);
+            if (previous != null) {
+                Variation previousVariation = experiment.getVariationIdToVariationMap().get(previous);
+                if (previousVariation != null) {
+                    logger.debug("forced variation {} replaced forced variation {} in forced variation map.",
+                        variation.getKey(), previousVariation.getKey());
+                }
+            }
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Gets the forced variation for a given user and experiment.
+     *
+     * @param experiment The experiment forced.
+     * @param userId     The user ID to be used for bucketing.
+     * @return The variation the user was bucketed into. This value can be null if the
+     * forced variation fails.
+     */
+    @Nullable
+    public Variation getForcedVariation(@Nonnull Experiment experiment,
+                                        @Nonnull String userId) {
+
+        // if the user id is invalid, return false.
+        if (!validateUserId(userId)) {
+            return null;
+        }
+
+        Map<String, String> experimentToVariation = forcedVariationMapping.get(userId);
+        if (experimentToVariation != null) {
+            String variationId = experimentToVariation.get(experiment.getId());
+            if (variationId != null) {
+                Variation variation = experiment.getVariationIdToVariationMap().get(variationId);
+                if (variation != null) {
+                    logger.debug("Variation \"{}\" is mapped to experiment \"{}\" and user \"{}\" in the forced variation map",
+                        variation.getKey(), experiment.getKey(), userId);
+                    return variation;
+                }
+            } else {
+                logger.debug("No variation for experiment \"{}\" mapped to user \"{}\" in the forced variation map ", experiment.getKey(), userId);
+            }
+        }
+        return null;
+    }
+
     /**
      * Get the variation the user has been whitelisted into.
      *
@@ -280,6 +462,13 @@ public class DecisionService {
     @Nullable
     Variation getStoredVariation(@Nonnull Experiment experiment,
                                  @Nonnull UserProfile userProfile) {
+        return getStoredVariation(experiment, userProfile, projectConfigManager.getConfig());
+    }
+
+    @Nullable
+    Variation getStoredVariation(@Nonnull Experiment experiment,
+                                 @Nonnull UserProfile userProfile,
+                                 @Nonnull ProjectConfig projectConfig) {
         // ---------- Check User Profile for Sticky Bucketing ----------
         // If a user profile instance is present then check it for a saved variation
         String experimentId = experiment.getId();
@@ -368,4 +557,19 @@ public class DecisionService {
         }
         return bucketingId;
     }
+
+    /**
+     * Helper function to check that the provided userId is valid
+     *
+     * @param userId the userId being validated
+     * @return whether the user ID is valid
+     */
+    private boolean validateUserId(String userId) {
+        if (userId == null) {
+            logger.error("User ID is invalid");
+            return false;
+        }
+
+        return true;
+    }
 }
@@ -213,4 +213,300 @@ public final class MurmurHash3 {
 
         return h1;
     }
-}
\ No newline at end of file
+
+    /**
+     * Hashes the UTF-8 bytes of a prefix, like {@link #murmurhash3_x86_32(CharSequence, int, int, int)}, but keeps
+     * the state before finalization so the hashes of the prefix followed by different suffixes are computed without
+     * hashing the prefix again.
+     *
+     * @param data the prefix, a null prefix is hashed as "null" like in a string concatenation
+     * @param seed the murmur hash seed
+     * @return the hash state after the prefix
+     */
+    public static Prefix prefix(CharSequence data, int seed) {
+        if (data == null) {
+            data = "null";
+        }
+        int h1 = seed;
+        int k1 = 0;
+        int shift = 0;
+        int nBytes = 0;
+        int pendingSurrogate = -1;
+
+        int pos = 0;
+        int end = data.length();
+        while (pos < end) {
+            char code = data.charAt(pos);
+            if (pos == end - 1 && code >= 0xD800 && code <= 0xDFFF) {
+                // how a trailing surrogate is encoded depends on whether a suffix follows
+                pendingSurrogate = code;
+                break;
+            }
+
+            long encoded = encodeUtf8(code, data, pos + 1, end);
+            int k2 = (int) encoded;
+            int bits = (int) (encoded >>> 32);
+            pos += bits == 32 ? 2 : 1;
+
+            k1 |= k2 << shift;
+            shift += bits;
+            if (shift >= 32) {
+                h1 = mixH1(h1, k1);
+                shift -= 32;
+                k1 = shift != 0 ? k2 >>> (bits - shift) : 0;
+                nBytes += 4;
+            }
+        }
+
+        return new Prefix(h1, k1, shift, nBytes, pendingSurrogate);
+    }
+
+    /**
+     * Encodes the UTF-8 bytes of a suffix once, so the hashes of many different prefixes followed by it are computed
+     * without encoding it again.
+     *
+     * @param data the suffix
+     * @return the suffix, encoded for each possible alignment after a prefix
+     */
+    public static Suffix suffix(CharSequence data) {
+        // the first char is encoded on its own, a prefix ending in a surrogate is handled by Suffix#hashWithPrefix
+        byte[] utf8 = new byte[data.length() * 3];
+        int length = 0;
+        int pos = 0;
+        int end = data.length();
+        while (pos < end) {
+            long encoded = encodeUtf8(data.charAt(pos), data, pos + 1, end);
+            int k2 = (int) encoded;
+            int bits = (int) (encoded >>> 32);
+            pos += bits == 32 ? 2 : 1;
+            for (int shift = 0; shift < bits; shift += 8) {
+                utf8[length++] = (byte) (k2 >>> shift);
+            }
+        }
+
+        int[][] words = new int[4][];
+        int[] tails = new int[4];
+        for (int alignment = 0; alignment < 4; alignment++) {
+            // the blocks after a prefix with alignment bytes in its incomplete block, which are left as zero
+            int total = alignment + length;
+            words[alignment] = new int[total >> 2];
+            for (int i = 0; i < length; i++) {
+                int bytePos = alignment + i;
+                int word = (utf8[i] & 0xff) << ((bytePos & 3) << 3);
+                if (bytePos >> 2 < words[alignment].length) {
+                    words[alignment][bytePos >> 2] |= word;
+                } else {
+                    tails[alignment] |= word;
+                }
+            }
+        }
+
+        return new Suffix(data.toString(), length, words, tails);
+    }
+
+    /**
+     * @param code the char to encode
+     * @param data the data the char is followed by
+     * @param next the position of the following char in the data
+     * @param end  the end of the data
+     * @return the UTF-8 bytes of the code point, little endian in the low 32 bits, and their number of bits in the
+     * high 32 bits, which is 32 only when the following char was consumed as the second half of a surrogate pair
+     */
+    private static long encodeUtf8(char code, CharSequence data, int next, int end) {
+        int k2;
+        int bits;
+        if (code < 0x80) {
+            k2 = code;
+            bits = 8;
+        } else if (code < 0x800) {
+            k2 = (0xC0 | (code >> 6))
+                | ((0x80 | (code & 0x3F)) << 8);
+            bits = 16;
+        } else if (code < 0xD800 || code > 0xDFFF || next >= end) {
+            // an unpaired surrogate at the end is encoded as 3 bytes
+            k2 = (0xE0 | (code >> 12))
+                | ((0x80 | ((code >> 6) & 0x3F)) << 8)
+                | ((0x80 | (code & 0x3F)) << 16);
+            bits = 24;
+        } else {
+            // surrogate pair
+            int utf32 = (int) data.charAt(next);
+            utf32 = ((code - 0xD7C0) << 10) + (utf32 & 0x3FF);
+            k2 = (0xff & (0xF0 | (utf32 >> 18)))
+                | ((0x80 | ((utf32 >> 12) & 0x3F))) << 8
+                | ((0x80 | ((utf32 >> 6) & 0x3F))) << 16
+                | (0x80 | (utf32 & 0x3F)) << 24;
+            bits = 32;
+        }
+        return ((long) bits << 32) | (k2 & 0xFFFFFFFFL);
+    }
+
+    private static int mixK1(int k1) {
+        k1 *= 0xcc9e2d51;
+        k1 = (k1 << 15) | (k1 >>> 17);  // ROTL32(k1,15);
+        return k1 * 0x1b873593;
+    }
+
+    private static int mixH1(int h1, int k1) {
+        h1 ^= mixK1(k1);
+        h1 = (h1 << 13) | (h1 >>> 19);  // ROTL32(h1,13);
+        return h1 * 5 + 0xe6546b64;
+    }
+
+    private static int fmix(int h1) {
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
+
+    /**
+     * The MurmurHash3_x86_32 state after the UTF-8 bytes of a prefix: the running hash, the bytes of the incomplete
+     * block, the number of bytes in complete blocks and a trailing surrogate that isn't encoded yet.
+     */
+    public static final class Prefix {
+
+        private final int h1;
+        private final int k1;
+        private final int shift;
+        private final int nBytes;
+        private final int pendingSurrogate;
+
+        private Prefix(int h1, int k1, int shift, int nBytes, int pendingSurrogate) {
+            this.h1 = h1;
+            this.k1 = k1;
+            this.shift = shift;
+            this.nBytes = nBytes;
+            this.pendingSurrogate = pendingSurrogate;
+        }
+
+        /**
+         * Equal to {@link #murmurhash3_x86_32(CharSequence, int, int, int)} of the prefix and the suffix
+         * concatenated, without allocating.
+         *
+         * @param suffix the data following the prefix
+         * @return the MurmurHash3_x86_32 hash of the UTF-8 bytes of the prefix followed by the suffix
+         */
+        public int hashWithSuffix(CharSequence suffix) {
+            int h1 = this.h1;
+            int k1 = this.k1;
+            int shift = this.shift;
+            int nBytes = this.nBytes;
+
+            // position -1 is the trailing surrogate of the prefix, if any
+            int pos = pendingSurrogate < 0 ? 0 : -1;
+            int end = suffix.length();
+            while (pos < end) {
+                char code = pos < 0 ? (char) pendingSurrogate : suffix.charAt(pos);
+                long encoded = encodeUtf8(code, suffix, pos + 1, end);
+                int k2 = (int) encoded;
+                int bits = (int) (encoded >>> 32);
+                pos += bits == 32 ? 2 : 1;
+
+                k1 |= k2 << shift;
+                shift += bits;
+                if (shift >= 32) {
+                    h1 = mixH1(h1, k1);
+                    shift -= 32;
+                    k1 = shift != 0 ? k2 >>> (bits - shift) : 0;
+                    nBytes += 4;
+                }
+            }
+
+            // tail
+            if (shift > 0) {
+                nBytes += shift >> 3;
+                h1 ^= mixK1(k1);
+            }
+
+            // finalization
+            return fmix(h1 ^ nBytes);
+        }
+    }
+
+    /**
+     * The UTF-8 bytes of a suffix, packed into MurmurHash3_x86_32 blocks for each of the four ways a prefix can leave
+     * its last block incomplete.
+     */
+    public static final class Suffix {
+
+        private final String data;
+        private final int length;
+        private final int[][] words;
+        private final int[] tails;
+
+        private Suffix(String data, int length, int[][] words, int[] tails) {
+            this.data = data;
+            this.length = length;
+            this.words = words;
+            this.tails = tails;
+        }
+
+        /**
+         * Equal to {@link #murmurhash3_x86_32(CharSequence, int, int, int)} of the prefix and the suffix
+         * concatenated, without allocating unless the prefix ends in a surrogate.
+         *
+         * @param prefix the data preceding the suffix, a null prefix is hashed as "null" like in a string
+         *               concatenation
+         * @param seed   the murmur hash seed
+         * @return the MurmurHash3_x86_32 hash of the UTF-8 bytes of the prefix followed by the suffix
+         */
+        public int hashWithPrefix(CharSequence prefix, int seed) {
+            if (prefix == null) {
+                prefix = "null";
+            }
+            int end = prefix.length();
+            if (end > 0 && prefix.charAt(end - 1) >= 0xD800 && prefix.charAt(end - 1) <= 0xDFFF) {
+                // the trailing surrogate may pair with the first char of the suffix
+                return prefix(prefix, seed).hashWithSuffix(data);
+            }
+
+            int h1 = seed;
+            int k1 = 0;
+            int shift = 0;
+            int nBytes = 0;
+
+            int pos = 0;
+            while (pos < end) {
+                long encoded = encodeUtf8(prefix.charAt(pos), prefix, pos + 1, end);
+                int k2 = (int) encoded;
+                int bits = (int) (encoded >>> 32);
+                pos += bits == 32 ? 2 : 1;
+
+                k1 |= k2 << shift;
+                shift += bits;
+                if (shift >= 32) {
+                    h1 = mixH1(h1, k1);
+                    shift -= 32;
+                    k1 = shift != 0 ? k2 >>> (bits - shift) : 0;
+                    nBytes += 4;
+                }
+            }
+
+            // the suffix blocks for this alignment leave the bytes of the incomplete prefix block zero
+            int alignment = shift >> 3;
+            int[] blocks = words[alignment];
+            int tail = tails[alignment];
+            if (blocks.length > 0) {
+                h1 = mixH1(h1, k1 | blocks[0]);
+                for (int i = 1; i < blocks.length; i++) {
+                    h1 = mixH1(h1, blocks[i]);
+                }
+            } else {
+                tail |= k1;
+            }
+            int total = alignment + length;
+            nBytes += total;
+
+            // tail
+            if ((total & 3) > 0) {
+                h1 ^= mixK1(tail);
+            }
+
+            // finalization
+            return fmix(h1 ^ nBytes);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable map backed by a single array of alternating keys and values, looked up by linear scan.
+ * <p>
+ * Most per-entity mappings (variations of an experiment, variables of a flag) hold a handful of entries. For those
+ * a scan is as fast as hashing the key, and a single array takes a fraction of the memory of a {@link java.util.HashMap}
+ * with its table and entry nodes.
+ */
+@Immutable
+final class ArrayMap<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * Largest size {@link ProjectConfigUtils} builds an {@code ArrayMap} for, larger mappings use a hash map.
+     */
+    static final int MAX_SIZE = 8;
+
+    // k0, v0, k1, v1, ...
+    private final Object[] table;
+
+    private ArrayMap(Object[] table) {
+        this.table = table;
+    }
+
+    /**
+     * Creates a map from the given keys and values. As with {@link Map#put}, a later duplicate key replaces the
+     * value of an earlier one.
+     */
+    static <K, V> ArrayMap<K, V> of(List<? extends K> keys, List<? extends V> values) {
+        Object[] table = new Object[keys.size() * 2];
+        int size = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            K key = keys.get(i);
+            int index = indexOf(table, size, key);
+            if (index < 0) {
+                index = size++ * 2;
+                table[index] = key;
+            }
+            table[index + 1] = values.get(i);
+        }
+
+        if (size * 2 < table.length) {
+            Object[] trimmed = new Object[size * 2];
+            System.arraycopy(table, 0, trimmed, 0, trimmed.length);
+            table = trimmed;
+        }
+        return new ArrayMap<K, V>(table);
+    }
+
+    @Override
+    public int size() {
+        return table.length / 2;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(table, size(), key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int index = indexOf(table, size(), key);
+        return index < 0 ? null : (V) table[index + 1];
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public int size() {
+                return ArrayMap.this.size();
+            }
+
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new Iterator<Entry<K, V>>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < table.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Entry<K, V> next() {
+                        if (index >= table.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<K, V> entry = new SimpleImmutableEntry<K, V>((K) table[index], (V) table[index + 1]);
+                        index += 2;
+                        return entry;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    //======== Helper methods ========//
+
+    private static int indexOf(Object[] table, int size, Object key) {
+        for (int i = 0; i < size * 2; i += 2) {
+            Object candidate = table[i];
+            if (candidate == key || (key != null && key.equals(candidate))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * {@link ProjectConfigManager} holding a single {@link ProjectConfig} that can be replaced at any time.
+ * Readers never block; a swap is a single reference write.
+ */
+@ThreadSafe
+public class AtomicProjectConfigManager implements ObservableProjectConfigManager {
+
+    private final ProjectConfigPublisher publisher = new ProjectConfigPublisher();
+
+    public AtomicProjectConfigManager() {
+    }
+
+    public AtomicProjectConfigManager(@Nullable ProjectConfig projectConfig) {
+        publisher.publish(projectConfig);
+    }
+
+    @Override
+    @CheckForNull
+    public ProjectConfig getConfig() {
+        return publisher.get();
+    }
+
+    public void setConfig(@Nullable ProjectConfig projectConfig) {
+        publisher.publish(projectConfig);
+    }
+
+    @Override
+    public void addListener(@Nonnull Listener listener) {
+        publisher.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(@Nonnull Listener listener) {
+        publisher.removeListener(listener);
+    }
+}
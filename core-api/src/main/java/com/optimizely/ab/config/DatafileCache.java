@@ -0,0 +1,215 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.optimizely.ab.config.parser.ConfigParseException;
+import com.optimizely.ab.config.parser.DatafileHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Last-known-good datafile kept on local disk, so that a process can start serving decisions from the previous
+ * datafile while the current one is still being fetched, or when it cannot be fetched at all.
+ * <p>
+ * The file holds the datafile together with its revision and a CRC32 checksum. It is replaced atomically by writing
+ * a temporary file next to it and renaming it, so a reader never sees a partially written cache. A cache that is
+ * missing, truncated, fails its checksum or whose revision does not match the datafile's is ignored.
+ * <p>
+ * Example usage:
+ * <pre>
+ *     HttpProjectConfigManager projectConfigManager = HttpProjectConfigManager.builder()
+ *         .withSdkKey(sdkKey)
+ *         .withDatafileCache(new DatafileCache(Paths.get("/var/cache/optimizely/datafile.bin")))
+ *         .build();
+ * </pre>
+ */
+public final class DatafileCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatafileCache.class);
+
+    private static final int MAGIC = 0x4F50444C;
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path path;
+
+    public DatafileCache(@Nonnull Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the cached datafile, or {@code null} if there is no valid one
+     */
+    @CheckForNull
+    public byte[] read() {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            logger.debug("Datafile cache {} does not exist.", path);
+            return null;
+        } catch (IOException e) {
+            logger.warn("Unable to read datafile cache {}.", path, e);
+            return null;
+        }
+
+        try {
+            return decode(ByteBuffer.wrap(bytes));
+        } catch (BufferUnderflowException e) {
+            logger.warn("Ignoring truncated datafile cache {}.", path);
+            return null;
+        }
+    }
+
+    /**
+     * @return the config parsed from the cached datafile, or {@code null} if there is no valid one
+     */
+    @CheckForNull
+    public ProjectConfig load() {
+        byte[] datafile = read();
+        if (datafile == null) {
+            return null;
+        }
+
+        try {
+            return new ProjectConfig.Builder().withUtf8Datafile(datafile).build();
+        } catch (ConfigParseException e) {
+            logger.warn("Unable to parse the datafile cached in {}.", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * Atomically replaces the cache with the given datafile, which should have been parsed successfully.
+     */
+    public void write(@Nonnull byte[] datafile, @Nonnull String revision) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(datafile, 0, datafile.length);
+        byte[] revisionBytes = revision.getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(datafile.length + 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(revisionBytes.length);
+        out.write(revisionBytes);
+        out.writeLong(crc.getValue());
+        out.writeInt(datafile.length);
+        out.write(datafile);
+        out.flush();
+
+        Path directory = path.toAbsolutePath().getParent();
+        Path tempPath = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE);
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                // make sure the content is on disk before the rename makes it visible
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+
+            try {
+                Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    //======== Helper methods ========//
+
+    @CheckForNull
+    private byte[] decode(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            logger.warn("Ignoring datafile cache {}, it is not a datafile cache.", path);
+            return null;
+        }
+        int formatVersion = buffer.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            logger.warn("Ignoring datafile cache {} with unknown format version {}.", path, formatVersion);
+            return null;
+        }
+
+        String revision = new String(readBytes(buffer), StandardCharsets.UTF_8);
+        long checksum = buffer.getLong();
+        byte[] datafile = readBytes(buffer);
+
+        CRC32 crc = new CRC32();
+        crc.update(datafile, 0, datafile.length);
+        if (crc.getValue() != checksum) {
+            logger.warn("Ignoring datafile cache {}, its checksum does not match.", path);
+            return null;
+        }
+
+        String datafileRevision;
+        try {
+            datafileRevision = DatafileHeader.read(datafile).getRevision();
+        } catch (ConfigParseException e) {
+            logger.warn("Ignoring datafile cache {}, the cached datafile is invalid.", path, e);
+            return null;
+        }
+        if (!revision.equals(datafileRevision)) {
+            logger.warn("Ignoring datafile cache {}, its revision {} does not match the datafile's {}.", path,
+                revision, datafileRevision);
+            return null;
+        }
+
+        return datafile;
+    }
+
+    /**
+     * Reads a length-prefixed byte array.
+     *
+     * @throws BufferUnderflowException if the buffer does not hold as many bytes as announced
+     */
+    private static byte[] readBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,477 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.optimizely.ab.annotations.VisibleForTesting;
+import com.optimizely.ab.config.audience.Audience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled, array-indexed form of the decision-relevant parts of a {@link ProjectConfig}.
+ * <p>
+ * Experiments (including rollout rules) and groups get dense int ordinals, traffic allocations are resolved to
+ * the {@link Variation} or experiment ordinal they point at and compiled into lookup tables over the bucket value,
+ * and feature flags are linked straight to their experiments and rollout rules. Bucketing and feature decisions
+ * can then run over arrays instead of chasing id-keyed string maps on every call.
+ * <p>
+ * Tables are built once per {@link ProjectConfig} instance, see {@link ProjectConfig#getDecisionTables()}.
+ * Entities are looked up by identity; entities that are not part of the config they are looked up in (as is common
+ * in tests) are compiled on the fly against that config.
+ */
+@Immutable
+public final class DecisionTables {
+
+    private static final Logger logger = LoggerFactory.getLogger(DecisionTables.class);
+
+    private static final CompiledExperiment[] NO_EXPERIMENTS = new CompiledExperiment[0];
+
+    private final CompiledExperiment[] experiments;
+    private final CompiledGroup[] groups;
+    // experiment and rollout rule ids are not guaranteed to be distinct from each other, so they are kept apart
+    private final Map<String, Integer> experimentOrdinalsById;
+    private final Map<String, Integer> ruleOrdinalsById;
+    private final Map<String, Integer> groupOrdinalsById;
+    private final Map<String, Rollout> rolloutIdMapping;
+    private final Map<String, Audience> audienceIdMapping;
+    private final Map<Experiment, CompiledExperiment> experimentsByIdentity;
+    private final Map<FeatureFlag, CompiledFeature> featuresByIdentity;
+
+    DecisionTables(@Nonnull ProjectConfig projectConfig) {
+        this.rolloutIdMapping = projectConfig.getRolloutIdMapping();
+        this.audienceIdMapping = projectConfig.getAudienceIdMapping();
+
+        List<Experiment> allExperiments = new ArrayList<Experiment>(projectConfig.getExperiments());
+        int experimentCount = allExperiments.size();
+        for (Rollout rollout : projectConfig.getRollouts()) {
+            allExperiments.addAll(rollout.getExperiments());
+        }
+
+        experimentOrdinalsById = new HashMap<String, Integer>(ProjectConfigUtils.capacityFor(experimentCount));
+        for (int i = 0; i < experimentCount; i++) {
+            experimentOrdinalsById.put(allExperiments.get(i).getId(), i);
+        }
+        ruleOrdinalsById =
+            new HashMap<String, Integer>(ProjectConfigUtils.capacityFor(allExperiments.size() - experimentCount));
+        for (int i = experimentCount; i < allExperiments.size(); i++) {
+            ruleOrdinalsById.put(allExperiments.get(i).getId(), i);
+        }
+
+        List<Group> allGroups = projectConfig.getGroups();
+        groupOrdinalsById = new HashMap<String, Integer>(ProjectConfigUtils.capacityFor(allGroups.size()));
+        groups = new CompiledGroup[allGroups.size()];
+        for (int i = 0; i < groups.length; i++) {
+            Group group = allGroups.get(i);
+            groupOrdinalsById.put(group.getId(), i);
+            groups[i] = compileGroup(i, group);
+        }
+
+        experiments = new CompiledExperiment[allExperiments.size()];
+        experimentsByIdentity = new IdentityHashMap<Experiment, CompiledExperiment>(allExperiments.size());
+        for (int i = 0; i < experiments.length; i++) {
+            Experiment experiment = allExperiments.get(i);
+            experiments[i] = compileExperiment(i, experiment);
+            experimentsByIdentity.put(experiment, experiments[i]);
+        }
+
+        List<FeatureFlag> featureFlags = projectConfig.getFeatureFlags();
+        featuresByIdentity = new IdentityHashMap<FeatureFlag, CompiledFeature>(featureFlags.size());
+        for (FeatureFlag featureFlag : featureFlags) {
+            featuresByIdentity.put(featureFlag,
+                new CompiledFeature(compileFeatureExperiments(featureFlag), compileRollout(featureFlag)));
+        }
+    }
+
+    /**
+     * @return the compiled form of the given experiment or rollout rule
+     */
+    @Nonnull
+    public CompiledExperiment getExperiment(@Nonnull Experiment experiment) {
+        CompiledExperiment compiledExperiment = experimentsByIdentity.get(experiment);
+        if (compiledExperiment != null) {
+            return compiledExperiment;
+        }
+
+        Integer ordinal = experimentOrdinalsById.get(experiment.getId());
+        if (ordinal == null) {
+            ordinal = ruleOrdinalsById.get(experiment.getId());
+        }
+        return compileExperiment(ordinal == null ? -1 : ordinal, experiment);
+    }
+
+    /**
+     * @return the experiment with the given ordinal
+     */
+    @Nonnull
+    public CompiledExperiment getExperiment(int ordinal) {
+        return experiments[ordinal];
+    }
+
+    /**
+     * @return the group with the given ordinal, its index in {@link ProjectConfig#getGroups()}
+     */
+    @Nonnull
+    public CompiledGroup getGroup(int ordinal) {
+        return groups[ordinal];
+    }
+
+    /**
+     * @return the random-policy group the given experiment is bucketed through, or {@code null} if there is none
+     */
+    @CheckForNull
+    public CompiledGroup getGroup(@Nonnull CompiledExperiment experiment) {
+        int groupOrdinal = experiment.groupOrdinal;
+        return groupOrdinal < 0 ? null : groups[groupOrdinal];
+    }
+
+    /**
+     * @return the experiments of the given feature flag, in evaluation order
+     */
+    @Nonnull
+    public CompiledExperiment[] getFeatureExperiments(@Nonnull FeatureFlag featureFlag) {
+        CompiledFeature compiledFeature = featuresByIdentity.get(featureFlag);
+        if (compiledFeature != null) {
+            return compiledFeature.experiments;
+        }
+        return compileFeatureExperiments(featureFlag);
+    }
+
+    /**
+     * @return the rollout of the given feature flag
+     */
+    @Nonnull
+    public CompiledRollout getFeatureRollout(@Nonnull FeatureFlag featureFlag) {
+        CompiledFeature compiledFeature = featuresByIdentity.get(featureFlag);
+        if (compiledFeature != null) {
+            return compiledFeature.rollout;
+        }
+        return compileRollout(featureFlag);
+    }
+
+    //======== Helper methods ========//
+
+    private CompiledExperiment compileExperiment(int ordinal, Experiment experiment) {
+        int groupOrdinal = -1;
+        String groupId = experiment.getGroupId();
+        if (!groupId.isEmpty()) {
+            Integer candidate = groupOrdinalsById.get(groupId);
+            if (candidate == null) {
+                logger.warn("Group \"{}\" of experiment \"{}\" is not in the datafile.", groupId, experiment.getKey());
+            } else if (groups[candidate].group.getPolicy().equals(Group.RANDOM_POLICY)) {
+                // only mutually exclusive groups take part in bucketing
+                groupOrdinal = candidate;
+            }
+        }
+
+        List<TrafficAllocation> trafficAllocation = experiment.getTrafficAllocation();
+        int[] allocationEnds = new int[trafficAllocation.size()];
+        int[] allocationEntities = new int[trafficAllocation.size()];
+        Variation[] allocationVariations = new Variation[trafficAllocation.size()];
+        Map<String, Variation> variationIdToVariationMap = experiment.getVariationIdToVariationMap();
+        for (int i = 0; i < allocationEnds.length; i++) {
+            TrafficAllocation allocation = trafficAllocation.get(i);
+            allocationEnds[i] = allocation.getEndOfRange();
+            // de-allocated space, represented by an empty entity id, and unknown variations both resolve to null
+            allocationVariations[i] = variationIdToVariationMap.get(allocation.getEntityId());
+            allocationEntities[i] = allocationVariations[i] == null ? -1 : i;
+        }
+
+        return new CompiledExperiment(ordinal, experiment, groupOrdinal,
+            AllocationTable.compile(allocationEnds, allocationEntities), allocationVariations);
+    }
+
+    private CompiledGroup compileGroup(int ordinal, Group group) {
+        List<TrafficAllocation> trafficAllocation = group.getTrafficAllocation();
+        int[] allocationEnds = new int[trafficAllocation.size()];
+        int[] allocationExperimentOrdinals = new int[trafficAllocation.size()];
+        for (int i = 0; i < allocationEnds.length; i++) {
+            TrafficAllocation allocation = trafficAllocation.get(i);
+            allocationEnds[i] = allocation.getEndOfRange();
+            Integer experimentOrdinal = experimentOrdinalsById.get(allocation.getEntityId());
+            allocationExperimentOrdinals[i] = experimentOrdinal == null ? -1 : experimentOrdinal;
+        }
+
+        return new CompiledGroup(ordinal, group, AllocationTable.compile(allocationEnds, allocationExperimentOrdinals));
+    }
+
+    private CompiledExperiment[] compileFeatureExperiments(FeatureFlag featureFlag) {
+        List<String> experimentIds = featureFlag.getExperimentIds();
+        if (experimentIds.isEmpty()) {
+            return NO_EXPERIMENTS;
+        }
+
+        List<CompiledExperiment> featureExperiments = new ArrayList<CompiledExperiment>(experimentIds.size());
+        for (String experimentId : experimentIds) {
+            Integer ordinal = experimentOrdinalsById.get(experimentId);
+            if (ordinal == null) {
+                logger.warn("Experiment \"{}\" of feature flag \"{}\" is not in the datafile.", experimentId,
+                    featureFlag.getKey());
+            } else {
+                featureExperiments.add(experiments[ordinal]);
+            }
+        }
+        return featureExperiments.toArray(new CompiledExperiment[featureExperiments.size()]);
+    }
+
+    private CompiledRollout compileRollout(FeatureFlag featureFlag) {
+        String rolloutId = featureFlag.getRolloutId();
+        Rollout rollout = rolloutId.isEmpty() ? null : rolloutIdMapping.get(rolloutId);
+        if (rollout == null) {
+            return new CompiledRollout(rolloutId, null, NO_EXPERIMENTS, new String[0]);
+        }
+
+        List<Experiment> rules = rollout.getExperiments();
+        CompiledExperiment[] compiledRules = new CompiledExperiment[rules.size()];
+        String[] ruleAudienceNames = new String[rules.size()];
+        for (int i = 0; i < compiledRules.length; i++) {
+            Experiment rule = rules.get(i);
+            compiledRules[i] = getExperiment(rule);
+
+            List<String> audienceIds = rule.getAudienceIds();
+            if (!audienceIds.isEmpty()) {
+                Audience audience = audienceIdMapping.get(audienceIds.get(0));
+                ruleAudienceNames[i] = audience == null ? audienceIds.get(0) : audience.getName();
+            }
+        }
+
+        return new CompiledRollout(rolloutId, rollout, compiledRules, ruleAudienceNames);
+    }
+
+    //======== Helper classes ========//
+
+    /**
+     * An experiment or rollout rule with its traffic allocation resolved to {@link Variation}s.
+     */
+    @Immutable
+    public static final class CompiledExperiment {
+
+        private final int ordinal;
+        private final Experiment experiment;
+        private final int groupOrdinal;
+        private final AllocationTable allocationTable;
+        private final Variation[] allocationVariations;
+
+        private CompiledExperiment(int ordinal,
+                                   @Nonnull Experiment experiment,
+                                   int groupOrdinal,
+                                   @Nonnull AllocationTable allocationTable,
+                                   @Nonnull Variation[] allocationVariations) {
+            this.ordinal = ordinal;
+            this.experiment = experiment;
+            this.groupOrdinal = groupOrdinal;
+            this.allocationTable = allocationTable;
+            this.allocationVariations = allocationVariations;
+        }
+
+        /**
+         * @return the ordinal of this experiment, or -1 if it isn't part of the config
+         */
+        public int getOrdinal() {
+            return ordinal;
+        }
+
+        @Nonnull
+        public Experiment getExperiment() {
+            return experiment;
+        }
+
+        /**
+         * @param bucketValue a bucket value in the range [0, 10000)
+         * @return the variation allocated to the given bucket value, or {@code null} if there is none
+         */
+        @CheckForNull
+        public Variation getVariationForBucketValue(int bucketValue) {
+            int allocation = allocationTable.lookup(bucketValue);
+            return allocation < 0 ? null : allocationVariations[allocation];
+        }
+    }
+
+    /**
+     * A mutually exclusive group with its traffic allocation resolved to experiment ordinals.
+     */
+    @Immutable
+    public static final class CompiledGroup {
+
+        private final int ordinal;
+        private final Group group;
+        private final AllocationTable allocationTable;
+
+        private CompiledGroup(int ordinal,
+                              @Nonnull Group group,
+                              @Nonnull AllocationTable allocationTable) {
+            this.ordinal = ordinal;
+            this.group = group;
+            this.allocationTable = allocationTable;
+        }
+
+        public int getOrdinal() {
+            return ordinal;
+        }
+
+        @Nonnull
+        public Group getGroup() {
+            return group;
+        }
+
+        /**
+         * @param bucketValue a bucket value in the range [0, 10000)
+         * @return the ordinal of the experiment allocated to the given bucket value, or -1 if there is none
+         */
+        public int getExperimentOrdinalForBucketValue(int bucketValue) {
+            return allocationTable.lookup(bucketValue);
+        }
+    }
+
+    /**
+     * A feature flag's rollout with its rules, in evaluation order, and the name of each rule's audience.
+     */
+    @Immutable
+    public static final class CompiledRollout {
+
+        private final String rolloutId;
+        private final Rollout rollout;
+        private final CompiledExperiment[] rules;
+        private final String[] ruleAudienceNames;
+
+        private CompiledRollout(@Nonnull String rolloutId,
+                                @Nullable Rollout rollout,
+                                @Nonnull CompiledExperiment[] rules,
+                                @Nonnull String[] ruleAudienceNames) {
+            this.rolloutId = rolloutId;
+            this.rollout = rollout;
+            this.rules = rules;
+            this.ruleAudienceNames = ruleAudienceNames;
+        }
+
+        /**
+         * @return the rollout id of the feature flag, empty if the feature flag is not used in a rollout
+         */
+        @Nonnull
+        public String getRolloutId() {
+            return rolloutId;
+        }
+
+        /**
+         * @return the rollout, or {@code null} if the feature flag has no rollout or it is not in the datafile
+         */
+        @CheckForNull
+        public Rollout getRollout() {
+            return rollout;
+        }
+
+        public int getRuleCount() {
+            return rules.length;
+        }
+
+        @Nonnull
+        public CompiledExperiment getRule(int index) {
+            return rules[index];
+        }
+
+        /**
+         * @return the name of the first audience of the rule, or its id if the audience is not in the datafile
+         */
+        @CheckForNull
+        public String getRuleAudienceName(int index) {
+            return ruleAudienceNames[index];
+        }
+    }
+
+    /**
+     * Traffic allocation ranges, compiled into a table that maps a bucket value to its entity without scanning.
+     * <p>
+     * A bucket value is allocated to the first range whose end is above it, so a range that ends at or below the end
+     * of an earlier range can never be hit and is dropped. What remains has strictly increasing ends, is terminated
+     * by an unallocated sentinel range ending at {@link Integer#MAX_VALUE} and is padded with sentinels to a power of
+     * two length. {@link #lookup(int)} can then run a fixed number of halving steps without bounds checks, and a
+     * typical allocation of two to four ranges takes two or three compares.
+     */
+    @VisibleForTesting
+    static final class AllocationTable {
+
+        private final int[] ends;
+        private final int[] entities;
+
+        private AllocationTable(int[] ends, int[] entities) {
+            this.ends = ends;
+            this.entities = entities;
+        }
+
+        /**
+         * @param allocationEnds     the exclusive end of each range, in datafile order
+         * @param allocationEntities the entity of each range, -1 if it is not allocated
+         */
+        static AllocationTable compile(int[] allocationEnds, int[] allocationEntities) {
+            int[] ends = new int[allocationEnds.length + 1];
+            int[] entities = new int[allocationEnds.length + 1];
+            int size = 0;
+            int start = Integer.MIN_VALUE;
+            for (int i = 0; i < allocationEnds.length; i++) {
+                if (allocationEnds[i] > start) {
+                    ends[size] = allocationEnds[i];
+                    entities[size] = allocationEntities[i];
+                    start = allocationEnds[i];
+                    size++;
+                }
+            }
+
+            // size + 1 rounded up to a power of two, so there is always at least one sentinel
+            int length = size == 0 ? 1 : Integer.highestOneBit(size) << 1;
+            int[] tableEnds = Arrays.copyOf(ends, length);
+            int[] tableEntities = Arrays.copyOf(entities, length);
+            Arrays.fill(tableEnds, size, length, Integer.MAX_VALUE);
+            Arrays.fill(tableEntities, size, length, -1);
+            return new AllocationTable(tableEnds, tableEntities);
+        }
+
+        /**
+         * @return the entity of the first range whose end is above the bucket value, or -1 if there is none
+         */
+        int lookup(int bucketValue) {
+            // ends has a power of two length and the answer is always in [index, index + 2 * step)
+            int index = 0;
+            for (int step = ends.length >>> 1; step > 0; step >>>= 1) {
+                if (ends[index + step - 1] <= bucketValue) {
+                    index += step;
+                }
+            }
+            return entities[index];
+        }
+    }
+
+    private static final class CompiledFeature {
+
+        private final CompiledExperiment[] experiments;
+        private final CompiledRollout rollout;
+
+        private CompiledFeature(CompiledExperiment[] experiments, CompiledRollout rollout) {
+            this.experiments = experiments;
+            this.rollout = rollout;
+        }
+    }
+}
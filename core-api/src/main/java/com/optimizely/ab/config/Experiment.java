@@ -39,6 +39,8 @@ public class Experiment implements IdKeyMapped {
     private final String id;
     private final String key;
     private final String status;
+    // status resolved once, so that status checks on the decision path are reference compares
+    private final ExperimentStatus experimentStatus;
     private final String layerId;
     private final String groupId;
 
@@ -67,6 +69,19 @@ public class Experiment implements IdKeyMapped {
         public String toString() {
             return experimentStatus;
         }
+
+        /**
+         * @return the status with the given datafile value, or {@code null} if it is unknown
+         */
+        @Nullable
+        public static ExperimentStatus fromString(@Nonnull String experimentStatus) {
+            for (ExperimentStatus status : values()) {
+                if (status.experimentStatus.equals(experimentStatus)) {
+                    return status;
+                }
+            }
+            return null;
+        }
     }
 
     @JsonCreator
@@ -95,6 +110,7 @@ public class Experiment implements IdKeyMapped {
         this.id = id;
         this.key = key;
         this.status = status == null ? ExperimentStatus.NOT_STARTED.toString() : status;
+        this.experimentStatus = ExperimentStatus.fromString(this.status);
         this.layerId = layerId;
         this.audienceIds = Collections.unmodifiableList(audienceIds);
         this.audienceConditions = audienceConditions;
@@ -155,16 +171,16 @@ public class Experiment implements IdKeyMapped {
     }
 
     public boolean isActive() {
-        return status.equals(ExperimentStatus.RUNNING.toString()) ||
-            status.equals(ExperimentStatus.LAUNCHED.toString());
+        return experimentStatus == ExperimentStatus.RUNNING ||
+            experimentStatus == ExperimentStatus.LAUNCHED;
     }
 
     public boolean isRunning() {
-        return status.equals(ExperimentStatus.RUNNING.toString());
+        return experimentStatus == ExperimentStatus.RUNNING;
     }
 
     public boolean isLaunched() {
-        return status.equals(ExperimentStatus.LAUNCHED.toString());
+        return experimentStatus == ExperimentStatus.LAUNCHED;
     }
 
     @Override
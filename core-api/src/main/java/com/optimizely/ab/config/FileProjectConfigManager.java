@@ -0,0 +1,270 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.optimizely.ab.NamedThreadFactory;
+import com.optimizely.ab.annotations.VisibleForTesting;
+import com.optimizely.ab.config.parser.ConfigParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link ProjectConfigManager} backed by a datafile on local disk, e.g. one kept up to date by a config-sync
+ * sidecar.
+ * <p>
+ * The file is read once on {@link #start()} and then re-read whenever its parent directory reports a change
+ * through a {@link WatchService}. A re-read config is only published when its revision is greater than the
+ * current one, so a stale or partially rolled back file never replaces a newer config. Watching the directory
+ * rather than the file means atomic renames and symlink swaps (as done by Kubernetes config maps) are picked
+ * up too.
+ * <p>
+ * Example usage:
+ * <pre>
+ *     FileProjectConfigManager projectConfigManager = new FileProjectConfigManager(Paths.get("/etc/optimizely/datafile.json"));
+ *     projectConfigManager.start();
+ *
+ *     Optimizely optimizely = Optimizely.builder()
+ *         .withConfigManager(projectConfigManager)
+ *         .withEventHandler(eventHandler)
+ *         .build();
+ * </pre>
+ */
+@ThreadSafe
+public class FileProjectConfigManager implements ObservableProjectConfigManager, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileProjectConfigManager.class);
+
+    private final ProjectConfigPublisher publisher = new ProjectConfigPublisher();
+    private final Path datafilePath;
+    private final ExecutorService executorService;
+
+    private WatchService watchService;
+    private boolean started;
+
+    // only accessed while starting and from the watcher thread
+    private volatile byte[] lastDatafile;
+
+    public FileProjectConfigManager(@Nonnull Path datafilePath) {
+        this.datafilePath = datafilePath.toAbsolutePath();
+        this.executorService = Executors.newSingleThreadExecutor(
+            new NamedThreadFactory("optimizely-file-config-watcher-thread-%s", true));
+    }
+
+    public Path getDatafilePath() {
+        return datafilePath;
+    }
+
+    @Override
+    @CheckForNull
+    public ProjectConfig getConfig() {
+        return publisher.get();
+    }
+
+    /**
+     * Loads the datafile and starts watching it for changes. A missing datafile is not an error; it is loaded
+     * once it appears.
+     *
+     * @throws IOException if the parent directory can't be watched
+     */
+    public synchronized void start() throws IOException {
+        if (started) {
+            logger.warn("File project config manager is already started.");
+            return;
+        }
+
+        if (executorService.isShutdown()) {
+            logger.warn("Not starting. File project config manager has already been closed.");
+            return;
+        }
+
+        watchService = datafilePath.getFileSystem().newWatchService();
+        datafilePath.getParent().register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY);
+
+        reload();
+        executorService.submit(new DatafileWatcher(watchService));
+        started = true;
+    }
+
+    /**
+     * Stops watching the datafile. The last published config remains available.
+     */
+    @Override
+    public synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close the datafile watch service.", e);
+            }
+        }
+        executorService.shutdownNow();
+        started = false;
+    }
+
+    @Override
+    public void addListener(@Nonnull Listener listener) {
+        publisher.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(@Nonnull Listener listener) {
+        publisher.removeListener(listener);
+    }
+
+    public synchronized boolean isRunning() {
+        return started;
+    }
+
+    /**
+     * Re-reads the datafile and publishes it if its revision is newer.
+     *
+     * @return whether a new config was published
+     */
+    @VisibleForTesting
+    boolean reload() {
+        byte[] datafile;
+        try {
+            datafile = readDatafile(datafilePath);
+        } catch (NoSuchFileException e) {
+            logger.debug("Datafile {} does not exist yet.", datafilePath);
+            return false;
+        } catch (IOException e) {
+            logger.error("Unable to read datafile {}", datafilePath, e);
+            return false;
+        }
+
+        if (datafile.length == 0) {
+            // the file is being rewritten in place, the next modify event carries the content
+            return false;
+        }
+
+        // a single write commonly triggers several events, only the first one needs a parse
+        if (Arrays.equals(datafile, lastDatafile)) {
+            return false;
+        }
+
+        ProjectConfig projectConfig;
+        try {
+            projectConfig = new ProjectConfig.Builder().withUtf8Datafile(datafile).build();
+        } catch (ConfigParseException e) {
+            logger.error("Unable to parse datafile {}", datafilePath, e);
+            return false;
+        }
+
+        lastDatafile = datafile;
+        return setConfig(projectConfig);
+    }
+
+    /**
+     * Publishes the given config if its revision is greater than the current one.
+     */
+    @VisibleForTesting
+    boolean setConfig(@Nonnull ProjectConfig projectConfig) {
+        ProjectConfig oldProjectConfig = publisher.get();
+        String previousRevision = oldProjectConfig == null ? null : oldProjectConfig.getRevision();
+
+        if (previousRevision != null && !ProjectConfigUtils.isNewerRevision(projectConfig.getRevision(), previousRevision)) {
+            logger.debug("Datafile revision {} is not newer than {}. Keeping the current config.",
+                projectConfig.getRevision(), previousRevision);
+            return false;
+        }
+
+        // share the entities this revision did not change with the config currently in use
+        projectConfig = ProjectConfigMerger.merge(oldProjectConfig, projectConfig);
+
+        // compile the decision tables here rather than on the first decision made with the new config
+        projectConfig.getDecisionTables();
+
+        logger.info("New datafile set with revision: {}. Old revision: {}", projectConfig.getRevision(), previousRevision);
+        publisher.publish(projectConfig);
+        return true;
+    }
+
+    //======== Helper methods ========//
+
+    /**
+     * Reads the whole file into memory. The file is not mapped: a sidecar truncating it in place while it is mapped
+     * would fail the read with an {@link InternalError} instead of an {@link IOException}. The bytes are handed to
+     * the parser as-is rather than decoded to a {@link String}.
+     */
+    private static byte[] readDatafile(Path path) throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    //======== Helper classes ========//
+
+    /**
+     * Waits for directory events and reloads the datafile on each batch. Runs until the watch service is
+     * closed.
+     */
+    private class DatafileWatcher implements Runnable {
+
+        private final WatchService watchService;
+
+        private DatafileWatcher(WatchService watchService) {
+            this.watchService = watchService;
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey watchKey;
+                try {
+                    watchKey = watchService.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ClosedWatchServiceException e) {
+                    return;
+                }
+
+                // the events themselves are not inspected: an overflow or a swapped symlink may not name the
+                // datafile, and reload() doesn't parse when the content is unchanged
+                watchKey.pollEvents();
+
+                try {
+                    reload();
+                } catch (Exception e) {
+                    logger.error("Error reloading datafile {}", datafilePath, e);
+                }
+
+                if (!watchKey.reset()) {
+                    logger.warn("Datafile directory {} is no longer accessible. Stopped watching.",
+                        datafilePath.getParent());
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * {@link ProjectConfigManager} that tells its listeners about every config it publishes, so that a client learns
+ * about its first config, and about every later one, without asking the manager for it.
+ */
+public interface ObservableProjectConfigManager extends ProjectConfigManager {
+
+    /**
+     * Registers a listener. If a config has already been published, the listener is called with it, and a
+     * {@code null} previous config, before this method returns.
+     */
+    void addListener(@Nonnull Listener listener);
+
+    void removeListener(@Nonnull Listener listener);
+
+    /**
+     * Called on the publishing thread right after a config has been published, one call at a time and in the order
+     * the configs were published. Listeners should return quickly, as the next config is not published before they
+     * have.
+     */
+    interface Listener {
+
+        /**
+         * @param previousConfig the config that was replaced, {@code null} for the first config
+         * @param projectConfig  the published config
+         */
+        void onConfigPublished(@Nullable ProjectConfig previousConfig, @Nonnull ProjectConfig projectConfig);
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.optimizely.ab.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProjectConfigManager} that periodically calls {@link #poll()} on a background thread and publishes the
+ * result when its revision differs from the current one.
+ * <p>
+ * Publishing is a single atomic reference swap, so in-flight decisions keep using the config they already
+ * read and are never blocked by a refresh. Only callers arriving before the very first config has been
+ * published wait, and only until the configured blocking timeout has passed since the first of them arrived.
+ * Once it has, {@link #getConfig()} returns {@code null} without waiting until a config is published.
+ */
+@ThreadSafe
+public abstract class PollingProjectConfigManager implements ObservableProjectConfigManager, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PollingProjectConfigManager.class);
+
+    private final ProjectConfigPublisher publisher = new ProjectConfigPublisher();
+    private final CountDownLatch initialConfigLatch = new CountDownLatch(1);
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final long period;
+    private final TimeUnit timeUnit;
+    private final long blockingTimeoutPeriod;
+    private final TimeUnit blockingTimeoutUnit;
+
+    private volatile boolean started;
+    private ScheduledFuture<?> scheduledFuture;
+    // System#nanoTime() after which callers stop waiting for the first config, set by the first caller that waits
+    private volatile Long initialConfigDeadline;
+
+    /**
+     * @param period                the time between two polls
+     * @param timeUnit              the time unit of the period argument
+     * @param blockingTimeoutPeriod the maximum time {@link #getConfig()} waits for the first config, counted from
+     *                              the first call that waits
+     * @param blockingTimeoutUnit   the time unit of the blocking timeout argument
+     */
+    protected PollingProjectConfigManager(long period,
+                                          TimeUnit timeUnit,
+                                          long blockingTimeoutPeriod,
+                                          TimeUnit blockingTimeoutUnit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("polling period must be > 0");
+        }
+        if (blockingTimeoutPeriod < 0) {
+            throw new IllegalArgumentException("blocking timeout must be >= 0");
+        }
+
+        this.period = period;
+        this.timeUnit = timeUnit;
+        this.blockingTimeoutPeriod = blockingTimeoutPeriod;
+        this.blockingTimeoutUnit = blockingTimeoutUnit;
+        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("optimizely-project-config-manager-thread-%s", true));
+    }
+
+    /**
+     * Fetches the latest {@link ProjectConfig}. Called from the polling thread only.
+     *
+     * @return the fetched config, or {@code null} if it is known to be unchanged or could not be retrieved
+     */
+    @CheckForNull
+    protected abstract ProjectConfig poll();
+
+    /**
+     * Publishes the given config if its revision differs from the current one. Called with the result of every
+     * {@link #poll()}, and by subclasses seeding a config before the first poll.
+     *
+     * @param projectConfig the candidate config
+     * @return whether the config was published
+     */
+    protected boolean setConfig(@Nullable ProjectConfig projectConfig) {
+        if (projectConfig == null) {
+            return false;
+        }
+
+        ProjectConfig oldProjectConfig = publisher.get();
+        String previousRevision = oldProjectConfig == null ? null : oldProjectConfig.getRevision();
+
+        if (projectConfig.getRevision().equals(previousRevision)) {
+            logger.debug("Datafile revision {} is unchanged. Keeping the current config.", previousRevision);
+            return false;
+        }
+
+        // share the entities this revision did not change with the config currently in use
+        projectConfig = ProjectConfigMerger.merge(oldProjectConfig, projectConfig);
+
+        // compile the decision tables here rather than on the first decision made with the new config
+        projectConfig.getDecisionTables();
+
+        logger.info("New datafile set with revision: {}. Old revision: {}", projectConfig.getRevision(), previousRevision);
+        publisher.publish(projectConfig);
+        initialConfigLatch.countDown();
+        return true;
+    }
+
+    @Override
+    @CheckForNull
+    public ProjectConfig getConfig() {
+        ProjectConfig projectConfig = publisher.get();
+        if (projectConfig != null || !started || blockingTimeoutPeriod == 0) {
+            return projectConfig;
+        }
+
+        long remainingNanos = getInitialConfigDeadline() - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return null;
+        }
+
+        try {
+            initialConfigLatch.await(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return publisher.get();
+    }
+
+    private long getInitialConfigDeadline() {
+        Long deadline = initialConfigDeadline;
+        if (deadline == null) {
+            synchronized (this) {
+                if (initialConfigDeadline == null) {
+                    initialConfigDeadline = System.nanoTime() + blockingTimeoutUnit.toNanos(blockingTimeoutPeriod);
+                }
+                deadline = initialConfigDeadline;
+            }
+        }
+        return deadline;
+    }
+
+    @Override
+    public void addListener(@Nonnull Listener listener) {
+        publisher.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(@Nonnull Listener listener) {
+        publisher.removeListener(listener);
+    }
+
+    /**
+     * Starts polling. The first poll is run immediately.
+     */
+    public synchronized void start() {
+        if (started) {
+            logger.warn("Project config manager is already started.");
+            return;
+        }
+
+        if (scheduledExecutorService.isShutdown()) {
+            logger.warn("Not starting. Project config manager has already been closed.");
+            return;
+        }
+
+        scheduledFuture = scheduledExecutorService.scheduleWithFixedDelay(new ProjectConfigFetcher(), 0, period, timeUnit);
+        started = true;
+    }
+
+    /**
+     * Stops polling. The last published config remains available and polling can be restarted.
+     */
+    public synchronized void stop() {
+        if (!started) {
+            logger.warn("Project config manager is not started.");
+            return;
+        }
+
+        scheduledFuture.cancel(true);
+        started = false;
+    }
+
+    /**
+     * Stops polling and releases the polling thread. A closed manager can't be restarted.
+     */
+    @Override
+    public synchronized void close() {
+        if (started) {
+            stop();
+        }
+        scheduledExecutorService.shutdownNow();
+    }
+
+    public boolean isRunning() {
+        return started;
+    }
+
+    //======== Helper classes ========//
+
+    /**
+     * Runnable executed on every poll. Exceptions are logged rather than propagated, since an uncaught
+     * exception would cancel all subsequent executions.
+     */
+    private class ProjectConfigFetcher implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                setConfig(poll());
+            } catch (Exception e) {
+                logger.error("Error polling for ProjectConfig.", e);
+            }
+        }
+    }
+}
@@ -21,6 +21,8 @@ import com.optimizely.ab.UnknownEventTypeException;
 import com.optimizely.ab.UnknownExperimentException;
 import com.optimizely.ab.config.audience.Audience;
 import com.optimizely.ab.config.parser.ConfigParseException;
+import com.optimizely.ab.config.parser.ConfigParser;
+import com.optimizely.ab.config.parser.DatafileProjection;
 import com.optimizely.ab.config.parser.DefaultConfigParser;
 import com.optimizely.ab.error.ErrorHandler;
 import com.optimizely.ab.error.NoOpErrorHandler;
@@ -34,6 +36,7 @@ import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Represents the Optimizely Project configuration.
@@ -86,30 +89,29 @@ public class ProjectConfig {
     private final List<Group> groups;
     private final List<Rollout> rollouts;
 
+    // The mappings below are built on first access, see buildIndexes(). Each is derived from the immutable entity
+    // lists and is itself immutable, so concurrent first callers may each build one and any of the results can be
+    // published through the volatile field.
+
     // key to entity mappings
-    private final Map<String, Attribute> attributeKeyMapping;
-    private final Map<String, EventType> eventNameMapping;
-    private final Map<String, Experiment> experimentKeyMapping;
-    private final Map<String, FeatureFlag> featureKeyMapping;
+    private volatile Map<String, Attribute> attributeKeyMapping;
+    private volatile Map<String, EventType> eventNameMapping;
+    private volatile Map<String, Experiment> experimentKeyMapping;
+    private volatile Map<String, FeatureFlag> featureKeyMapping;
 
     // id to entity mappings
-    private final Map<String, Audience> audienceIdMapping;
-    private final Map<String, Experiment> experimentIdMapping;
-    private final Map<String, Group> groupIdMapping;
-    private final Map<String, Rollout> rolloutIdMapping;
+    private volatile Map<String, Audience> audienceIdMapping;
+    private volatile Map<String, Experiment> experimentIdMapping;
+    private volatile Map<String, Group> groupIdMapping;
+    private volatile Map<String, Rollout> rolloutIdMapping;
 
     // other mappings
-    private final Map<String, Experiment> variationIdToExperimentMapping;
+    private volatile Map<String, Experiment> variationIdToExperimentMapping;
 
     public final static String RESERVED_ATTRIBUTE_PREFIX = "$opt_";
 
-    /**
-     * Forced variations supersede any other mappings.  They are transient and are not persistent or part of
-     * the actual datafile. This contains all the forced variations
-     * set by the user by calling {@link ProjectConfig#setForcedVariation(String, String, String)} (it is not the same as the
-     * whitelisting forcedVariations data structure in the Experiments class).
-     */
-    private transient ConcurrentHashMap<String, ConcurrentHashMap<String, String>> forcedVariationMapping = new ConcurrentHashMap<String, ConcurrentHashMap<String, String>>();
+    // compiled on first use, see getDecisionTables()
+    private transient volatile DecisionTables decisionTables;
 
     // v2 constructor
     public ProjectConfig(String accountId, String projectId, String version, String revision, List<Group> groups,
@@ -186,36 +188,11 @@ public class ProjectConfig {
 
         this.groups = Collections.unmodifiableList(groups);
 
-        List<Experiment> allExperiments = new ArrayList<Experiment>();
+        List<Experiment> groupExperiments = aggregateGroupExperiments(groups);
+        List<Experiment> allExperiments = new ArrayList<Experiment>(experiments.size() + groupExperiments.size());
         allExperiments.addAll(experiments);
-        allExperiments.addAll(aggregateGroupExperiments(groups));
+        allExperiments.addAll(groupExperiments);
         this.experiments = Collections.unmodifiableList(allExperiments);
-
-        Map<String, Experiment> variationIdToExperimentMap = new HashMap<String, Experiment>();
-        for (Experiment experiment : this.experiments) {
-            for (Variation variation : experiment.getVariations()) {
-                variationIdToExperimentMap.put(variation.getId(), experiment);
-            }
-        }
-        this.variationIdToExperimentMapping = Collections.unmodifiableMap(variationIdToExperimentMap);
-
-        // generate the name mappers
-        this.attributeKeyMapping = ProjectConfigUtils.generateNameMapping(attributes);
-        this.eventNameMapping = ProjectConfigUtils.generateNameMapping(this.events);
-        this.experimentKeyMapping = ProjectConfigUtils.generateNameMapping(this.experiments);
-        this.featureKeyMapping = ProjectConfigUtils.generateNameMapping(this.featureFlags);
-
-        // generate audience id to audience mapping
-        if (typedAudiences == null) {
-            this.audienceIdMapping = ProjectConfigUtils.generateIdMapping(audiences);
-        } else {
-            List<Audience> combinedList = new ArrayList<>(audiences);
-            combinedList.addAll(typedAudiences);
-            this.audienceIdMapping = ProjectConfigUtils.generateIdMapping(combinedList);
-        }
-        this.experimentIdMapping = ProjectConfigUtils.generateIdMapping(this.experiments);
-        this.groupIdMapping = ProjectConfigUtils.generateIdMapping(groups);
-        this.rolloutIdMapping = ProjectConfigUtils.generateIdMapping(this.rollouts);
     }
 
     /**
@@ -275,7 +252,7 @@ public class ProjectConfig {
 
     @Nullable
     public Experiment getExperimentForVariationId(String variationId) {
-        return this.variationIdToExperimentMapping.get(variationId);
+        return getVariationIdToExperimentMapping().get(variationId);
     }
 
     private List<Experiment> aggregateGroupExperiments(List<Group> groups) {
@@ -345,12 +322,12 @@ public class ProjectConfig {
     }
 
     public List<Experiment> getExperimentsForEventKey(String eventKey) {
-        EventType event = eventNameMapping.get(eventKey);
+        EventType event = getEventNameMapping().get(eventKey);
         if (event != null) {
             List<String> experimentIds = event.getExperimentIds();
             List<Experiment> experiments = new ArrayList<Experiment>(experimentIds.size());
             for (String experimentId : experimentIds) {
-                experiments.add(experimentIdMapping.get(experimentId));
+                experiments.add(getExperimentIdMapping().get(experimentId));
             }
 
             return experiments;
@@ -384,181 +361,176 @@ public class ProjectConfig {
     }
 
     public Audience getAudience(String audienceId) {
-        return audienceIdMapping.get(audienceId);
+        return getAudienceIdMapping().get(audienceId);
     }
 
     public Map<String, Experiment> getExperimentKeyMapping() {
-        return experimentKeyMapping;
+        Map<String, Experiment> mapping = experimentKeyMapping;
+        if (mapping == null) {
+            mapping = experimentKeyMapping = ProjectConfigUtils.generateNameMapping(experiments);
+        }
+        return mapping;
     }
 
     public Map<String, Attribute> getAttributeKeyMapping() {
-        return attributeKeyMapping;
+        Map<String, Attribute> mapping = attributeKeyMapping;
+        if (mapping == null) {
+            mapping = attributeKeyMapping = ProjectConfigUtils.generateNameMapping(attributes);
+        }
+        return mapping;
     }
 
     public Map<String, EventType> getEventNameMapping() {
-        return eventNameMapping;
+        Map<String, EventType> mapping = eventNameMapping;
+        if (mapping == null) {
+            mapping = eventNameMapping = ProjectConfigUtils.generateNameMapping(events);
+        }
+        return mapping;
     }
 
+    /**
+     * @return the legacy and typed audiences by id, a typed audience taking precedence over a legacy one
+     */
     public Map<String, Audience> getAudienceIdMapping() {
-        return audienceIdMapping;
+        Map<String, Audience> mapping = audienceIdMapping;
+        if (mapping == null) {
+            List<Audience> combinedList = new ArrayList<Audience>(audiences.size() + typedAudiences.size());
+            combinedList.addAll(audiences);
+            combinedList.addAll(typedAudiences);
+            mapping = audienceIdMapping = ProjectConfigUtils.generateIdMapping(combinedList);
+        }
+        return mapping;
     }
 
     public Map<String, Experiment> getExperimentIdMapping() {
-        return experimentIdMapping;
+        Map<String, Experiment> mapping = experimentIdMapping;
+        if (mapping == null) {
+            mapping = experimentIdMapping = ProjectConfigUtils.generateIdMapping(experiments);
+        }
+        return mapping;
     }
 
     public Map<String, Group> getGroupIdMapping() {
-        return groupIdMapping;
+        Map<String, Group> mapping = groupIdMapping;
+        if (mapping == null) {
+            mapping = groupIdMapping = ProjectConfigUtils.generateIdMapping(groups);
+        }
+        return mapping;
     }
 
     public Map<String, Rollout> getRolloutIdMapping() {
-        return rolloutIdMapping;
+        Map<String, Rollout> mapping = rolloutIdMapping;
+        if (mapping == null) {
+            mapping = rolloutIdMapping = ProjectConfigUtils.generateIdMapping(rollouts);
+        }
+        return mapping;
     }
 
     public Map<String, FeatureFlag> getFeatureKeyMapping() {
-        return featureKeyMapping;
+        Map<String, FeatureFlag> mapping = featureKeyMapping;
+        if (mapping == null) {
+            mapping = featureKeyMapping = ProjectConfigUtils.generateNameMapping(featureFlags);
+        }
+        return mapping;
     }
 
+    public Map<String, Experiment> getVariationIdToExperimentMapping() {
+        Map<String, Experiment> mapping = variationIdToExperimentMapping;
+        if (mapping == null) {
+            int variationCount = 0;
+            for (Experiment experiment : experiments) {
+                variationCount += experiment.getVariations().size();
+            }
+            Map<String, Experiment> variationIdToExperimentMap =
+                new HashMap<String, Experiment>(ProjectConfigUtils.capacityFor(variationCount));
+            for (Experiment experiment : experiments) {
+                for (Variation variation : experiment.getVariations()) {
+                    variationIdToExperimentMap.put(variation.getId(), experiment);
+                }
+            }
+            mapping = variationIdToExperimentMapping = Collections.unmodifiableMap(variationIdToExperimentMap);
+        }
+        return mapping;
+    }
+
+    /**
+     * Builds every mapping of this config now rather than on first access, e.g. on a background thread before
+     * the config is published.
+     */
+    public void buildIndexes() {
+        getAttributeKeyMapping();
+        getEventNameMapping();
+        getExperimentKeyMapping();
+        getFeatureKeyMapping();
+        getAudienceIdMapping();
+        getExperimentIdMapping();
+        getGroupIdMapping();
+        getRolloutIdMapping();
+        getVariationIdToExperimentMapping();
+    }
+
+    /**
+     * @return an empty map, forced variations are no longer held by the config
+     * @deprecated forced variations are kept by each client, see
+     * {@link com.optimizely.ab.Optimizely#setForcedVariation(String, String, String)}
+     */
+    @Deprecated
     public ConcurrentHashMap<String, ConcurrentHashMap<String, String>> getForcedVariationMapping() {
-        return forcedVariationMapping;
+        return new ConcurrentHashMap<String, ConcurrentHashMap<String, String>>();
+    }
+
+    /**
+     * @return the compiled decision tables of this config, built on first call
+     */
+    public DecisionTables getDecisionTables() {
+        DecisionTables tables = decisionTables;
+        if (tables == null) {
+            synchronized (this) {
+                tables = decisionTables;
+                if (tables == null) {
+                    tables = new DecisionTables(this);
+                    decisionTables = tables;
+                }
+            }
+        }
+        return tables;
     }
 
     /**
-     * Force a user into a variation for a given experiment.
-     * The forced variation value does not persist across application launches.
-     * If the experiment key is not in the project file, this call fails and returns false.
+     * Forced variations are no longer held by the config, so this call has no effect and returns false.
      *
      * @param experimentKey The key for the experiment.
      * @param userId        The user ID to be used for bucketing.
-     * @param variationKey  The variation key to force the user into.  If the variation key is null
-     *                      then the forcedVariation for that experiment is removed.
-     * @return boolean A boolean value that indicates if the set completed successfully.
+     * @param variationKey  The variation key to force the user into.
+     * @return false
+     * @deprecated forced variations are kept by each client, use
+     * {@link com.optimizely.ab.Optimizely#setForcedVariation(String, String, String)}
      */
+    @Deprecated
     public boolean setForcedVariation(@Nonnull String experimentKey,
                                       @Nonnull String userId,
                                       @Nullable String variationKey) {
-
-        // if the experiment is not a valid experiment key, don't set it.
-        Experiment experiment = getExperimentKeyMapping().get(experimentKey);
-        if (experiment == null) {
-            logger.error("Experiment {} does not exist in ProjectConfig for project {}", experimentKey, projectId);
-            return false;
-        }
-
-        Variation variation = null;
-
-        // keep in mind that you can pass in a variationKey that is null if you want to
-        // remove the variation.
-        if (variationKey != null) {
-            variation = experiment.getVariationKeyToVariationMap().get(variationKey);
-            // if the variation is not part of the experiment, return false.
-            if (variation == null) {
-                logger.error("Variation {} does not exist for experiment {}", variationKey, experimentKey);
-                return false;
-            }
-        }
-
-        // if the user id is invalid, return false.
-        if (!validateUserId(userId)) {
-            return false;
-        }
-
-        ConcurrentHashMap<String, String> experimentToVariation;
-        if (!forcedVariationMapping.containsKey(userId)) {
-            forcedVariationMapping.putIfAbsent(userId, new ConcurrentHashMap<String, String>());
-        }
-        experimentToVariation = forcedVariationMapping.get(userId);
-
-        boolean retVal = true;
-        // if it is null remove the variation if it exists.
-        if (variationKey == null) {
-            String removedVariationId = experimentToVariation.remove(experiment.getId());
-            if (removedVariationId != null) {
-                Variation removedVariation = experiment.getVariationIdToVariationMap().get(removedVariationId);
-                if (removedVariation != null) {
-                    logger.debug("Variation mapped to experiment \"{}\" has been removed for user \"{}\"", experiment.getKey(), userId);
-                } else {
-                    logger.debug("Removed forced variation that did not exist in experiment");
-                }
-            } else {
-                logger.debug("No variation for experiment {}", experimentKey);
-                retVal = false;
-            }
-        } else {
-            String previous = experimentToVariation.put(experiment.getId(), variation.getId());
-            logger.debug("Set variation \"{}\" for experiment \"{}\" and user \"{}\" in the forced variation map.",
-                variation.getKey(), experiment.getKey(), userId);
-            if (previous != null) {
-                Variation previousVariation = experiment.getVariationIdToVariationMap().get(previous);
-                if (previousVariation != null) {
-                    logger.debug("forced variation {} replaced forced variation {} in forced variation map.",
-                        variation.getKey(), previousVariation.getKey());
-                }
-            }
-        }
-
-        return retVal;
+        logger.warn("ProjectConfig#setForcedVariation has no effect, use Optimizely#setForcedVariation instead.");
+        return false;
     }
 
     /**
-     * Gets the forced variation for a given user and experiment.
+     * Forced variations are no longer held by the config, so this call always returns null.
      *
      * @param experimentKey The key for the experiment.
      * @param userId        The user ID to be used for bucketing.
-     * @return The variation the user was bucketed into. This value can be null if the
-     * forced variation fails.
+     * @return null
+     * @deprecated forced variations are kept by each client, use
+     * {@link com.optimizely.ab.Optimizely#getForcedVariation(String, String)}
      */
+    @Deprecated
     @Nullable
     public Variation getForcedVariation(@Nonnull String experimentKey,
                                         @Nonnull String userId) {
-
-        // if the user id is invalid, return false.
-        if (!validateUserId(userId)) {
-            return null;
-        }
-
-        if (experimentKey == null || experimentKey.isEmpty()) {
-            logger.error("experiment key is invalid");
-            return null;
-        }
-
-        Map<String, String> experimentToVariation = getForcedVariationMapping().get(userId);
-        if (experimentToVariation != null) {
-            Experiment experiment = getExperimentKeyMapping().get(experimentKey);
-            if (experiment == null) {
-                logger.debug("No experiment \"{}\" mapped to user \"{}\" in the forced variation map ", experimentKey, userId);
-                return null;
-            }
-            String variationId = experimentToVariation.get(experiment.getId());
-            if (variationId != null) {
-                Variation variation = experiment.getVariationIdToVariationMap().get(variationId);
-                if (variation != null) {
-                    logger.debug("Variation \"{}\" is mapped to experiment \"{}\" and user \"{}\" in the forced variation map",
-                        variation.getKey(), experimentKey, userId);
-                    return variation;
-                }
-            } else {
-                logger.debug("No variation for experiment \"{}\" mapped to user \"{}\" in the forced variation map ", experimentKey, userId);
-            }
-        }
+        logger.warn("ProjectConfig#getForcedVariation has no effect, use Optimizely#getForcedVariation instead.");
         return null;
     }
 
-    /**
-     * Helper function to check that the provided userId is valid
-     *
-     * @param userId the userId being validated
-     * @return whether the user ID is valid
-     */
-    private boolean validateUserId(String userId) {
-        if (userId == null) {
-            logger.error("User ID is invalid");
-            return false;
-        }
-
-        return true;
-    }
-
     @Override
     public String toString() {
         return "ProjectConfig{" +
@@ -576,24 +548,69 @@ public class ProjectConfig {
             ", featureFlags=" + featureFlags +
             ", groups=" + groups +
             ", rollouts=" + rollouts +
-            ", attributeKeyMapping=" + attributeKeyMapping +
-            ", eventNameMapping=" + eventNameMapping +
-            ", experimentKeyMapping=" + experimentKeyMapping +
-            ", featureKeyMapping=" + featureKeyMapping +
-            ", audienceIdMapping=" + audienceIdMapping +
-            ", experimentIdMapping=" + experimentIdMapping +
-            ", groupIdMapping=" + groupIdMapping +
-            ", rolloutIdMapping=" + rolloutIdMapping +
-            ", forcedVariationMapping=" + forcedVariationMapping +
-            ", variationIdToExperimentMapping=" + variationIdToExperimentMapping +
+            ", attributeKeyMapping=" + getAttributeKeyMapping() +
+            ", eventNameMapping=" + getEventNameMapping() +
+            ", experimentKeyMapping=" + getExperimentKeyMapping() +
+            ", featureKeyMapping=" + getFeatureKeyMapping() +
+            ", audienceIdMapping=" + getAudienceIdMapping() +
+            ", experimentIdMapping=" + getExperimentIdMapping() +
+            ", groupIdMapping=" + getGroupIdMapping() +
+            ", rolloutIdMapping=" + getRolloutIdMapping() +
+            ", variationIdToExperimentMapping=" + getVariationIdToExperimentMapping() +
             '}';
     }
 
     public static class Builder {
         private String datafile;
+        private byte[] datafileBytes;
+        private boolean lazyIndexes;
+        private ForkJoinPool parsingPool;
+        private DatafileProjection projection;
 
         public Builder withDatafile(String datafile) {
             this.datafile = datafile;
+            this.datafileBytes = null;
+            return this;
+        }
+
+        /**
+         * Sets a UTF-8 encoded datafile, which is parsed straight from the bytes without decoding it to a
+         * {@link String} first.
+         */
+        public Builder withUtf8Datafile(byte[] datafile) {
+            this.datafileBytes = datafile;
+            this.datafile = null;
+            return this;
+        }
+
+        /**
+         * Leaves every key and id mapping of the config to be built on first access instead of in {@link #build()}.
+         * This suits short-lived processes that only ever look up a few flags or experiments.
+         */
+        public Builder withLazyIndexes(boolean lazyIndexes) {
+            this.lazyIndexes = lazyIndexes;
+            return this;
+        }
+
+        /**
+         * Parses the sections of large datafiles in parallel on the given pool.
+         *
+         * @see DefaultConfigParser#getInstance(ForkJoinPool)
+         */
+        public Builder withParsingPool(ForkJoinPool parsingPool) {
+            this.parsingPool = parsingPool;
+            return this;
+        }
+
+        /**
+         * Only builds the given feature flags and experiments and what they depend on, for services that evaluate a
+         * small part of a large project. Takes precedence over {@link #withParsingPool(ForkJoinPool)}, as so little
+         * is parsed.
+         *
+         * @see DefaultConfigParser#getInstance(DatafileProjection)
+         */
+        public Builder withProjection(DatafileProjection projection) {
+            this.projection = projection;
             return this;
         }
 
@@ -601,19 +618,39 @@ public class ProjectConfig {
          * @return a {@link ProjectConfig} instance given a JSON string datafile
          */
         public ProjectConfig build() throws ConfigParseException {
-            if (datafile == null) {
-                throw new ConfigParseException("Unable to parse null datafile.");
-            }
-            if (datafile.isEmpty()) {
-                throw new ConfigParseException("Unable to parse empty datafile.");
+            ConfigParser configParser;
+            if (projection != null) {
+                configParser = DefaultConfigParser.getInstance(projection);
+            } else if (parsingPool != null) {
+                configParser = DefaultConfigParser.getInstance(parsingPool);
+            } else {
+                configParser = DefaultConfigParser.getInstance();
             }
 
-            ProjectConfig projectConfig = DefaultConfigParser.getInstance().parseProjectConfig(datafile);
+            ProjectConfig projectConfig;
+            if (datafileBytes != null) {
+                if (datafileBytes.length == 0) {
+                    throw new ConfigParseException("Unable to parse empty datafile.");
+                }
+                projectConfig = configParser.parseProjectConfig(datafileBytes);
+            } else {
+                if (datafile == null) {
+                    throw new ConfigParseException("Unable to parse null datafile.");
+                }
+                if (datafile.isEmpty()) {
+                    throw new ConfigParseException("Unable to parse empty datafile.");
+                }
+                projectConfig = configParser.parseProjectConfig(datafile);
+            }
 
             if (!supportedVersions.contains(projectConfig.getVersion())) {
                 throw new ConfigParseException("This version of the Java SDK does not support the given datafile version: " + projectConfig.getVersion());
             }
 
+            if (!lazyIndexes) {
+                projectConfig.buildIndexes();
+            }
+
             return projectConfig;
         }
     }
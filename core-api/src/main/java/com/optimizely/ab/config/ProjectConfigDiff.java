@@ -0,0 +1,309 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.optimizely.ab.config.audience.AndCondition;
+import com.optimizely.ab.config.audience.Audience;
+import com.optimizely.ab.config.audience.AudienceIdCondition;
+import com.optimizely.ab.config.audience.Condition;
+import com.optimizely.ab.config.audience.NotCondition;
+import com.optimizely.ab.config.audience.OrCondition;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * What changed between two {@link ProjectConfig} revisions, as far as decisions are concerned, so that anything
+ * derived from decisions (memoized variations, rendered pages) can be invalidated selectively.
+ * <p>
+ * Changes propagate to whatever depends on them:
+ * <ul>
+ * <li>an audience is changed when it was added, removed, renamed or its conditions differ</li>
+ * <li>an experiment, including a rollout rule, is changed when it was added, removed or its content differs, when
+ * one of its audiences changed, or when the policy or traffic allocation of its group differs</li>
+ * <li>a feature flag is changed when it was added, removed or its content differs, when one of its experiments
+ * changed, or when its rollout has different rules or a changed rule</li>
+ * </ul>
+ * Entities are compared by content, so a revision that only reorders or reformats the datafile changes nothing.
+ */
+@Immutable
+public final class ProjectConfigDiff {
+
+    private final String previousRevision;
+    private final String revision;
+    private final Set<String> changedFeatureKeys;
+    private final Set<String> changedExperimentIds;
+    private final Set<String> changedAudienceIds;
+
+    private ProjectConfigDiff(String previousRevision,
+                              String revision,
+                              Set<String> changedFeatureKeys,
+                              Set<String> changedExperimentIds,
+                              Set<String> changedAudienceIds) {
+        this.previousRevision = previousRevision;
+        this.revision = revision;
+        this.changedFeatureKeys = Collections.unmodifiableSet(changedFeatureKeys);
+        this.changedExperimentIds = Collections.unmodifiableSet(changedExperimentIds);
+        this.changedAudienceIds = Collections.unmodifiableSet(changedAudienceIds);
+    }
+
+    /**
+     * @param previous the config that was replaced
+     * @param next     the config replacing it
+     */
+    @Nonnull
+    public static ProjectConfigDiff between(@Nonnull ProjectConfig previous, @Nonnull ProjectConfig next) {
+        Set<String> changedAudienceIds = changedIds(previous.getAudienceIdMapping(), next.getAudienceIdMapping(),
+            ProjectConfigMerger.AUDIENCES);
+
+        Map<String, Experiment> previousExperiments = allExperiments(previous);
+        Map<String, Experiment> nextExperiments = allExperiments(next);
+        Set<String> changedExperimentIds = changedIds(previousExperiments, nextExperiments, EXPERIMENTS);
+        for (Experiment experiment : nextExperiments.values()) {
+            if (!changedExperimentIds.contains(experiment.getId())
+                && referencesAny(experiment, changedAudienceIds)) {
+                changedExperimentIds.add(experiment.getId());
+            }
+        }
+        for (Group group : next.getGroups()) {
+            if (changedGroup(previous.getGroupIdMapping().get(group.getId()), group)) {
+                for (Experiment experiment : group.getExperiments()) {
+                    changedExperimentIds.add(experiment.getId());
+                }
+            }
+        }
+
+        Set<String> changedFeatureKeys = changedIds(previous.getFeatureKeyMapping(), next.getFeatureKeyMapping(),
+            ProjectConfigMerger.FEATURE_FLAGS);
+        for (FeatureFlag featureFlag : next.getFeatureFlags()) {
+            if (changedFeatureKeys.contains(featureFlag.getKey())) {
+                continue;
+            }
+            if (containsAny(changedExperimentIds, featureFlag.getExperimentIds())
+                || changedRollout(previous, next, featureFlag.getRolloutId(), changedExperimentIds)) {
+                changedFeatureKeys.add(featureFlag.getKey());
+            }
+        }
+
+        return new ProjectConfigDiff(previous.getRevision(), next.getRevision(), changedFeatureKeys,
+            changedExperimentIds, changedAudienceIds);
+    }
+
+    /**
+     * @param projectConfig a config published with no config before it
+     * @return a diff with no previous revision, in which every feature flag, experiment, rollout rule and audience
+     * of the config has been added
+     */
+    @Nonnull
+    public static ProjectConfigDiff added(@Nonnull ProjectConfig projectConfig) {
+        return new ProjectConfigDiff(null, projectConfig.getRevision(),
+            new HashSet<String>(projectConfig.getFeatureKeyMapping().keySet()),
+            new HashSet<String>(allExperiments(projectConfig).keySet()),
+            new HashSet<String>(projectConfig.getAudienceIdMapping().keySet()));
+    }
+
+    /**
+     * @return the revision that was replaced, {@code null} if there was no config before
+     */
+    @CheckForNull
+    public String getPreviousRevision() {
+        return previousRevision;
+    }
+
+    @CheckForNull
+    public String getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return the keys of the feature flags whose decisions may differ under the new revision
+     */
+    public Set<String> getChangedFeatureKeys() {
+        return changedFeatureKeys;
+    }
+
+    /**
+     * @return the ids of the experiments and rollout rules whose decisions may differ under the new revision
+     */
+    public Set<String> getChangedExperimentIds() {
+        return changedExperimentIds;
+    }
+
+    /**
+     * @return the ids of the audiences that were added, removed or changed
+     */
+    public Set<String> getChangedAudienceIds() {
+        return changedAudienceIds;
+    }
+
+    /**
+     * @return whether nothing that decisions depend on changed
+     */
+    public boolean isEmpty() {
+        return changedFeatureKeys.isEmpty() && changedExperimentIds.isEmpty() && changedAudienceIds.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectConfigDiff{" +
+            "previousRevision='" + previousRevision + '\'' +
+            ", revision='" + revision + '\'' +
+            ", changedFeatureKeys=" + changedFeatureKeys +
+            ", changedExperimentIds=" + changedExperimentIds +
+            ", changedAudienceIds=" + changedAudienceIds +
+            '}';
+    }
+
+    //======== Helper methods ========//
+
+    /**
+     * @return the keys present in only one of the mappings, or mapped to entities that differ
+     */
+    private static <T> Set<String> changedIds(Map<String, T> previous,
+                                              Map<String, T> next,
+                                              ProjectConfigMerger.Equivalence<T> equivalence) {
+        Set<String> changed = new HashSet<String>();
+        for (Map.Entry<String, T> entry : next.entrySet()) {
+            T previousEntity = previous.get(entry.getKey());
+            // entities carried over by the ProjectConfigMerger are the same instance
+            if (previousEntity == null
+                || (previousEntity != entry.getValue() && !equivalence.same(previousEntity, entry.getValue()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String key : previous.keySet()) {
+            if (!next.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return the experiments, group experiments and rollout rules of the config by id
+     */
+    private static Map<String, Experiment> allExperiments(ProjectConfig projectConfig) {
+        Map<String, Experiment> experiments = new HashMap<String, Experiment>(projectConfig.getExperimentIdMapping());
+        for (Rollout rollout : projectConfig.getRollouts()) {
+            for (Experiment rule : rollout.getExperiments()) {
+                experiments.put(rule.getId(), rule);
+            }
+        }
+        return experiments;
+    }
+
+    private static boolean referencesAny(Experiment experiment, Set<String> audienceIds) {
+        if (audienceIds.isEmpty()) {
+            return false;
+        }
+        Condition audienceConditions = experiment.getAudienceConditions();
+        if (audienceConditions != null) {
+            return referencesAny(audienceConditions, audienceIds);
+        }
+        return containsAny(audienceIds, experiment.getAudienceIds());
+    }
+
+    private static boolean referencesAny(Condition condition, Set<String> audienceIds) {
+        if (condition instanceof AudienceIdCondition) {
+            return audienceIds.contains(((AudienceIdCondition) condition).getAudienceId());
+        }
+        if (condition instanceof NotCondition) {
+            return referencesAny(((NotCondition) condition).getCondition(), audienceIds);
+        }
+        List<Condition> conditions = null;
+        if (condition instanceof AndCondition) {
+            conditions = ((AndCondition) condition).getConditions();
+        } else if (condition instanceof OrCondition) {
+            conditions = ((OrCondition) condition).getConditions();
+        }
+        if (conditions != null) {
+            for (Condition child : conditions) {
+                if (referencesAny(child, audienceIds)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean changedGroup(Group previous, Group next) {
+        return previous == null
+            || (previous != next && (!Objects.equals(previous.getPolicy(), next.getPolicy())
+            || !ProjectConfigMerger.sameTrafficAllocation(previous.getTrafficAllocation(),
+            next.getTrafficAllocation())));
+    }
+
+    /**
+     * @return whether the rollout was added or removed, has different rules, or one of its rules changed
+     */
+    private static boolean changedRollout(ProjectConfig previous,
+                                          ProjectConfig next,
+                                          String rolloutId,
+                                          Set<String> changedExperimentIds) {
+        if (rolloutId == null || rolloutId.isEmpty()) {
+            return false;
+        }
+        Rollout previousRollout = previous.getRolloutIdMapping().get(rolloutId);
+        Rollout nextRollout = next.getRolloutIdMapping().get(rolloutId);
+        if (previousRollout == null || nextRollout == null) {
+            return previousRollout != nextRollout;
+        }
+
+        List<Experiment> previousRules = previousRollout.getExperiments();
+        List<Experiment> nextRules = nextRollout.getExperiments();
+        if (previousRules.size() != nextRules.size()) {
+            return true;
+        }
+        for (int i = 0; i < nextRules.size(); i++) {
+            String ruleId = nextRules.get(i).getId();
+            if (!ruleId.equals(previousRules.get(i).getId()) || changedExperimentIds.contains(ruleId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsAny(Set<String> set, List<String> values) {
+        if (values == null) {
+            return false;
+        }
+        for (String value : values) {
+            if (set.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //======== Helper classes ========//
+
+    private static final ProjectConfigMerger.Equivalence<Experiment> EXPERIMENTS =
+        new ProjectConfigMerger.Equivalence<Experiment>() {
+            @Override
+            public boolean same(Experiment previous, Experiment next) {
+                return ProjectConfigMerger.sameExperiment(previous, next);
+            }
+        };
+}
@@ -0,0 +1,35 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Source of the {@link ProjectConfig} used by the decision path.
+ * <p>
+ * Implementations must be thread-safe. {@link #getConfig()} is called at least once per public
+ * {@link com.optimizely.ab.Optimizely} call, so it should be cheap and must never block while a new config is
+ * being fetched or parsed.
+ */
+public interface ProjectConfigManager {
+
+    /**
+     * @return the current {@link ProjectConfig}, or {@code null} if no valid config is available yet
+     */
+    @CheckForNull
+    ProjectConfig getConfig();
+}
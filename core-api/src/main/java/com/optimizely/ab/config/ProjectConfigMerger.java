@@ -0,0 +1,374 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.optimizely.ab.config.audience.AndCondition;
+import com.optimizely.ab.config.audience.Audience;
+import com.optimizely.ab.config.audience.AudienceIdCondition;
+import com.optimizely.ab.config.audience.Condition;
+import com.optimizely.ab.config.audience.NotCondition;
+import com.optimizely.ab.config.audience.OrCondition;
+import com.optimizely.ab.config.audience.UserAttribute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Carries unchanged entities over from one config revision to the next.
+ * <p>
+ * A new datafile revision usually differs from the previous one in a handful of flags or experiments, yet parsing
+ * it creates a fresh copy of every entity. {@link #merge(ProjectConfig, ProjectConfig)} swaps each entity of the new
+ * config that has the same id and the same content as an entity of the previous config for the previous instance, so
+ * only changed entities survive from the parse. The long-lived part of the heap then stays the same across updates
+ * and anything that holds on to an entity, or keys on its identity, keeps working for everything that did not change.
+ * <p>
+ * All config entities are immutable, and audience id conditions are resolved against the config passed to
+ * {@link Condition#evaluate}, so a shared entity behaves the same under either revision.
+ */
+public final class ProjectConfigMerger {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectConfigMerger.class);
+
+    private ProjectConfigMerger() {
+    }
+
+    /**
+     * @param previous the config currently in use, or {@code null} if there is none
+     * @param next     the config parsed from the new datafile
+     * @return a config equivalent to {@code next} that shares every unchanged entity with {@code previous}, or
+     * {@code next} itself when there is nothing to share
+     */
+    @Nonnull
+    public static ProjectConfig merge(@Nullable ProjectConfig previous, @Nonnull ProjectConfig next) {
+        if (previous == null || previous == next || !Objects.equals(previous.getVersion(), next.getVersion())) {
+            return next;
+        }
+
+        Merge merge = new Merge();
+
+        List<Attribute> attributes = merge.reuse(previous.getAttributes(), next.getAttributes(), ATTRIBUTES);
+        List<Audience> audiences = merge.reuse(previous.getAudiences(), next.getAudiences(), AUDIENCES);
+        List<Audience> typedAudiences = merge.reuse(previous.getTypedAudiences(), next.getTypedAudiences(), AUDIENCES);
+        List<EventType> events = merge.reuse(previous.getEventTypes(), next.getEventTypes(), EVENTS);
+        List<Experiment> experiments = merge.reuse(topLevelExperiments(previous), topLevelExperiments(next), EXPERIMENTS);
+        List<FeatureFlag> featureFlags = merge.reuse(previous.getFeatureFlags(), next.getFeatureFlags(), FEATURE_FLAGS);
+        List<Group> groups = merge.reuseGroups(previous.getGroups(), next.getGroups());
+        List<Rollout> rollouts = merge.reuseRollouts(previous.getRollouts(), next.getRollouts());
+
+        if (merge.reused == 0) {
+            return next;
+        }
+        logger.debug("Reusing {} of {} entities from revision {} for revision {}.",
+            merge.reused, merge.total, previous.getRevision(), next.getRevision());
+
+        return new ProjectConfig(
+            next.getAccountId(),
+            next.getAnonymizeIP(),
+            next.getBotFiltering(),
+            next.getProjectId(),
+            next.getRevision(),
+            next.getVersion(),
+            attributes,
+            audiences,
+            typedAudiences,
+            events,
+            experiments,
+            featureFlags,
+            groups,
+            rollouts
+        );
+    }
+
+    //======== Helper methods ========//
+
+    /**
+     * {@link ProjectConfig#getExperiments()} lists the experiments of all groups after the top-level ones.
+     */
+    private static List<Experiment> topLevelExperiments(ProjectConfig projectConfig) {
+        int groupExperimentCount = 0;
+        for (Group group : projectConfig.getGroups()) {
+            groupExperimentCount += group.getExperiments().size();
+        }
+        List<Experiment> experiments = projectConfig.getExperiments();
+        return experiments.subList(0, experiments.size() - groupExperimentCount);
+    }
+
+    static boolean sameExperiment(Experiment previous, Experiment next) {
+        return Objects.equals(previous.getId(), next.getId())
+            && Objects.equals(previous.getKey(), next.getKey())
+            && Objects.equals(previous.getStatus(), next.getStatus())
+            && Objects.equals(previous.getLayerId(), next.getLayerId())
+            && Objects.equals(previous.getGroupId(), next.getGroupId())
+            && Objects.equals(previous.getAudienceIds(), next.getAudienceIds())
+            && sameCondition(previous.getAudienceConditions(), next.getAudienceConditions())
+            && sameVariations(previous.getVariations(), next.getVariations())
+            && Objects.equals(previous.getUserIdToVariationKeyMap(), next.getUserIdToVariationKeyMap())
+            && sameTrafficAllocation(previous.getTrafficAllocation(), next.getTrafficAllocation());
+    }
+
+    private static boolean sameVariations(List<Variation> previous, List<Variation> next) {
+        if (previous.size() != next.size()) {
+            return false;
+        }
+        for (int i = 0; i < previous.size(); i++) {
+            Variation previousVariation = previous.get(i);
+            Variation nextVariation = next.get(i);
+            if (!Objects.equals(previousVariation.getId(), nextVariation.getId())
+                || !Objects.equals(previousVariation.getKey(), nextVariation.getKey())
+                || !Objects.equals(previousVariation.getFeatureEnabled(), nextVariation.getFeatureEnabled())
+                || !Objects.equals(previousVariation.getFeatureVariableUsageInstances(),
+                nextVariation.getFeatureVariableUsageInstances())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean sameTrafficAllocation(List<TrafficAllocation> previous, List<TrafficAllocation> next) {
+        if (previous.size() != next.size()) {
+            return false;
+        }
+        for (int i = 0; i < previous.size(); i++) {
+            if (!Objects.equals(previous.get(i).getEntityId(), next.get(i).getEntityId())
+                || previous.get(i).getEndOfRange() != next.get(i).getEndOfRange()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares condition trees structurally. {@link AudienceIdCondition#equals} is not used as it also compares the
+     * audience the condition was last resolved to.
+     */
+    static boolean sameCondition(Condition previous, Condition next) {
+        if (previous == null || next == null) {
+            return previous == next;
+        }
+        if (previous.getClass() != next.getClass()) {
+            return false;
+        }
+        if (previous instanceof AndCondition) {
+            return sameConditions(((AndCondition) previous).getConditions(), ((AndCondition) next).getConditions());
+        }
+        if (previous instanceof OrCondition) {
+            return sameConditions(((OrCondition) previous).getConditions(), ((OrCondition) next).getConditions());
+        }
+        if (previous instanceof NotCondition) {
+            return sameCondition(((NotCondition) previous).getCondition(), ((NotCondition) next).getCondition());
+        }
+        if (previous instanceof AudienceIdCondition) {
+            return Objects.equals(((AudienceIdCondition) previous).getAudienceId(),
+                ((AudienceIdCondition) next).getAudienceId());
+        }
+        if (previous instanceof UserAttribute) {
+            UserAttribute previousAttribute = (UserAttribute) previous;
+            UserAttribute nextAttribute = (UserAttribute) next;
+            return Objects.equals(previousAttribute.getName(), nextAttribute.getName())
+                && Objects.equals(previousAttribute.getType(), nextAttribute.getType())
+                && Objects.equals(previousAttribute.getMatch(), nextAttribute.getMatch())
+                && Objects.equals(previousAttribute.getValue(), nextAttribute.getValue());
+        }
+        // EmptyCondition and NullCondition carry no state
+        return true;
+    }
+
+    /**
+     * Whether a merged list consists of exactly the previous instances in the previous order. The order of group
+     * experiments and rollout rules matters, so a reordered list is a changed list.
+     */
+    private static boolean sameInstances(List<?> previous, List<?> merged) {
+        if (previous.size() != merged.size()) {
+            return false;
+        }
+        for (int i = 0; i < previous.size(); i++) {
+            if (previous.get(i) != merged.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameConditions(List<Condition> previous, List<Condition> next) {
+        if (previous.size() != next.size()) {
+            return false;
+        }
+        for (int i = 0; i < previous.size(); i++) {
+            if (!sameCondition(previous.get(i), next.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //======== Helper classes ========//
+
+    /**
+     * Content comparison for one kind of entity, ids are matched before it is called. Also used by
+     * {@link ProjectConfigDiff}.
+     */
+    interface Equivalence<T> {
+        boolean same(T previous, T next);
+    }
+
+    private static final Equivalence<Attribute> ATTRIBUTES = new Equivalence<Attribute>() {
+        @Override
+        public boolean same(Attribute previous, Attribute next) {
+            return Objects.equals(previous.getKey(), next.getKey())
+                && Objects.equals(previous.getSegmentId(), next.getSegmentId());
+        }
+    };
+
+    static final Equivalence<Audience> AUDIENCES = new Equivalence<Audience>() {
+        @Override
+        public boolean same(Audience previous, Audience next) {
+            return Objects.equals(previous.getName(), next.getName())
+                && sameCondition(previous.getConditions(), next.getConditions());
+        }
+    };
+
+    private static final Equivalence<EventType> EVENTS = new Equivalence<EventType>() {
+        @Override
+        public boolean same(EventType previous, EventType next) {
+            return Objects.equals(previous.getKey(), next.getKey())
+                && Objects.equals(previous.getExperimentIds(), next.getExperimentIds());
+        }
+    };
+
+    private static final Equivalence<Experiment> EXPERIMENTS = new Equivalence<Experiment>() {
+        @Override
+        public boolean same(Experiment previous, Experiment next) {
+            return sameExperiment(previous, next);
+        }
+    };
+
+    static final Equivalence<FeatureFlag> FEATURE_FLAGS = new Equivalence<FeatureFlag>() {
+        @Override
+        public boolean same(FeatureFlag previous, FeatureFlag next) {
+            return Objects.equals(previous.getKey(), next.getKey())
+                && Objects.equals(previous.getRolloutId(), next.getRolloutId())
+                && Objects.equals(previous.getExperimentIds(), next.getExperimentIds())
+                && Objects.equals(previous.getVariables(), next.getVariables());
+        }
+    };
+
+    /**
+     * Tracks how many entities were carried over, so an update that changes everything can return the parsed
+     * config as is.
+     */
+    private static final class Merge {
+
+        private int reused;
+        private int total;
+
+        /**
+         * @return {@code next} with each entity replaced by its previous instance if that has the same id and content
+         */
+        <T extends IdMapped> List<T> reuse(List<T> previous, List<T> next, Equivalence<? super T> equivalence) {
+            Map<String, T> previousById = null;
+            List<T> merged = new ArrayList<T>(next.size());
+            for (int i = 0; i < next.size(); i++) {
+                T entity = next.get(i);
+                // entities rarely move, and ids are not always unique, so try the same position first
+                T previousEntity = i < previous.size() ? previous.get(i) : null;
+                if (previousEntity == null || !Objects.equals(previousEntity.getId(), entity.getId())) {
+                    if (previousById == null) {
+                        previousById = ProjectConfigUtils.generateIdMapping(previous);
+                    }
+                    previousEntity = previousById.get(entity.getId());
+                }
+
+                if (previousEntity != null && equivalence.same(previousEntity, entity)) {
+                    merged.add(previousEntity);
+                    reused++;
+                } else {
+                    merged.add(entity);
+                }
+            }
+            total += next.size();
+            return merged;
+        }
+
+        /**
+         * A changed group still shares its unchanged experiments.
+         */
+        List<Group> reuseGroups(List<Group> previous, List<Group> next) {
+            Map<String, Group> previousById = ProjectConfigUtils.generateIdMapping(previous);
+            List<Group> merged = new ArrayList<Group>(next.size());
+            for (Group group : next) {
+                Group previousGroup = previousById.get(group.getId());
+                if (previousGroup == null) {
+                    merged.add(group);
+                    total += group.getExperiments().size() + 1;
+                    continue;
+                }
+
+                int reusedBefore = reused;
+                List<Experiment> experiments = reuse(previousGroup.getExperiments(), group.getExperiments(), EXPERIMENTS);
+                boolean allExperimentsReused = sameInstances(previousGroup.getExperiments(), experiments);
+                total++;
+                if (allExperimentsReused
+                    && Objects.equals(previousGroup.getPolicy(), group.getPolicy())
+                    && sameTrafficAllocation(previousGroup.getTrafficAllocation(), group.getTrafficAllocation())) {
+                    merged.add(previousGroup);
+                    reused++;
+                } else if (reused > reusedBefore) {
+                    merged.add(new Group(group.getId(), group.getPolicy(), experiments, group.getTrafficAllocation()));
+                } else {
+                    merged.add(group);
+                }
+            }
+            return merged;
+        }
+
+        /**
+         * A changed rollout still shares its unchanged rules.
+         */
+        List<Rollout> reuseRollouts(List<Rollout> previous, List<Rollout> next) {
+            Map<String, Rollout> previousById = ProjectConfigUtils.generateIdMapping(previous);
+            List<Rollout> merged = new ArrayList<Rollout>(next.size());
+            for (Rollout rollout : next) {
+                Rollout previousRollout = previousById.get(rollout.getId());
+                if (previousRollout == null) {
+                    merged.add(rollout);
+                    total += rollout.getExperiments().size() + 1;
+                    continue;
+                }
+
+                int reusedBefore = reused;
+                List<Experiment> experiments = reuse(previousRollout.getExperiments(), rollout.getExperiments(), EXPERIMENTS);
+                boolean allExperimentsReused = sameInstances(previousRollout.getExperiments(), experiments);
+                total++;
+                if (allExperimentsReused) {
+                    merged.add(previousRollout);
+                    reused++;
+                } else if (reused > reusedBefore) {
+                    merged.add(new Rollout(rollout.getId(), experiments));
+                } else {
+                    merged.add(rollout);
+                }
+            }
+            return merged;
+        }
+    }
+}
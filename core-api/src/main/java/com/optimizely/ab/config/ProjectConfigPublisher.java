@@ -0,0 +1,85 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The current config of an {@link ObservableProjectConfigManager} and the listeners told about each new one.
+ * <p>
+ * Reading the config is a single volatile read. Publishing and registering a listener are serialized, so every
+ * listener sees each config exactly once and in order, starting with the one current when it was added.
+ */
+@ThreadSafe
+public final class ProjectConfigPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectConfigPublisher.class);
+
+    private final List<ObservableProjectConfigManager.Listener> listeners =
+        new CopyOnWriteArrayList<ObservableProjectConfigManager.Listener>();
+    private volatile ProjectConfig projectConfig;
+
+    @CheckForNull
+    public ProjectConfig get() {
+        return projectConfig;
+    }
+
+    /**
+     * Replaces the current config and calls every listener with it. Clearing it with {@code null} calls no listener.
+     */
+    public synchronized void publish(@Nullable ProjectConfig projectConfig) {
+        ProjectConfig previousConfig = this.projectConfig;
+        this.projectConfig = projectConfig;
+        if (projectConfig == null) {
+            return;
+        }
+        for (ObservableProjectConfigManager.Listener listener : listeners) {
+            callListener(listener, previousConfig, projectConfig);
+        }
+    }
+
+    public synchronized void addListener(@Nonnull ObservableProjectConfigManager.Listener listener) {
+        listeners.add(listener);
+        if (projectConfig != null) {
+            callListener(listener, null, projectConfig);
+        }
+    }
+
+    public void removeListener(@Nonnull ObservableProjectConfigManager.Listener listener) {
+        listeners.remove(listener);
+    }
+
+    //======== Helper methods ========//
+
+    private static void callListener(ObservableProjectConfigManager.Listener listener,
+                                     ProjectConfig previousConfig,
+                                     ProjectConfig projectConfig) {
+        try {
+            listener.onConfigPublished(previousConfig, projectConfig);
+        } catch (Exception e) {
+            logger.error("Unexpected exception in project config listener", e);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.optimizely.ab.annotations.VisibleForTesting;
+import com.optimizely.ab.config.parser.ConfigParseException;
+import com.optimizely.ab.config.parser.DatafileHeader;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide cache of parsed {@link ProjectConfig}s keyed by project id and revision, so that many
+ * {@link com.optimizely.ab.Optimizely} instances loading the same datafile share a single config, parsed once.
+ * Memory then grows with the number of distinct revisions rather than with the number of instances.
+ * <p>
+ * Configs are handed out as {@link Lease}s, which have to be closed once the config is no longer used. An entry
+ * with open leases is never evicted. Once its last lease is closed it becomes eligible for eviction, least recently
+ * used first, as soon as the registry holds more than its maximum size, or when it has been idle for longer than
+ * the idle timeout. Eviction runs whenever a lease is acquired or closed, so the registry needs no thread of its own.
+ * <p>
+ * A revision is assumed to identify the content of a datafile, as it does for datafiles served by Optimizely.
+ * Datafiles without a project id or revision are parsed on every call and not shared.
+ * <p>
+ * Forced variations are not part of the config. They are kept by each {@link com.optimizely.ab.Optimizely} instance,
+ * so instances holding a lease on the same config don't share them.
+ */
+@ThreadSafe
+public final class ProjectConfigRegistry {
+
+    public static final int DEFAULT_MAX_SIZE = 64;
+    public static final long DEFAULT_IDLE_TIMEOUT_MINUTES = 10;
+
+    private final int maxSize;
+    private final long idleTimeoutNanos;
+
+    @GuardedBy("entries")
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+    /**
+     * @param maxSize     the number of configs above which unreferenced ones are evicted
+     * @param idleTimeout how long an unreferenced config is kept
+     * @param unit        the unit of {@code idleTimeout}
+     */
+    public ProjectConfigRegistry(int maxSize, long idleTimeout, @Nonnull TimeUnit unit) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        }
+        if (idleTimeout < 0) {
+            throw new IllegalArgumentException("idleTimeout must not be negative: " + idleTimeout);
+        }
+        this.maxSize = maxSize;
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+    }
+
+    /**
+     * @return the registry shared by the whole process, holding up to {@value #DEFAULT_MAX_SIZE} unreferenced
+     * configs for up to {@value #DEFAULT_IDLE_TIMEOUT_MINUTES} minutes
+     */
+    public static ProjectConfigRegistry getDefault() {
+        return LazyHolder.INSTANCE;
+    }
+
+    /**
+     * Returns a lease on the config of the given datafile, which is only parsed when no config for its project id
+     * and revision is registered yet.
+     *
+     * @throws ConfigParseException if the datafile has to be parsed and is invalid
+     */
+    public Lease acquire(@Nullable String datafile) throws ConfigParseException {
+        if (datafile == null) {
+            throw new ConfigParseException("Unable to parse null datafile.");
+        }
+        if (datafile.isEmpty()) {
+            throw new ConfigParseException("Unable to parse empty datafile.");
+        }
+
+        DatafileHeader header = DatafileHeader.read(datafile);
+        Key key = Key.of(header.getProjectId(), header.getRevision());
+        if (key != null) {
+            Lease lease = lease(key, null);
+            if (lease != null) {
+                return lease;
+            }
+        }
+
+        // parse outside of the lock; if another thread registers the same revision meanwhile, its config wins
+        ProjectConfig projectConfig = new ProjectConfig.Builder().withDatafile(datafile).build();
+        return key == null ? new Lease(null, projectConfig) : lease(key, projectConfig);
+    }
+
+    /**
+     * Returns a lease on the registered config with the same project id and revision as the given one, registering
+     * the given config if there is none yet.
+     */
+    public Lease acquire(@Nonnull ProjectConfig projectConfig) {
+        Key key = Key.of(projectConfig.getProjectId(), projectConfig.getRevision());
+        return key == null ? new Lease(null, projectConfig) : lease(key, projectConfig);
+    }
+
+    /**
+     * @return the number of registered configs, referenced or not
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    //======== Helper methods ========//
+
+    /**
+     * Leases the registered config for the key, first registering {@code projectConfig} if there is none.
+     *
+     * @return the lease, or {@code null} if nothing is registered and no config was given
+     */
+    @Nullable
+    private Lease lease(Key key, @Nullable ProjectConfig projectConfig) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                if (projectConfig == null) {
+                    return null;
+                }
+                entry = new Entry(projectConfig);
+                entries.put(key, entry);
+            }
+            entry.references++;
+            evict(System.nanoTime());
+            return new Lease(key, entry.projectConfig);
+        }
+    }
+
+    private void release(Key key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && --entry.references == 0) {
+                entry.releasedAt = System.nanoTime();
+            }
+            evict(System.nanoTime());
+        }
+    }
+
+    /**
+     * Evicts unreferenced entries, least recently used first, while over capacity or idle for too long.
+     */
+    @GuardedBy("entries")
+    private void evict(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.references == 0 && (entries.size() > maxSize || now - entry.releasedAt >= idleTimeoutNanos)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @VisibleForTesting
+    boolean contains(String projectId, String revision) {
+        synchronized (entries) {
+            return entries.containsKey(Key.of(projectId, revision));
+        }
+    }
+
+    //======== Helper classes ========//
+
+    /**
+     * A reference to a shared {@link ProjectConfig}. Closing it more than once has no further effect.
+     */
+    public final class Lease implements AutoCloseable {
+        @Nullable
+        private final Key key;
+        private final ProjectConfig projectConfig;
+        private boolean closed;
+
+        private Lease(@Nullable Key key, ProjectConfig projectConfig) {
+            this.key = key;
+            this.projectConfig = projectConfig;
+        }
+
+        public ProjectConfig getConfig() {
+            return projectConfig;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            if (key != null) {
+                release(key);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final ProjectConfig projectConfig;
+        private int references;
+        private long releasedAt;
+
+        private Entry(ProjectConfig projectConfig) {
+            this.projectConfig = projectConfig;
+        }
+    }
+
+    private static final class Key {
+        private final String projectId;
+        private final String revision;
+
+        private Key(String projectId, String revision) {
+            this.projectId = projectId;
+            this.revision = revision;
+        }
+
+        @Nullable
+        static Key of(@Nullable String projectId, @Nullable String revision) {
+            return projectId == null || revision == null ? null : new Key(projectId, revision);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return projectId.equals(other.projectId) && revision.equals(other.revision);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * projectId.hashCode() + revision.hashCode();
+        }
+    }
+
+    //======== Lazy-init Holder ========//
+
+    private static class LazyHolder {
+        private static final ProjectConfigRegistry INSTANCE =
+            new ProjectConfigRegistry(DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+    }
+}
@@ -17,6 +17,7 @@
 package com.optimizely.ab.config;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -28,24 +29,62 @@ public class ProjectConfigUtils {
      * Helper method for creating convenience mappings from key to entity
      */
     public static <T extends IdKeyMapped> Map<String, T> generateNameMapping(List<T> nameables) {
-        Map<String, T> nameMapping = new HashMap<String, T>();
-        for (T nameable : nameables) {
-            nameMapping.put(nameable.getKey(), nameable);
+        String[] keys = new String[nameables.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = nameables.get(i).getKey();
         }
 
-        return Collections.unmodifiableMap(nameMapping);
+        return compactMapping(keys, nameables);
     }
 
     /**
      * Helper method for creating convenience mappings from ID to entity
      */
     public static <T extends IdMapped> Map<String, T> generateIdMapping(List<T> nameables) {
-        Map<String, T> nameMapping = new HashMap<String, T>();
-        for (T nameable : nameables) {
-            nameMapping.put(nameable.getId(), nameable);
+        String[] ids = new String[nameables.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = nameables.get(i).getId();
         }
 
-        return Collections.unmodifiableMap(nameMapping);
+        return compactMapping(ids, nameables);
     }
 
+    /**
+     * Datafile revisions are increasing integers. Revisions that aren't numeric are only compared for equality.
+     *
+     * @return whether {@code revision} supersedes {@code previousRevision}
+     */
+    public static boolean isNewerRevision(String revision, String previousRevision) {
+        try {
+            return Long.parseLong(revision) > Long.parseLong(previousRevision);
+        } catch (NumberFormatException e) {
+            return !revision.equals(previousRevision);
+        }
+    }
+
+    /**
+     * Most mappings are built per experiment or per flag and hold only a few entries, so they share the empty map or
+     * use an {@link ArrayMap}; larger ones get a hash map sized up front.
+     */
+    private static <T> Map<String, T> compactMapping(String[] keys, List<T> values) {
+        if (keys.length == 0) {
+            return Collections.emptyMap();
+        }
+        if (keys.length <= ArrayMap.MAX_SIZE) {
+            return ArrayMap.of(Arrays.asList(keys), values);
+        }
+
+        Map<String, T> mapping = new HashMap<String, T>(capacityFor(keys.length));
+        for (int i = 0; i < keys.length; i++) {
+            mapping.put(keys[i], values.get(i));
+        }
+        return Collections.unmodifiableMap(mapping);
+    }
+
+    /**
+     * @return the initial {@link HashMap} capacity that holds the given number of entries without rehashing
+     */
+    static int capacityFor(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
 }
@@ -0,0 +1,349 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.optimizely.ab.annotations.VisibleForTesting;
+import com.optimizely.ab.config.parser.ProjectConfigSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * {@link PollingProjectConfigManager} that shares one config between the processes of a host through a
+ * memory-mapped file, so that only one of them fetches and parses the datafile.
+ * <p>
+ * The leader is built {@link Builder#withSource(ProjectConfigManager) with a source}, e.g. an
+ * {@code HttpProjectConfigManager}. Every config the source publishes is encoded as a {@link ProjectConfigSnapshot}
+ * and written to the shared file. Followers are built without a source. They map the file read-only, check its
+ * sequence counter on every poll, and decode the snapshot when the counter has moved. Decoding a snapshot skips the
+ * json parsing and the datafile download; each process still holds its own copy of the entities, as objects can't be
+ * shared between heaps.
+ * <p>
+ * The file starts with a fixed header: magic, layout version, sequence counter, snapshot length and checksum. The
+ * leader makes the counter odd while it rewrites the snapshot and even once it is done. Followers copy the snapshot
+ * out of the mapping and keep the copy only if the counter was even and unchanged around it. Plain accesses to a
+ * mapped buffer are not ordered across processes, so a copy that slips through mid-write is caught by the checksum
+ * and read again on the next poll. The file only ever grows, so a follower's mapping never points past its end.
+ * <p>
+ * Example usage:
+ * <pre>
+ *     // in the process that fetches the datafile
+ *     httpProjectConfigManager.start();
+ *     SharedProjectConfigManager projectConfigManager = SharedProjectConfigManager.builder(sharedFilePath)
+ *         .withSource(httpProjectConfigManager)
+ *         .build();
+ *
+ *     // in every other process on the host
+ *     SharedProjectConfigManager projectConfigManager = SharedProjectConfigManager.builder(sharedFilePath)
+ *         .build();
+ *
+ *     projectConfigManager.start();
+ *     Optimizely optimizely = Optimizely.builder()
+ *         .withConfigManager(projectConfigManager)
+ *         .withEventHandler(eventHandler)
+ *         .build();
+ * </pre>
+ */
+public class SharedProjectConfigManager extends PollingProjectConfigManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedProjectConfigManager.class);
+
+    private static final int MAGIC = 0x4F505348; // "OPSH"
+
+    /**
+     * Bumped whenever the header layout changes, files of another layout are then ignored by followers.
+     */
+    static final int LAYOUT_VERSION = 1;
+
+    // header: magic, layout version, sequence counter, snapshot length and checksum, padded to a cache line
+    private static final int MAGIC_OFFSET = 0;
+    private static final int LAYOUT_VERSION_OFFSET = 4;
+    private static final int SEQUENCE_OFFSET = 8;
+    private static final int LENGTH_OFFSET = 16;
+    private static final int CHECKSUM_OFFSET = 24;
+    static final int HEADER_SIZE = 64;
+
+    private final Path path;
+    @Nullable
+    private final ProjectConfigManager source;
+
+    // only accessed from the polling thread, or by close() once polling has stopped
+    private FileChannel channel;
+    private MappedByteBuffer mapping;
+    private long lastSequence = -1;
+    private ProjectConfig lastWrittenConfig;
+
+    private SharedProjectConfigManager(long period,
+                                       TimeUnit timeUnit,
+                                       long blockingTimeoutPeriod,
+                                       TimeUnit blockingTimeoutUnit,
+                                       Path path,
+                                       @Nullable ProjectConfigManager source) {
+        super(period, timeUnit, blockingTimeoutPeriod, blockingTimeoutUnit);
+        this.path = path.toAbsolutePath();
+        this.source = source;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return whether this manager writes the shared file rather than reading it
+     */
+    public boolean isLeader() {
+        return source != null;
+    }
+
+    @Override
+    @CheckForNull
+    protected ProjectConfig poll() {
+        return source != null ? pollSource() : pollSharedFile();
+    }
+
+    /**
+     * Stops polling and unmaps the shared file. A leader also closes its source.
+     */
+    @Override
+    public synchronized void close() {
+        super.close();
+        closeChannel();
+        if (source instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) source).close();
+            } catch (Exception e) {
+                logger.warn("Unexpected exception closing the source project config manager", e);
+            }
+        }
+    }
+
+    private ProjectConfig pollSource() {
+        ProjectConfig projectConfig = source.getConfig();
+        if (projectConfig == null || projectConfig == lastWrittenConfig) {
+            return projectConfig;
+        }
+
+        try {
+            write(projectConfig);
+            lastWrittenConfig = projectConfig;
+        } catch (IOException e) {
+            logger.error("Unable to write config of revision {} to {}", projectConfig.getRevision(), path, e);
+            closeChannel();
+        }
+        return projectConfig;
+    }
+
+    private ProjectConfig pollSharedFile() {
+        try {
+            return read();
+        } catch (IOException e) {
+            logger.error("Unable to read shared config file {}", path, e);
+            closeChannel();
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given config to the shared file and moves the sequence counter, growing the file
+     * when the snapshot doesn't fit.
+     */
+    @VisibleForTesting
+    void write(@Nonnull ProjectConfig projectConfig) throws IOException {
+        byte[] snapshot = ProjectConfigSnapshot.toBytes(projectConfig);
+        CRC32 checksum = new CRC32();
+        checksum.update(snapshot);
+        int required = HEADER_SIZE + snapshot.length;
+
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        }
+        if (mapping == null || mapping.capacity() < required) {
+            // leave room for the datafile to grow before the file has to be extended again
+            long capacity = Math.max(channel.size(), required + (long) required / 2);
+            mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+
+        int magic = mapping.getInt(MAGIC_OFFSET);
+        if (magic == 0) {
+            mapping.putInt(MAGIC_OFFSET, MAGIC);
+            mapping.putInt(LAYOUT_VERSION_OFFSET, LAYOUT_VERSION);
+        } else if (magic != MAGIC) {
+            throw new IOException(path + " is not a shared config file");
+        } else {
+            mapping.putInt(LAYOUT_VERSION_OFFSET, LAYOUT_VERSION);
+        }
+
+        // a leader that died mid-write left the counter odd
+        long sequence = mapping.getLong(SEQUENCE_OFFSET);
+        if ((sequence & 1) != 0) {
+            sequence++;
+        }
+
+        mapping.putLong(SEQUENCE_OFFSET, sequence + 1);
+        ByteBuffer body = mapping.duplicate();
+        body.position(HEADER_SIZE);
+        body.put(snapshot);
+        mapping.putInt(LENGTH_OFFSET, snapshot.length);
+        mapping.putLong(CHECKSUM_OFFSET, checksum.getValue());
+        mapping.putLong(SEQUENCE_OFFSET, sequence + 2);
+
+        logger.info("Shared config of revision {} in {}, sequence {}.", projectConfig.getRevision(), path,
+            sequence + 2);
+    }
+
+    /**
+     * Decodes the snapshot in the shared file if its sequence counter moved since the last successful read.
+     *
+     * @return the config, or {@code null} if the file does not exist yet, is unchanged or is being rewritten
+     */
+    @VisibleForTesting
+    @CheckForNull
+    ProjectConfig read() throws IOException {
+        if (mapping == null) {
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                logger.debug("Shared config file {} does not exist yet.", path);
+                return null;
+            }
+            if (channel.size() < HEADER_SIZE) {
+                closeChannel();
+                return null;
+            }
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        }
+
+        if (mapping.getInt(MAGIC_OFFSET) != MAGIC || mapping.getInt(LAYOUT_VERSION_OFFSET) != LAYOUT_VERSION) {
+            logger.warn("Ignoring shared config file {} of an unknown layout.", path);
+            return null;
+        }
+
+        long sequence = mapping.getLong(SEQUENCE_OFFSET);
+        if (sequence == lastSequence || (sequence & 1) != 0) {
+            return null;
+        }
+
+        int length = mapping.getInt(LENGTH_OFFSET);
+        long expectedChecksum = mapping.getLong(CHECKSUM_OFFSET);
+        if (length <= 0 || HEADER_SIZE + (long) length > channel.size()) {
+            return null;
+        }
+
+        // copy the snapshot out before decoding it, so that the leader can't rewrite it underneath the decoder
+        byte[] snapshot = new byte[length];
+        MappedByteBuffer body = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, length);
+        body.get(snapshot);
+        if (mapping.getLong(SEQUENCE_OFFSET) != sequence) {
+            return null;
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(snapshot);
+        if (checksum.getValue() != expectedChecksum) {
+            logger.debug("Shared config file {} changed while it was read, reading it again on the next poll.", path);
+            return null;
+        }
+
+        ProjectConfig projectConfig = ProjectConfigSnapshot.read(ByteBuffer.wrap(snapshot), null);
+        if (projectConfig != null) {
+            lastSequence = sequence;
+        }
+        return projectConfig;
+    }
+
+    //======== Helper methods ========//
+
+    private void closeChannel() {
+        mapping = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close shared config file {}", path, e);
+            }
+            channel = null;
+        }
+    }
+
+    public static Builder builder(@Nonnull Path path) {
+        return new Builder(path);
+    }
+
+    /**
+     * {@link SharedProjectConfigManager} builder. A manager built {@link #withSource(ProjectConfigManager)} is the
+     * leader, which writes the shared file; there should be one per file.
+     */
+    public static class Builder {
+
+        private final Path path;
+        private ProjectConfigManager source;
+        private long period = 1;
+        private TimeUnit timeUnit = TimeUnit.SECONDS;
+        private long blockingTimeoutPeriod = 10;
+        private TimeUnit blockingTimeoutUnit = TimeUnit.SECONDS;
+
+        private Builder(@Nonnull Path path) {
+            this.path = path;
+        }
+
+        /**
+         * Makes the manager the leader, which publishes the configs of the given manager to the shared file. The
+         * source is closed along with the manager.
+         */
+        public Builder withSource(@Nonnull ProjectConfigManager source) {
+            this.source = source;
+            return this;
+        }
+
+        /**
+         * How often the shared file's sequence counter is checked, or, for the leader, the source's config.
+         */
+        public Builder withPollingInterval(long period, @Nonnull TimeUnit timeUnit) {
+            this.period = period;
+            this.timeUnit = timeUnit;
+            return this;
+        }
+
+        /**
+         * Bounds how long {@link SharedProjectConfigManager#getConfig()} waits for the first config after
+         * {@link SharedProjectConfigManager#start()}. A timeout of zero never blocks.
+         */
+        public Builder withBlockingTimeout(long period, @Nonnull TimeUnit timeUnit) {
+            this.blockingTimeoutPeriod = period;
+            this.blockingTimeoutUnit = timeUnit;
+            return this;
+        }
+
+        public SharedProjectConfigManager build() {
+            return new SharedProjectConfigManager(period, timeUnit, blockingTimeoutPeriod, blockingTimeoutUnit,
+                path, source);
+        }
+    }
+}
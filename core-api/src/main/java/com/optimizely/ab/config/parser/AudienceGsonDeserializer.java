@@ -16,7 +16,6 @@
  */
 package com.optimizely.ab.config.parser;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
@@ -31,14 +30,11 @@ import com.optimizely.ab.internal.ConditionUtils;
 
 import java.lang.reflect.Type;
 
-import java.util.List;
-
 public class AudienceGsonDeserializer implements JsonDeserializer<Audience> {
 
     @Override
     public Audience deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context)
         throws JsonParseException {
-        Gson gson = new Gson();
         JsonParser parser = new JsonParser();
         JsonObject jsonObject = json.getAsJsonObject();
 
@@ -50,12 +46,8 @@ public class AudienceGsonDeserializer implements JsonDeserializer<Audience> {
             conditionsElement = parser.parse(jsonObject.get("conditions").getAsString());
         }
         Condition conditions = null;
-        if (conditionsElement.isJsonArray()) {
-            List<Object> rawObjectList = gson.fromJson(conditionsElement, List.class);
-            conditions = ConditionUtils.parseConditions(UserAttribute.class, rawObjectList);
-        } else if (conditionsElement.isJsonObject()) {
-            Object object = gson.fromJson(conditionsElement, Object.class);
-            conditions = ConditionUtils.parseConditions(UserAttribute.class, object);
+        if (conditionsElement.isJsonArray() || conditionsElement.isJsonObject()) {
+            conditions = ConditionUtils.parseConditions(UserAttribute.class, GsonHelpers.toJavaObject(conditionsElement));
         }
 
         return new Audience(id, name, conditions);
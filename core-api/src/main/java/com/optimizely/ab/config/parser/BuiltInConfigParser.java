@@ -0,0 +1,1395 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config.parser;
+
+import com.optimizely.ab.config.Attribute;
+import com.optimizely.ab.config.EventType;
+import com.optimizely.ab.config.Experiment;
+import com.optimizely.ab.config.FeatureFlag;
+import com.optimizely.ab.config.FeatureVariable;
+import com.optimizely.ab.config.FeatureVariableUsageInstance;
+import com.optimizely.ab.config.Group;
+import com.optimizely.ab.config.ProjectConfig;
+import com.optimizely.ab.config.Rollout;
+import com.optimizely.ab.config.TrafficAllocation;
+import com.optimizely.ab.config.Variation;
+import com.optimizely.ab.config.audience.AndCondition;
+import com.optimizely.ab.config.audience.Audience;
+import com.optimizely.ab.config.audience.AudienceIdCondition;
+import com.optimizely.ab.config.audience.Condition;
+import com.optimizely.ab.config.audience.EmptyCondition;
+import com.optimizely.ab.config.audience.NotCondition;
+import com.optimizely.ab.config.audience.NullCondition;
+import com.optimizely.ab.config.audience.OrCondition;
+import com.optimizely.ab.config.audience.UserAttribute;
+import com.optimizely.ab.internal.ConditionUtils;
+import com.optimizely.ab.internal.InvalidAudienceCondition;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Dependency-free config parser that reads the datafile schema straight from UTF-8 bytes into the config model,
+ * with no reflection and no intermediate object model. Unlike the library-backed parsers it does not depend on
+ * what happens to be on the classpath.
+ * <p>
+ * Unknown members are skipped, so newer datafiles with additional sections still parse.
+ * <p>
+ * When created with a {@link ForkJoinPool}, the elements of the top-level arrays of large datafiles are parsed in
+ * chunks on the pool, see {@link DefaultConfigParser#getInstance(ForkJoinPool)}. When created with a
+ * {@link DatafileProjection}, only the entities its flags and experiments depend on are built.
+ */
+final class BuiltInConfigParser implements ConfigParser {
+
+    /**
+     * Datafiles smaller than this are always parsed on the calling thread, as forking would cost more than it saves.
+     */
+    static final int PARALLEL_THRESHOLD = 256 * 1024;
+
+    /**
+     * Approximate number of bytes of array elements parsed by a single fork-join task.
+     */
+    static final int CHUNK_SIZE = 32 * 1024;
+
+    @Nullable
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+    private final int chunkSize;
+    @Nullable
+    private final DatafileProjection projection;
+
+    BuiltInConfigParser() {
+        this(null, PARALLEL_THRESHOLD, CHUNK_SIZE);
+    }
+
+    /**
+     * @param projection the flags and experiments to keep, parsing is then always done on the calling thread as
+     *                   it only builds a small part of the datafile
+     */
+    BuiltInConfigParser(@Nonnull DatafileProjection projection) {
+        this(null, PARALLEL_THRESHOLD, CHUNK_SIZE, projection);
+    }
+
+    /**
+     * @param pool              the pool to parse the top-level sections of large datafiles on, or {@code null} to
+     *                          always parse on the calling thread
+     * @param parallelThreshold the datafile size in bytes from which sections are parsed on the pool
+     * @param chunkSize         the approximate number of bytes of array elements parsed by a single task
+     */
+    BuiltInConfigParser(@Nullable ForkJoinPool pool, int parallelThreshold, int chunkSize) {
+        this(pool, parallelThreshold, chunkSize, null);
+    }
+
+    private BuiltInConfigParser(@Nullable ForkJoinPool pool,
+                                int parallelThreshold,
+                                int chunkSize,
+                                @Nullable DatafileProjection projection) {
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+        this.chunkSize = chunkSize;
+        this.projection = projection;
+    }
+
+    @Override
+    public ProjectConfig parseProjectConfig(@Nonnull String json) throws ConfigParseException {
+        if (json == null) {
+            throw new ConfigParseException("Unable to parse null json.");
+        }
+        if (json.length() == 0) {
+            throw new ConfigParseException("Unable to parse empty json.");
+        }
+
+        try {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            return readProjectConfig(new Utf8JsonReader(bytes), splitterFor(bytes, 0, bytes.length), projection);
+        } catch (Exception e) {
+            throw new ConfigParseException("Unable to parse datafile: " + json, e);
+        }
+    }
+
+    @Override
+    public ProjectConfig parseProjectConfig(@Nonnull byte[] json) throws ConfigParseException {
+        if (json == null) {
+            throw new ConfigParseException("Unable to parse null json.");
+        }
+        return parse(json, 0, json.length);
+    }
+
+    @Override
+    public ProjectConfig parseProjectConfig(@Nonnull ByteBuffer json) throws ConfigParseException {
+        if (json == null) {
+            throw new ConfigParseException("Unable to parse null json.");
+        }
+        if (json.hasArray()) {
+            return parse(json.array(), json.arrayOffset() + json.position(), json.remaining());
+        }
+
+        byte[] bytes = new byte[json.remaining()];
+        json.duplicate().get(bytes);
+        return parse(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public ProjectConfig parseProjectConfig(@Nonnull InputStream json) throws ConfigParseException {
+        if (json == null) {
+            throw new ConfigParseException("Unable to parse null json.");
+        }
+
+        byte[] bytes;
+        int length = 0;
+        try {
+            bytes = new byte[Math.max(json.available(), 8192)];
+            int read;
+            while ((read = json.read(bytes, length, bytes.length - length)) != -1) {
+                length += read;
+                if (length == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+            }
+        } catch (IOException e) {
+            throw new ConfigParseException("Unable to read datafile.", e);
+        }
+        return parse(bytes, 0, length);
+    }
+
+    //======== Helper methods ========//
+
+    private ProjectConfig parse(byte[] json, int offset, int length) throws ConfigParseException {
+        if (length == 0) {
+            throw new ConfigParseException("Unable to parse empty json.");
+        }
+
+        try {
+            return readProjectConfig(new Utf8JsonReader(json, offset, length), splitterFor(json, offset, length),
+                projection);
+        } catch (Exception e) {
+            throw new ConfigParseException("Unable to parse datafile.", e);
+        }
+    }
+
+    @CheckForNull
+    private SectionSplitter splitterFor(byte[] json, int offset, int length) {
+        if (pool == null || length < parallelThreshold) {
+            return null;
+        }
+        return new SectionSplitter(json, offset, length, pool, chunkSize);
+    }
+
+    /**
+     * Reads only the top-level "revision" of a datafile, skipping over everything else without materializing it.
+     *
+     * @return the revision, or {@code null} if the datafile has none
+     */
+    @CheckForNull
+    static String readRevision(@Nonnull byte[] json) throws ConfigParseException {
+        Utf8JsonReader reader = new Utf8JsonReader(json);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("revision".equals(reader.nextName())) {
+                return readString(reader);
+            }
+            reader.skipValue();
+        }
+        return null;
+    }
+
+    /**
+     * @param splitter   when given, the elements of the top-level arrays are only located while reading the root
+     *                   object, and are parsed in parallel once it is complete
+     * @param projection when given, the arrays it filters are only located while reading the root object, and
+     *                   the elements it requires are read once it is complete
+     */
+    private static ProjectConfig readProjectConfig(Utf8JsonReader reader,
+                                                   @Nullable SectionSplitter splitter,
+                                                   @Nullable DatafileProjection projection)
+        throws ConfigParseException {
+        String accountId = null;
+        String projectId = null;
+        String revision = null;
+        String version = null;
+        List<Group> groups = null;
+        List<Experiment> experiments = null;
+        List<Attribute> attributes = null;
+        List<EventType> events = null;
+        List<Audience> audiences = Collections.emptyList();
+        List<Audience> typedAudiences = null;
+        Boolean anonymizeIPValue = null;
+        List<FeatureFlag> featureFlags = null;
+        List<Rollout> rollouts = null;
+        Boolean botFiltering = null;
+        Projector projector = projection == null ? null : new Projector(reader, projection);
+
+        // sections may appear in any order, so version-specific fields are collected here and gated below
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (projector != null && projector.locate(name)) {
+                continue;
+            }
+            switch (name) {
+                case "accountId":
+                    accountId = readString(reader);
+                    break;
+                case "projectId":
+                    projectId = readString(reader);
+                    break;
+                case "revision":
+                    revision = readString(reader);
+                    break;
+                case "version":
+                    version = readString(reader);
+                    break;
+                case "groups":
+                    groups = readSection(reader, GROUP, splitter);
+                    break;
+                case "experiments":
+                    experiments = readSection(reader, EXPERIMENT, splitter);
+                    break;
+                case "attributes":
+                    attributes = readSection(reader, ATTRIBUTE, splitter);
+                    break;
+                case "events":
+                    events = readSection(reader, EVENT, splitter);
+                    break;
+                case "audiences":
+                    audiences = readSection(reader, AUDIENCE, splitter);
+                    break;
+                case "typedAudiences":
+                    typedAudiences = readSection(reader, TYPED_AUDIENCE, splitter);
+                    break;
+                case "anonymizeIP":
+                    anonymizeIPValue = readBoolean(reader);
+                    break;
+                case "featureFlags":
+                    featureFlags = readSection(reader, FEATURE_FLAG, splitter);
+                    break;
+                case "rollouts":
+                    rollouts = readSection(reader, ROLLOUT, splitter);
+                    break;
+                case "botFiltering":
+                    botFiltering = readBoolean(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        reader.endDocument();
+
+        if (splitter != null) {
+            splitter.parse();
+        }
+        if (projector != null) {
+            // each section keeps what the ones read before it depend on
+            featureFlags = projector.readFeatureFlags(featureFlags);
+            experiments = projector.readExperiments(experiments);
+            groups = projector.readGroups(groups);
+            rollouts = projector.readRollouts(rollouts);
+            audiences = projector.readAudiences("audiences", AUDIENCE, audiences);
+            typedAudiences = projector.readAudiences("typedAudiences", TYPED_AUDIENCE, typedAudiences);
+        }
+
+        if (version == null) {
+            throw new ConfigParseException("Missing required field \"version\"");
+        }
+        int datafileVersion = Integer.parseInt(version);
+
+        boolean anonymizeIP = false;
+        if (datafileVersion >= Integer.parseInt(ProjectConfig.Version.V3.toString())) {
+            if (anonymizeIPValue == null) {
+                throw new ConfigParseException("Missing required field \"anonymizeIP\"");
+            }
+            anonymizeIP = anonymizeIPValue;
+        }
+
+        if (datafileVersion < Integer.parseInt(ProjectConfig.Version.V4.toString())) {
+            featureFlags = null;
+            rollouts = null;
+            botFiltering = null;
+        }
+
+        return new ProjectConfig(
+            accountId,
+            anonymizeIP,
+            botFiltering,
+            projectId,
+            revision,
+            version,
+            attributes,
+            audiences,
+            typedAudiences,
+            events,
+            experiments,
+            featureFlags,
+            groups,
+            rollouts
+        );
+    }
+
+    /**
+     * Reads a top-level array, or only locates its elements when there is a splitter.
+     */
+    private static <T> List<T> readSection(Utf8JsonReader reader, ElementReader<T> elementReader,
+                                           @Nullable SectionSplitter splitter) throws ConfigParseException {
+        return splitter == null ? readArray(reader, elementReader) : splitter.defer(reader, elementReader);
+    }
+
+    private static <T> List<T> readArray(Utf8JsonReader reader, ElementReader<T> elementReader)
+        throws ConfigParseException {
+        if (reader.nextIfNull()) {
+            return null;
+        }
+
+        ArrayList<T> elements = new ArrayList<T>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            elements.add(elementReader.read(reader));
+        }
+        reader.endArray();
+
+        return compact(elements);
+    }
+
+    /**
+     * @param projector when given, only the experiments it requires are read
+     */
+    private static Group readGroup(Utf8JsonReader reader, @Nullable Projector projector)
+        throws ConfigParseException {
+        String id = null;
+        String policy = null;
+        List<Experiment> experiments = null;
+        List<TrafficAllocation> trafficAllocation = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = readString(reader);
+                    break;
+                case "policy":
+                    policy = readString(reader);
+                    break;
+                case "experiments":
+                    // when the id comes first the experiments are created with their group id, otherwise
+                    // the Group constructor fills it in
+                    experiments = readExperiments(reader, id == null ? "" : id, projector);
+                    break;
+                case "trafficAllocation":
+                    trafficAllocation = readTrafficAllocation(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new Group(id, policy, experiments, trafficAllocation);
+    }
+
+    private static List<Experiment> readExperiments(Utf8JsonReader reader,
+                                                    String groupId,
+                                                    @Nullable Projector projector) throws ConfigParseException {
+        if (reader.nextIfNull()) {
+            return null;
+        }
+
+        ArrayList<Experiment> experiments = new ArrayList<Experiment>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (projector == null || projector.keeps(reader, projector.experimentFilter)) {
+                experiments.add(readExperiment(reader, groupId));
+            }
+        }
+        reader.endArray();
+
+        return compact(experiments);
+    }
+
+    private static Experiment readExperiment(Utf8JsonReader reader, String groupId) throws ConfigParseException {
+        String id = null;
+        String key = null;
+        String status = null;
+        String layerId = null;
+        List<String> audienceIds = null;
+        Condition audienceConditions = null;
+        List<Variation> variations = null;
+        Map<String, String> userIdToVariationKeyMap = Collections.emptyMap();
+        List<TrafficAllocation> trafficAllocation = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = readString(reader);
+                    break;
+                case "key":
+                    key = readString(reader);
+                    break;
+                case "status":
+                    status = readString(reader);
+                    break;
+                case "layerId":
+                    layerId = readString(reader);
+                    break;
+                case "audienceIds":
+                    audienceIds = readStringList(reader);
+                    break;
+                case "audienceConditions":
+                    audienceConditions = readCondition(reader, AudienceIdCondition.class);
+                    break;
+                case "variations":
+                    variations = readVariations(reader);
+                    break;
+                case "forcedVariations":
+                    userIdToVariationKeyMap = readForcedVariations(reader);
+                    break;
+                case "trafficAllocation":
+                    trafficAllocation = readTrafficAllocation(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new Experiment(id, key, status, layerId, audienceIds, audienceConditions, variations,
+            userIdToVariationKeyMap, trafficAllocation, groupId);
+    }
+
+    private static List<Variation> readVariations(Utf8JsonReader reader) throws ConfigParseException {
+        if (reader.nextIfNull()) {
+            return null;
+        }
+
+        ArrayList<Variation> variations = new ArrayList<Variation>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String id = null;
+            String key = null;
+            Boolean featureEnabled = null;
+            List<FeatureVariableUsageInstance> featureVariableUsageInstances = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id":
+                        id = readString(reader);
+                        break;
+                    case "key":
+                        key = readString(reader);
+                        break;
+                    case "featureEnabled":
+                        featureEnabled = readBoolean(reader);
+                        break;
+                    case "variables":
+                        featureVariableUsageInstances = readFeatureVariableUsageInstances(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            variations.add(new Variation(id, key, featureEnabled, featureVariableUsageInstances));
+        }
+        reader.endArray();
+
+        return compact(variations);
+    }
+
+    private static List<FeatureVariableUsageInstance> readFeatureVariableUsageInstances(Utf8JsonReader reader)
+        throws ConfigParseException {
+        if (reader.nextIfNull()) {
+            return null;
+        }
+
+        ArrayList<FeatureVariableUsageInstance> usageInstances = new ArrayList<FeatureVariableUsageInstance>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String id = null;
+            String value = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id":
+                        id = readString(reader);
+                        break;
+                    case "value":
+                        value = readString(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            usageInstances.add(new FeatureVariableUsageInstance(id, value));
+        }
+        reader.endArray();
+
+        return compact(usageInstances);
+    }
+
+    private static Map<String, String> readForcedVariations(Utf8JsonReader reader) throws ConfigParseException {
+        if (reader.nextIfNull()) {
+            return null;
+        }
+
+        Map<String, String> userIdToVariationKeyMap = new HashMap<String, String>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String userId = reader.nextName();
+            userIdToVariationKeyMap.put(userId, readString(reader));
+        }
+        reader.endObject();
+
+        return userIdToVariationKeyMap.isEmpty() ? Collections.<String, String>emptyMap() : userIdToVariationKeyMap;
+    }
+
+    private static List<TrafficAllocation> readTrafficAllocation(Utf8JsonReader reader)
+        throws ConfigParseException {
+        if (reader.nextIfNull()) {
+            return null;
+        }
+
+        ArrayList<TrafficAllocation> trafficAllocation = new ArrayList<TrafficAllocation>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String entityId = null;
+            int endOfRange = 0;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "entityId":
+                        entityId = readString(reader);
+                        break;
+                    case "endOfRange":
+                        endOfRange = reader.nextInt();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            trafficAllocation.add(new TrafficAllocation(entityId, endOfRange));
+        }
+        reader.endArray();
+
+        return compact(trafficAllocation);
+    }
+
+    private static FeatureFlag readFeatureFlag(Utf8JsonReader reader) throws ConfigParseException {
+        String id = null;
+        String key = null;
+        String rolloutId = null;
+        List<String> experimentIds = null;
+        List<FeatureVariable> variables = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = readString(reader);
+                    break;
+                case "key":
+                    key = readString(reader);
+                    break;
+                case "rolloutId":
+                    rolloutId = readString(reader);
+                    break;
+                case "experimentIds":
+                    experimentIds = readStringList(reader);
+                    break;
+                case "variables":
+                    variables = readFeatureVariables(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new FeatureFlag(id, key, rolloutId, experimentIds, variables);
+    }
+
+    private static List<FeatureVariable> readFeatureVariables(Utf8JsonReader reader) throws ConfigParseException {
+        if (reader.nextIfNull()) {
+            return null;
+        }
+
+        ArrayList<FeatureVariable> variables = new ArrayList<FeatureVariable>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String id = null;
+            String key = null;
+            String defaultValue = null;
+            FeatureVariable.VariableStatus status = null;
+            FeatureVariable.VariableType type = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id":
+                        id = readString(reader);
+                        break;
+                    case "key":
+                        key = readString(reader);
+                        break;
+                    case "defaultValue":
+                        defaultValue = readString(reader);
+                        break;
+                    case "status":
+                        status = FeatureVariable.VariableStatus.fromString(readString(reader));
+                        break;
+                    case "type":
+                        type = FeatureVariable.VariableType.fromString(readString(reader));
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            variables.add(new FeatureVariable(id, key, defaultValue, status, type));
+        }
+        reader.endArray();
+
+        return compact(variables);
+    }
+
+    private static Rollout readRollout(Utf8JsonReader reader) throws ConfigParseException {
+        String id = null;
+        List<Experiment> experiments = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = readString(reader);
+                    break;
+                case "experiments":
+                    experiments = readExperiments(reader, "", null);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new Rollout(id, experiments);
+    }
+
+    private static Attribute readAttribute(Utf8JsonReader reader) throws ConfigParseException {
+        String id = null;
+        String key = null;
+        String segmentId = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = readString(reader);
+                    break;
+                case "key":
+                    key = readString(reader);
+                    break;
+                case "segmentId":
+                    segmentId = readString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new Attribute(id, key, segmentId);
+    }
+
+    private static EventType readEvent(Utf8JsonReader reader) throws ConfigParseException {
+        String id = null;
+        String key = null;
+        List<String> experimentIds = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = readString(reader);
+                    break;
+                case "key":
+                    key = readString(reader);
+                    break;
+                case "experimentIds":
+                    experimentIds = readStringList(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new EventType(id, key, experimentIds);
+    }
+
+    /**
+     * Reads a legacy audience, whose conditions are json encoded into a string, or a typed audience, whose conditions
+     * are inlined.
+     */
+    private static Audience readAudience(Utf8JsonReader reader, boolean typed) throws ConfigParseException {
+        String id = null;
+        String name = null;
+        Condition conditions = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = readString(reader);
+                    break;
+                case "name":
+                    name = readString(reader);
+                    break;
+                case "conditions":
+                    if (!typed && reader.peekString()) {
+                        Utf8JsonReader conditionsReader =
+                            new Utf8JsonReader(reader.nextString().getBytes(StandardCharsets.UTF_8));
+                        conditions = readCondition(conditionsReader, UserAttribute.class);
+                        conditionsReader.endDocument();
+                    } else {
+                        conditions = readCondition(reader, UserAttribute.class);
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new Audience(id, name, conditions);
+    }
+
+    /**
+     * Builds a condition tree with the same semantics as {@link ConditionUtils#parseConditions(Class, Object)}, but
+     * without first materializing the json as lists and maps.
+     */
+    private static Condition readCondition(Utf8JsonReader reader, Class<?> clazz) throws ConfigParseException {
+        if (reader.peekArray()) {
+            reader.beginArray();
+            if (!reader.hasNext()) {
+                reader.endArray();
+                return new EmptyCondition();
+            }
+
+            String operand = "or";
+            ArrayList<Condition> conditions = new ArrayList<Condition>();
+            if (reader.peekString()) {
+                String first = reader.nextString();
+                String firstOperand = ConditionUtils.operand(first);
+                if (firstOperand != null) {
+                    operand = firstOperand;
+                } else {
+                    conditions.add(audienceIdCondition(clazz, first));
+                }
+            } else {
+                conditions.add(readCondition(reader, clazz));
+            }
+            while (reader.hasNext()) {
+                conditions.add(readCondition(reader, clazz));
+            }
+            reader.endArray();
+
+            switch (operand) {
+                case "and":
+                    return new AndCondition(compact(conditions));
+                case "not":
+                    return new NotCondition(conditions.isEmpty() ? new NullCondition() : conditions.get(0));
+                default:
+                    return new OrCondition(compact(conditions));
+            }
+        }
+
+        if (reader.peekString()) {
+            return audienceIdCondition(clazz, reader.nextString());
+        }
+
+        if (reader.peekObject()) {
+            if (clazz != UserAttribute.class) {
+                throw new InvalidAudienceCondition(String.format("Expected UserAttributes got %s", clazz.getCanonicalName()));
+            }
+            return readUserAttribute(reader);
+        }
+
+        reader.skipValue();
+        return null;
+    }
+
+    private static Condition audienceIdCondition(Class<?> clazz, String audienceId) {
+        if (clazz != AudienceIdCondition.class) {
+            throw new InvalidAudienceCondition(String.format("Expected AudienceIdCondition got %s", clazz.getCanonicalName()));
+        }
+        return new AudienceIdCondition(audienceId);
+    }
+
+    private static UserAttribute readUserAttribute(Utf8JsonReader reader) throws ConfigParseException {
+        String name = null;
+        String type = null;
+        String match = null;
+        Object value = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    name = readString(reader);
+                    break;
+                case "type":
+                    type = readString(reader);
+                    break;
+                case "match":
+                    match = readString(reader);
+                    break;
+                case "value":
+                    value = reader.nextValue();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        return new UserAttribute(name, type, match, value);
+    }
+
+    private static List<String> readStringList(Utf8JsonReader reader) throws ConfigParseException {
+        if (reader.nextIfNull()) {
+            return null;
+        }
+
+        ArrayList<String> strings = new ArrayList<String>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            strings.add(readString(reader));
+        }
+        reader.endArray();
+
+        return compact(strings);
+    }
+
+    /**
+     * The lists end up in the config, so empty ones are shared and the others drop their spare capacity.
+     */
+    private static <T> List<T> compact(ArrayList<T> list) {
+        if (list.isEmpty()) {
+            return Collections.emptyList();
+        }
+        list.trimToSize();
+        return list;
+    }
+
+    private static String readString(Utf8JsonReader reader) throws ConfigParseException {
+        return reader.nextIfNull() ? null : reader.nextString();
+    }
+
+    private static Boolean readBoolean(Utf8JsonReader reader) throws ConfigParseException {
+        return reader.nextIfNull() ? null : reader.nextBoolean();
+    }
+
+    //======== Helper classes ========//
+
+    /**
+     * Reads a single element of a top-level array.
+     */
+    private interface ElementReader<T> {
+        T read(Utf8JsonReader reader) throws ConfigParseException;
+    }
+
+    private static final ElementReader<Group> GROUP = new ElementReader<Group>() {
+        @Override
+        public Group read(Utf8JsonReader reader) throws ConfigParseException {
+            return readGroup(reader, null);
+        }
+    };
+
+    private static final ElementReader<Experiment> EXPERIMENT = new ElementReader<Experiment>() {
+        @Override
+        public Experiment read(Utf8JsonReader reader) throws ConfigParseException {
+            return readExperiment(reader, "");
+        }
+    };
+
+    private static final ElementReader<Attribute> ATTRIBUTE = new ElementReader<Attribute>() {
+        @Override
+        public Attribute read(Utf8JsonReader reader) throws ConfigParseException {
+            return readAttribute(reader);
+        }
+    };
+
+    private static final ElementReader<EventType> EVENT = new ElementReader<EventType>() {
+        @Override
+        public EventType read(Utf8JsonReader reader) throws ConfigParseException {
+            return readEvent(reader);
+        }
+    };
+
+    private static final ElementReader<Audience> AUDIENCE = new ElementReader<Audience>() {
+        @Override
+        public Audience read(Utf8JsonReader reader) throws ConfigParseException {
+            return readAudience(reader, false);
+        }
+    };
+
+    private static final ElementReader<Audience> TYPED_AUDIENCE = new ElementReader<Audience>() {
+        @Override
+        public Audience read(Utf8JsonReader reader) throws ConfigParseException {
+            return readAudience(reader, true);
+        }
+    };
+
+    private static final ElementReader<FeatureFlag> FEATURE_FLAG = new ElementReader<FeatureFlag>() {
+        @Override
+        public FeatureFlag read(Utf8JsonReader reader) throws ConfigParseException {
+            return readFeatureFlag(reader);
+        }
+    };
+
+    private static final ElementReader<Rollout> ROLLOUT = new ElementReader<Rollout>() {
+        @Override
+        public Rollout read(Utf8JsonReader reader) throws ConfigParseException {
+            return readRollout(reader);
+        }
+    };
+
+    /**
+     * Decides from the id and key of an element whether it is read.
+     */
+    private interface ElementFilter {
+        boolean keeps(@Nullable String id, @Nullable String key);
+    }
+
+    /**
+     * Reads only the entities a {@link DatafileProjection} depends on.
+     * <p>
+     * While the root object is read, {@link #locate} scans the filtered arrays once, recording where each element
+     * starts along with its id and key, and skipping everything else. The arrays are read afterwards in dependency
+     * order: feature flags, then their experiments, groups and rollouts, then the audiences of all of those, and
+     * only the elements required are built.
+     */
+    private static final class Projector {
+        private final Utf8JsonReader reader;
+        private final DatafileProjection projection;
+        // located arrays by name, mapped to null for null arrays
+        private final Map<String, Section> sections = new HashMap<String, Section>();
+        private int groupsPosition = -1;
+
+        // ids required by the elements read so far
+        private final Set<String> experimentIds = new HashSet<String>();
+        private final Set<String> rolloutIds = new HashSet<String>();
+        private final Set<String> audienceIds = new HashSet<String>();
+
+        private final ElementFilter featureFlagFilter = new ElementFilter() {
+            @Override
+            public boolean keeps(@Nullable String id, @Nullable String key) {
+                return projection.getFeatureKeys().contains(key);
+            }
+        };
+
+        private final ElementFilter experimentFilter = new ElementFilter() {
+            @Override
+            public boolean keeps(@Nullable String id, @Nullable String key) {
+                return experimentIds.contains(id) || projection.getExperimentKeys().contains(key);
+            }
+        };
+
+        private final ElementFilter rolloutFilter = new ElementFilter() {
+            @Override
+            public boolean keeps(@Nullable String id, @Nullable String key) {
+                return rolloutIds.contains(id);
+            }
+        };
+
+        private final ElementFilter audienceFilter = new ElementFilter() {
+            @Override
+            public boolean keeps(@Nullable String id, @Nullable String key) {
+                return audienceIds.contains(id);
+            }
+        };
+
+        Projector(Utf8JsonReader reader, DatafileProjection projection) {
+            this.reader = reader;
+            this.projection = projection;
+        }
+
+        /**
+         * Locates the value of a root member the projection filters.
+         *
+         * @return whether the member was consumed
+         */
+        boolean locate(String name) throws ConfigParseException {
+            switch (name) {
+                case "featureFlags":
+                case "experiments":
+                case "rollouts":
+                case "audiences":
+                case "typedAudiences":
+                    sections.put(name, locateElements());
+                    return true;
+                case "groups":
+                    // groups are filtered by their nested experiments, so they are scanned again when read
+                    groupsPosition = reader.position();
+                    reader.skipValue();
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        List<FeatureFlag> readFeatureFlags(List<FeatureFlag> absent) throws ConfigParseException {
+            List<FeatureFlag> featureFlags = readSection("featureFlags", FEATURE_FLAG, featureFlagFilter, absent);
+            if (featureFlags != null) {
+                for (FeatureFlag featureFlag : featureFlags) {
+                    experimentIds.addAll(featureFlag.getExperimentIds());
+                    if (featureFlag.getRolloutId() != null && !featureFlag.getRolloutId().isEmpty()) {
+                        rolloutIds.add(featureFlag.getRolloutId());
+                    }
+                }
+            }
+            return featureFlags;
+        }
+
+        List<Experiment> readExperiments(List<Experiment> absent) throws ConfigParseException {
+            List<Experiment> experiments = readSection("experiments", EXPERIMENT, experimentFilter, absent);
+            requireAudiences(experiments);
+            return experiments;
+        }
+
+        /**
+         * Groups keep their whole traffic allocation, so users bucketed into an experiment that was left out are
+         * in none of the experiments kept, as they would be without the projection.
+         */
+        List<Group> readGroups(List<Group> absent) throws ConfigParseException {
+            if (groupsPosition < 0) {
+                return absent;
+            }
+            reader.seek(groupsPosition);
+            if (reader.nextIfNull()) {
+                return null;
+            }
+
+            ArrayList<Group> groups = new ArrayList<Group>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Group group = readGroup(reader, this);
+                if (group.getExperiments() != null && !group.getExperiments().isEmpty()) {
+                    requireAudiences(group.getExperiments());
+                    groups.add(group);
+                }
+            }
+            reader.endArray();
+
+            return compact(groups);
+        }
+
+        List<Rollout> readRollouts(List<Rollout> absent) throws ConfigParseException {
+            List<Rollout> rollouts = readSection("rollouts", ROLLOUT, rolloutFilter, absent);
+            if (rollouts != null) {
+                for (Rollout rollout : rollouts) {
+                    requireAudiences(rollout.getExperiments());
+                }
+            }
+            return rollouts;
+        }
+
+        List<Audience> readAudiences(String name, ElementReader<Audience> elementReader, List<Audience> absent)
+            throws ConfigParseException {
+            return readSection(name, elementReader, audienceFilter, absent);
+        }
+
+        /**
+         * Scans the element at the reader for its id and key without building it.
+         *
+         * @return whether the filter keeps it, in which case the reader is moved back to its start, otherwise the
+         * element was skipped
+         */
+        boolean keeps(Utf8JsonReader reader, ElementFilter filter) throws ConfigParseException {
+            int start = reader.position();
+            String[] idAndKey = scanIdAndKey(reader);
+            if (!filter.keeps(idAndKey[0], idAndKey[1])) {
+                return false;
+            }
+            reader.seek(start);
+            return true;
+        }
+
+        @CheckForNull
+        private Section locateElements() throws ConfigParseException {
+            if (reader.nextIfNull()) {
+                return null;
+            }
+
+            Section section = new Section();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                int start = reader.position();
+                String[] idAndKey = scanIdAndKey(reader);
+                section.add(start, idAndKey[0], idAndKey[1]);
+            }
+            reader.endArray();
+
+            return section;
+        }
+
+        private <T> List<T> readSection(String name, ElementReader<T> elementReader, ElementFilter filter,
+                                        List<T> absent) throws ConfigParseException {
+            if (!sections.containsKey(name)) {
+                return absent;
+            }
+            Section section = sections.get(name);
+            if (section == null) {
+                return null;
+            }
+
+            ArrayList<T> elements = new ArrayList<T>();
+            for (int i = 0; i < section.count; i++) {
+                if (filter.keeps(section.ids[i], section.keys[i])) {
+                    reader.seek(section.starts[i]);
+                    elements.add(elementReader.read(reader));
+                }
+            }
+
+            return compact(elements);
+        }
+
+        private static String[] scanIdAndKey(Utf8JsonReader reader) throws ConfigParseException {
+            String id = null;
+            String key = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id":
+                        id = readString(reader);
+                        break;
+                    case "key":
+                        key = readString(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+
+            return new String[]{id, key};
+        }
+
+        private void requireAudiences(@Nullable List<Experiment> experiments) {
+            if (experiments == null) {
+                return;
+            }
+            for (Experiment experiment : experiments) {
+                if (experiment.getAudienceIds() != null) {
+                    audienceIds.addAll(experiment.getAudienceIds());
+                }
+                requireAudiences(experiment.getAudienceConditions());
+            }
+        }
+
+        private void requireAudiences(@Nullable Condition condition) {
+            if (condition instanceof AudienceIdCondition) {
+                audienceIds.add(((AudienceIdCondition) condition).getAudienceId());
+            } else if (condition instanceof NotCondition) {
+                requireAudiences(((NotCondition) condition).getCondition());
+            } else if (condition instanceof AndCondition) {
+                for (Condition child : ((AndCondition<?>) condition).getConditions()) {
+                    requireAudiences(child);
+                }
+            } else if (condition instanceof OrCondition) {
+                for (Condition child : ((OrCondition<?>) condition).getConditions()) {
+                    requireAudiences(child);
+                }
+            }
+        }
+
+        /**
+         * The elements of a top-level array, located but not built.
+         */
+        private static final class Section {
+            private int count;
+            private int[] starts = new int[16];
+            private String[] ids = new String[16];
+            private String[] keys = new String[16];
+
+            void add(int start, @Nullable String id, @Nullable String key) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ids = Arrays.copyOf(ids, count * 2);
+                    keys = Arrays.copyOf(keys, count * 2);
+                }
+                starts[count] = start;
+                ids[count] = id;
+                keys[count] = key;
+                count++;
+            }
+        }
+    }
+
+    /**
+     * Splits the top-level arrays of a datafile into chunks of elements that are parsed in parallel.
+     * <p>
+     * While the root object is read, {@link #defer} only skips over each array, recording where its elements start,
+     * and hands out a list that {@link #parse()} fills in afterwards. Skipping is cheap next to building the
+     * entities, so the bulk of the work is spread over the pool. Every chunk gets its own reader over the shared
+     * buffer, so strings are deduplicated per chunk rather than across the whole datafile.
+     */
+    private static final class SectionSplitter {
+        private final byte[] json;
+        private final int offset;
+        private final int length;
+        private final ForkJoinPool pool;
+        private final int chunkSize;
+        private final List<Chunk> chunks = new ArrayList<Chunk>();
+
+        SectionSplitter(byte[] json, int offset, int length, ForkJoinPool pool, int chunkSize) {
+            this.json = json;
+            this.offset = offset;
+            this.length = length;
+            this.pool = pool;
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * @return the list the elements are parsed into, only filled in once {@link #parse()} returns
+         */
+        @SuppressWarnings("unchecked")
+        <T> List<T> defer(Utf8JsonReader reader, ElementReader<T> elementReader) throws ConfigParseException {
+            if (reader.nextIfNull()) {
+                return null;
+            }
+
+            int[] starts = new int[16];
+            int count = 0;
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = reader.position();
+                reader.skipValue();
+            }
+            int end = reader.position();
+            reader.endArray();
+
+            if (count == 0) {
+                return Collections.emptyList();
+            }
+
+            Object[] elements = new Object[count];
+            int from = 0;
+            for (int i = 1; i <= count; i++) {
+                int next = i == count ? end : starts[i];
+                if (i == count || next - starts[from] >= chunkSize) {
+                    chunks.add(new Chunk(elementReader, starts, from, i, elements));
+                    from = i;
+                }
+            }
+            return (List<T>) Arrays.asList(elements);
+        }
+
+        void parse() throws ConfigParseException {
+            if (chunks.size() == 1) {
+                chunks.get(0).call();
+                return;
+            }
+
+            for (Future<Void> future : pool.invokeAll(chunks)) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ConfigParseException("Interrupted while parsing datafile.", e);
+                } catch (ExecutionException e) {
+                    // the pool wraps checked exceptions of the chunks
+                    for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                        if (cause instanceof ConfigParseException) {
+                            throw (ConfigParseException) cause;
+                        }
+                    }
+                    throw new ConfigParseException("Unable to parse datafile.", e.getCause());
+                }
+            }
+        }
+
+        private final class Chunk implements Callable<Void> {
+            private final ElementReader<?> elementReader;
+            private final int[] starts;
+            private final int from;
+            private final int to;
+            private final Object[] elements;
+
+            Chunk(ElementReader<?> elementReader, int[] starts, int from, int to, Object[] elements) {
+                this.elementReader = elementReader;
+                this.starts = starts;
+                this.from = from;
+                this.to = to;
+                this.elements = elements;
+            }
+
+            @Override
+            public Void call() throws ConfigParseException {
+                Utf8JsonReader reader = new Utf8JsonReader(json, offset, length);
+                for (int i = from; i < to; i++) {
+                    reader.seek(starts[i]);
+                    elements[i] = elementReader.read(reader);
+                }
+                return null;
+            }
+        }
+    }
+}
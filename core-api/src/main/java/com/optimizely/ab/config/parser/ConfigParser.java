@@ -1,6 +1,6 @@
 /**
  *
- *    Copyright 2016-2017, Optimizely and contributors
+ *    Copyright 2016-2019, Optimizely and contributors
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -19,10 +19,17 @@ package com.optimizely.ab.config.parser;
 import com.optimizely.ab.config.ProjectConfig;
 
 import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Config parser wrapper to allow multiple library implementations to be used.
  *
+ * @see BuiltInConfigParser
  * @see GsonConfigParser
  * @see JacksonConfigParser
  * @see JsonConfigParser
@@ -38,4 +45,61 @@ public interface ConfigParser {
      * @throws ConfigParseException when there's an issue parsing the provided project config
      */
     ProjectConfig parseProjectConfig(@Nonnull String json) throws ConfigParseException;
+
+    /**
+     * Parses a UTF-8 encoded datafile from a stream. Implementations should read the stream incrementally rather
+     * than materializing the whole datafile as a {@link String}; the default implementation only exists for
+     * third-party parsers that predate this method. The stream is not closed.
+     *
+     * @param json the UTF-8 encoded json to parse
+     * @return generates a {@code ProjectConfig} configuration from the provided json
+     * @throws ConfigParseException when there's an issue reading or parsing the provided project config
+     */
+    default ProjectConfig parseProjectConfig(@Nonnull InputStream json) throws ConfigParseException {
+        if (json == null) {
+            throw new ConfigParseException("Unable to parse null json.");
+        }
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = json.read(chunk)) != -1) {
+                buffer.write(chunk, 0, read);
+            }
+            return parseProjectConfig(new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new ConfigParseException("Unable to read datafile.", e);
+        }
+    }
+
+    /**
+     * @param json the UTF-8 encoded json to parse
+     * @return generates a {@code ProjectConfig} configuration from the provided json
+     * @throws ConfigParseException when there's an issue parsing the provided project config
+     */
+    default ProjectConfig parseProjectConfig(@Nonnull byte[] json) throws ConfigParseException {
+        if (json == null) {
+            throw new ConfigParseException("Unable to parse null json.");
+        }
+        return parseProjectConfig(new ByteArrayInputStream(json));
+    }
+
+    /**
+     * Parses the remaining bytes of the buffer, which may be a memory-mapped file. The buffer's position is not
+     * modified.
+     *
+     * @param json the UTF-8 encoded json to parse
+     * @return generates a {@code ProjectConfig} configuration from the provided json
+     * @throws ConfigParseException when there's an issue parsing the provided project config
+     */
+    default ProjectConfig parseProjectConfig(@Nonnull ByteBuffer json) throws ConfigParseException {
+        if (json == null) {
+            throw new ConfigParseException("Unable to parse null json.");
+        }
+        if (json.hasArray()) {
+            return parseProjectConfig(new ByteArrayInputStream(json.array(), json.arrayOffset() + json.position(),
+                json.remaining()));
+        }
+        return parseProjectConfig(new ByteBufferInputStream(json));
+    }
 }
@@ -0,0 +1,130 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config.parser;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The top-level "version", "projectId" and "revision" of a datafile, read without parsing the rest of it.
+ * <p>
+ * The sections of the datafile are skipped over byte by byte, and scanning stops as soon as all three fields have
+ * been seen, which makes this far cheaper than building a {@link com.optimizely.ab.config.ProjectConfig}. It is meant
+ * for deciding whether a datafile needs to be parsed at all, e.g. because a config for the same revision is already
+ * loaded.
+ */
+public final class DatafileHeader {
+
+    private final String version;
+    private final String projectId;
+    private final String revision;
+
+    private DatafileHeader(String version, String projectId, String revision) {
+        this.version = version;
+        this.projectId = projectId;
+        this.revision = revision;
+    }
+
+    public static DatafileHeader read(@Nonnull String datafile) throws ConfigParseException {
+        if (datafile == null) {
+            throw new ConfigParseException("Unable to parse null json.");
+        }
+        return read(datafile.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static DatafileHeader read(@Nonnull byte[] datafile) throws ConfigParseException {
+        if (datafile == null) {
+            throw new ConfigParseException("Unable to parse null json.");
+        }
+        if (datafile.length == 0) {
+            throw new ConfigParseException("Unable to parse empty json.");
+        }
+
+        try {
+            return readHeader(new Utf8JsonReader(datafile));
+        } catch (ConfigParseException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new ConfigParseException("Unable to parse datafile.", e);
+        }
+    }
+
+    @CheckForNull
+    public String getVersion() {
+        return version;
+    }
+
+    @CheckForNull
+    public String getProjectId() {
+        return projectId;
+    }
+
+    @CheckForNull
+    public String getRevision() {
+        return revision;
+    }
+
+    @Override
+    public String toString() {
+        return "DatafileHeader{" +
+            "version='" + version + '\'' +
+            ", projectId='" + projectId + '\'' +
+            ", revision='" + revision + '\'' +
+            '}';
+    }
+
+    //======== Helper methods ========//
+
+    private static DatafileHeader readHeader(Utf8JsonReader reader) throws ConfigParseException {
+        String version = null;
+        String projectId = null;
+        String revision = null;
+
+        reader.beginObject();
+        while ((version == null || projectId == null || revision == null) && reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "version":
+                    version = readString(reader);
+                    break;
+                case "projectId":
+                    projectId = readString(reader);
+                    break;
+                case "revision":
+                    revision = readString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+
+        return new DatafileHeader(version, projectId, revision);
+    }
+
+    /**
+     * @return the string value, or {@code null} for a null or non-string value
+     */
+    @CheckForNull
+    private static String readString(Utf8JsonReader reader) throws ConfigParseException {
+        if (reader.peekString()) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config.parser;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An allow-list of the feature flags and experiments a service evaluates, so that parsing only builds the entities
+ * they depend on: their experiments, group experiments, rollouts and audiences. Everything else in the datafile is
+ * skipped without being materialized, which cuts parse time and memory by orders of magnitude when a service uses
+ * a handful of the flags of a large project.
+ * <p>
+ * Attributes and events are kept in full, as impression and conversion events report them whatever was decided.
+ * Flags and experiments outside the allow-list are missing from the parsed config, so deciding them behaves as if
+ * they were not in the datafile.
+ *
+ * @see com.optimizely.ab.config.ProjectConfig.Builder#withProjection(DatafileProjection)
+ */
+@Immutable
+public final class DatafileProjection {
+
+    private final Set<String> featureKeys;
+    private final Set<String> experimentKeys;
+
+    private DatafileProjection(Set<String> featureKeys, Set<String> experimentKeys) {
+        this.featureKeys = featureKeys;
+        this.experimentKeys = experimentKeys;
+    }
+
+    /**
+     * @param featureKeys    the keys of the feature flags to keep, along with their experiments and rollouts
+     * @param experimentKeys the keys of the experiments to keep, in addition to those of the feature flags
+     */
+    @Nonnull
+    public static DatafileProjection of(@Nonnull Collection<String> featureKeys,
+                                        @Nonnull Collection<String> experimentKeys) {
+        return new DatafileProjection(Collections.unmodifiableSet(new HashSet<String>(featureKeys)),
+            Collections.unmodifiableSet(new HashSet<String>(experimentKeys)));
+    }
+
+    @Nonnull
+    public static DatafileProjection ofFeatures(@Nonnull Collection<String> featureKeys) {
+        return of(featureKeys, Collections.<String>emptySet());
+    }
+
+    @Nonnull
+    public static DatafileProjection ofExperiments(@Nonnull Collection<String> experimentKeys) {
+        return of(Collections.<String>emptySet(), experimentKeys);
+    }
+
+    public Set<String> getFeatureKeys() {
+        return featureKeys;
+    }
+
+    public Set<String> getExperimentKeys() {
+        return experimentKeys;
+    }
+
+    @Override
+    public String toString() {
+        return "DatafileProjection{" +
+            "featureKeys=" + featureKeys +
+            ", experimentKeys=" + experimentKeys +
+            '}';
+    }
+}
@@ -20,12 +20,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * Factory for generating {@link ConfigParser} instances, based on the json parser available on the classpath.
+ * Factory for generating {@link ConfigParser} instances.
+ * <p>
+ * Defaults to the dependency-free {@link BuiltInConfigParser}, which outperforms the library-backed parsers. A
+ * library-backed parser can still be selected with the {@value #CONFIG_PARSER_PROPERTY} system property, set to one
+ * of {@code jackson}, {@code gson}, {@code json-simple} or {@code json}.
  */
 public final class DefaultConfigParser {
 
+    public static final String CONFIG_PARSER_PROPERTY = "optimizely.configParser";
+
     private static final Logger logger = LoggerFactory.getLogger(DefaultConfigParser.class);
 
     private DefaultConfigParser() {
@@ -35,35 +42,86 @@ public final class DefaultConfigParser {
         return LazyHolder.INSTANCE;
     }
 
+    /**
+     * Returns a config parser that splits the top-level sections of large datafiles into chunks and parses them on
+     * the given pool, so that startup with datafiles of many megabytes scales with the available cores. Datafiles
+     * below a few hundred kilobytes are still parsed on the calling thread.
+     * <p>
+     * Only the built-in parser can split a datafile, so if a library-backed parser was selected through
+     * {@value #CONFIG_PARSER_PROPERTY}, that parser is returned as is.
+     *
+     * @param pool the pool to parse on, e.g. {@link ForkJoinPool#commonPool()}
+     */
+    public static ConfigParser getInstance(@Nonnull ForkJoinPool pool) {
+        if (!(LazyHolder.INSTANCE instanceof BuiltInConfigParser)) {
+            return LazyHolder.INSTANCE;
+        }
+        return new BuiltInConfigParser(pool, BuiltInConfigParser.PARALLEL_THRESHOLD, BuiltInConfigParser.CHUNK_SIZE);
+    }
+
+    /**
+     * Returns a config parser that only builds the feature flags and experiments of the projection and the entities
+     * they depend on, skipping the rest of the datafile.
+     * <p>
+     * Only the built-in parser can skip entities, so it is used even if a library-backed parser was selected through
+     * {@value #CONFIG_PARSER_PROPERTY}.
+     *
+     * @param projection the feature flags and experiments to keep
+     */
+    public static ConfigParser getInstance(@Nonnull DatafileProjection projection) {
+        return new BuiltInConfigParser(projection);
+    }
+
     //======== Helper methods ========//
 
     /**
-     * Creates and returns a {@link ConfigParser} using a json parser available on the classpath.
+     * Creates and returns the built-in {@link ConfigParser}, or the library-backed one requested through
+     * {@link #CONFIG_PARSER_PROPERTY}.
      *
      * @return the created config parser
-     * @throws MissingJsonParserException if there are no supported json parsers available on the classpath
+     * @throws MissingJsonParserException if the requested json parser is not available on the classpath
      */
     private static @Nonnull
     ConfigParser create() {
+        String parserName = System.getProperty(CONFIG_PARSER_PROPERTY, "builtin");
         ConfigParser configParser;
 
-        if (isPresent("com.fasterxml.jackson.databind.ObjectMapper")) {
-            configParser = new JacksonConfigParser();
-        } else if (isPresent("com.google.gson.Gson")) {
-            configParser = new GsonConfigParser();
-        } else if (isPresent("org.json.simple.JSONObject")) {
-            configParser = new JsonSimpleConfigParser();
-        } else if (isPresent("org.json.JSONObject")) {
-            configParser = new JsonConfigParser();
-        } else {
-            throw new MissingJsonParserException("unable to locate a JSON parser. "
-                + "Please see <link> for more information");
+        switch (parserName) {
+            case "jackson":
+                requirePresent("com.fasterxml.jackson.databind.ObjectMapper", parserName);
+                configParser = new JacksonConfigParser();
+                break;
+            case "gson":
+                requirePresent("com.google.gson.Gson", parserName);
+                configParser = new GsonConfigParser();
+                break;
+            case "json-simple":
+                requirePresent("org.json.simple.JSONObject", parserName);
+                configParser = new JsonSimpleConfigParser();
+                break;
+            case "json":
+                requirePresent("org.json.JSONObject", parserName);
+                configParser = new JsonConfigParser();
+                break;
+            default:
+                if (!"builtin".equals(parserName)) {
+                    logger.warn("Unknown json parser \"{}\", falling back to the built-in parser.", parserName);
+                }
+                configParser = new BuiltInConfigParser();
+                break;
         }
 
         logger.info("using json parser: {}", configParser.getClass().getSimpleName());
         return configParser;
     }
 
+    private static void requirePresent(@Nonnull String className, @Nonnull String parserName) {
+        if (!isPresent(className)) {
+            throw new MissingJsonParserException("unable to locate the \"" + parserName + "\" JSON parser. "
+                + "Please see <link> for more information");
+        }
+    }
+
     private static boolean isPresent(@Nonnull String className) {
         try {
             Class.forName(className);
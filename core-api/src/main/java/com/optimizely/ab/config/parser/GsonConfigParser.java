@@ -18,20 +18,67 @@ package com.optimizely.ab.config.parser;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.optimizely.ab.config.Attribute;
+import com.optimizely.ab.config.EventType;
 import com.optimizely.ab.config.Experiment;
 import com.optimizely.ab.config.FeatureFlag;
 import com.optimizely.ab.config.Group;
 import com.optimizely.ab.config.ProjectConfig;
+import com.optimizely.ab.config.Rollout;
 import com.optimizely.ab.config.audience.Audience;
 import com.optimizely.ab.config.audience.TypedAudience;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * {@link Gson}-based config parser implementation.
+ * <p>
+ * The root object is read with a {@link JsonReader} and each section is handed to its registered type adapter, so
+ * only one entity at a time is held as a {@code JsonElement} tree rather than the whole datafile.
  */
 final class GsonConfigParser implements ConfigParser {
 
+    private final TypeAdapter<Group> groupAdapter;
+    private final TypeAdapter<Experiment> experimentAdapter;
+    private final TypeAdapter<Attribute> attributeAdapter;
+    private final TypeAdapter<EventType> eventAdapter;
+    private final TypeAdapter<Audience> audienceAdapter;
+    private final TypeAdapter<TypedAudience> typedAudienceAdapter;
+    private final TypeAdapter<FeatureFlag> featureFlagAdapter;
+    private final TypeAdapter<Rollout> rolloutAdapter;
+
+    GsonConfigParser() {
+        Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Audience.class, new AudienceGsonDeserializer())
+            .registerTypeAdapter(TypedAudience.class, new AudienceGsonDeserializer())
+            .registerTypeAdapter(Experiment.class, new ExperimentGsonDeserializer())
+            .registerTypeAdapter(FeatureFlag.class, new FeatureFlagGsonDeserializer())
+            .registerTypeAdapter(Group.class, new GroupGsonDeserializer())
+            .create();
+
+        groupAdapter = gson.getAdapter(Group.class);
+        experimentAdapter = gson.getAdapter(Experiment.class);
+        attributeAdapter = gson.getAdapter(Attribute.class);
+        eventAdapter = gson.getAdapter(EventType.class);
+        audienceAdapter = gson.getAdapter(Audience.class);
+        typedAudienceAdapter = gson.getAdapter(TypedAudience.class);
+        featureFlagAdapter = gson.getAdapter(FeatureFlag.class);
+        rolloutAdapter = gson.getAdapter(Rollout.class);
+    }
+
     @Override
     public ProjectConfig parseProjectConfig(@Nonnull String json) throws ConfigParseException {
         if (json == null) {
@@ -40,19 +87,186 @@ final class GsonConfigParser implements ConfigParser {
         if (json.length() == 0) {
             throw new ConfigParseException("Unable to parse empty json.");
         }
-        Gson gson = new GsonBuilder()
-            .registerTypeAdapter(Audience.class, new AudienceGsonDeserializer())
-            .registerTypeAdapter(TypedAudience.class, new AudienceGsonDeserializer())
-            .registerTypeAdapter(Experiment.class, new ExperimentGsonDeserializer())
-            .registerTypeAdapter(FeatureFlag.class, new FeatureFlagGsonDeserializer())
-            .registerTypeAdapter(Group.class, new GroupGsonDeserializer())
-            .registerTypeAdapter(ProjectConfig.class, new ProjectConfigGsonDeserializer())
-            .create();
 
         try {
-            return gson.fromJson(json, ProjectConfig.class);
+            return read(new StringReader(json));
+        } catch (ConfigParseException e) {
+            throw e;
         } catch (Exception e) {
             throw new ConfigParseException("Unable to parse datafile: " + json, e);
         }
     }
+
+    @Override
+    public ProjectConfig parseProjectConfig(@Nonnull InputStream json) throws ConfigParseException {
+        if (json == null) {
+            throw new ConfigParseException("Unable to parse null json.");
+        }
+
+        try {
+            return read(new InputStreamReader(json, StandardCharsets.UTF_8));
+        } catch (ConfigParseException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ConfigParseException("Unable to parse datafile.", e);
+        }
+    }
+
+    //======== Helper methods ========//
+
+    private ProjectConfig read(Reader json) throws IOException, ConfigParseException {
+        JsonReader reader = new JsonReader(json);
+        // same leniency as Gson#fromJson(String, Class)
+        reader.setLenient(true);
+
+        String accountId = null;
+        String projectId = null;
+        String revision = null;
+        String version = null;
+        List<Group> groups = null;
+        List<Experiment> experiments = null;
+        List<Attribute> attributes = null;
+        List<EventType> events = null;
+        List<Audience> audiences = Collections.emptyList();
+        List<Audience> typedAudiences = null;
+        Boolean anonymizeIPValue = null;
+        List<FeatureFlag> featureFlags = null;
+        List<Rollout> rollouts = null;
+        Boolean botFiltering = null;
+
+        // sections may appear in any order, so version-specific fields are collected here and gated below
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "accountId":
+                    accountId = reader.nextString();
+                    break;
+                case "projectId":
+                    projectId = reader.nextString();
+                    break;
+                case "revision":
+                    revision = reader.nextString();
+                    break;
+                case "version":
+                    version = reader.nextString();
+                    break;
+                case "groups":
+                    groups = readList(reader, groupAdapter);
+                    break;
+                case "experiments":
+                    experiments = readList(reader, experimentAdapter);
+                    break;
+                case "attributes":
+                    attributes = readList(reader, attributeAdapter);
+                    break;
+                case "events":
+                    events = readList(reader, eventAdapter);
+                    break;
+                case "audiences":
+                    audiences = readList(reader, audienceAdapter);
+                    break;
+                case "typedAudiences":
+                    typedAudiences = (List<Audience>) (List<? extends Audience>) readList(reader, typedAudienceAdapter);
+                    break;
+                case "anonymizeIP":
+                    anonymizeIPValue = readBoolean(reader);
+                    break;
+                case "featureFlags":
+                    featureFlags = readList(reader, featureFlagAdapter);
+                    break;
+                case "rollouts":
+                    rollouts = readList(reader, rolloutAdapter);
+                    break;
+                case "botFiltering":
+                    botFiltering = readBoolean(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonParseException("Unexpected content after the datafile object");
+        }
+
+        requireField(accountId, "accountId");
+        requireField(projectId, "projectId");
+        requireField(revision, "revision");
+        int datafileVersion = Integer.parseInt(requireField(version, "version"));
+        requireField(groups, "groups");
+        requireField(experiments, "experiments");
+        requireField(attributes, "attributes");
+        requireField(events, "events");
+
+        boolean anonymizeIP = false;
+        if (datafileVersion >= Integer.parseInt(ProjectConfig.Version.V3.toString())) {
+            anonymizeIP = requireField(anonymizeIPValue, "anonymizeIP");
+        }
+
+        if (datafileVersion >= Integer.parseInt(ProjectConfig.Version.V4.toString())) {
+            requireField(featureFlags, "featureFlags");
+            requireField(rollouts, "rollouts");
+        } else {
+            featureFlags = null;
+            rollouts = null;
+            botFiltering = null;
+        }
+
+        return new ProjectConfig(
+            accountId,
+            anonymizeIP,
+            botFiltering,
+            projectId,
+            revision,
+            version,
+            attributes,
+            audiences,
+            typedAudiences,
+            events,
+            experiments,
+            featureFlags,
+            groups,
+            rollouts
+        );
+    }
+
+    /**
+     * The streaming loop doesn't fail on a missing section by itself, so required ones are checked here rather than
+     * left to fail with a {@link NullPointerException} in the {@link ProjectConfig} constructor.
+     */
+    private static <T> T requireField(T value, String name) throws ConfigParseException {
+        if (value == null) {
+            throw new ConfigParseException("Missing required field \"" + name + "\"");
+        }
+        return value;
+    }
+
+    private static <T> List<T> readList(JsonReader reader, TypeAdapter<T> adapter) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        List<T> items = new ArrayList<T>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            items.add(adapter.read(reader));
+        }
+        reader.endArray();
+
+        return items;
+    }
+
+    private static Boolean readBoolean(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case NULL:
+                reader.nextNull();
+                return null;
+            case STRING:
+                return Boolean.parseBoolean(reader.nextString());
+            default:
+                return reader.nextBoolean();
+        }
+    }
 }
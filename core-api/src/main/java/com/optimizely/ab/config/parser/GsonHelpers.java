@@ -16,12 +16,13 @@
  */
 package com.optimizely.ab.config.parser;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LinkedTreeMap;
 import com.google.gson.reflect.TypeToken;
 import com.optimizely.ab.bucketing.DecisionService;
 import com.optimizely.ab.config.Experiment;
@@ -104,18 +105,44 @@ final class GsonHelpers {
 
         if (!experimentJson.has("audienceConditions")) return null;
 
-        Gson gson = new Gson();
-
         JsonElement conditionsElement = experimentJson.get("audienceConditions");
 
-        if (conditionsElement.isJsonArray()) {
-            List<Object> rawObjectList = gson.fromJson(conditionsElement, List.class);
-            return ConditionUtils.<AudienceIdCondition>parseConditions(AudienceIdCondition.class, rawObjectList);
-        } else {
-            Object jsonObject = gson.fromJson(conditionsElement, Object.class);
-            return ConditionUtils.<AudienceIdCondition>parseConditions(AudienceIdCondition.class, jsonObject);
-        }
+        return ConditionUtils.<AudienceIdCondition>parseConditions(AudienceIdCondition.class,
+            toJavaObject(conditionsElement));
+    }
 
+    /**
+     * Converts an already-parsed element into the plain objects {@code ConditionUtils} expects, producing the same
+     * types as {@code new Gson().fromJson(element, Object.class)} (numbers as {@link Double}, objects as
+     * {@link LinkedTreeMap}) without going back through the type adapter machinery.
+     */
+    static Object toJavaObject(JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            return null;
+        }
+        if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            List<Object> list = new ArrayList<Object>(array.size());
+            for (JsonElement item : array) {
+                list.add(toJavaObject(item));
+            }
+            return list;
+        }
+        if (element.isJsonObject()) {
+            Map<String, Object> map = new LinkedTreeMap<String, Object>();
+            for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                map.put(entry.getKey(), toJavaObject(entry.getValue()));
+            }
+            return map;
+        }
+        JsonPrimitive primitive = element.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+            return primitive.getAsBoolean();
+        }
+        if (primitive.isNumber()) {
+            return primitive.getAsDouble();
+        }
+        return primitive.getAsString();
     }
 
     static Experiment parseExperiment(JsonObject experimentJson, String groupId, JsonDeserializationContext context) {
@@ -1,6 +1,6 @@
 /**
  *
- *    Copyright 2016-2018, Optimizely and contributors
+ *    Copyright 2016-2019, Optimizely and contributors
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -24,6 +24,8 @@ import com.optimizely.ab.config.audience.Condition;
 import com.optimizely.ab.config.audience.TypedAudience;
 
 import javax.annotation.Nonnull;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * {@code Jackson}-based config parser implementation.
@@ -49,6 +51,46 @@ final class JacksonConfigParser implements ConfigParser {
         }
     }
 
+    @Override
+    public ProjectConfig parseProjectConfig(@Nonnull InputStream json) throws ConfigParseException {
+        if (json == null) {
+            throw new ConfigParseException("Unable to parse null json.");
+        }
+        try {
+            return objectMapper.readValue(json, ProjectConfig.class);
+        } catch (Exception e) {
+            throw new ConfigParseException("Unable to parse datafile.", e);
+        }
+    }
+
+    @Override
+    public ProjectConfig parseProjectConfig(@Nonnull byte[] json) throws ConfigParseException {
+        if (json == null) {
+            throw new ConfigParseException("Unable to parse null json.");
+        }
+        try {
+            return objectMapper.readValue(json, ProjectConfig.class);
+        } catch (Exception e) {
+            throw new ConfigParseException("Unable to parse datafile.", e);
+        }
+    }
+
+    @Override
+    public ProjectConfig parseProjectConfig(@Nonnull ByteBuffer json) throws ConfigParseException {
+        if (json == null) {
+            throw new ConfigParseException("Unable to parse null json.");
+        }
+        if (!json.hasArray()) {
+            return parseProjectConfig(new ByteBufferInputStream(json));
+        }
+        try {
+            return objectMapper.readValue(json.array(), json.arrayOffset() + json.position(), json.remaining(),
+                ProjectConfig.class);
+        } catch (Exception e) {
+            throw new ConfigParseException("Unable to parse datafile.", e);
+        }
+    }
+
     class ProjectConfigModule extends SimpleModule {
         private final static String NAME = "ProjectConfigModule";
 
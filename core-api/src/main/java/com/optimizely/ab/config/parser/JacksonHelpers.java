@@ -1,6 +1,6 @@
 /**
  *
- *    Copyright 2018, Optimizely and contributors
+ *    Copyright 2018-2019, Optimizely and contributors
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
  */
 package com.optimizely.ab.config.parser;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.ObjectCodec;
 import com.fasterxml.jackson.databind.JsonNode;
 
@@ -44,4 +46,37 @@ final class JacksonHelpers {
 
         return items;
     }
+
+    /**
+     * Reads the array the parser is positioned on directly from the token stream, leaving the parser on its
+     * closing token. Mirrors {@link #arrayNodeToList}: non-array values yield {@code null} and null items are skipped.
+     */
+    static <T> List<T> readList(JsonParser parser, Class<T> itemClass, ObjectCodec codec) throws IOException {
+        if (!parser.isExpectedStartArrayToken()) {
+            parser.skipChildren();
+            return null;
+        }
+
+        List<T> items = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            items.add(codec.readValue(parser, itemClass));
+        }
+
+        return items;
+    }
+
+    /**
+     * @return the current string value, or {@code null} for any other token, the same as {@link JsonNode#textValue()}
+     */
+    static String textValue(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
 }
@@ -36,8 +36,12 @@ import com.optimizely.ab.internal.ConditionUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.JSONTokener;
+import org.json.JSONTokener;
 
 import javax.annotation.Nonnull;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -53,70 +57,89 @@ final class JsonConfigParser implements ConfigParser {
     @Override
     public ProjectConfig parseProjectConfig(@Nonnull String json) throws ConfigParseException {
         try {
-            JSONObject rootObject = new JSONObject(json);
+            return parseProjectConfig(new JSONObject(json));
+        } catch (Exception e) {
+            throw new ConfigParseException("Unable to parse datafile: " + json, e);
+        }
+    }
 
-            String accountId = rootObject.getString("accountId");
-            String projectId = rootObject.getString("projectId");
-            String revision = rootObject.getString("revision");
-            String version = rootObject.getString("version");
-            int datafileVersion = Integer.parseInt(version);
+    /**
+     * org.json has no pull parser, so the root tree is still built, but straight from the stream without an
+     * intermediate {@link String} copy of the datafile.
+     */
+    @Override
+    public ProjectConfig parseProjectConfig(@Nonnull InputStream json) throws ConfigParseException {
+        if (json == null) {
+            throw new ConfigParseException("Unable to parse null json.");
+        }
+        try {
+            JSONTokener tokener = new JSONTokener(new InputStreamReader(json, StandardCharsets.UTF_8));
+            return parseProjectConfig(new JSONObject(tokener));
+        } catch (Exception e) {
+            throw new ConfigParseException("Unable to parse datafile.", e);
+        }
+    }
 
-            List<Experiment> experiments = parseExperiments(rootObject.getJSONArray("experiments"));
+    //======== Helper methods ========//
 
-            List<Attribute> attributes;
-            attributes = parseAttributes(rootObject.getJSONArray("attributes"));
+    private ProjectConfig parseProjectConfig(JSONObject rootObject) {
+        String accountId = rootObject.getString("accountId");
+        String projectId = rootObject.getString("projectId");
+        String revision = rootObject.getString("revision");
+        String version = rootObject.getString("version");
+        int datafileVersion = Integer.parseInt(version);
 
-            List<EventType> events = parseEvents(rootObject.getJSONArray("events"));
-            List<Audience> audiences = Collections.emptyList();
+        List<Experiment> experiments = parseExperiments(rootObject.getJSONArray("experiments"));
 
-            if (rootObject.has("audiences")) {
-                audiences = parseAudiences(rootObject.getJSONArray("audiences"));
-            }
+        List<Attribute> attributes;
+        attributes = parseAttributes(rootObject.getJSONArray("attributes"));
 
-            List<Audience> typedAudiences = null;
-            if (rootObject.has("typedAudiences")) {
-                typedAudiences = parseTypedAudiences(rootObject.getJSONArray("typedAudiences"));
-            }
+        List<EventType> events = parseEvents(rootObject.getJSONArray("events"));
+        List<Audience> audiences = Collections.emptyList();
 
-            List<Group> groups = parseGroups(rootObject.getJSONArray("groups"));
+        if (rootObject.has("audiences")) {
+            audiences = parseAudiences(rootObject.getJSONArray("audiences"));
+        }
 
-            boolean anonymizeIP = false;
-            if (datafileVersion >= Integer.parseInt(ProjectConfig.Version.V3.toString())) {
-                anonymizeIP = rootObject.getBoolean("anonymizeIP");
-            }
+        List<Audience> typedAudiences = null;
+        if (rootObject.has("typedAudiences")) {
+            typedAudiences = parseTypedAudiences(rootObject.getJSONArray("typedAudiences"));
+        }
 
-            List<FeatureFlag> featureFlags = null;
-            List<Rollout> rollouts = null;
-            Boolean botFiltering = null;
-            if (datafileVersion >= Integer.parseInt(ProjectConfig.Version.V4.toString())) {
-                featureFlags = parseFeatureFlags(rootObject.getJSONArray("featureFlags"));
-                rollouts = parseRollouts(rootObject.getJSONArray("rollouts"));
-                if (rootObject.has("botFiltering"))
-                    botFiltering = rootObject.getBoolean("botFiltering");
-            }
+        List<Group> groups = parseGroups(rootObject.getJSONArray("groups"));
 
-            return new ProjectConfig(
-                accountId,
-                anonymizeIP,
-                botFiltering,
-                projectId,
-                revision,
-                version,
-                attributes,
-                audiences,
-                typedAudiences,
-                events,
-                experiments,
-                featureFlags,
-                groups,
-                rollouts
-            );
-        } catch (Exception e) {
-            throw new ConfigParseException("Unable to parse datafile: " + json, e);
+        boolean anonymizeIP = false;
+        if (datafileVersion >= Integer.parseInt(ProjectConfig.Version.V3.toString())) {
+            anonymizeIP = rootObject.getBoolean("anonymizeIP");
         }
-    }
 
-    //======== Helper methods ========//
+        List<FeatureFlag> featureFlags = null;
+        List<Rollout> rollouts = null;
+        Boolean botFiltering = null;
+        if (datafileVersion >= Integer.parseInt(ProjectConfig.Version.V4.toString())) {
+            featureFlags = parseFeatureFlags(rootObject.getJSONArray("featureFlags"));
+            rollouts = parseRollouts(rootObject.getJSONArray("rollouts"));
+            if (rootObject.has("botFiltering"))
+                botFiltering = rootObject.getBoolean("botFiltering");
+        }
+
+        return new ProjectConfig(
+            accountId,
+            anonymizeIP,
+            botFiltering,
+            projectId,
+            revision,
+            version,
+            attributes,
+            audiences,
+            typedAudiences,
+            events,
+            experiments,
+            featureFlags,
+            groups,
+            rollouts
+        );
+    }
 
     private List<Experiment> parseExperiments(JSONArray experimentJson) {
         return parseExperiments(experimentJson, "");
@@ -41,9 +41,12 @@ import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 import javax.annotation.Nonnull;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -56,74 +59,92 @@ final class JsonSimpleConfigParser implements ConfigParser {
 
     @Override
     public ProjectConfig parseProjectConfig(@Nonnull String json) throws ConfigParseException {
+        try {
+            return parseProjectConfig((JSONObject) new JSONParser().parse(json));
+        } catch (RuntimeException ex) {
+            throw new ConfigParseException("Unable to parse datafile: " + json, ex);
+        } catch (Exception e) {
+            throw new ConfigParseException("Unable to parse datafile: " + json, e);
+        }
+    }
+
+    /**
+     * json-simple has no pull parser, so the root tree is still built, but straight from the stream without an
+     * intermediate {@link String} copy of the datafile.
+     */
+    @Override
+    public ProjectConfig parseProjectConfig(@Nonnull InputStream json) throws ConfigParseException {
+        if (json == null) {
+            throw new ConfigParseException("Unable to parse null json.");
+        }
         try {
             JSONParser parser = new JSONParser();
-            JSONObject rootObject = (JSONObject) parser.parse(json);
+            return parseProjectConfig((JSONObject) parser.parse(new InputStreamReader(json, StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new ConfigParseException("Unable to parse datafile.", e);
+        }
+    }
 
-            String accountId = (String) rootObject.get("accountId");
-            String projectId = (String) rootObject.get("projectId");
-            String revision = (String) rootObject.get("revision");
-            String version = (String) rootObject.get("version");
-            int datafileVersion = Integer.parseInt(version);
+    //======== Helper methods ========//
 
-            List<Experiment> experiments = parseExperiments((JSONArray) rootObject.get("experiments"));
+    private ProjectConfig parseProjectConfig(JSONObject rootObject) throws ParseException {
+        String accountId = (String) rootObject.get("accountId");
+        String projectId = (String) rootObject.get("projectId");
+        String revision = (String) rootObject.get("revision");
+        String version = (String) rootObject.get("version");
+        int datafileVersion = Integer.parseInt(version);
 
-            List<Attribute> attributes;
-            attributes = parseAttributes((JSONArray) rootObject.get("attributes"));
+        List<Experiment> experiments = parseExperiments((JSONArray) rootObject.get("experiments"));
 
-            List<EventType> events = parseEvents((JSONArray) rootObject.get("events"));
-            List<Audience> audiences = Collections.emptyList();
+        List<Attribute> attributes;
+        attributes = parseAttributes((JSONArray) rootObject.get("attributes"));
 
-            if (rootObject.containsKey("audiences")) {
-                audiences = parseAudiences((JSONArray) parser.parse(rootObject.get("audiences").toString()));
-            }
+        List<EventType> events = parseEvents((JSONArray) rootObject.get("events"));
+        List<Audience> audiences = Collections.emptyList();
 
-            List<Audience> typedAudiences = null;
-            if (rootObject.containsKey("typedAudiences")) {
-                typedAudiences = parseTypedAudiences((JSONArray) parser.parse(rootObject.get("typedAudiences").toString()));
-            }
+        if (rootObject.containsKey("audiences")) {
+            audiences = parseAudiences((JSONArray) rootObject.get("audiences"));
+        }
 
-            List<Group> groups = parseGroups((JSONArray) rootObject.get("groups"));
+        List<Audience> typedAudiences = null;
+        if (rootObject.containsKey("typedAudiences")) {
+            typedAudiences = parseTypedAudiences((JSONArray) rootObject.get("typedAudiences"));
+        }
 
-            boolean anonymizeIP = false;
-            if (datafileVersion >= Integer.parseInt(ProjectConfig.Version.V3.toString())) {
-                anonymizeIP = (Boolean) rootObject.get("anonymizeIP");
-            }
+        List<Group> groups = parseGroups((JSONArray) rootObject.get("groups"));
 
-            List<FeatureFlag> featureFlags = null;
-            List<Rollout> rollouts = null;
-            Boolean botFiltering = null;
-            if (datafileVersion >= Integer.parseInt(ProjectConfig.Version.V4.toString())) {
-                featureFlags = parseFeatureFlags((JSONArray) rootObject.get("featureFlags"));
-                rollouts = parseRollouts((JSONArray) rootObject.get("rollouts"));
-                if (rootObject.containsKey("botFiltering"))
-                    botFiltering = (Boolean) rootObject.get("botFiltering");
-            }
+        boolean anonymizeIP = false;
+        if (datafileVersion >= Integer.parseInt(ProjectConfig.Version.V3.toString())) {
+            anonymizeIP = (Boolean) rootObject.get("anonymizeIP");
+        }
 
-            return new ProjectConfig(
-                accountId,
-                anonymizeIP,
-                botFiltering,
-                projectId,
-                revision,
-                version,
-                attributes,
-                audiences,
-                typedAudiences,
-                events,
-                experiments,
-                featureFlags,
-                groups,
-                rollouts
-            );
-        } catch (RuntimeException ex) {
-            throw new ConfigParseException("Unable to parse datafile: " + json, ex);
-        } catch (Exception e) {
-            throw new ConfigParseException("Unable to parse datafile: " + json, e);
+        List<FeatureFlag> featureFlags = null;
+        List<Rollout> rollouts = null;
+        Boolean botFiltering = null;
+        if (datafileVersion >= Integer.parseInt(ProjectConfig.Version.V4.toString())) {
+            featureFlags = parseFeatureFlags((JSONArray) rootObject.get("featureFlags"));
+            rollouts = parseRollouts((JSONArray) rootObject.get("rollouts"));
+            if (rootObject.containsKey("botFiltering"))
+                botFiltering = (Boolean) rootObject.get("botFiltering");
         }
-    }
 
-    //======== Helper methods ========//
+        return new ProjectConfig(
+            accountId,
+            anonymizeIP,
+            botFiltering,
+            projectId,
+            revision,
+            version,
+            attributes,
+            audiences,
+            typedAudiences,
+            events,
+            experiments,
+            featureFlags,
+            groups,
+            rollouts
+        );
+    }
 
     private List<Experiment> parseExperiments(JSONArray experimentJson) {
         return parseExperiments(experimentJson, "");
@@ -16,62 +16,117 @@
  */
 package com.optimizely.ab.config.parser;
 
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.ObjectCodec;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.optimizely.ab.config.*;
 import com.optimizely.ab.config.audience.Audience;
-import com.optimizely.ab.config.audience.Condition;
 import com.optimizely.ab.config.audience.TypedAudience;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+/**
+ * Jackson {@link ProjectConfig} deserializer that walks the root object token by token and hands each section
+ * straight to its entity deserializer, so the datafile is never buffered as a whole {@code JsonNode} tree.
+ */
 class ProjectConfigJacksonDeserializer extends JsonDeserializer<ProjectConfig> {
     @Override
     public ProjectConfig deserialize(JsonParser parser, DeserializationContext context) throws IOException {
         ObjectCodec codec = parser.getCodec();
-        JsonNode node = codec.readTree(parser);
-
-        String accountId = node.get("accountId").textValue();
-        String projectId = node.get("projectId").textValue();
-        String revision = node.get("revision").textValue();
-        String version = node.get("version").textValue();
-        int datafileVersion = Integer.parseInt(version);
-
-        List<Group> groups = JacksonHelpers.arrayNodeToList(node.get("groups"), Group.class, codec);
-        List<Experiment> experiments = JacksonHelpers.arrayNodeToList(node.get("experiments"), Experiment.class, codec);
-        List<Attribute> attributes = JacksonHelpers.arrayNodeToList(node.get("attributes"), Attribute.class, codec);
-        List<EventType> events = JacksonHelpers.arrayNodeToList(node.get("events"), EventType.class, codec);
+        if (!parser.isExpectedStartObjectToken()) {
+            throw new JsonParseException(parser, "Expected datafile to be a json object");
+        }
 
+        String accountId = null;
+        String projectId = null;
+        String revision = null;
+        String version = null;
+        List<Group> groups = null;
+        List<Experiment> experiments = null;
+        List<Attribute> attributes = null;
+        List<EventType> events = null;
         List<Audience> audiences = Collections.emptyList();
-        if (node.has("audiences")) {
-            audiences = JacksonHelpers.arrayNodeToList(node.get("audiences"), Audience.class, codec);
+        List<TypedAudience> typedAudiences = null;
+        Boolean anonymizeIPValue = null;
+        List<FeatureFlag> featureFlags = null;
+        List<Rollout> rollouts = null;
+        Boolean botFiltering = null;
+
+        // sections may appear in any order, so version-specific fields are collected here and gated below
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (fieldName) {
+                case "accountId":
+                    accountId = JacksonHelpers.textValue(parser);
+                    break;
+                case "projectId":
+                    projectId = JacksonHelpers.textValue(parser);
+                    break;
+                case "revision":
+                    revision = JacksonHelpers.textValue(parser);
+                    break;
+                case "version":
+                    version = JacksonHelpers.textValue(parser);
+                    break;
+                case "groups":
+                    groups = JacksonHelpers.readList(parser, Group.class, codec);
+                    break;
+                case "experiments":
+                    experiments = JacksonHelpers.readList(parser, Experiment.class, codec);
+                    break;
+                case "attributes":
+                    attributes = JacksonHelpers.readList(parser, Attribute.class, codec);
+                    break;
+                case "events":
+                    events = JacksonHelpers.readList(parser, EventType.class, codec);
+                    break;
+                case "audiences":
+                    audiences = JacksonHelpers.readList(parser, Audience.class, codec);
+                    break;
+                case "typedAudiences":
+                    typedAudiences = JacksonHelpers.readList(parser, TypedAudience.class, codec);
+                    break;
+                case "anonymizeIP":
+                    anonymizeIPValue = parser.getValueAsBoolean();
+                    break;
+                case "featureFlags":
+                    featureFlags = JacksonHelpers.readList(parser, FeatureFlag.class, codec);
+                    break;
+                case "rollouts":
+                    rollouts = JacksonHelpers.readList(parser, Rollout.class, codec);
+                    break;
+                case "botFiltering":
+                    botFiltering = token == JsonToken.VALUE_NULL ? null : parser.getValueAsBoolean();
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
         }
 
-        List<TypedAudience> typedAudiences = null;
-        if (node.has("typedAudiences")) {
-            typedAudiences = JacksonHelpers.arrayNodeToList(node.get("typedAudiences"), TypedAudience.class, codec);
+        if (version == null) {
+            throw new JsonParseException(parser, "Missing required field \"version\"");
         }
+        int datafileVersion = Integer.parseInt(version);
 
         boolean anonymizeIP = false;
         if (datafileVersion >= Integer.parseInt(ProjectConfig.Version.V3.toString())) {
-            anonymizeIP = node.get("anonymizeIP").asBoolean();
+            if (anonymizeIPValue == null) {
+                throw new JsonParseException(parser, "Missing required field \"anonymizeIP\"");
+            }
+            anonymizeIP = anonymizeIPValue;
         }
 
-        List<FeatureFlag> featureFlags = null;
-        List<Rollout> rollouts = null;
-        Boolean botFiltering = null;
-        if (datafileVersion >= Integer.parseInt(ProjectConfig.Version.V4.toString())) {
-            featureFlags = JacksonHelpers.arrayNodeToList(node.get("featureFlags"), FeatureFlag.class, codec);
-            rollouts = JacksonHelpers.arrayNodeToList(node.get("rollouts"), Rollout.class, codec);
-            if (node.hasNonNull("botFiltering")) {
-                botFiltering = node.get("botFiltering").asBoolean();
-            }
+        if (datafileVersion < Integer.parseInt(ProjectConfig.Version.V4.toString())) {
+            featureFlags = null;
+            rollouts = null;
+            botFiltering = null;
         }
 
         return new ProjectConfig(
@@ -0,0 +1,769 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config.parser;
+
+import com.optimizely.ab.config.Attribute;
+import com.optimizely.ab.config.EventType;
+import com.optimizely.ab.config.Experiment;
+import com.optimizely.ab.config.FeatureFlag;
+import com.optimizely.ab.config.FeatureVariable;
+import com.optimizely.ab.config.FeatureVariableUsageInstance;
+import com.optimizely.ab.config.Group;
+import com.optimizely.ab.config.ProjectConfig;
+import com.optimizely.ab.config.Rollout;
+import com.optimizely.ab.config.TrafficAllocation;
+import com.optimizely.ab.config.Variation;
+import com.optimizely.ab.config.audience.AndCondition;
+import com.optimizely.ab.config.audience.Audience;
+import com.optimizely.ab.config.audience.AudienceIdCondition;
+import com.optimizely.ab.config.audience.Condition;
+import com.optimizely.ab.config.audience.EmptyCondition;
+import com.optimizely.ab.config.audience.NotCondition;
+import com.optimizely.ab.config.audience.NullCondition;
+import com.optimizely.ab.config.audience.OrCondition;
+import com.optimizely.ab.config.audience.UserAttribute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshot of a parsed {@link ProjectConfig}, meant to be written once (e.g. when a new datafile is
+ * deployed) and memory-mapped on every cold start instead of parsing json.
+ * <p>
+ * A snapshot holds the entity graph including the parsed audience condition trees, with every distinct string
+ * stored once in a leading string table. The id and key mappings are rebuilt by the {@link ProjectConfig}
+ * constructor as the entities are handed to it; materializing a hash map costs the same whether its layout is read
+ * from disk or not, so they are not stored.
+ * <p>
+ * The header carries a format version, the datafile {@link ProjectConfig.Version} and the revision. A snapshot is
+ * rejected, and {@link #load(Path, byte[])} falls back to parsing the datafile, when its format is unknown, its
+ * datafile version is unsupported, its revision differs from the datafile's or its checksum does not match.
+ * <p>
+ * Example usage:
+ * <pre>
+ *     byte[] datafile = Files.readAllBytes(datafilePath);
+ *     ProjectConfig projectConfig = ProjectConfigSnapshot.load(snapshotPath, datafile);
+ * </pre>
+ */
+public final class ProjectConfigSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectConfigSnapshot.class);
+
+    /**
+     * Bumped whenever the binary layout changes, older snapshots are then ignored.
+     */
+    static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x4F50434E; // "OPCN"
+
+    // condition tags
+    private static final byte CONDITION_NONE = 0;
+    private static final byte CONDITION_AND = 1;
+    private static final byte CONDITION_OR = 2;
+    private static final byte CONDITION_NOT = 3;
+    private static final byte CONDITION_EMPTY = 4;
+    private static final byte CONDITION_NULL = 5;
+    private static final byte CONDITION_AUDIENCE_ID = 6;
+    private static final byte CONDITION_USER_ATTRIBUTE = 7;
+
+    // user attribute value tags
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_INTEGER = 2;
+    private static final byte VALUE_LONG = 3;
+    private static final byte VALUE_DOUBLE = 4;
+    private static final byte VALUE_TRUE = 5;
+    private static final byte VALUE_FALSE = 6;
+
+    private static final int NULL_REFERENCE = -1;
+
+    private ProjectConfigSnapshot() {
+    }
+
+    /**
+     * Returns the config for the given datafile, loading it from the snapshot when the snapshot matches the
+     * datafile's revision and otherwise parsing the datafile and replacing the snapshot.
+     *
+     * @param snapshotPath where the snapshot is kept, it does not need to exist yet
+     * @param datafile     the UTF-8 encoded datafile the snapshot has to match
+     * @return the config for the datafile
+     * @throws ConfigParseException when the snapshot can't be used and the datafile can't be parsed
+     */
+    @Nonnull
+    public static ProjectConfig load(@Nonnull Path snapshotPath, @Nonnull byte[] datafile) throws ConfigParseException {
+        String revision = BuiltInConfigParser.readRevision(datafile);
+
+        try {
+            ProjectConfig projectConfig = read(snapshotPath, revision);
+            if (projectConfig != null) {
+                return projectConfig;
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to read config snapshot {}, parsing the datafile instead.", snapshotPath, e);
+        }
+
+        ProjectConfig projectConfig = new ProjectConfig.Builder().withUtf8Datafile(datafile).build();
+        try {
+            write(projectConfig, snapshotPath);
+        } catch (IOException e) {
+            logger.warn("Unable to write config snapshot {}", snapshotPath, e);
+        }
+        return projectConfig;
+    }
+
+    /**
+     * Reads a snapshot through a read-only memory mapping.
+     *
+     * @param snapshotPath     the snapshot to read
+     * @param expectedRevision the revision the snapshot has to have, or {@code null} to accept any revision
+     * @return the config, or {@code null} if the snapshot does not exist, is stale, incompatible or corrupt
+     * @throws IOException when the snapshot exists but can't be read
+     */
+    @CheckForNull
+    public static ProjectConfig read(@Nonnull Path snapshotPath, @Nullable String expectedRevision) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(snapshotPath, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            logger.debug("Config snapshot {} does not exist.", snapshotPath);
+            return null;
+        }
+
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer, expectedRevision);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given config. The file is written next to the target and atomically moved into
+     * place, so concurrent readers never see a partial snapshot.
+     *
+     * @param projectConfig the config to write
+     * @param snapshotPath  the snapshot to create or replace
+     * @throws IOException when the snapshot can't be written
+     */
+    public static void write(@Nonnull ProjectConfig projectConfig, @Nonnull Path snapshotPath) throws IOException {
+        byte[] snapshot = toBytes(projectConfig);
+
+        Path directory = snapshotPath.toAbsolutePath().getParent();
+        Path tempPath = Files.createTempFile(directory, snapshotPath.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tempPath, snapshot);
+            try {
+                Files.move(tempPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    /**
+     * Encodes a snapshot of the given config, for callers that keep it somewhere other than a file of its own.
+     * <p>
+     * Layout: magic, format version, datafile version, revision, body checksum, string table length, string table,
+     * body. The datafile version and revision are plain length-prefixed UTF-8 so they can be checked before anything
+     * else is decoded.
+     *
+     * @param projectConfig the config to encode
+     * @return the encoded snapshot
+     * @throws IOException when the config can't be encoded
+     */
+    @Nonnull
+    public static byte[] toBytes(@Nonnull ProjectConfig projectConfig) throws IOException {
+        SnapshotWriter body = new SnapshotWriter();
+        body.writeProjectConfig(projectConfig);
+        byte[] bodyBytes = body.bytes.toByteArray();
+
+        CRC32 checksum = new CRC32();
+        checksum.update(bodyBytes);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(bodyBytes.length + 1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeUtf8(out, projectConfig.getVersion());
+        writeUtf8(out, projectConfig.getRevision());
+        out.writeLong(checksum.getValue());
+        out.writeInt(body.strings.size());
+        for (String string : body.strings) {
+            writeUtf8(out, string);
+        }
+        out.write(bodyBytes);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a snapshot encoded by {@link #toBytes(ProjectConfig)}, starting at the buffer's position.
+     *
+     * @param buffer           the encoded snapshot
+     * @param expectedRevision the revision the snapshot has to have, or {@code null} to accept any revision
+     * @return the config, or {@code null} if the snapshot is stale, incompatible, truncated or corrupt
+     */
+    @CheckForNull
+    public static ProjectConfig read(@Nonnull ByteBuffer buffer, @Nullable String expectedRevision) {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                logger.warn("Ignoring config snapshot, it is not a config snapshot.");
+                return null;
+            }
+            int formatVersion = buffer.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                logger.info("Ignoring config snapshot with format version {}, expected {}.", formatVersion, FORMAT_VERSION);
+                return null;
+            }
+
+            byte[] scratch = new byte[256];
+            String version = readUtf8(buffer, scratch);
+            if (!isSupportedVersion(version)) {
+                logger.info("Ignoring config snapshot of unsupported datafile version {}.", version);
+                return null;
+            }
+            String revision = readUtf8(buffer, scratch);
+            if (expectedRevision != null && !expectedRevision.equals(revision)) {
+                logger.info("Ignoring config snapshot of revision {}, expected {}.", revision, expectedRevision);
+                return null;
+            }
+
+            long expectedChecksum = buffer.getLong();
+            int stringCount = buffer.getInt();
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                strings[i] = readUtf8(buffer, scratch);
+            }
+
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate());
+            if (checksum.getValue() != expectedChecksum) {
+                logger.warn("Ignoring corrupt config snapshot of revision {}.", revision);
+                return null;
+            }
+
+            return new SnapshotReader(buffer, strings).readProjectConfig();
+        } catch (BufferUnderflowException e) {
+            logger.warn("Ignoring truncated config snapshot.");
+            return null;
+        } catch (RuntimeException e) {
+            logger.warn("Ignoring unreadable config snapshot.", e);
+            return null;
+        }
+    }
+
+    //======== Helper methods ========//
+
+    private static boolean isSupportedVersion(String version) {
+        for (ProjectConfig.Version supportedVersion : ProjectConfig.Version.values()) {
+            if (supportedVersion.toString().equals(version)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeUtf8(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readUtf8(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getInt();
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    //======== Helper classes ========//
+
+    /**
+     * Writes the entity graph, replacing strings with references into a string table of distinct values.
+     */
+    private static final class SnapshotWriter {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> stringIndex = new HashMap<String, Integer>();
+        private final List<String> strings = new ArrayList<String>();
+
+        void writeProjectConfig(ProjectConfig projectConfig) throws IOException {
+            writeString(projectConfig.getAccountId());
+            writeString(projectConfig.getProjectId());
+            writeString(projectConfig.getRevision());
+            writeString(projectConfig.getVersion());
+            out.writeBoolean(projectConfig.getAnonymizeIP());
+            writeBoolean(projectConfig.getBotFiltering());
+
+            List<Attribute> attributes = projectConfig.getAttributes();
+            out.writeInt(attributes.size());
+            for (Attribute attribute : attributes) {
+                writeString(attribute.getId());
+                writeString(attribute.getKey());
+                writeString(attribute.getSegmentId());
+            }
+
+            writeAudiences(projectConfig.getAudiences());
+            writeAudiences(projectConfig.getTypedAudiences());
+
+            List<EventType> events = projectConfig.getEventTypes();
+            out.writeInt(events.size());
+            for (EventType event : events) {
+                writeString(event.getId());
+                writeString(event.getKey());
+                writeStrings(event.getExperimentIds());
+            }
+
+            // getExperiments() also holds the group experiments, which are written with their groups
+            List<Group> groups = projectConfig.getGroups();
+            int groupExperimentCount = 0;
+            for (Group group : groups) {
+                groupExperimentCount += group.getExperiments().size();
+            }
+            List<Experiment> allExperiments = projectConfig.getExperiments();
+            writeExperiments(allExperiments.subList(0, allExperiments.size() - groupExperimentCount));
+
+            List<FeatureFlag> featureFlags = projectConfig.getFeatureFlags();
+            out.writeInt(featureFlags.size());
+            for (FeatureFlag featureFlag : featureFlags) {
+                writeString(featureFlag.getId());
+                writeString(featureFlag.getKey());
+                writeString(featureFlag.getRolloutId());
+                writeStrings(featureFlag.getExperimentIds());
+                List<FeatureVariable> variables = featureFlag.getVariables();
+                out.writeInt(variables.size());
+                for (FeatureVariable variable : variables) {
+                    writeString(variable.getId());
+                    writeString(variable.getKey());
+                    writeString(variable.getDefaultValue());
+                    writeString(variable.getStatus() == null ? null : variable.getStatus().getVariableStatus());
+                    writeString(variable.getType() == null ? null : variable.getType().getVariableType());
+                }
+            }
+
+            out.writeInt(groups.size());
+            for (Group group : groups) {
+                writeString(group.getId());
+                writeString(group.getPolicy());
+                writeExperiments(group.getExperiments());
+                writeTrafficAllocation(group.getTrafficAllocation());
+            }
+
+            List<Rollout> rollouts = projectConfig.getRollouts();
+            out.writeInt(rollouts.size());
+            for (Rollout rollout : rollouts) {
+                writeString(rollout.getId());
+                writeExperiments(rollout.getExperiments());
+            }
+
+            out.flush();
+        }
+
+        private void writeAudiences(List<Audience> audiences) throws IOException {
+            out.writeInt(audiences.size());
+            for (Audience audience : audiences) {
+                writeString(audience.getId());
+                writeString(audience.getName());
+                writeCondition(audience.getConditions());
+            }
+        }
+
+        private void writeExperiments(List<Experiment> experiments) throws IOException {
+            out.writeInt(experiments.size());
+            for (Experiment experiment : experiments) {
+                writeString(experiment.getId());
+                writeString(experiment.getKey());
+                writeString(experiment.getStatus());
+                writeString(experiment.getLayerId());
+                writeStrings(experiment.getAudienceIds());
+                writeCondition(experiment.getAudienceConditions());
+
+                List<Variation> variations = experiment.getVariations();
+                out.writeInt(variations.size());
+                for (Variation variation : variations) {
+                    writeString(variation.getId());
+                    writeString(variation.getKey());
+                    out.writeBoolean(variation.getFeatureEnabled());
+                    List<FeatureVariableUsageInstance> usageInstances = variation.getFeatureVariableUsageInstances();
+                    out.writeInt(usageInstances.size());
+                    for (FeatureVariableUsageInstance usageInstance : usageInstances) {
+                        writeString(usageInstance.getId());
+                        writeString(usageInstance.getValue());
+                    }
+                }
+
+                Map<String, String> userIdToVariationKeyMap = experiment.getUserIdToVariationKeyMap();
+                if (userIdToVariationKeyMap == null) {
+                    out.writeInt(NULL_REFERENCE);
+                } else {
+                    out.writeInt(userIdToVariationKeyMap.size());
+                    for (Map.Entry<String, String> entry : userIdToVariationKeyMap.entrySet()) {
+                        writeString(entry.getKey());
+                        writeString(entry.getValue());
+                    }
+                }
+
+                writeTrafficAllocation(experiment.getTrafficAllocation());
+                writeString(experiment.getGroupId());
+            }
+        }
+
+        private void writeTrafficAllocation(List<TrafficAllocation> trafficAllocation) throws IOException {
+            out.writeInt(trafficAllocation.size());
+            for (TrafficAllocation allocation : trafficAllocation) {
+                writeString(allocation.getEntityId());
+                out.writeInt(allocation.getEndOfRange());
+            }
+        }
+
+        private void writeCondition(Condition condition) throws IOException {
+            if (condition == null) {
+                out.writeByte(CONDITION_NONE);
+            } else if (condition instanceof AndCondition) {
+                out.writeByte(CONDITION_AND);
+                writeConditions(((AndCondition) condition).getConditions());
+            } else if (condition instanceof OrCondition) {
+                out.writeByte(CONDITION_OR);
+                writeConditions(((OrCondition) condition).getConditions());
+            } else if (condition instanceof NotCondition) {
+                out.writeByte(CONDITION_NOT);
+                writeCondition(((NotCondition) condition).getCondition());
+            } else if (condition instanceof EmptyCondition) {
+                out.writeByte(CONDITION_EMPTY);
+            } else if (condition instanceof NullCondition) {
+                out.writeByte(CONDITION_NULL);
+            } else if (condition instanceof AudienceIdCondition) {
+                out.writeByte(CONDITION_AUDIENCE_ID);
+                writeString(((AudienceIdCondition) condition).getAudienceId());
+            } else if (condition instanceof UserAttribute) {
+                UserAttribute userAttribute = (UserAttribute) condition;
+                out.writeByte(CONDITION_USER_ATTRIBUTE);
+                writeString(userAttribute.getName());
+                writeString(userAttribute.getType());
+                writeString(userAttribute.getMatch());
+                writeValue(userAttribute.getValue());
+            } else {
+                throw new IOException("Unsupported condition type: " + condition.getClass().getName());
+            }
+        }
+
+        private void writeConditions(List<Condition> conditions) throws IOException {
+            out.writeInt(conditions.size());
+            for (Condition condition : conditions) {
+                writeCondition(condition);
+            }
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(VALUE_NULL);
+            } else if (value instanceof String) {
+                out.writeByte(VALUE_STRING);
+                writeString((String) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(VALUE_INTEGER);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(VALUE_LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Double) {
+                out.writeByte(VALUE_DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte((Boolean) value ? VALUE_TRUE : VALUE_FALSE);
+            } else {
+                throw new IOException("Unsupported condition value type: " + value.getClass().getName());
+            }
+        }
+
+        private void writeBoolean(Boolean value) throws IOException {
+            out.writeByte(value == null ? VALUE_NULL : value ? VALUE_TRUE : VALUE_FALSE);
+        }
+
+        private void writeStrings(List<String> values) throws IOException {
+            out.writeInt(values.size());
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(NULL_REFERENCE);
+                return;
+            }
+            Integer index = stringIndex.get(value);
+            if (index == null) {
+                index = strings.size();
+                strings.add(value);
+                stringIndex.put(value, index);
+            }
+            out.writeInt(index);
+        }
+    }
+
+    /**
+     * Rebuilds the entity graph written by {@link SnapshotWriter}. Every reference to the same string resolves to
+     * the same instance.
+     */
+    private static final class SnapshotReader {
+
+        private final ByteBuffer buffer;
+        private final String[] strings;
+
+        SnapshotReader(ByteBuffer buffer, String[] strings) {
+            this.buffer = buffer;
+            this.strings = strings;
+        }
+
+        ProjectConfig readProjectConfig() {
+            String accountId = readString();
+            String projectId = readString();
+            String revision = readString();
+            String version = readString();
+            boolean anonymizeIP = buffer.get() != 0;
+            Boolean botFiltering = readBoolean();
+
+            int attributeCount = buffer.getInt();
+            List<Attribute> attributes = new ArrayList<Attribute>(attributeCount);
+            for (int i = 0; i < attributeCount; i++) {
+                attributes.add(new Attribute(readString(), readString(), readString()));
+            }
+
+            List<Audience> audiences = readAudiences();
+            List<Audience> typedAudiences = readAudiences();
+
+            int eventCount = buffer.getInt();
+            List<EventType> events = new ArrayList<EventType>(eventCount);
+            for (int i = 0; i < eventCount; i++) {
+                events.add(new EventType(readString(), readString(), readStrings()));
+            }
+
+            List<Experiment> experiments = readExperiments();
+
+            int featureFlagCount = buffer.getInt();
+            List<FeatureFlag> featureFlags = new ArrayList<FeatureFlag>(featureFlagCount);
+            for (int i = 0; i < featureFlagCount; i++) {
+                String id = readString();
+                String key = readString();
+                String rolloutId = readString();
+                List<String> experimentIds = readStrings();
+                int variableCount = buffer.getInt();
+                List<FeatureVariable> variables = new ArrayList<FeatureVariable>(variableCount);
+                for (int j = 0; j < variableCount; j++) {
+                    variables.add(new FeatureVariable(readString(), readString(), readString(),
+                        FeatureVariable.VariableStatus.fromString(readString()),
+                        FeatureVariable.VariableType.fromString(readString())));
+                }
+                featureFlags.add(new FeatureFlag(id, key, rolloutId, experimentIds, variables));
+            }
+
+            int groupCount = buffer.getInt();
+            List<Group> groups = new ArrayList<Group>(groupCount);
+            for (int i = 0; i < groupCount; i++) {
+                groups.add(new Group(readString(), readString(), readExperiments(), readTrafficAllocation()));
+            }
+
+            int rolloutCount = buffer.getInt();
+            List<Rollout> rollouts = new ArrayList<Rollout>(rolloutCount);
+            for (int i = 0; i < rolloutCount; i++) {
+                rollouts.add(new Rollout(readString(), readExperiments()));
+            }
+
+            return new ProjectConfig(
+                accountId,
+                anonymizeIP,
+                botFiltering,
+                projectId,
+                revision,
+                version,
+                attributes,
+                audiences,
+                typedAudiences,
+                events,
+                experiments,
+                featureFlags,
+                groups,
+                rollouts
+            );
+        }
+
+        private List<Audience> readAudiences() {
+            int count = buffer.getInt();
+            List<Audience> audiences = new ArrayList<Audience>(count);
+            for (int i = 0; i < count; i++) {
+                audiences.add(new Audience(readString(), readString(), readCondition()));
+            }
+            return audiences;
+        }
+
+        private List<Experiment> readExperiments() {
+            int count = buffer.getInt();
+            List<Experiment> experiments = new ArrayList<Experiment>(count);
+            for (int i = 0; i < count; i++) {
+                String id = readString();
+                String key = readString();
+                String status = readString();
+                String layerId = readString();
+                List<String> audienceIds = readStrings();
+                Condition audienceConditions = readCondition();
+
+                int variationCount = buffer.getInt();
+                List<Variation> variations = new ArrayList<Variation>(variationCount);
+                for (int j = 0; j < variationCount; j++) {
+                    String variationId = readString();
+                    String variationKey = readString();
+                    boolean featureEnabled = buffer.get() != 0;
+                    int usageCount = buffer.getInt();
+                    List<FeatureVariableUsageInstance> usageInstances =
+                        new ArrayList<FeatureVariableUsageInstance>(usageCount);
+                    for (int k = 0; k < usageCount; k++) {
+                        usageInstances.add(new FeatureVariableUsageInstance(readString(), readString()));
+                    }
+                    variations.add(new Variation(variationId, variationKey, featureEnabled, usageInstances));
+                }
+
+                Map<String, String> userIdToVariationKeyMap = null;
+                int forcedCount = buffer.getInt();
+                if (forcedCount == 0) {
+                    userIdToVariationKeyMap = Collections.emptyMap();
+                } else if (forcedCount > 0) {
+                    userIdToVariationKeyMap = new HashMap<String, String>((int) (forcedCount / 0.75f) + 1);
+                    for (int j = 0; j < forcedCount; j++) {
+                        userIdToVariationKeyMap.put(readString(), readString());
+                    }
+                }
+
+                List<TrafficAllocation> trafficAllocation = readTrafficAllocation();
+                String groupId = readString();
+
+                experiments.add(new Experiment(id, key, status, layerId, audienceIds, audienceConditions, variations,
+                    userIdToVariationKeyMap, trafficAllocation, groupId));
+            }
+            return experiments;
+        }
+
+        private List<TrafficAllocation> readTrafficAllocation() {
+            int count = buffer.getInt();
+            List<TrafficAllocation> trafficAllocation = new ArrayList<TrafficAllocation>(count);
+            for (int i = 0; i < count; i++) {
+                trafficAllocation.add(new TrafficAllocation(readString(), buffer.getInt()));
+            }
+            return trafficAllocation;
+        }
+
+        private Condition readCondition() {
+            byte tag = buffer.get();
+            switch (tag) {
+                case CONDITION_NONE:
+                    return null;
+                case CONDITION_AND:
+                    return new AndCondition(readConditions());
+                case CONDITION_OR:
+                    return new OrCondition(readConditions());
+                case CONDITION_NOT:
+                    return new NotCondition(readCondition());
+                case CONDITION_EMPTY:
+                    return new EmptyCondition();
+                case CONDITION_NULL:
+                    return new NullCondition();
+                case CONDITION_AUDIENCE_ID:
+                    return new AudienceIdCondition(readString());
+                case CONDITION_USER_ATTRIBUTE:
+                    return new UserAttribute(readString(), readString(), readString(), readValue());
+                default:
+                    throw new IllegalStateException("Unknown condition tag " + tag);
+            }
+        }
+
+        private List<Condition> readConditions() {
+            int count = buffer.getInt();
+            List<Condition> conditions = new ArrayList<Condition>(count);
+            for (int i = 0; i < count; i++) {
+                conditions.add(readCondition());
+            }
+            return conditions;
+        }
+
+        private Object readValue() {
+            byte tag = buffer.get();
+            switch (tag) {
+                case VALUE_NULL:
+                    return null;
+                case VALUE_STRING:
+                    return readString();
+                case VALUE_INTEGER:
+                    return buffer.getInt();
+                case VALUE_LONG:
+                    return buffer.getLong();
+                case VALUE_DOUBLE:
+                    return buffer.getDouble();
+                case VALUE_TRUE:
+                    return Boolean.TRUE;
+                case VALUE_FALSE:
+                    return Boolean.FALSE;
+                default:
+                    throw new IllegalStateException("Unknown value tag " + tag);
+            }
+        }
+
+        private Boolean readBoolean() {
+            byte tag = buffer.get();
+            return tag == VALUE_NULL ? null : tag == VALUE_TRUE;
+        }
+
+        private List<String> readStrings() {
+            int count = buffer.getInt();
+            List<String> values = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(readString());
+            }
+            return values;
+        }
+
+        private String readString() {
+            int index = buffer.getInt();
+            return index == NULL_REFERENCE ? null : strings[index];
+        }
+    }
+}
@@ -0,0 +1,616 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config.parser;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal pull reader over UTF-8 encoded json, used by {@link BuiltInConfigParser}.
+ * <p>
+ * Strings are decoded straight from the byte array, pure ASCII ones (nearly every id and key in a datafile) with a
+ * single copy. Object member names are additionally canonicalized through a small cache, since the same few dozen
+ * names repeat throughout a datafile. String values are deduplicated for the lifetime of the reader: ids, keys and
+ * statuses repeat across experiments, rollouts and flags, and each distinct value is then held only once by the
+ * parsed config. The reader validates structure (commas, colons, nesting) but is not meant as a
+ * general purpose json library.
+ * <p>
+ * Usage mirrors {@code com.google.gson.stream.JsonReader}:
+ * <pre>
+ *     reader.beginObject();
+ *     while (reader.hasNext()) {
+ *         String name = reader.nextName();
+ *         ...
+ *     }
+ *     reader.endObject();
+ * </pre>
+ */
+final class Utf8JsonReader {
+
+    private static final int NAME_CACHE_SIZE = 256;
+    private static final int INITIAL_STRING_TABLE_SIZE = 256;
+
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+
+    // whether a ',' has to precede the next element or member of the enclosing container
+    private boolean expectComma;
+
+    private final String[] nameCache = new String[NAME_CACHE_SIZE];
+
+    // open addressing table of the distinct string values read so far, kept at most half full
+    private String[] strings = new String[INITIAL_STRING_TABLE_SIZE];
+    private int stringCount;
+
+    Utf8JsonReader(@Nonnull byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    Utf8JsonReader(@Nonnull byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+
+        // tolerate a UTF-8 byte order mark
+        if (length >= 3 && buffer[offset] == (byte) 0xEF && buffer[offset + 1] == (byte) 0xBB
+            && buffer[offset + 2] == (byte) 0xBF) {
+            position += 3;
+        }
+    }
+
+    void beginObject() throws ConfigParseException {
+        consume('{');
+        expectComma = false;
+    }
+
+    void endObject() throws ConfigParseException {
+        consume('}');
+        expectComma = true;
+    }
+
+    void beginArray() throws ConfigParseException {
+        consume('[');
+        expectComma = false;
+    }
+
+    void endArray() throws ConfigParseException {
+        consume(']');
+        expectComma = true;
+    }
+
+    /**
+     * @return whether the current object or array has another member, consuming the separating comma if so
+     */
+    boolean hasNext() throws ConfigParseException {
+        byte b = peekByte();
+        if (b == '}' || b == ']') {
+            return false;
+        }
+        if (expectComma) {
+            if (b != ',') {
+                throw syntaxError("Expected ',' or end of container");
+            }
+            position++;
+            expectComma = false;
+            peekByte();
+        }
+        return true;
+    }
+
+    /**
+     * @return the next member name, also consuming the following ':'
+     */
+    String nextName() throws ConfigParseException {
+        if (peekByte() != '"') {
+            throw syntaxError("Expected member name");
+        }
+        int start = position + 1;
+        int hash = 0;
+        int i = start;
+        while (i < limit) {
+            byte b = buffer[i];
+            if (b == '"') {
+                break;
+            }
+            if (b == '\\' || b < 0) {
+                // escaped or non-ASCII names are rare enough to skip the cache
+                String name = nextString();
+                expectComma = false;
+                consume(':');
+                return name;
+            }
+            hash = 31 * hash + b;
+            i++;
+        }
+        if (i >= limit) {
+            throw syntaxError("Unterminated member name");
+        }
+
+        int length = i - start;
+        int slot = (hash ^ (hash >>> 16)) & (NAME_CACHE_SIZE - 1);
+        String name = nameCache[slot];
+        if (name == null || !asciiEquals(name, start, length)) {
+            name = new String(buffer, start, length, StandardCharsets.ISO_8859_1);
+            nameCache[slot] = name;
+        }
+        position = i + 1;
+        consume(':');
+        return name;
+    }
+
+    String nextString() throws ConfigParseException {
+        if (peekByte() != '"') {
+            throw syntaxError("Expected string");
+        }
+        int start = position + 1;
+        boolean ascii = true;
+        boolean escaped = false;
+        // equals String.hashCode() for pure ASCII content
+        int hash = 0;
+        int i = start;
+        while (i < limit) {
+            byte b = buffer[i];
+            if (b == '"') {
+                break;
+            }
+            if (b == '\\') {
+                escaped = true;
+                i += 2;
+                continue;
+            }
+            if (b < 0) {
+                ascii = false;
+            } else if (b < 0x20) {
+                position = i;
+                throw syntaxError("Unescaped control character in string");
+            }
+            hash = 31 * hash + b;
+            i++;
+        }
+        if (i >= limit) {
+            throw syntaxError("Unterminated string");
+        }
+
+        String value;
+        if (escaped) {
+            value = intern(unescape(start, i));
+        } else if (ascii) {
+            value = internAscii(start, i - start, hash);
+        } else {
+            value = intern(new String(buffer, start, i - start, StandardCharsets.UTF_8));
+        }
+        position = i + 1;
+        expectComma = true;
+        return value;
+    }
+
+    boolean nextBoolean() throws ConfigParseException {
+        byte b = peekByte();
+        if (b == 't') {
+            consumeLiteral("true");
+            return true;
+        }
+        if (b == 'f') {
+            consumeLiteral("false");
+            return false;
+        }
+        throw syntaxError("Expected boolean");
+    }
+
+    /**
+     * Consumes a {@code null} literal if one is next.
+     *
+     * @return whether a null was consumed
+     */
+    boolean nextIfNull() throws ConfigParseException {
+        if (peekByte() != 'n') {
+            return false;
+        }
+        consumeLiteral("null");
+        return true;
+    }
+
+    int nextInt() throws ConfigParseException {
+        peekByte();
+        int start = position;
+        Number number = nextNumber();
+        if (!(number instanceof Integer)) {
+            position = start;
+            throw syntaxError("Expected integer");
+        }
+        return number.intValue();
+    }
+
+    /**
+     * @return an {@link Integer} or {@link Long} for integral values that fit, otherwise a {@link Double}, the same
+     * types Jackson produces for untyped values
+     */
+    Number nextNumber() throws ConfigParseException {
+        byte b = peekByte();
+        int start = position;
+        boolean negative = b == '-';
+        int i = negative ? start + 1 : start;
+        long value = 0;
+        int digits = 0;
+        while (i < limit && buffer[i] >= '0' && buffer[i] <= '9') {
+            // accumulate negatively so that Long.MIN_VALUE fits
+            value = value * 10 - (buffer[i] - '0');
+            digits++;
+            i++;
+        }
+        if (digits == 0) {
+            throw syntaxError("Expected number");
+        }
+
+        boolean integral = i >= limit || (buffer[i] != '.' && buffer[i] != 'e' && buffer[i] != 'E');
+        if (integral && digits <= 18) {
+            position = i;
+            expectComma = true;
+            long result = negative ? value : -value;
+            if (result >= Integer.MIN_VALUE && result <= Integer.MAX_VALUE) {
+                return (int) result;
+            }
+            return result;
+        }
+
+        while (i < limit && isNumberByte(buffer[i])) {
+            i++;
+        }
+        String text = new String(buffer, start, i - start, StandardCharsets.ISO_8859_1);
+        position = i;
+        expectComma = true;
+        try {
+            if (integral) {
+                return Long.parseLong(text);
+            }
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            if (integral) {
+                // beyond long range, which Jackson would surface as a BigInteger
+                return Double.parseDouble(text);
+            }
+            position = start;
+            throw syntaxError("Malformed number");
+        }
+    }
+
+    /**
+     * Reads any value into plain java objects: {@link Map}, {@link List}, {@link String}, {@link Number},
+     * {@link Boolean} or {@code null}.
+     */
+    Object nextValue() throws ConfigParseException {
+        switch (peekByte()) {
+            case '{':
+                Map<String, Object> object = new LinkedHashMap<String, Object>();
+                beginObject();
+                while (hasNext()) {
+                    String name = nextName();
+                    object.put(name, nextValue());
+                }
+                endObject();
+                return object;
+            case '[':
+                List<Object> array = new ArrayList<Object>();
+                beginArray();
+                while (hasNext()) {
+                    array.add(nextValue());
+                }
+                endArray();
+                return array;
+            case '"':
+                return nextString();
+            case 't':
+            case 'f':
+                return nextBoolean();
+            case 'n':
+                nextIfNull();
+                return null;
+            default:
+                return nextNumber();
+        }
+    }
+
+    void skipValue() throws ConfigParseException {
+        switch (peekByte()) {
+            case '{':
+                beginObject();
+                while (hasNext()) {
+                    skipString();
+                    consume(':');
+                    skipValue();
+                }
+                endObject();
+                break;
+            case '[':
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+                break;
+            case '"':
+                skipString();
+                break;
+            case 't':
+            case 'f':
+                nextBoolean();
+                break;
+            case 'n':
+                nextIfNull();
+                break;
+            default:
+                nextNumber();
+                break;
+        }
+    }
+
+    /**
+     * @return whether the next value is a string, without consuming it
+     */
+    boolean peekString() throws ConfigParseException {
+        return peekByte() == '"';
+    }
+
+    /**
+     * @return whether the next value is an array, without consuming it
+     */
+    boolean peekArray() throws ConfigParseException {
+        return peekByte() == '[';
+    }
+
+    /**
+     * @return whether the next value is an object, without consuming it
+     */
+    boolean peekObject() throws ConfigParseException {
+        return peekByte() == '{';
+    }
+
+    /**
+     * @return the offset of the next byte to be read, which after {@link #hasNext()} is the start of the next value
+     */
+    int position() {
+        return position;
+    }
+
+    /**
+     * Moves to a value start previously returned by {@link #position()}, e.g. to read an element that was skipped
+     * by another reader over the same buffer.
+     */
+    void seek(int position) {
+        this.position = position;
+        expectComma = false;
+    }
+
+    /**
+     * Fails unless only whitespace remains.
+     */
+    void endDocument() throws ConfigParseException {
+        skipWhitespace();
+        if (position < limit) {
+            throw syntaxError("Unexpected content after the root value");
+        }
+    }
+
+    //======== Helper methods ========//
+
+    private void skipString() throws ConfigParseException {
+        if (peekByte() != '"') {
+            throw syntaxError("Expected string");
+        }
+        int i = position + 1;
+        while (i < limit) {
+            byte b = buffer[i];
+            if (b == '"') {
+                position = i + 1;
+                expectComma = true;
+                return;
+            }
+            i += b == '\\' ? 2 : 1;
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    private String unescape(int start, int end) throws ConfigParseException {
+        StringBuilder builder = new StringBuilder(end - start);
+        int runStart = start;
+        int i = start;
+        while (i < end) {
+            if (buffer[i] != '\\') {
+                i++;
+                continue;
+            }
+            if (i > runStart) {
+                builder.append(new String(buffer, runStart, i - runStart, StandardCharsets.UTF_8));
+            }
+            byte escape = buffer[i + 1];
+            switch (escape) {
+                case '"':
+                case '\\':
+                case '/':
+                    builder.append((char) escape);
+                    break;
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    if (i + 6 > end) {
+                        position = i;
+                        throw syntaxError("Malformed unicode escape");
+                    }
+                    int code = 0;
+                    for (int j = i + 2; j < i + 6; j++) {
+                        int digit = Character.digit(buffer[j], 16);
+                        if (digit < 0) {
+                            position = i;
+                            throw syntaxError("Malformed unicode escape");
+                        }
+                        code = (code << 4) | digit;
+                    }
+                    builder.append((char) code);
+                    i += 4;
+                    break;
+                default:
+                    position = i;
+                    throw syntaxError("Invalid escape sequence");
+            }
+            i += 2;
+            runStart = i;
+        }
+        if (end > runStart) {
+            builder.append(new String(buffer, runStart, end - runStart, StandardCharsets.UTF_8));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the previously read string with the given ASCII content, or a new one that is remembered
+     */
+    private String internAscii(int start, int length, int hash) {
+        int mask = strings.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String candidate;
+        while ((candidate = strings[slot]) != null) {
+            if (asciiEquals(candidate, start, length)) {
+                return candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        String value = new String(buffer, start, length, StandardCharsets.ISO_8859_1);
+        addString(slot, value);
+        return value;
+    }
+
+    /**
+     * @return the previously read string equal to the given one, or the given one, which is remembered
+     */
+    private String intern(String value) {
+        int hash = value.hashCode();
+        int mask = strings.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        String candidate;
+        while ((candidate = strings[slot]) != null) {
+            if (candidate.equals(value)) {
+                return candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        addString(slot, value);
+        return value;
+    }
+
+    private void addString(int slot, String value) {
+        strings[slot] = value;
+        if (++stringCount * 2 <= strings.length) {
+            return;
+        }
+
+        String[] previous = strings;
+        strings = new String[previous.length * 2];
+        int mask = strings.length - 1;
+        for (String string : previous) {
+            if (string != null) {
+                int hash = string.hashCode();
+                int index = (hash ^ (hash >>> 16)) & mask;
+                while (strings[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                strings[index] = string;
+            }
+        }
+    }
+
+    private boolean asciiEquals(String name, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != buffer[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNumberByte(byte b) {
+        return (b >= '0' && b <= '9') || b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-';
+    }
+
+    private void consume(char expected) throws ConfigParseException {
+        if (peekByte() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        position++;
+    }
+
+    private void consumeLiteral(String literal) throws ConfigParseException {
+        int length = literal.length();
+        if (position + length > limit) {
+            throw syntaxError("Expected '" + literal + "'");
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer[position + i] != literal.charAt(i)) {
+                throw syntaxError("Expected '" + literal + "'");
+            }
+        }
+        position += length;
+        expectComma = true;
+    }
+
+    /**
+     * Skips whitespace and returns the next byte without consuming it.
+     */
+    private byte peekByte() throws ConfigParseException {
+        skipWhitespace();
+        if (position >= limit) {
+            throw syntaxError("Unexpected end of json");
+        }
+        return buffer[position];
+    }
+
+    private void skipWhitespace() {
+        while (position < limit) {
+            byte b = buffer[position];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    private ConfigParseException syntaxError(String message) {
+        return new ConfigParseException(message + " at offset " + position);
+    }
+}
@@ -60,6 +60,10 @@ public class LogEvent {
         return requestParams;
     }
 
+    public EventBatch getEventBatch() {
+        return eventBatch;
+    }
+
     public String getBody() {
         if (eventBatch == null) {
             return "";
@@ -0,0 +1,47 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.notification;
+
+import com.optimizely.ab.config.ProjectConfigDiff;
+
+import javax.annotation.Nonnull;
+
+/**
+ * This class handles the config update notification.
+ */
+public abstract class ConfigUpdateNotificationListener implements NotificationListener,
+    ConfigUpdateNotificationListenerInterface {
+    /**
+     * Base notify called with var args.  This method parses the parameters and calls the abstract method.
+     *
+     * @param args - variable argument list based on the type of notification.
+     */
+    @Override
+    public final void notify(Object... args) {
+        assert (args[0] instanceof ProjectConfigDiff);
+        ProjectConfigDiff diff = (ProjectConfigDiff) args[0];
+
+        onConfigUpdate(diff);
+    }
+
+    /**
+     * onConfigUpdate is called when the project config is replaced by a new revision
+     *
+     * @param diff - The revisions and the feature flags, experiments and audiences that changed between them.
+     */
+    public abstract void onConfigUpdate(@Nonnull ProjectConfigDiff diff);
+}
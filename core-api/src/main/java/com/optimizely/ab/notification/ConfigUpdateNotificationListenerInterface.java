@@ -0,0 +1,34 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.notification;
+
+import com.optimizely.ab.config.ProjectConfigDiff;
+
+import javax.annotation.Nonnull;
+
+public interface ConfigUpdateNotificationListenerInterface {
+    /**
+     * onConfigUpdate is called when the project config is replaced by a new revision, on the thread that published
+     * it. Only configs published by an {@link com.optimizely.ab.config.ObservableProjectConfigManager} are notified,
+     * which all the built-in managers are. A config published with no config before it, such as the first one
+     * arriving after the client was built, is notified with everything in it added and no previous revision.
+     *
+     * @param diff - The revisions and the feature flags, experiments and audiences that changed between them.
+     */
+    public void onConfigUpdate(@Nonnull ProjectConfigDiff diff);
+
+}
@@ -17,6 +17,7 @@
 package com.optimizely.ab.notification;
 
 import com.optimizely.ab.config.Experiment;
+import com.optimizely.ab.config.ProjectConfigDiff;
 import com.optimizely.ab.config.Variation;
 import com.optimizely.ab.event.LogEvent;
 import org.slf4j.Logger;
@@ -39,7 +40,8 @@ public class NotificationCenter {
     public enum NotificationType {
 
         Activate(ActivateNotificationListener.class), // Activate was called. Track an impression event
-        Track(TrackNotificationListener.class); // Track was called.  Track a conversion event
+        Track(TrackNotificationListener.class), // Track was called.  Track a conversion event
+        ConfigUpdate(ConfigUpdateNotificationListener.class); // The project config was replaced by a new revision
 
         private Class notificationTypeClass;
 
@@ -77,6 +79,7 @@ public class NotificationCenter {
     public NotificationCenter() {
         notificationsListeners.put(NotificationType.Activate, new ArrayList<NotificationHolder>());
         notificationsListeners.put(NotificationType.Track, new ArrayList<NotificationHolder>());
+        notificationsListeners.put(NotificationType.ConfigUpdate, new ArrayList<NotificationHolder>());
     }
 
     // private list of notification by notification type.
@@ -121,6 +124,27 @@ public class NotificationCenter {
         }
     }
 
+    /**
+     * Convenience method to support lambdas as callbacks in later versions of Java (8+)
+     *
+     * @param configUpdateNotificationListenerInterface
+     * @return greater than zero if added.
+     */
+    public int addConfigUpdateNotificationListener(
+        final ConfigUpdateNotificationListenerInterface configUpdateNotificationListenerInterface) {
+        if (configUpdateNotificationListenerInterface instanceof ConfigUpdateNotificationListener) {
+            return addNotificationListener(NotificationType.ConfigUpdate,
+                (NotificationListener) configUpdateNotificationListenerInterface);
+        } else {
+            return addNotificationListener(NotificationType.ConfigUpdate, new ConfigUpdateNotificationListener() {
+                @Override
+                public void onConfigUpdate(@Nonnull ProjectConfigDiff diff) {
+                    configUpdateNotificationListenerInterface.onConfigUpdate(diff);
+                }
+            });
+        }
+    }
+
     /**
      * Add a notification listener to the notification center.
      *
@@ -188,6 +212,16 @@ public class NotificationCenter {
         notificationsListeners.get(notificationType).clear();
     }
 
+    /**
+     * Lets callers skip building the arguments of a notification nobody listens to.
+     *
+     * @param notificationType type of notificationsListeners to look for.
+     * @return whether at least one listener is registered for the type.
+     */
+    public boolean hasNotificationListeners(NotificationType notificationType) {
+        return !notificationsListeners.get(notificationType).isEmpty();
+    }
+
     // fire a notificaiton of a certain type.  The arg list changes depending on the type of notification sent.
     public void sendNotifications(NotificationType notificationType, Object... args) {
         ArrayList<NotificationHolder> holders = notificationsListeners.get(notificationType);
@@ -17,6 +17,10 @@
 package com.optimizely.ab;
 
 import com.optimizely.ab.bucketing.UserProfileService;
+import com.optimizely.ab.config.AtomicProjectConfigManager;
+import com.optimizely.ab.config.ProjectConfig;
+import com.optimizely.ab.config.ProjectConfigManager;
+import com.optimizely.ab.config.ProjectConfigRegistry;
 import com.optimizely.ab.config.ProjectConfigTestUtils;
 import com.optimizely.ab.config.parser.ConfigParseException;
 import com.optimizely.ab.error.ErrorHandler;
@@ -33,11 +37,17 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import static com.optimizely.ab.config.ProjectConfigTestUtils.*;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 /**
@@ -152,6 +162,157 @@ public class OptimizelyBuilderTest {
         assertThat(((EventFactory) optimizelyClient.eventFactory).clientVersion, is("0.0.0"));
     }
 
+    @Test
+    public void withConfigRegistry() throws Exception {
+        ProjectConfigRegistry registry = new ProjectConfigRegistry(10, 0, TimeUnit.NANOSECONDS);
+        Optimizely first = Optimizely.builder(validConfigJsonV4(), mockEventHandler)
+            .withConfigRegistry(registry)
+            .build();
+        Optimizely second = Optimizely.builder(validConfigJsonV4(), mockEventHandler)
+            .withConfigRegistry(registry)
+            .build();
+
+        assertThat(second.getProjectConfig(), sameInstance(first.getProjectConfig()));
+        assertThat(registry.size(), is(1));
+
+        first.close();
+        second.close();
+        assertThat(registry.size(), is(0));
+    }
+
+    @Test
+    public void withConfigRegistryDoesNotShareForcedVariations() throws Exception {
+        ProjectConfigRegistry registry = new ProjectConfigRegistry(10, 0, TimeUnit.NANOSECONDS);
+        Optimizely first = Optimizely.builder(validConfigJsonV3(), mockEventHandler)
+            .withConfigRegistry(registry)
+            .build();
+        Optimizely second = Optimizely.builder(validConfigJsonV3(), mockEventHandler)
+            .withConfigRegistry(registry)
+            .build();
+
+        assertTrue(first.setForcedVariation("etag1", "testUser1", "vtag2"));
+
+        assertThat(first.getForcedVariation("etag1", "testUser1").getKey(), is("vtag2"));
+        assertNull(second.getForcedVariation("etag1", "testUser1"));
+
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void withConfigRegistryAndConfigManager() throws Exception {
+        thrown.expect(IllegalArgumentException.class);
+        Optimizely.builder()
+            .withConfigManager(new AtomicProjectConfigManager(validProjectConfigV4()))
+            .withConfigRegistry(new ProjectConfigRegistry(10, 0, TimeUnit.NANOSECONDS))
+            .withEventHandler(mockEventHandler)
+            .build();
+    }
+
+    @Test
+    public void buildAsyncParsesDatafile() throws Exception {
+        Optimizely optimizelyClient = Optimizely.builder(validConfigJsonV4(), mockEventHandler)
+            .buildAsync()
+            .get(5, TimeUnit.SECONDS);
+
+        assertTrue(optimizelyClient.isValid());
+        optimizelyClient.close();
+    }
+
+    @Test
+    public void buildAsyncWithInvalidDatafileCompletesWithInvalidInstance() throws Exception {
+        Optimizely optimizelyClient = Optimizely.builder("{invalidDatafile}", mockEventHandler)
+            .withStartupTimeout(1, TimeUnit.MINUTES)
+            .buildAsync()
+            .get(5, TimeUnit.SECONDS);
+
+        assertFalse(optimizelyClient.isValid());
+    }
+
+    @Test
+    public void startupFutureCompletesAfterTimeoutAndClientSwitchesOverLater() throws Exception {
+        AtomicProjectConfigManager projectConfigManager = new AtomicProjectConfigManager();
+        Optimizely optimizelyClient = Optimizely.builder()
+            .withConfigManager(projectConfigManager)
+            .withEventHandler(mockEventHandler)
+            .withStartupTimeout(10, TimeUnit.MILLISECONDS)
+            .build();
+
+        assertThat(optimizelyClient.getStartupFuture().get(5, TimeUnit.SECONDS), sameInstance(optimizelyClient));
+        assertFalse(optimizelyClient.isValid());
+        assertFalse(optimizelyClient.isFeatureEnabled("boolean_feature", "user"));
+
+        projectConfigManager.setConfig(validProjectConfigV4());
+        assertTrue(optimizelyClient.isValid());
+        optimizelyClient.close();
+    }
+
+    @Test
+    public void startupFutureCompletesWhenConfigManagerPublishes() throws Exception {
+        AtomicProjectConfigManager projectConfigManager = new AtomicProjectConfigManager();
+        Optimizely optimizelyClient = Optimizely.builder()
+            .withConfigManager(projectConfigManager)
+            .withEventHandler(mockEventHandler)
+            .withStartupTimeout(1, TimeUnit.MINUTES)
+            .build();
+
+        assertFalse(optimizelyClient.getStartupFuture().isDone());
+
+        projectConfigManager.setConfig(validProjectConfigV4());
+        assertTrue(optimizelyClient.getStartupFuture().isDone());
+        assertTrue(optimizelyClient.isValid());
+        optimizelyClient.close();
+    }
+
+    @Test
+    public void startupDoesNotBlockOnConfigManager() throws Exception {
+        final CountDownLatch released = new CountDownLatch(1);
+        final ProjectConfig projectConfig = validProjectConfigV4();
+        // blocks until released, like a polling manager waiting for its first fetch
+        ProjectConfigManager blockingManager = new ProjectConfigManager() {
+            @Override
+            public ProjectConfig getConfig() {
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+                return projectConfig;
+            }
+        };
+        Optimizely optimizelyClient = Optimizely.builder()
+            .withConfigManager(blockingManager)
+            .withEventHandler(mockEventHandler)
+            .withStartupTimeout(1, TimeUnit.MINUTES)
+            .build();
+
+        assertFalse(optimizelyClient.isValid());
+        assertNull(optimizelyClient.activate("basic_experiment", "user"));
+        assertFalse(optimizelyClient.getStartupFuture().isDone());
+
+        released.countDown();
+        assertThat(optimizelyClient.getStartupFuture().get(5, TimeUnit.SECONDS), sameInstance(optimizelyClient));
+        assertTrue(optimizelyClient.isValid());
+        optimizelyClient.close();
+    }
+
+    @Test
+    public void startupFutureIsCompletedWithoutStartupTimeout() throws Exception {
+        Optimizely optimizelyClient = Optimizely.builder(validConfigJsonV4(), mockEventHandler)
+            .build();
+
+        assertTrue(optimizelyClient.getStartupFuture().isDone());
+        assertThat(optimizelyClient.getStartupFuture().get(), sameInstance(optimizelyClient));
+    }
+
+    @Test
+    public void withNegativeStartupTimeout() throws Exception {
+        thrown.expect(IllegalArgumentException.class);
+        Optimizely.builder(validConfigJsonV4(), mockEventHandler)
+            .withStartupTimeout(-1, TimeUnit.SECONDS);
+    }
+
     @SuppressFBWarnings(value = "NP_NONNULL_PARAM_VIOLATION", justification = "Testing nullness contract violation")
     @Test
     public void nullDatafileResultsInInvalidOptimizelyInstance() throws Exception {
@@ -20,6 +20,8 @@ import com.google.common.collect.ImmutableMap;
 import com.optimizely.ab.bucketing.Bucketer;
 import com.optimizely.ab.bucketing.DecisionService;
 import com.optimizely.ab.bucketing.FeatureDecision;
+import com.optimizely.ab.bucketing.UserProfileService;
+import com.optimizely.ab.config.AtomicProjectConfigManager;
 import com.optimizely.ab.config.Attribute;
 import com.optimizely.ab.config.EventType;
 import com.optimizely.ab.config.Experiment;
@@ -27,6 +29,7 @@ import com.optimizely.ab.config.FeatureFlag;
 import com.optimizely.ab.config.FeatureVariable;
 import com.optimizely.ab.config.FeatureVariableUsageInstance;
 import com.optimizely.ab.config.ProjectConfig;
+import com.optimizely.ab.config.ProjectConfigDiff;
 import com.optimizely.ab.config.TrafficAllocation;
 import com.optimizely.ab.config.Variation;
 import com.optimizely.ab.config.parser.ConfigParseException;
@@ -40,6 +43,7 @@ import com.optimizely.ab.event.internal.payload.EventBatch;
 import com.optimizely.ab.internal.LogbackVerifier;
 import com.optimizely.ab.internal.ControlAttribute;
 import com.optimizely.ab.notification.ActivateNotificationListener;
+import com.optimizely.ab.notification.ConfigUpdateNotificationListenerInterface;
 import com.optimizely.ab.notification.NotificationCenter;
 import com.optimizely.ab.notification.TrackNotificationListener;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -185,7 +189,7 @@ public class OptimizelyTest {
             testUserAttributes))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, bucketingId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(bucketingId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         logbackVerifier.expectMessage(Level.DEBUG, String.format("No variation for experiment \"%s\" mapped to user \"%s\" in the forced variation map", activatedExperiment.getKey(), testUserId));
@@ -206,7 +210,7 @@ public class OptimizelyTest {
         Variation actualVariation = optimizely.activate(activatedExperiment.getKey(), userId, testUserAttributes);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, bucketingId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(bucketingId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // verify that dispatchEvent was called with the correct LogEvent object
@@ -247,7 +251,7 @@ public class OptimizelyTest {
             testUserAttributes))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, bucketingId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(bucketingId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         logbackVerifier.expectMessage(Level.DEBUG, String.format("No variation for experiment \"%s\" mapped to user \"%s\" in the forced variation map", activatedExperiment.getKey(), testUserId));
@@ -268,7 +272,7 @@ public class OptimizelyTest {
         Variation actualVariation = optimizely.activate(activatedExperiment.getKey(), userId, testUserAttributes);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, bucketingId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(bucketingId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // verify that dispatchEvent was called with the correct LogEvent object
@@ -307,14 +311,14 @@ public class OptimizelyTest {
             testUserAttributes))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, bucketingId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(bucketingId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         // activate the experiment
         Variation actualVariation = optimizely.activate(activatedExperiment.getKey(), userId, testUserAttributes);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, bucketingId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(bucketingId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // verify that dispatchEvent was called with the correct LogEvent object
@@ -353,14 +357,14 @@ public class OptimizelyTest {
             testUserAttributes))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, bucketingId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(bucketingId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         // activate the experiment
         Variation actualVariation = optimizely.activate(activatedExperiment.getKey(), userId, testUserAttributes);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, bucketingId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(bucketingId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // verify that dispatchEvent was called with the correct LogEvent object
@@ -401,7 +405,7 @@ public class OptimizelyTest {
             testUserAttributes))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, bucketingId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(bucketingId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         logbackVerifier.expectMessage(Level.DEBUG, String.format("No variation for experiment \"%s\" mapped to user \"%s\" in the forced variation map", activatedExperiment.getKey(), testUserId));
@@ -422,7 +426,7 @@ public class OptimizelyTest {
         Variation actualVariation = optimizely.activate(activatedExperiment.getKey(), userId, testUserAttributes);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, bucketingId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(bucketingId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // verify that dispatchEvent was called with the correct LogEvent object
@@ -463,7 +467,7 @@ public class OptimizelyTest {
             testUserAttributes))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, bucketingId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(bucketingId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         logbackVerifier.expectMessage(Level.DEBUG, String.format("No variation for experiment \"%s\" mapped to user \"%s\" in the forced variation map", activatedExperiment.getKey(), testUserId));
@@ -484,7 +488,7 @@ public class OptimizelyTest {
         Variation actualVariation = optimizely.activate(activatedExperiment.getKey(), userId, testUserAttributes);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, bucketingId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(bucketingId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // verify that dispatchEvent was called with the correct LogEvent object
@@ -524,7 +528,7 @@ public class OptimizelyTest {
             testUserAttributes))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, bucketingId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(bucketingId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         // activate the experiment
@@ -574,7 +578,7 @@ public class OptimizelyTest {
             testUserAttributes))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, bucketingId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(bucketingId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         logbackVerifier.expectMessage(Level.DEBUG, String.format("No variation for experiment \"%s\" mapped to user \"%s\" in the forced variation map", activatedExperiment.getKey(), testUserId));
@@ -595,7 +599,7 @@ public class OptimizelyTest {
         Variation actualVariation = optimizely.activate(activatedExperiment.getKey(), userId, testUserAttributes);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, bucketingId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(bucketingId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // verify that dispatchEvent was called with the correct LogEvent object
@@ -621,7 +625,7 @@ public class OptimizelyTest {
         testUserAttributes.put(testBucketingIdKey,
             testBucketingId);
 
-        when(mockBucketer.bucket(activatedExperiment, testBucketingId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testBucketingId), any(ProjectConfig.class)))
             .thenReturn(null);
 
         logbackVerifier.expectMessage(Level.INFO, "Not activating user \"userId\" for experiment \"" +
@@ -631,7 +635,7 @@ public class OptimizelyTest {
         Variation actualVariation = optimizely.activate(activatedExperiment.getKey(), testUserId, testUserAttributes);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, testBucketingId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(testBucketingId), any(ProjectConfig.class));
         assertNull(actualVariation);
 
         // verify that dispatchEvent was NOT called
@@ -657,7 +661,7 @@ public class OptimizelyTest {
             .withErrorHandler(new RaiseExceptionErrorHandler())
             .build();
 
-        when(mockBucketer.bucket(unknownExperiment, testUserId))
+        when(mockBucketer.bucket(eq(unknownExperiment), eq(testUserId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         optimizely.activate(unknownExperiment, testUserId);
@@ -698,7 +702,7 @@ public class OptimizelyTest {
             eq(testUserId), eq(testUserAttributes)))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, testBucketingId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testBucketingId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         // activate the experiment
@@ -749,7 +753,7 @@ public class OptimizelyTest {
             eq(testUserId), eq(testUserAttributes)))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, testBucketingId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testBucketingId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         // activate the experiment
@@ -842,17 +846,17 @@ public class OptimizelyTest {
             eq(testUserId), eq(testUserAttributes)))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, testUserId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testUserId), any(ProjectConfig.class)))
             .thenReturn(userIdBucketVariation);
 
-        when(mockBucketer.bucket(activatedExperiment, testBucketingId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testBucketingId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         // activate the experiment
         Variation actualVariation = optimizely.activate(activatedExperiment.getKey(), testUserId, testUserAttributes);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, testBucketingId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(testBucketingId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // verify that dispatchEvent was called with the correct LogEvent object
@@ -926,10 +930,10 @@ public class OptimizelyTest {
             eq(testUserId), anyMapOf(String.class, String.class)))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, testUserId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testUserId), any(ProjectConfig.class)))
             .thenReturn(userIdBucketedVariation);
 
-        when(mockBucketer.bucket(activatedExperiment, testBucketingId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testBucketingId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         Map<String, String> attr = new HashMap<String, String>();
@@ -942,7 +946,7 @@ public class OptimizelyTest {
             attr);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, testBucketingId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(testBucketingId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // setup the attribute map captor (so we can verify its content)
@@ -984,10 +988,10 @@ public class OptimizelyTest {
             eq(testUserId), anyMapOf(String.class, Object.class)))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, testUserId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testUserId), any(ProjectConfig.class)))
             .thenReturn(userIdBucketedVariation);
 
-        when(mockBucketer.bucket(activatedExperiment, testBucketingId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testBucketingId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         Map<String, Object> attr = new HashMap<>();
@@ -1003,7 +1007,7 @@ public class OptimizelyTest {
             attr);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, testBucketingId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(testBucketingId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // setup the attribute map captor (so we can verify its content)
@@ -1056,7 +1060,7 @@ public class OptimizelyTest {
             eq(testUserId), anyMapOf(String.class, String.class)))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, testUserId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testUserId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         logbackVerifier.expectMessage(Level.INFO, "Activating user \"userId\" in experiment \"" +
@@ -1109,14 +1113,14 @@ public class OptimizelyTest {
             eq(testUserId), eq(attributes)))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, testUserId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testUserId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         // activate the experiment
         Variation actualVariation = optimizely.activate(activatedExperiment.getKey(), testUserId, attributes);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, testUserId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(testUserId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // setup the attribute map captor (so we can verify its content)
@@ -1154,7 +1158,7 @@ public class OptimizelyTest {
             eq(testUserId), anyMapOf(String.class, String.class)))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, testUserId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testUserId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         // activate the experiment
@@ -1163,7 +1167,7 @@ public class OptimizelyTest {
         Variation actualVariation = optimizely.activate(activatedExperiment.getKey(), testUserId, attributes);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, testUserId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(testUserId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // setup the attribute map captor (so we can verify its content)
@@ -1409,7 +1413,7 @@ public class OptimizelyTest {
             attributes.put("browser_type", "chrome");
         }
 
-        when(mockBucketer.bucket(experiment, "user")).thenReturn(variation);
+        when(mockBucketer.bucket(eq(experiment), eq("user"), any(ProjectConfig.class))).thenReturn(variation);
 
         Optimizely optimizely = Optimizely.builder(validDatafile, mockEventHandler)
             .withConfig(validProjectConfig)
@@ -1541,7 +1545,7 @@ public class OptimizelyTest {
 
         Variation expectedVariation = launchedExperiment.getVariations().get(0);
 
-        when(mockBucketer.bucket(launchedExperiment, testUserId))
+        when(mockBucketer.bucket(eq(launchedExperiment), eq(testUserId), any(ProjectConfig.class)))
             .thenReturn(launchedExperiment.getVariations().get(0));
 
         // Force variation to launched experiment.
@@ -1570,7 +1574,7 @@ public class OptimizelyTest {
         assertNull(expectedVariation);
 
         // make sure we didn't even attempt to bucket the user
-        verify(mockBucketer, never()).bucket(any(Experiment.class), anyString());
+        verify(mockBucketer, never()).bucket(any(Experiment.class), anyString(), any(ProjectConfig.class));
     }
 
     //======== track tests ========//
@@ -2251,7 +2255,7 @@ public class OptimizelyTest {
         }
         Bucketer mockBucketAlgorithm = mock(Bucketer.class);
         for (Experiment experiment : validProjectConfig.getExperiments()) {
-            when(mockBucketAlgorithm.bucket(experiment, genericUserId))
+            when(mockBucketAlgorithm.bucket(eq(experiment), eq(genericUserId), any(ProjectConfig.class)))
                 .thenReturn(experiment.getVariations().get(0));
         }
 
@@ -2324,7 +2328,7 @@ public class OptimizelyTest {
         optimizely.track("event_with_launched_and_running_experiments", genericUserId);
 
         // make sure we didn't even attempt to bucket the user or fire any conversion events
-        verify(mockBucketer, never()).bucket(any(Experiment.class), anyString());
+        verify(mockBucketer, never()).bucket(any(Experiment.class), anyString(), any(ProjectConfig.class));
         verify(mockEventHandler, never()).dispatchEvent(any(LogEvent.class));
     }
 
@@ -2345,7 +2349,7 @@ public class OptimizelyTest {
             .withErrorHandler(mockErrorHandler)
             .build();
 
-        when(mockBucketer.bucket(activatedExperiment, testUserId)).thenReturn(bucketedVariation);
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testUserId), any(ProjectConfig.class))).thenReturn(bucketedVariation);
 
         Map<String, String> testUserAttributes = new HashMap<String, String>();
         testUserAttributes.put("browser_type", "chrome");
@@ -2355,7 +2359,7 @@ public class OptimizelyTest {
             testUserAttributes);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, testUserId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(testUserId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // verify that we didn't attempt to dispatch an event
@@ -2377,13 +2381,13 @@ public class OptimizelyTest {
             .withErrorHandler(mockErrorHandler)
             .build();
 
-        when(mockBucketer.bucket(activatedExperiment, testUserId)).thenReturn(bucketedVariation);
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testUserId), any(ProjectConfig.class))).thenReturn(bucketedVariation);
 
         // activate the experiment
         Variation actualVariation = optimizely.getVariation(activatedExperiment.getKey(), testUserId);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, testUserId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(testUserId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // verify that we didn't attempt to dispatch an event
@@ -2442,7 +2446,7 @@ public class OptimizelyTest {
         Experiment experiment = validProjectConfig.getExperiments().get(0);
         Variation bucketedVariation = experiment.getVariations().get(0);
 
-        when(mockBucketer.bucket(experiment, testUserId)).thenReturn(bucketedVariation);
+        when(mockBucketer.bucket(eq(experiment), eq(testUserId), any(ProjectConfig.class))).thenReturn(bucketedVariation);
 
         Optimizely optimizely = Optimizely.builder(validDatafile, mockEventHandler)
             .withConfig(validProjectConfig)
@@ -2455,7 +2459,7 @@ public class OptimizelyTest {
 
         Variation actualVariation = optimizely.getVariation(experiment.getKey(), testUserId, testUserAttributes);
 
-        verify(mockBucketer).bucket(experiment, testUserId);
+        verify(mockBucketer).bucket(eq(experiment), eq(testUserId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
     }
 
@@ -2498,7 +2502,7 @@ public class OptimizelyTest {
         Experiment experiment = noAudienceProjectConfig.getExperiments().get(0);
         Variation bucketedVariation = experiment.getVariations().get(0);
 
-        when(mockBucketer.bucket(experiment, testUserId)).thenReturn(bucketedVariation);
+        when(mockBucketer.bucket(eq(experiment), eq(testUserId), any(ProjectConfig.class))).thenReturn(bucketedVariation);
 
         Optimizely optimizely = Optimizely.builder(noAudienceDatafile, mockEventHandler)
             .withConfig(noAudienceProjectConfig)
@@ -2508,7 +2512,7 @@ public class OptimizelyTest {
 
         Variation actualVariation = optimizely.getVariation(experiment.getKey(), testUserId);
 
-        verify(mockBucketer).bucket(experiment, testUserId);
+        verify(mockBucketer).bucket(eq(experiment), eq(testUserId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
     }
 
@@ -2566,7 +2570,7 @@ public class OptimizelyTest {
             attributes.put("browser_type", "chrome");
         }
 
-        when(mockBucketer.bucket(experiment, "user")).thenReturn(variation);
+        when(mockBucketer.bucket(eq(experiment), eq("user"), any(ProjectConfig.class))).thenReturn(variation);
 
         Optimizely optimizely = Optimizely.builder(validDatafile, mockEventHandler)
             .withConfig(validProjectConfig)
@@ -2631,7 +2635,7 @@ public class OptimizelyTest {
         assertNull(variation);
 
         // make sure we didn't even attempt to bucket the user
-        verify(mockBucketer, never()).bucket(any(Experiment.class), anyString());
+        verify(mockBucketer, never()).bucket(any(Experiment.class), anyString(), any(ProjectConfig.class));
     }
 
     //======== Notification listeners ========//
@@ -2684,7 +2688,7 @@ public class OptimizelyTest {
             eq(testUserId), eq(testUserAttributes)))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, testBucketingId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testBucketingId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
 
@@ -2693,7 +2697,7 @@ public class OptimizelyTest {
 
         assertTrue(optimizely.notificationCenter.removeNotificationListener(notificationId));
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, testBucketingId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(testBucketingId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // verify that dispatchEvent was called with the correct LogEvent object
@@ -2723,7 +2727,7 @@ public class OptimizelyTest {
             eq(testUserId), eq(attributes)))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, testUserId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(testUserId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         ActivateNotificationListener activateNotification = new ActivateNotificationListener() {
@@ -2747,7 +2751,7 @@ public class OptimizelyTest {
         optimizely.notificationCenter.removeNotificationListener(notificationId);
 
         // verify that the bucketing algorithm was called correctly
-        verify(mockBucketer).bucket(activatedExperiment, testUserId);
+        verify(mockBucketer).bucket(eq(activatedExperiment), eq(testUserId), any(ProjectConfig.class));
         assertThat(actualVariation, is(bucketedVariation));
 
         // setup the attribute map captor (so we can verify its content)
@@ -2799,7 +2803,8 @@ public class OptimizelyTest {
         when(mockDecisionService.getVariation(
             eq(activatedExperiment),
             eq(genericUserId),
-            eq(Collections.<String, String>emptyMap())))
+            eq(Collections.<String, String>emptyMap()),
+            any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         // Add listener
@@ -2858,7 +2863,7 @@ public class OptimizelyTest {
             attributes.put("browser_type", "chrome");
         }
 
-        when(mockBucketer.bucket(activatedExperiment, genericUserId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(genericUserId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         when(mockEventFactory.createImpressionEvent(validProjectConfig, activatedExperiment, bucketedVariation, genericUserId,
@@ -2931,7 +2936,7 @@ public class OptimizelyTest {
             bucketedVariation, genericUserId, attributes))
             .thenReturn(logEventToDispatch);
 
-        when(mockBucketer.bucket(activatedExperiment, genericUserId))
+        when(mockBucketer.bucket(eq(activatedExperiment), eq(genericUserId), any(ProjectConfig.class)))
             .thenReturn(bucketedVariation);
 
         // set up argument captor for the attributes map to compare map equality
@@ -3176,7 +3181,8 @@ public class OptimizelyTest {
         verify(mockDecisionService, never()).getVariation(
             any(Experiment.class),
             anyString(),
-            anyMapOf(String.class, String.class));
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class));
     }
 
     /**
@@ -3213,7 +3219,8 @@ public class OptimizelyTest {
         verify(mockDecisionService, never()).getVariation(
             any(Experiment.class),
             anyString(),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
     }
 
@@ -3370,9 +3377,10 @@ public class OptimizelyTest {
 
         FeatureDecision featureDecision = new FeatureDecision(multivariateExperiment, VARIATION_MULTIVARIATE_EXPERIMENT_GRED, FeatureDecision.DecisionSource.EXPERIMENT);
         doReturn(featureDecision).when(mockDecisionService).getVariationForFeature(
-            FEATURE_FLAG_MULTI_VARIATE_FEATURE,
-            genericUserId,
-            Collections.singletonMap(ATTRIBUTE_HOUSE_KEY, AUDIENCE_GRYFFINDOR_VALUE)
+            eq(FEATURE_FLAG_MULTI_VARIATE_FEATURE),
+            eq(genericUserId),
+            eq(Collections.singletonMap(ATTRIBUTE_HOUSE_KEY, AUDIENCE_GRYFFINDOR_VALUE)),
+            any(ProjectConfig.class)
         );
 
         String value = optimizely.getFeatureVariableValueForType(
@@ -3448,7 +3456,8 @@ public class OptimizelyTest {
         verify(mockDecisionService, never()).getVariationForFeature(
             any(FeatureFlag.class),
             any(String.class),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
     }
 
@@ -3485,7 +3494,8 @@ public class OptimizelyTest {
         verify(mockDecisionService, never()).getVariationForFeature(
             any(FeatureFlag.class),
             any(String.class),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
     }
 
@@ -3521,7 +3531,8 @@ public class OptimizelyTest {
         verify(mockDecisionService, never()).getVariation(
             any(Experiment.class),
             anyString(),
-            anyMapOf(String.class, String.class));
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class));
         verify(mockEventHandler, never()).dispatchEvent(any(LogEvent.class));
     }
 
@@ -3548,7 +3559,8 @@ public class OptimizelyTest {
         doReturn(featureDecision).when(mockDecisionService).getVariationForFeature(
             any(FeatureFlag.class),
             anyString(),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
 
         assertFalse(spyOptimizely.isFeatureEnabled(validFeatureKey, genericUserId));
@@ -3566,7 +3578,8 @@ public class OptimizelyTest {
         verify(mockDecisionService).getVariationForFeature(
             eq(FEATURE_FLAG_MULTI_VARIATE_FEATURE),
             eq(genericUserId),
-            eq(Collections.<String, String>emptyMap())
+            eq(Collections.<String, String>emptyMap()),
+            any(ProjectConfig.class)
         );
         verify(mockEventHandler, never()).dispatchEvent(any(LogEvent.class));
     }
@@ -3598,7 +3611,8 @@ public class OptimizelyTest {
         doReturn(featureDecision).when(mockDecisionService).getVariationForFeature(
             eq(FEATURE_FLAG_MULTI_VARIATE_FEATURE),
             eq(genericUserId),
-            eq(Collections.<String, String>emptyMap())
+            eq(Collections.<String, String>emptyMap()),
+            any(ProjectConfig.class)
         );
 
         assertTrue(spyOptimizely.isFeatureEnabled(validFeatureKey, genericUserId));
@@ -3621,7 +3635,8 @@ public class OptimizelyTest {
         verify(mockDecisionService).getVariationForFeature(
             eq(FEATURE_FLAG_MULTI_VARIATE_FEATURE),
             eq(genericUserId),
-            eq(Collections.<String, String>emptyMap())
+            eq(Collections.<String, String>emptyMap()),
+            any(ProjectConfig.class)
         );
         verify(mockEventHandler, never()).dispatchEvent(any(LogEvent.class));
     }
@@ -3694,7 +3709,8 @@ public class OptimizelyTest {
         doReturn(featureDecision).when(mockDecisionService).getVariationForFeature(
             eq(FEATURE_FLAG_MULTI_VARIATE_FEATURE),
             eq(genericUserId),
-            eq(Collections.<String, String>emptyMap())
+            eq(Collections.<String, String>emptyMap()),
+            any(ProjectConfig.class)
         );
 
         assertTrue(spyOptimizely.isFeatureEnabled(validFeatureKey, genericUserId));
@@ -3728,7 +3744,8 @@ public class OptimizelyTest {
         doReturn(featureDecision).when(mockDecisionService).getVariationForFeature(
             eq(FEATURE_FLAG_MULTI_VARIATE_FEATURE),
             eq(genericUserId),
-            eq(Collections.<String, String>emptyMap())
+            eq(Collections.<String, String>emptyMap()),
+            any(ProjectConfig.class)
         );
 
         assertFalse(spyOptimizely.isFeatureEnabled(validFeatureKey, genericUserId));
@@ -3761,7 +3778,8 @@ public class OptimizelyTest {
         doReturn(featureDecision).when(mockDecisionService).getVariationForFeature(
             any(FeatureFlag.class),
             anyString(),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
 
         assertFalse(spyOptimizely.isFeatureEnabled(validFeatureKey, genericUserId));
@@ -3819,7 +3837,8 @@ public class OptimizelyTest {
         assertFalse(isEnabled);
 
         // make sure we didn't even attempt to bucket the user
-        verify(mockDecisionService, never()).getVariationForFeature(any(FeatureFlag.class), anyString(), anyMap());
+        verify(mockDecisionService, never()).getVariationForFeature(any(FeatureFlag.class), anyString(), anyMap(),
+            any(ProjectConfig.class));
     }
 
     /**
@@ -4817,7 +4836,7 @@ public class OptimizelyTest {
         testUserAttributes.put(bucketingKey, bucketingId);
 
 
-        when(mockBucketer.bucket(experiment, bucketingId)).thenReturn(bucketedVariation);
+        when(mockBucketer.bucket(eq(experiment), eq(bucketingId), any(ProjectConfig.class))).thenReturn(bucketedVariation);
 
         Optimizely optimizely = Optimizely.builder(noAudienceDatafile, mockEventHandler)
             .withConfig(noAudienceProjectConfig)
@@ -4827,7 +4846,7 @@ public class OptimizelyTest {
 
         Variation actualVariation = optimizely.getVariation(experiment.getKey(), userId, testUserAttributes);
 
-        verify(mockBucketer).bucket(experiment, bucketingId);
+        verify(mockBucketer).bucket(eq(experiment), eq(bucketingId), any(ProjectConfig.class));
 
         assertThat(actualVariation, is(bucketedVariation));
     }
@@ -4858,6 +4877,189 @@ public class OptimizelyTest {
         assertTrue(optimizely.isValid());
     }
 
+    //======== forced variation tests ========//
+
+    /**
+     * Verify that {@link Optimizely#setForcedVariation(String, String, String)} fails for an experiment key that is
+     * missing, empty or not in the datafile.
+     */
+    @Test
+    @SuppressFBWarnings("NP")
+    public void setForcedVariationWithInvalidExperimentKey() throws Exception {
+        Optimizely optimizely = Optimizely.builder(validDatafile, mockEventHandler).build();
+
+        assertFalse(optimizely.setForcedVariation(null, testUserId, "vtag1"));
+        assertFalse(optimizely.setForcedVariation("", testUserId, "vtag1"));
+        assertFalse(optimizely.setForcedVariation("wrongKey", testUserId, "vtag1"));
+    }
+
+    /**
+     * Verify that {@link Optimizely#getForcedVariation(String, String)} returns null for an experiment key that is
+     * missing, empty or not in the datafile.
+     */
+    @Test
+    @SuppressFBWarnings("NP")
+    public void getForcedVariationWithInvalidExperimentKey() throws Exception {
+        Optimizely optimizely = Optimizely.builder(validDatafile, mockEventHandler).build();
+
+        assertNull(optimizely.getForcedVariation(null, testUserId));
+        assertNull(optimizely.getForcedVariation("", testUserId));
+        assertNull(optimizely.getForcedVariation("wrongKey", testUserId));
+    }
+
+    /**
+     * Verify that clients reading their config from the same config manager don't share forced variations.
+     */
+    @Test
+    public void forcedVariationsAreNotSharedBetweenClients() throws Exception {
+        AtomicProjectConfigManager projectConfigManager = new AtomicProjectConfigManager(validProjectConfig);
+        Optimizely optimizely = Optimizely.builder()
+            .withConfigManager(projectConfigManager)
+            .withEventHandler(mockEventHandler).build();
+        Optimizely otherOptimizely = Optimizely.builder()
+            .withConfigManager(projectConfigManager)
+            .withEventHandler(mockEventHandler).build();
+        Experiment experiment = validProjectConfig.getExperiments().get(0);
+        Variation forcedVariation = experiment.getVariations().get(1);
+
+        assertTrue(optimizely.setForcedVariation(experiment.getKey(), testUserId, forcedVariation.getKey()));
+
+        assertEquals(forcedVariation, optimizely.getForcedVariation(experiment.getKey(), testUserId));
+        assertNull(otherOptimizely.getForcedVariation(experiment.getKey(), testUserId));
+    }
+
+    /**
+     * Verify that a forced variation is kept when the config manager publishes a new config.
+     */
+    @Test
+    public void forcedVariationIsKeptAcrossConfigUpdates() throws Exception {
+        AtomicProjectConfigManager projectConfigManager = new AtomicProjectConfigManager(validProjectConfig);
+        Optimizely optimizely = Optimizely.builder()
+            .withConfigManager(projectConfigManager)
+            .withEventHandler(mockEventHandler).build();
+        Experiment experiment = validProjectConfig.getExperiments().get(0);
+        Variation forcedVariation = experiment.getVariations().get(1);
+
+        assertTrue(optimizely.setForcedVariation(experiment.getKey(), testUserId, forcedVariation.getKey()));
+        projectConfigManager.setConfig(new ProjectConfig.Builder().withDatafile(validDatafile).build());
+
+        assertEquals(forcedVariation.getKey(), optimizely.getForcedVariation(experiment.getKey(), testUserId).getKey());
+    }
+
+    //======== config update notifications ========//
+
+    /**
+     * Verify that replacing the config held by the config manager sends a
+     * {@link NotificationCenter.NotificationType#ConfigUpdate} notification as it is published, once.
+     */
+    @Test
+    public void configUpdateNotificationSentAfterConfigIsReplaced() throws Exception {
+        AtomicProjectConfigManager projectConfigManager = new AtomicProjectConfigManager(validProjectConfig);
+        Optimizely optimizely = Optimizely.builder()
+            .withConfigManager(projectConfigManager)
+            .withEventHandler(mockEventHandler).build();
+        final List<ProjectConfigDiff> diffs = new ArrayList<ProjectConfigDiff>();
+        optimizely.notificationCenter.addConfigUpdateNotificationListener(
+            new ConfigUpdateNotificationListenerInterface() {
+                @Override
+                public void onConfigUpdate(@Nonnull ProjectConfigDiff diff) {
+                    diffs.add(diff);
+                }
+            });
+
+        assertTrue(optimizely.isValid());
+        assertTrue(diffs.isEmpty());
+
+        projectConfigManager.setConfig(new ProjectConfig.Builder().withDatafile(validDatafile).build());
+        assertEquals(1, diffs.size());
+        assertTrue(diffs.get(0).isEmpty());
+        assertEquals(validProjectConfig.getRevision(), diffs.get(0).getPreviousRevision());
+
+        assertTrue(optimizely.isValid());
+        assertTrue(optimizely.isValid());
+        assertEquals(1, diffs.size());
+
+        optimizely.close();
+        projectConfigManager.setConfig(validProjectConfig);
+        assertEquals(1, diffs.size());
+    }
+
+    /**
+     * Verify that a config published with no config before it, after a reset of the config manager, sends a
+     * {@link NotificationCenter.NotificationType#ConfigUpdate} notification with everything in it added.
+     */
+    @Test
+    public void configUpdateNotificationSentForConfigAfterReset() throws Exception {
+        AtomicProjectConfigManager projectConfigManager = new AtomicProjectConfigManager(validProjectConfig);
+        Optimizely optimizely = Optimizely.builder()
+            .withConfigManager(projectConfigManager)
+            .withEventHandler(mockEventHandler).build();
+        final List<ProjectConfigDiff> diffs = new ArrayList<ProjectConfigDiff>();
+        optimizely.notificationCenter.addConfigUpdateNotificationListener(
+            new ConfigUpdateNotificationListenerInterface() {
+                @Override
+                public void onConfigUpdate(@Nonnull ProjectConfigDiff diff) {
+                    diffs.add(diff);
+                }
+            });
+
+        projectConfigManager.setConfig(null);
+        assertTrue(diffs.isEmpty());
+
+        projectConfigManager.setConfig(validProjectConfig);
+        assertEquals(1, diffs.size());
+        assertNull(diffs.get(0).getPreviousRevision());
+        assertEquals(validProjectConfig.getRevision(), diffs.get(0).getRevision());
+        assertTrue(diffs.get(0).getChangedExperimentIds().containsAll(
+            validProjectConfig.getExperimentIdMapping().keySet()));
+
+        optimizely.close();
+    }
+
+    //======== warmup tests ========//
+
+    /**
+     * Verify that {@link Optimizely#warmup(int)} decides without dispatching events, sending notifications or
+     * touching the {@link UserProfileService}.
+     */
+    @Test
+    public void warmupDoesNotDispatchEventsOrUseUserProfileService() throws Exception {
+        UserProfileService userProfileService = mock(UserProfileService.class);
+        Optimizely optimizely = Optimizely.builder(validDatafile, mockEventHandler)
+            .withUserProfileService(userProfileService)
+            .build();
+        ActivateNotificationListener activateListener = mock(ActivateNotificationListener.class);
+        optimizely.notificationCenter.addNotificationListener(NotificationCenter.NotificationType.Activate,
+            activateListener);
+
+        assertTrue(optimizely.warmup(10));
+
+        verify(mockEventHandler, never()).dispatchEvent(any(LogEvent.class));
+        verifyZeroInteractions(userProfileService, activateListener);
+    }
+
+    /**
+     * Verify that {@link Optimizely#warmup(int)} does nothing for a client without a config.
+     */
+    @Test
+    public void warmupOnInvalidClientReturnsFalse() throws Exception {
+        Optimizely optimizely = Optimizely.builder("{invalidDatafile}", mockEventHandler).build();
+
+        logbackVerifier.expectMessage(Level.ERROR, "Optimizely instance is not valid, failing warmup call.");
+        assertFalse(optimizely.warmup(10));
+    }
+
+    /**
+     * Verify that {@link Optimizely#warmup(int)} rejects a negative iteration budget.
+     */
+    @Test
+    public void warmupWithNegativeIterations() throws Exception {
+        Optimizely optimizely = Optimizely.builder(validDatafile, mockEventHandler).build();
+
+        thrown.expect(IllegalArgumentException.class);
+        optimizely.warmup(-1);
+    }
+
     //======== Helper methods ========//
 
     private Experiment createUnknownExperiment() {
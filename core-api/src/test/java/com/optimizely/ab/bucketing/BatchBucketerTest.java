@@ -0,0 +1,97 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.bucketing;
+
+import com.optimizely.ab.bucketing.internal.MurmurHash3;
+import com.optimizely.ab.config.Experiment;
+import com.optimizely.ab.config.ProjectConfig;
+import com.optimizely.ab.config.Variation;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Random;
+
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV4;
+import static com.optimizely.ab.config.ValidProjectConfigV4.EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link BatchBucketer}.
+ */
+public class BatchBucketerTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private ProjectConfig projectConfig;
+    private BatchBucketer batchBucketer;
+    private Bucketer bucketer;
+    private String[] bucketingIds;
+
+    @Before
+    public void setUp() {
+        projectConfig = validProjectConfigV4();
+        batchBucketer = new BatchBucketer(projectConfig);
+        bucketer = new Bucketer(projectConfig);
+
+        Random random = new Random(42);
+        bucketingIds = new String[1000];
+        for (int i = 0; i < bucketingIds.length; i++) {
+            StringBuilder bucketingId = new StringBuilder("user_");
+            for (int j = random.nextInt(8); j > 0; j--) {
+                // include ids that aren't plain ASCII
+                bucketingId.append(random.nextInt(4) == 0 ? (char) (0xC0 + random.nextInt(0x1000)) : 'a');
+            }
+            bucketingIds[i] = bucketingId.append(i).toString();
+        }
+    }
+
+    @Test
+    public void bucketValuesMatchMurmurHash() {
+        String salt = EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1.getId();
+        int[] bucketValues = new int[bucketingIds.length];
+        batchBucketer.bucketValues(salt, bucketingIds, bucketValues);
+
+        for (int i = 0; i < bucketingIds.length; i++) {
+            String combinedBucketId = bucketingIds[i] + salt;
+            int hashCode = MurmurHash3.murmurhash3_x86_32(combinedBucketId, 0, combinedBucketId.length(),
+                Bucketer.MURMUR_HASH_SEED);
+            assertEquals(bucketer.generateBucketValue(hashCode), bucketValues[i]);
+        }
+    }
+
+    @Test
+    public void variationOrdinalsMatchBucketer() {
+        int[] variationOrdinals = new int[bucketingIds.length];
+        for (Experiment experiment : projectConfig.getExperiments()) {
+            batchBucketer.variationOrdinals(experiment, bucketingIds, variationOrdinals);
+
+            for (int i = 0; i < bucketingIds.length; i++) {
+                Variation variation = bucketer.bucket(experiment, bucketingIds[i], projectConfig);
+                assertEquals(experiment.getVariations().indexOf(variation), variationOrdinals[i]);
+            }
+        }
+    }
+
+    @Test
+    public void shortResultsArrayIsRejected() {
+        thrown.expect(IllegalArgumentException.class);
+        batchBucketer.bucketValues("1", bucketingIds, new int[bucketingIds.length - 1]);
+    }
+}
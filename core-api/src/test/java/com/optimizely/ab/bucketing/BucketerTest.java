@@ -34,6 +34,7 @@ import org.junit.rules.ExpectedException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV2;
@@ -66,6 +67,24 @@ public class BucketerTest {
             actual > 0 && actual < Bucketer.MAX_TRAFFIC_VALUE);
     }
 
+    /**
+     * Verify that {@link Bucketer#generateBucketValue(int)} assigns the same bucket values as the floating point
+     * mapping it replaced, floor({@link Bucketer#MAX_TRAFFIC_VALUE} * unsigned hashCode / 2^32).
+     */
+    @Test
+    public void generateBucketValueMatchesFloatingPointMapping() throws Exception {
+        Bucketer algorithm = new Bucketer(validProjectConfigV2());
+        Random random = new Random(1);
+        for (int i = 0; i < 1000000; i++) {
+            int hashCode = i < 1000 ? Integer.MIN_VALUE + i - 500 : random.nextInt();
+            double ratio = (double) (hashCode & 0xFFFFFFFFL) / Math.pow(2, 32);
+            int expected = (int) Math.floor(Bucketer.MAX_TRAFFIC_VALUE * ratio);
+            assertThat(algorithm.generateBucketValue(hashCode), is(expected));
+        }
+        assertThat(algorithm.generateBucketValue(0), is(0));
+        assertThat(algorithm.generateBucketValue(-1), is(Bucketer.MAX_TRAFFIC_VALUE - 1));
+    }
+
     /**
      * Verify that across the entire 32-bit hashCode space, all generated bucket values fall within the range
      * [0, {@link Bucketer#MAX_TRAFFIC_VALUE}) and that there's an even distribution over 50/50 split.
@@ -0,0 +1,128 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.bucketing;
+
+import com.optimizely.ab.bucketing.BucketingSimulator.Distribution;
+import com.optimizely.ab.bucketing.BucketingSimulator.Report;
+import com.optimizely.ab.bucketing.BucketingSimulator.UserIdGenerator;
+import com.optimizely.ab.config.Experiment;
+import com.optimizely.ab.config.ProjectConfig;
+import com.optimizely.ab.config.Variation;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV4;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link BucketingSimulator}.
+ */
+public class BucketingSimulatorTest {
+
+    private ProjectConfig projectConfig;
+    private BucketingSimulator simulator;
+
+    @Before
+    public void setUp() {
+        projectConfig = validProjectConfigV4();
+        simulator = new BucketingSimulator(projectConfig, new ForkJoinPool(4));
+    }
+
+    @Test
+    public void countsMatchBucketer() {
+        // not a multiple of the chunk size
+        int sampleSize = 3 * BucketingSimulator.CHUNK_SIZE + 17;
+        UserIdGenerator userIds = BucketingSimulator.sequentialUserIds("user_");
+        Report report = simulator.simulate(userIds, sampleSize);
+
+        assertEquals(sampleSize, report.getSampleSize());
+        assertEquals(projectConfig.getExperiments().size(), report.getExperiments().size());
+
+        Bucketer bucketer = new Bucketer(projectConfig);
+        for (int i = 0; i < projectConfig.getExperiments().size(); i++) {
+            Experiment experiment = projectConfig.getExperiments().get(i);
+            Distribution distribution = report.getExperiments().get(i);
+            long[] expected = new long[experiment.getVariations().size() + 1];
+            for (long index = 0; index < sampleSize; index++) {
+                Variation variation = bucketer.bucket(experiment, userIds.getUserId(index), projectConfig);
+                expected[variation == null ? expected.length - 1 : experiment.getVariations().indexOf(variation)]++;
+            }
+
+            assertEquals(experiment.getKey(), distribution.getKey());
+            for (int category = 0; category < expected.length; category++) {
+                assertEquals(expected[category], distribution.getCount(category));
+            }
+        }
+    }
+
+    @Test
+    public void readerMatchesGenerator() throws Exception {
+        int sampleSize = BucketingSimulator.CHUNK_SIZE + 1;
+        UserIdGenerator userIds = BucketingSimulator.randomUserIds(42);
+        StringBuilder lines = new StringBuilder();
+        for (long index = 0; index < sampleSize; index++) {
+            lines.append(userIds.getUserId(index)).append("\n\n");
+        }
+
+        Report generated = simulator.simulate(userIds, sampleSize);
+        Report read = simulator.simulate(new StringReader(lines.toString()));
+
+        assertEquals(sampleSize, read.getSampleSize());
+        assertEquals(generated.toString(), read.toString());
+    }
+
+    @Test
+    public void distributionsFollowTrafficAllocation() {
+        Report report = simulator.simulate(BucketingSimulator.randomUserIds(42), 200000);
+
+        assertTrue(report.getGroups().size() > 0);
+        for (Distribution distribution : report.getExperiments()) {
+            assertDistributionFollowsTrafficAllocation(distribution);
+        }
+        for (Distribution distribution : report.getGroups()) {
+            assertDistributionFollowsTrafficAllocation(distribution);
+        }
+    }
+
+    @Test
+    public void chiSquarePValue() {
+        assertEquals(1, BucketingSimulator.chiSquarePValue(0, 3), 0);
+        assertEquals(0.05, BucketingSimulator.chiSquarePValue(3.841, 1), 1e-4);
+        assertEquals(0.05, BucketingSimulator.chiSquarePValue(18.307, 10), 1e-4);
+        assertEquals(0.5, BucketingSimulator.chiSquarePValue(1.386, 2), 1e-3);
+        assertEquals(0.001, BucketingSimulator.chiSquarePValue(27.877, 9), 1e-5);
+        assertEquals(0, BucketingSimulator.chiSquarePValue(Double.POSITIVE_INFINITY, 1), 0);
+    }
+
+    private static void assertDistributionFollowsTrafficAllocation(Distribution distribution) {
+        double expectedTotal = 0;
+        long total = 0;
+        for (int category = 0; category < distribution.getCategories().size(); category++) {
+            expectedTotal += distribution.getExpectedShare(category);
+            total += distribution.getCount(category);
+        }
+
+        assertEquals(200000, total);
+        assertEquals(1, expectedTotal, 1e-9);
+        // the user ids are fixed, so this is deterministic
+        assertTrue(distribution.toString(), distribution.getPValue() > 1e-4);
+    }
+}
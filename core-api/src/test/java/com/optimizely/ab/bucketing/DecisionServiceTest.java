@@ -43,6 +43,7 @@ import ch.qos.logback.classic.Level;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import static com.optimizely.ab.config.ProjectConfigTestUtils.noAudienceProjectConfigV3;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV3;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV2;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV3;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV4;
@@ -130,7 +131,7 @@ public class DecisionServiceTest {
         assertThat(decisionService.getVariation(experiment, whitelistedUserId, Collections.<String, String>emptyMap()), is(expectedVariation));
 
         verify(decisionService).getWhitelistedVariation(experiment, whitelistedUserId);
-        verify(decisionService, never()).getStoredVariation(eq(experiment), any(UserProfile.class));
+        verify(decisionService, never()).getStoredVariation(eq(experiment), any(UserProfile.class), any(ProjectConfig.class));
     }
 
     /**
@@ -149,15 +150,15 @@ public class DecisionServiceTest {
         assertNull(decisionService.getVariation(experiment, genericUserId, Collections.<String, String>emptyMap()));
 
         // set the runtimeForcedVariation
-        validProjectConfig.setForcedVariation(experiment.getKey(), whitelistedUserId, expectedVariation.getKey());
+        decisionService.setForcedVariation(experiment, whitelistedUserId, expectedVariation.getKey());
         // no attributes provided for a experiment that has an audience
         assertThat(decisionService.getVariation(experiment, whitelistedUserId, Collections.<String, String>emptyMap()), is(expectedVariation));
 
-        //verify(decisionService).getForcedVariation(experiment.getKey(), whitelistedUserId);
-        verify(decisionService, never()).getStoredVariation(eq(experiment), any(UserProfile.class));
+        verify(decisionService).getForcedVariation(experiment, whitelistedUserId);
+        verify(decisionService, never()).getStoredVariation(eq(experiment), any(UserProfile.class), any(ProjectConfig.class));
         assertEquals(decisionService.getWhitelistedVariation(experiment, whitelistedUserId), whitelistVariation);
-        assertTrue(validProjectConfig.setForcedVariation(experiment.getKey(), whitelistedUserId, null));
-        assertNull(validProjectConfig.getForcedVariation(experiment.getKey(), whitelistedUserId));
+        assertTrue(decisionService.setForcedVariation(experiment, whitelistedUserId, null));
+        assertNull(decisionService.getForcedVariation(experiment, whitelistedUserId));
         assertThat(decisionService.getVariation(experiment, whitelistedUserId, Collections.<String, String>emptyMap()), is(whitelistVariation));
     }
 
@@ -176,13 +177,13 @@ public class DecisionServiceTest {
         assertNull(decisionService.getVariation(experiment, genericUserId, Collections.<String, String>emptyMap()));
 
         // set the runtimeForcedVariation
-        validProjectConfig.setForcedVariation(experiment.getKey(), genericUserId, expectedVariation.getKey());
+        decisionService.setForcedVariation(experiment, genericUserId, expectedVariation.getKey());
         // no attributes provided for a experiment that has an audience
         assertThat(decisionService.getVariation(experiment, genericUserId, Collections.<String, String>emptyMap()), is(expectedVariation));
 
-        verify(decisionService, never()).getStoredVariation(eq(experiment), any(UserProfile.class));
-        assertEquals(validProjectConfig.setForcedVariation(experiment.getKey(), genericUserId, null), true);
-        assertNull(validProjectConfig.getForcedVariation(experiment.getKey(), genericUserId));
+        verify(decisionService, never()).getStoredVariation(eq(experiment), any(UserProfile.class), any(ProjectConfig.class));
+        assertEquals(decisionService.setForcedVariation(experiment, genericUserId, null), true);
+        assertNull(decisionService.getForcedVariation(experiment, genericUserId));
     }
 
     /**
@@ -211,11 +212,11 @@ public class DecisionServiceTest {
             decisionService.getVariation(experiment, userProfileId, Collections.<String, String>emptyMap()));
 
         Variation forcedVariation = experiment.getVariations().get(1);
-        validProjectConfig.setForcedVariation(experiment.getKey(), userProfileId, forcedVariation.getKey());
+        decisionService.setForcedVariation(experiment, userProfileId, forcedVariation.getKey());
         assertEquals(forcedVariation,
             decisionService.getVariation(experiment, userProfileId, Collections.<String, String>emptyMap()));
-        assertTrue(validProjectConfig.setForcedVariation(experiment.getKey(), userProfileId, null));
-        assertNull(validProjectConfig.getForcedVariation(experiment.getKey(), userProfileId));
+        assertTrue(decisionService.setForcedVariation(experiment, userProfileId, null));
+        assertNull(decisionService.getForcedVariation(experiment, userProfileId));
 
 
     }
@@ -271,14 +272,14 @@ public class DecisionServiceTest {
             "Experiment \"etag2\" is not running.", times(3));
 
         // set a forced variation on the user that got back null
-        assertTrue(validProjectConfig.setForcedVariation(experiment.getKey(), "userId", variation.getKey()));
+        assertTrue(decisionService.setForcedVariation(experiment, "userId", variation.getKey()));
 
         // ensure that a user with a forced variation set
         // still gets back a null variation if the variation is not running.
         assertNull(decisionService.getVariation(experiment, "userId", Collections.<String, String>emptyMap()));
 
         // set the forced variation back to null
-        assertTrue(validProjectConfig.setForcedVariation(experiment.getKey(), "userId", null));
+        assertTrue(decisionService.setForcedVariation(experiment, "userId", null));
         // test one more time that the getVariation returns null for the experiment that is not running.
         assertNull(decisionService.getVariation(experiment, "userId", Collections.<String, String>emptyMap()));
 
@@ -338,7 +339,7 @@ public class DecisionServiceTest {
         DecisionService spyDecisionService = spy(new DecisionService(
             mock(Bucketer.class),
             mockErrorHandler,
-            validProjectConfig,
+            v4ProjectConfig,
             null)
         );
 
@@ -346,13 +347,15 @@ public class DecisionServiceTest {
         doReturn(null).when(spyDecisionService).getVariation(
             any(Experiment.class),
             anyString(),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
         // do not bucket to any rollouts
         doReturn(new FeatureDecision(null, null, null)).when(spyDecisionService).getVariationForFeatureInRollout(
             any(FeatureFlag.class),
             anyString(),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
 
         // try to get a variation back from the decision service for the feature flag
@@ -368,7 +371,7 @@ public class DecisionServiceTest {
             "The user \"" + genericUserId + "\" was not bucketed into a rollout for feature flag \"" +
                 FEATURE_MULTI_VARIATE_FEATURE_KEY + "\".");
 
-        verify(spyFeatureFlag, times(2)).getExperimentIds();
+        verify(spyFeatureFlag, times(1)).getExperimentIds();
         verify(spyFeatureFlag, times(1)).getKey();
     }
 
@@ -391,13 +394,15 @@ public class DecisionServiceTest {
         doReturn(null).when(spyDecisionService).getVariation(
             eq(ValidProjectConfigV4.EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1),
             anyString(),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
 
         doReturn(ValidProjectConfigV4.VARIATION_MUTEX_GROUP_EXP_2_VAR_1).when(spyDecisionService).getVariation(
             eq(ValidProjectConfigV4.EXPERIMENT_MUTEX_GROUP_EXPERIMENT_2),
             anyString(),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
 
         FeatureDecision featureDecision = spyDecisionService.getVariationForFeature(
@@ -408,7 +413,7 @@ public class DecisionServiceTest {
         assertEquals(ValidProjectConfigV4.VARIATION_MUTEX_GROUP_EXP_2_VAR_1, featureDecision.variation);
         assertEquals(FeatureDecision.DecisionSource.EXPERIMENT, featureDecision.decisionSource);
 
-        verify(spyFeatureFlag, times(2)).getExperimentIds();
+        verify(spyFeatureFlag, times(1)).getExperimentIds();
         verify(spyFeatureFlag, never()).getKey();
     }
 
@@ -442,7 +447,8 @@ public class DecisionServiceTest {
             .when(decisionService).getVariation(
             eq(featureExperiment),
             anyString(),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
 
         // return variation for rollout
@@ -450,7 +456,8 @@ public class DecisionServiceTest {
             .when(decisionService).getVariationForFeatureInRollout(
             eq(featureFlag),
             anyString(),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
 
         // make sure we get the right variation back
@@ -466,14 +473,16 @@ public class DecisionServiceTest {
         verify(decisionService, never()).getVariationForFeatureInRollout(
             any(FeatureFlag.class),
             anyString(),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
 
         // make sure we ask for experiment bucketing once
         verify(decisionService, times(1)).getVariation(
             any(Experiment.class),
             anyString(),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
     }
 
@@ -505,7 +514,8 @@ public class DecisionServiceTest {
             .when(decisionService).getVariation(
             eq(featureExperiment),
             anyString(),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
 
         // return variation for rollout
@@ -513,7 +523,8 @@ public class DecisionServiceTest {
             .when(decisionService).getVariationForFeatureInRollout(
             eq(featureFlag),
             anyString(),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
 
         // make sure we get the right variation back
@@ -529,14 +540,16 @@ public class DecisionServiceTest {
         verify(decisionService, times(1)).getVariationForFeatureInRollout(
             any(FeatureFlag.class),
             anyString(),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
 
         // make sure we ask for experiment bucketing once
         verify(decisionService, times(1)).getVariation(
             any(Experiment.class),
             anyString(),
-            anyMapOf(String.class, String.class)
+            anyMapOf(String.class, String.class),
+            any(ProjectConfig.class)
         );
 
         logbackVerifier.expectMessage(
@@ -588,7 +601,7 @@ public class DecisionServiceTest {
     @Test
     public void getVariationForFeatureInRolloutReturnsNullWhenUserIsExcludedFromAllTraffic() {
         Bucketer mockBucketer = mock(Bucketer.class);
-        when(mockBucketer.bucket(any(Experiment.class), anyString())).thenReturn(null);
+        when(mockBucketer.bucket(any(Experiment.class), anyString(), any(ProjectConfig.class))).thenReturn(null);
 
         DecisionService decisionService = new DecisionService(
             mockBucketer,
@@ -610,7 +623,7 @@ public class DecisionServiceTest {
         // with fall back bucketing, the user has at most 2 chances to get bucketed with traffic allocation
         // one chance with the audience rollout rule
         // one chance with the everyone else rule
-        verify(mockBucketer, atMost(2)).bucket(any(Experiment.class), anyString());
+        verify(mockBucketer, atMost(2)).bucket(any(Experiment.class), anyString(), any(ProjectConfig.class));
     }
 
     /**
@@ -621,7 +634,7 @@ public class DecisionServiceTest {
     @Test
     public void getVariationForFeatureInRolloutReturnsNullWhenUserFailsAllAudiencesAndTraffic() {
         Bucketer mockBucketer = mock(Bucketer.class);
-        when(mockBucketer.bucket(any(Experiment.class), anyString())).thenReturn(null);
+        when(mockBucketer.bucket(any(Experiment.class), anyString(), any(ProjectConfig.class))).thenReturn(null);
 
         DecisionService decisionService = new DecisionService(
             mockBucketer,
@@ -639,7 +652,7 @@ public class DecisionServiceTest {
         assertNull(featureDecision.decisionSource);
 
         // user is only bucketed once for the everyone else rule
-        verify(mockBucketer, times(1)).bucket(any(Experiment.class), anyString());
+        verify(mockBucketer, times(1)).bucket(any(Experiment.class), anyString(), any(ProjectConfig.class));
     }
 
     /**
@@ -653,7 +666,7 @@ public class DecisionServiceTest {
         Rollout rollout = ROLLOUT_2;
         Experiment everyoneElseRule = rollout.getExperiments().get(rollout.getExperiments().size() - 1);
         Variation expectedVariation = everyoneElseRule.getVariations().get(0);
-        when(mockBucketer.bucket(eq(everyoneElseRule), anyString())).thenReturn(expectedVariation);
+        when(mockBucketer.bucket(eq(everyoneElseRule), anyString(), any(ProjectConfig.class))).thenReturn(expectedVariation);
 
         DecisionService decisionService = new DecisionService(
             mockBucketer,
@@ -671,7 +684,7 @@ public class DecisionServiceTest {
         assertEquals(FeatureDecision.DecisionSource.ROLLOUT, featureDecision.decisionSource);
 
         // verify user is only bucketed once for everyone else rule
-        verify(mockBucketer, times(1)).bucket(any(Experiment.class), anyString());
+        verify(mockBucketer, times(1)).bucket(any(Experiment.class), anyString(), any(ProjectConfig.class));
     }
 
     /**
@@ -686,8 +699,8 @@ public class DecisionServiceTest {
         Rollout rollout = ROLLOUT_2;
         Experiment everyoneElseRule = rollout.getExperiments().get(rollout.getExperiments().size() - 1);
         Variation expectedVariation = everyoneElseRule.getVariations().get(0);
-        when(mockBucketer.bucket(any(Experiment.class), anyString())).thenReturn(null);
-        when(mockBucketer.bucket(eq(everyoneElseRule), anyString())).thenReturn(expectedVariation);
+        when(mockBucketer.bucket(any(Experiment.class), anyString(), any(ProjectConfig.class))).thenReturn(null);
+        when(mockBucketer.bucket(eq(everyoneElseRule), anyString(), any(ProjectConfig.class))).thenReturn(expectedVariation);
 
         DecisionService decisionService = new DecisionService(
             mockBucketer,
@@ -707,7 +720,7 @@ public class DecisionServiceTest {
         assertEquals(FeatureDecision.DecisionSource.ROLLOUT, featureDecision.decisionSource);
 
         // verify user is only bucketed once for everyone else rule
-        verify(mockBucketer, times(2)).bucket(any(Experiment.class), anyString());
+        verify(mockBucketer, times(2)).bucket(any(Experiment.class), anyString(), any(ProjectConfig.class));
     }
 
     /**
@@ -726,9 +739,9 @@ public class DecisionServiceTest {
         Variation englishCitizenVariation = englishCitizensRule.getVariations().get(0);
         Experiment everyoneElseRule = rollout.getExperiments().get(rollout.getExperiments().size() - 1);
         Variation expectedVariation = everyoneElseRule.getVariations().get(0);
-        when(mockBucketer.bucket(any(Experiment.class), anyString())).thenReturn(null);
-        when(mockBucketer.bucket(eq(everyoneElseRule), anyString())).thenReturn(expectedVariation);
-        when(mockBucketer.bucket(eq(englishCitizensRule), anyString())).thenReturn(englishCitizenVariation);
+        when(mockBucketer.bucket(any(Experiment.class), anyString(), any(ProjectConfig.class))).thenReturn(null);
+        when(mockBucketer.bucket(eq(everyoneElseRule), anyString(), any(ProjectConfig.class))).thenReturn(expectedVariation);
+        when(mockBucketer.bucket(eq(englishCitizensRule), anyString(), any(ProjectConfig.class))).thenReturn(englishCitizenVariation);
 
         DecisionService decisionService = new DecisionService(
             mockBucketer,
@@ -753,7 +766,7 @@ public class DecisionServiceTest {
         assertEquals(FeatureDecision.DecisionSource.ROLLOUT, featureDecision.decisionSource);
 
         // verify user is only bucketed once for everyone else rule
-        verify(mockBucketer, times(2)).bucket(any(Experiment.class), anyString());
+        verify(mockBucketer, times(2)).bucket(any(Experiment.class), anyString(), any(ProjectConfig.class));
     }
 
     /**
@@ -769,9 +782,9 @@ public class DecisionServiceTest {
         Variation englishCitizenVariation = englishCitizensRule.getVariations().get(0);
         Experiment everyoneElseRule = rollout.getExperiments().get(rollout.getExperiments().size() - 1);
         Variation everyoneElseVariation = everyoneElseRule.getVariations().get(0);
-        when(mockBucketer.bucket(any(Experiment.class), anyString())).thenReturn(null);
-        when(mockBucketer.bucket(eq(everyoneElseRule), anyString())).thenReturn(everyoneElseVariation);
-        when(mockBucketer.bucket(eq(englishCitizensRule), anyString())).thenReturn(englishCitizenVariation);
+        when(mockBucketer.bucket(any(Experiment.class), anyString(), any(ProjectConfig.class))).thenReturn(null);
+        when(mockBucketer.bucket(eq(everyoneElseRule), anyString(), any(ProjectConfig.class))).thenReturn(everyoneElseVariation);
+        when(mockBucketer.bucket(eq(englishCitizensRule), anyString(), any(ProjectConfig.class))).thenReturn(englishCitizenVariation);
 
         DecisionService decisionService = new DecisionService(
             mockBucketer,
@@ -791,7 +804,7 @@ public class DecisionServiceTest {
         assertEquals(FeatureDecision.DecisionSource.ROLLOUT, featureDecision.decisionSource);
 
         // verify user is only bucketed once for everyone else rule
-        verify(mockBucketer, times(1)).bucket(any(Experiment.class), anyString());
+        verify(mockBucketer, times(1)).bucket(any(Experiment.class), anyString(), any(ProjectConfig.class));
     }
 
     //========= white list tests ==========/
@@ -852,6 +865,156 @@ public class DecisionServiceTest {
         assertNull(decisionService.getWhitelistedVariation(whitelistedExperiment, genericUserId));
     }
 
+    //======== Forced variation tests =========//
+
+    /**
+     * Invalid User IDs
+     * <p>
+     * User ID is null
+     * User ID is an empty string
+     * Invalid Variation IDs [set only]
+     * <p>
+     * Variation key does not exist in the datafile
+     * Variation key is null
+     * Variation key is an empty string
+     * Multiple set calls [set only]
+     * <p>
+     * Call set variation with different variations on one user/experiment to confirm that each set is expected.
+     * Set variation on multiple variations for one user.
+     * Set variations for multiple users.
+     */
+    /* UserID test */
+    @Test
+    @SuppressFBWarnings("NP")
+    public void setForcedVariationNullUserId() {
+        DecisionService decisionService = forcedVariationDecisionService();
+        boolean b = decisionService.setForcedVariation(forcedExperiment("etag1"), null, "vtag1");
+        assertFalse(b);
+    }
+
+    @Test
+    @SuppressFBWarnings("NP")
+    public void getForcedVariationNullUserId() {
+        DecisionService decisionService = forcedVariationDecisionService();
+        assertNull(decisionService.getForcedVariation(forcedExperiment("etag1"), null));
+    }
+
+    @Test
+    public void setForcedVariationEmptyUserId() {
+        DecisionService decisionService = forcedVariationDecisionService();
+        assertTrue(decisionService.setForcedVariation(forcedExperiment("etag1"), "", "vtag1"));
+        assertNotNull(decisionService.getForcedVariation(forcedExperiment("etag1"), ""));
+    }
+
+    /* Invalid Variation Id (set only */
+    @Test
+    public void setForcedVariationWrongVariationKey() {
+        DecisionService decisionService = forcedVariationDecisionService();
+        assertFalse(decisionService.setForcedVariation(forcedExperiment("etag1"), "testUser1", "vtag3"));
+    }
+
+    @Test
+    public void setForcedVariationNullVariationKey() {
+        DecisionService decisionService = forcedVariationDecisionService();
+        assertFalse(decisionService.setForcedVariation(forcedExperiment("etag1"), "testUser1", null));
+        assertNull(decisionService.getForcedVariation(forcedExperiment("etag1"), "testUser1"));
+    }
+
+    @Test
+    public void setForcedVariationEmptyVariationKey() {
+        DecisionService decisionService = forcedVariationDecisionService();
+        assertFalse(decisionService.setForcedVariation(forcedExperiment("etag1"), "testUser1", ""));
+    }
+
+    /* Multiple set calls (set only */
+    @Test
+    public void setForcedVariationDifferentVariations() {
+        DecisionService decisionService = forcedVariationDecisionService();
+        Experiment etag1 = forcedExperiment("etag1");
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser1", "vtag1"));
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser1", "vtag2"));
+        assertEquals(decisionService.getForcedVariation(etag1, "testUser1").getKey(), "vtag2");
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser1", null));
+    }
+
+    @Test
+    public void setForcedVariationMultipleVariationsExperiments() {
+        DecisionService decisionService = forcedVariationDecisionService();
+        Experiment etag1 = forcedExperiment("etag1");
+        Experiment etag2 = forcedExperiment("etag2");
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser1", "vtag1"));
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser2", "vtag2"));
+        assertTrue(decisionService.setForcedVariation(etag2, "testUser1", "vtag3"));
+        assertTrue(decisionService.setForcedVariation(etag2, "testUser2", "vtag4"));
+        assertEquals(decisionService.getForcedVariation(etag1, "testUser1").getKey(), "vtag1");
+        assertEquals(decisionService.getForcedVariation(etag1, "testUser2").getKey(), "vtag2");
+        assertEquals(decisionService.getForcedVariation(etag2, "testUser1").getKey(), "vtag3");
+        assertEquals(decisionService.getForcedVariation(etag2, "testUser2").getKey(), "vtag4");
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser1", null));
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser2", null));
+        assertTrue(decisionService.setForcedVariation(etag2, "testUser1", null));
+        assertTrue(decisionService.setForcedVariation(etag2, "testUser2", null));
+        assertNull(decisionService.getForcedVariation(etag1, "testUser1"));
+        assertNull(decisionService.getForcedVariation(etag1, "testUser2"));
+        assertNull(decisionService.getForcedVariation(etag2, "testUser1"));
+        assertNull(decisionService.getForcedVariation(etag2, "testUser2"));
+    }
+
+    @Test
+    public void setForcedVariationMultipleUsers() {
+        DecisionService decisionService = forcedVariationDecisionService();
+        Experiment etag1 = forcedExperiment("etag1");
+        Experiment etag2 = forcedExperiment("etag2");
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser1", "vtag1"));
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser2", "vtag1"));
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser3", "vtag1"));
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser4", "vtag1"));
+
+        assertEquals(decisionService.getForcedVariation(etag1, "testUser1").getKey(), "vtag1");
+        assertEquals(decisionService.getForcedVariation(etag1, "testUser2").getKey(), "vtag1");
+        assertEquals(decisionService.getForcedVariation(etag1, "testUser3").getKey(), "vtag1");
+        assertEquals(decisionService.getForcedVariation(etag1, "testUser4").getKey(), "vtag1");
+
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser1", null));
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser2", null));
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser3", null));
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser4", null));
+
+        assertNull(decisionService.getForcedVariation(etag1, "testUser1"));
+        assertNull(decisionService.getForcedVariation(etag1, "testUser2"));
+        assertNull(decisionService.getForcedVariation(etag2, "testUser1"));
+        assertNull(decisionService.getForcedVariation(etag2, "testUser2"));
+    }
+
+    /**
+     * Verify that forced variations are kept by the {@link DecisionService} that set them, so two services deciding
+     * with the same {@link ProjectConfig} don't see each other's.
+     */
+    @Test
+    public void forcedVariationsAreNotSharedBetweenDecisionServices() {
+        DecisionService decisionService = forcedVariationDecisionService();
+        DecisionService otherDecisionService = forcedVariationDecisionService();
+        Experiment etag1 = forcedExperiment("etag1");
+
+        assertTrue(decisionService.setForcedVariation(etag1, "testUser1", "vtag2"));
+
+        assertEquals("vtag2", decisionService.getForcedVariation(etag1, "testUser1").getKey());
+        assertNull(otherDecisionService.getForcedVariation(etag1, "testUser1"));
+    }
+
+    /**
+     * Verify that a forced variation is found with the same experiment of a refreshed config.
+     */
+    @Test
+    public void forcedVariationOutlivesConfigRevision() throws Exception {
+        DecisionService decisionService = forcedVariationDecisionService();
+        assertTrue(decisionService.setForcedVariation(forcedExperiment("etag1"), "testUser1", "vtag2"));
+
+        ProjectConfig refreshedConfig = new ProjectConfig.Builder().withDatafile(validConfigJsonV3()).build();
+        Experiment refreshedExperiment = refreshedConfig.getExperimentKeyMapping().get("etag1");
+        assertEquals("vtag2", decisionService.getForcedVariation(refreshedExperiment, "testUser1").getKey());
+    }
+
     //======== User Profile tests =========//
 
     /**
@@ -959,7 +1122,7 @@ public class DecisionServiceTest {
             Collections.singletonMap(experiment.getId(), decision));
 
         Bucketer mockBucketer = mock(Bucketer.class);
-        when(mockBucketer.bucket(experiment, userProfileId)).thenReturn(variation);
+        when(mockBucketer.bucket(eq(experiment), eq(userProfileId), any(ProjectConfig.class))).thenReturn(variation);
 
         DecisionService decisionService = new DecisionService(mockBucketer,
             mockErrorHandler, noAudienceProjectConfig, userProfileService);
@@ -1022,7 +1185,7 @@ public class DecisionServiceTest {
         DecisionService decisionService = new DecisionService(bucketer, mockErrorHandler, noAudienceProjectConfig,
             userProfileService);
 
-        when(bucketer.bucket(experiment, userProfileId)).thenReturn(variation);
+        when(bucketer.bucket(eq(experiment), eq(userProfileId), any(ProjectConfig.class))).thenReturn(variation);
         when(userProfileService.lookup(userProfileId)).thenReturn(null);
 
         assertEquals(variation, decisionService.getVariation(experiment, userProfileId, Collections.<String, String>emptyMap()));
@@ -1036,7 +1199,7 @@ public class DecisionServiceTest {
         Experiment experiment = validProjectConfig.getExperiments().get(0);
         Variation expectedVariation = experiment.getVariations().get(0);
 
-        when(bucketer.bucket(experiment, "bucketId")).thenReturn(expectedVariation);
+        when(bucketer.bucket(eq(experiment), eq("bucketId"), any(ProjectConfig.class))).thenReturn(expectedVariation);
 
         Map<String, String> attr = new HashMap<String, String>();
         attr.put(ControlAttribute.BUCKETING_ATTRIBUTE.toString(), "bucketId");
@@ -1060,8 +1223,8 @@ public class DecisionServiceTest {
         attributes.put(ControlAttribute.BUCKETING_ATTRIBUTE.toString(), bucketingId);
 
         Bucketer bucketer = mock(Bucketer.class);
-        when(bucketer.bucket(rolloutRuleExperiment, userId)).thenReturn(null);
-        when(bucketer.bucket(rolloutRuleExperiment, bucketingId)).thenReturn(rolloutVariation);
+        when(bucketer.bucket(eq(rolloutRuleExperiment), eq(userId), any(ProjectConfig.class))).thenReturn(null);
+        when(bucketer.bucket(eq(rolloutRuleExperiment), eq(bucketingId), any(ProjectConfig.class))).thenReturn(rolloutVariation);
 
         DecisionService decisionService = spy(new DecisionService(
             bucketer,
@@ -1080,4 +1243,11 @@ public class DecisionServiceTest {
         assertEquals(expectedFeatureDecision, featureDecision);
     }
 
+    private DecisionService forcedVariationDecisionService() {
+        return new DecisionService(new Bucketer(validProjectConfig), mockErrorHandler, validProjectConfig, null);
+    }
+
+    private static Experiment forcedExperiment(String experimentKey) {
+        return validProjectConfig.getExperimentKeyMapping().get(experimentKey);
+    }
 }
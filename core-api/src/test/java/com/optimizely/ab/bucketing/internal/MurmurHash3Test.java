@@ -123,6 +123,90 @@ public class MurmurHash3Test {
         }
 
     }
+
+    @Test
+    public void testPrefixHash() {
+        doPrefix("", "");
+        doPrefix("user", "");
+        doPrefix("", "1234");
+        doPrefix("user_1", "6386700062");
+        doPrefix("\ud83d", "1");
+        doPrefix("a\ud83d", "\ude00");
+        doPrefix("\ude00", "a");
+        doPrefix("\ud83d", "");
+        doPrefix(null, "1234");
+
+        Random r = new Random();
+        for (int i = 0; i < 100000; i++) {
+            String s = randomString(r, r.nextInt(24));
+            // any split, including one between the halves of a surrogate pair
+            int split = s.isEmpty() ? 0 : r.nextInt(s.length() + 1);
+            doPrefix(s.substring(0, split), s.substring(split));
+        }
+    }
+
+    @Test
+    public void testSuffixHash() {
+        doSuffix("", "");
+        doSuffix("user", "");
+        doSuffix("", "1234");
+        doSuffix("user_1", "6386700062");
+        doSuffix("user_12", "6386700062");
+        doSuffix("\ud83d", "1");
+        doSuffix("a\ud83d", "\ude00");
+        doSuffix("\ude00", "a");
+        doSuffix("a", "\ud83d");
+        doSuffix(null, "1234");
+
+        Random r = new Random();
+        for (int i = 0; i < 10000; i++) {
+            String suffix = randomString(r, r.nextInt(12));
+            MurmurHash3.Suffix encodedSuffix = MurmurHash3.suffix(suffix);
+            // the same suffix after many prefixes, of every alignment
+            for (int j = 0; j < 10; j++) {
+                doSuffix(randomString(r, r.nextInt(24)), suffix, encodedSuffix);
+            }
+        }
+    }
+
+    private void doSuffix(String prefix, String suffix) {
+        doSuffix(prefix, suffix, MurmurHash3.suffix(suffix));
+    }
+
+    private void doSuffix(String prefix, String suffix, MurmurHash3.Suffix encodedSuffix) {
+        String s = prefix + suffix;
+        int expected = MurmurHash3.murmurhash3_x86_32(s, 0, s.length(), 123456789);
+        assertEquals(expected, encodedSuffix.hashWithPrefix(prefix, 123456789));
+    }
+
+    private void doPrefix(String prefix, String suffix) {
+        String s = prefix + suffix;
+        int expected = MurmurHash3.murmurhash3_x86_32(s, 0, s.length(), 123456789);
+        assertEquals(expected, MurmurHash3.prefix(prefix, 123456789).hashWithSuffix(suffix));
+    }
+
+    private static String randomString(Random r, int len) {
+        StringBuilder sb = new StringBuilder(len * 2);
+        for (int j = 0; j < len; j++) {
+            switch (r.nextInt(5)) {
+                case 0:
+                    sb.appendCodePoint(r.nextInt(0x80));
+                    break;
+                case 1:
+                    sb.appendCodePoint(r.nextInt(0x800));
+                    break;
+                case 2:
+                    sb.append((char) r.nextInt(0x10000)); // may be an unpaired surrogate
+                    break;
+                case 3:
+                    sb.appendCodePoint(0x10000 + r.nextInt(Character.MAX_CODE_POINT + 1 - 0x10000));
+                    break;
+                default:
+                    sb.append((char) ('0' + r.nextInt(10)));
+            }
+        }
+        return sb.toString();
+    }
 }
 
 
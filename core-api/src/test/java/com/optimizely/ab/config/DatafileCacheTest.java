@@ -0,0 +1,124 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV4;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV4;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.verifyProjectConfig;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link DatafileCache}.
+ */
+public class DatafileCacheTest {
+
+    private static final String REVISION = "1480511547";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void writeAndRead() throws Exception {
+        DatafileCache cache = new DatafileCache(cachePath());
+        byte[] datafile = validConfigJsonV4().getBytes(StandardCharsets.UTF_8);
+        cache.write(datafile, REVISION);
+
+        assertArrayEquals(datafile, cache.read());
+        verifyProjectConfig(cache.load(), validProjectConfigV4());
+    }
+
+    @Test
+    public void writeReplacesPreviousDatafile() throws Exception {
+        Path path = cachePath();
+        DatafileCache cache = new DatafileCache(path);
+        cache.write(validConfigJsonV4().getBytes(StandardCharsets.UTF_8), REVISION);
+        byte[] datafile = validConfigJsonV4().replace(REVISION, "2").getBytes(StandardCharsets.UTF_8);
+        cache.write(datafile, "2");
+
+        assertArrayEquals(datafile, cache.read());
+        // the temporary file has been renamed over the cache
+        File[] files = path.getParent().toFile().listFiles();
+        assertEquals(1, files.length);
+    }
+
+    @Test
+    public void missingCacheIsIgnored() throws Exception {
+        DatafileCache cache = new DatafileCache(cachePath());
+
+        assertNull(cache.read());
+        assertNull(cache.load());
+    }
+
+    @Test
+    public void corruptedCacheIsIgnored() throws Exception {
+        Path path = cachePath();
+        DatafileCache cache = new DatafileCache(path);
+        cache.write(validConfigJsonV4().getBytes(StandardCharsets.UTF_8), REVISION);
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 10] ^= 1;
+        Files.write(path, bytes);
+
+        assertNull(cache.read());
+    }
+
+    @Test
+    public void truncatedCacheIsIgnored() throws Exception {
+        Path path = cachePath();
+        DatafileCache cache = new DatafileCache(path);
+        cache.write(validConfigJsonV4().getBytes(StandardCharsets.UTF_8), REVISION);
+
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertNull(cache.read());
+    }
+
+    @Test
+    public void cacheWithMismatchedRevisionIsIgnored() throws Exception {
+        DatafileCache cache = new DatafileCache(cachePath());
+        cache.write(validConfigJsonV4().getBytes(StandardCharsets.UTF_8), "2");
+
+        assertNull(cache.read());
+    }
+
+    @Test
+    public void otherFileIsIgnored() throws Exception {
+        Path path = cachePath();
+        Files.write(path, validConfigJsonV4().getBytes(StandardCharsets.UTF_8));
+
+        assertNull(new DatafileCache(path).read());
+    }
+
+    //======== Helper methods ========//
+
+    private Path cachePath() throws Exception {
+        return temporaryFolder.newFolder().toPath().resolve("datafile.bin");
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.optimizely.ab.config.DecisionTables.CompiledExperiment;
+import com.optimizely.ab.config.DecisionTables.CompiledGroup;
+import com.optimizely.ab.config.DecisionTables.CompiledRollout;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV4;
+import static com.optimizely.ab.config.ValidProjectConfigV4.EXPERIMENT_BASIC_EXPERIMENT_KEY;
+import static com.optimizely.ab.config.ValidProjectConfigV4.EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1;
+import static com.optimizely.ab.config.ValidProjectConfigV4.EXPERIMENT_MUTEX_GROUP_EXPERIMENT_2;
+import static com.optimizely.ab.config.ValidProjectConfigV4.FEATURE_FLAG_MULTI_VARIATE_FEATURE;
+import static com.optimizely.ab.config.ValidProjectConfigV4.FEATURE_FLAG_MUTEX_GROUP_FEATURE;
+import static com.optimizely.ab.config.ValidProjectConfigV4.ROLLOUT_2;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link DecisionTables}.
+ */
+public class DecisionTablesTest {
+
+    private ProjectConfig projectConfig;
+    private DecisionTables decisionTables;
+
+    @Before
+    public void setUp() {
+        projectConfig = validProjectConfigV4();
+        decisionTables = projectConfig.getDecisionTables();
+    }
+
+    @Test
+    public void tablesAreBuiltOncePerConfig() {
+        assertSame(decisionTables, projectConfig.getDecisionTables());
+    }
+
+    @Test
+    public void experimentsAreIndexedByOrdinal() {
+        for (Experiment experiment : projectConfig.getExperiments()) {
+            CompiledExperiment compiledExperiment = decisionTables.getExperiment(experiment);
+            assertSame(experiment, compiledExperiment.getExperiment());
+            assertSame(compiledExperiment, decisionTables.getExperiment(compiledExperiment.getOrdinal()));
+        }
+    }
+
+    @Test
+    public void trafficAllocationResolvesToVariations() {
+        CompiledExperiment compiledExperiment = decisionTables.getExperiment(EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1);
+        Variation variation = EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1.getVariations().get(0);
+
+        assertSame(variation, compiledExperiment.getVariationForBucketValue(0));
+        assertSame(variation, compiledExperiment.getVariationForBucketValue(9999));
+        assertNull(compiledExperiment.getVariationForBucketValue(10000));
+    }
+
+    @Test
+    public void deallocatedTrafficResolvesToNull() {
+        Variation variation = new Variation("1", "var1");
+        Experiment experiment = new Experiment("1234", "exp_key", "Running", "1",
+            Collections.<String>emptyList(), null, Collections.singletonList(variation),
+            Collections.<String, String>emptyMap(),
+            Arrays.asList(new TrafficAllocation("", 5000), new TrafficAllocation("1", 10000)), "");
+        CompiledExperiment compiledExperiment = decisionTables.getExperiment(experiment);
+
+        assertEquals(-1, compiledExperiment.getOrdinal());
+        assertNull(compiledExperiment.getVariationForBucketValue(4999));
+        assertSame(variation, compiledExperiment.getVariationForBucketValue(5000));
+    }
+
+    @Test
+    public void shadowedTrafficAllocationIsNeverHit() {
+        Variation first = new Variation("1", "var1");
+        Variation second = new Variation("2", "var2");
+        Experiment experiment = new Experiment("1234", "exp_key", "Running", "1",
+            Collections.<String>emptyList(), null, Arrays.asList(first, second),
+            Collections.<String, String>emptyMap(),
+            Arrays.asList(new TrafficAllocation("1", 6000), new TrafficAllocation("2", 4000)), "");
+        CompiledExperiment compiledExperiment = decisionTables.getExperiment(experiment);
+
+        assertSame(first, compiledExperiment.getVariationForBucketValue(0));
+        assertSame(first, compiledExperiment.getVariationForBucketValue(5999));
+        assertNull(compiledExperiment.getVariationForBucketValue(6000));
+    }
+
+    @Test
+    public void allocationTableMatchesFirstRangeAboveBucketValue() {
+        Random random = new Random(42);
+        for (int trial = 0; trial < 1000; trial++) {
+            int size = random.nextInt(12);
+            int[] ends = new int[size];
+            int[] entities = new int[size];
+            for (int i = 0; i < size; i++) {
+                // mostly increasing ends, with some out of order and some past the bucket range
+                ends[i] = random.nextInt(4) == 0 ? random.nextInt(10500) : (i + 1) * 10000 / size;
+                entities[i] = random.nextInt(3) == 0 ? -1 : i;
+            }
+            DecisionTables.AllocationTable table = DecisionTables.AllocationTable.compile(ends, entities);
+
+            for (int bucketValue = -1; bucketValue <= 10500; bucketValue++) {
+                int expected = -1;
+                for (int i = 0; i < size; i++) {
+                    if (bucketValue < ends[i]) {
+                        expected = entities[i];
+                        break;
+                    }
+                }
+                assertEquals(expected, table.lookup(bucketValue));
+            }
+        }
+    }
+
+    @Test
+    public void groupTrafficAllocationResolvesToExperimentOrdinals() {
+        CompiledExperiment firstExperiment = decisionTables.getExperiment(EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1);
+        CompiledExperiment secondExperiment = decisionTables.getExperiment(EXPERIMENT_MUTEX_GROUP_EXPERIMENT_2);
+        CompiledGroup group = decisionTables.getGroup(firstExperiment);
+
+        assertNotNull(group);
+        assertSame(group, decisionTables.getGroup(secondExperiment));
+        assertEquals(EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1.getGroupId(), group.getGroup().getId());
+        assertEquals(firstExperiment.getOrdinal(), group.getExperimentOrdinalForBucketValue(4999));
+        assertEquals(secondExperiment.getOrdinal(), group.getExperimentOrdinalForBucketValue(5000));
+    }
+
+    @Test
+    public void rolloutRuleWithExperimentIdDoesNotShadowExperiment() {
+        Experiment rule = new Experiment(
+            EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1.getId(),
+            "rule_key",
+            "Running",
+            "rule_layer",
+            Collections.<String>emptyList(),
+            null,
+            Collections.<Variation>emptyList(),
+            Collections.<String, String>emptyMap(),
+            Collections.<TrafficAllocation>emptyList(),
+            "");
+        ProjectConfig collidingConfig = new ProjectConfig(
+            projectConfig.getAccountId(),
+            projectConfig.getAnonymizeIP(),
+            projectConfig.getBotFiltering(),
+            projectConfig.getProjectId(),
+            projectConfig.getRevision(),
+            projectConfig.getVersion(),
+            projectConfig.getAttributes(),
+            projectConfig.getAudiences(),
+            projectConfig.getTypedAudiences(),
+            projectConfig.getEventTypes(),
+            Collections.<Experiment>emptyList(),
+            projectConfig.getFeatureFlags(),
+            projectConfig.getGroups(),
+            Collections.singletonList(new Rollout("colliding_rollout", Collections.singletonList(rule))));
+        DecisionTables collidingTables = collidingConfig.getDecisionTables();
+
+        CompiledExperiment compiledExperiment = collidingTables.getExperiment(EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1);
+        CompiledExperiment compiledRule = collidingTables.getExperiment(rule);
+        CompiledGroup group = collidingTables.getGroup(compiledExperiment);
+
+        assertNotNull(group);
+        assertSame(EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1, compiledExperiment.getExperiment());
+        assertSame(rule, compiledRule.getExperiment());
+        assertNotEquals(compiledExperiment.getOrdinal(), compiledRule.getOrdinal());
+        assertEquals(compiledExperiment.getOrdinal(), group.getExperimentOrdinalForBucketValue(4999));
+        assertSame(compiledExperiment, collidingTables.getFeatureExperiments(FEATURE_FLAG_MUTEX_GROUP_FEATURE)[0]);
+    }
+
+    @Test
+    public void ungroupedExperimentHasNoGroup() {
+        Experiment experiment = projectConfig.getExperimentKeyMapping().get(EXPERIMENT_BASIC_EXPERIMENT_KEY);
+
+        assertNull(decisionTables.getGroup(decisionTables.getExperiment(experiment)));
+    }
+
+    @Test
+    public void experimentNotInConfigIsCompiledAgainstConfig() {
+        Experiment copy = new Experiment(
+            EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1.getId(),
+            EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1.getKey(),
+            EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1.getStatus(),
+            EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1.getLayerId(),
+            EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1.getAudienceIds(),
+            null,
+            EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1.getVariations(),
+            EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1.getUserIdToVariationKeyMap(),
+            EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1.getTrafficAllocation(),
+            EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1.getGroupId());
+        CompiledExperiment compiledCopy = decisionTables.getExperiment(copy);
+        CompiledExperiment compiledExperiment = decisionTables.getExperiment(EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1);
+
+        assertSame(copy, compiledCopy.getExperiment());
+        assertEquals(compiledExperiment.getOrdinal(), compiledCopy.getOrdinal());
+        assertSame(decisionTables.getGroup(compiledExperiment), decisionTables.getGroup(compiledCopy));
+    }
+
+    @Test
+    public void featureExperimentsAreLinkedInOrder() {
+        CompiledExperiment[] featureExperiments = decisionTables.getFeatureExperiments(FEATURE_FLAG_MUTEX_GROUP_FEATURE);
+
+        assertEquals(2, featureExperiments.length);
+        assertSame(EXPERIMENT_MUTEX_GROUP_EXPERIMENT_1, featureExperiments[0].getExperiment());
+        assertSame(EXPERIMENT_MUTEX_GROUP_EXPERIMENT_2, featureExperiments[1].getExperiment());
+        assertEquals("", decisionTables.getFeatureRollout(FEATURE_FLAG_MUTEX_GROUP_FEATURE).getRolloutId());
+    }
+
+    @Test
+    public void featureRolloutRulesAreLinkedInOrder() {
+        CompiledRollout rollout = decisionTables.getFeatureRollout(FEATURE_FLAG_MULTI_VARIATE_FEATURE);
+
+        assertSame(ROLLOUT_2, rollout.getRollout());
+        assertEquals(ROLLOUT_2.getExperiments().size(), rollout.getRuleCount());
+        for (int i = 0; i < rollout.getRuleCount(); i++) {
+            assertSame(ROLLOUT_2.getExperiments().get(i), rollout.getRule(i).getExperiment());
+        }
+        assertNotNull(rollout.getRuleAudienceName(0));
+    }
+
+    @Test
+    public void missingRolloutIsResolvedToNull() {
+        FeatureFlag featureFlag = new FeatureFlag("1", "feature", "unknown_rollout",
+            Collections.<String>emptyList(), Collections.<FeatureVariable>emptyList());
+        CompiledRollout rollout = decisionTables.getFeatureRollout(featureFlag);
+
+        assertEquals("unknown_rollout", rollout.getRolloutId());
+        assertNull(rollout.getRollout());
+        assertEquals(0, decisionTables.getFeatureExperiments(featureFlag).length);
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link Experiment}.
+ */
+public class ExperimentTest {
+
+    @Test
+    public void statusChecksUseResolvedStatus() {
+        Experiment running = experimentWithStatus("Running");
+        assertTrue(running.isActive());
+        assertTrue(running.isRunning());
+        assertFalse(running.isLaunched());
+
+        Experiment launched = experimentWithStatus("Launched");
+        assertTrue(launched.isActive());
+        assertFalse(launched.isRunning());
+        assertTrue(launched.isLaunched());
+
+        assertFalse(experimentWithStatus("Paused").isActive());
+        assertFalse(experimentWithStatus("unknown").isActive());
+        assertFalse(experimentWithStatus(null).isActive());
+    }
+
+    @Test
+    public void experimentStatusFromString() {
+        for (Experiment.ExperimentStatus status : Experiment.ExperimentStatus.values()) {
+            assertEquals(status, Experiment.ExperimentStatus.fromString(status.toString()));
+        }
+        assertNull(Experiment.ExperimentStatus.fromString("running"));
+    }
+
+    private static Experiment experimentWithStatus(String status) {
+        return new Experiment("1234", "exp_key", status, "1", Collections.<String>emptyList(), null,
+            Collections.<Variation>emptyList(), Collections.<String, String>emptyMap(),
+            Collections.<TrafficAllocation>emptyList(), "");
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link FileProjectConfigManager}.
+ */
+public class FileProjectConfigManagerTest {
+
+    private static final String DATAFILE_FORMAT = "{\"accountId\":\"1\",\"projectId\":\"2\",\"revision\":\"%s\"," +
+        "\"version\":\"4\",\"anonymizeIP\":false,\"attributes\":[],\"audiences\":[],\"events\":[]," +
+        "\"experiments\":[],\"groups\":[],\"featureFlags\":[],\"rollouts\":[]}";
+
+    private static final long WATCH_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path datafilePath;
+    private FileProjectConfigManager fileProjectConfigManager;
+
+    @Before
+    public void setUp() {
+        datafilePath = temporaryFolder.getRoot().toPath().resolve("datafile.json");
+        fileProjectConfigManager = new FileProjectConfigManager(datafilePath);
+    }
+
+    @After
+    public void tearDown() {
+        fileProjectConfigManager.close();
+    }
+
+    @Test
+    public void startLoadsExistingDatafile() throws Exception {
+        writeDatafile("10");
+        fileProjectConfigManager.start();
+
+        assertTrue(fileProjectConfigManager.isRunning());
+        assertEquals("10", fileProjectConfigManager.getConfig().getRevision());
+    }
+
+    @Test
+    public void missingDatafileIsLoadedOnceCreated() throws Exception {
+        fileProjectConfigManager.start();
+        assertNull(fileProjectConfigManager.getConfig());
+
+        writeDatafile("10");
+        awaitRevision("10");
+    }
+
+    @Test
+    public void newerRevisionIsSwappedIn() throws Exception {
+        writeDatafile("10");
+        fileProjectConfigManager.start();
+
+        writeDatafile("11");
+        awaitRevision("11");
+    }
+
+    @Test
+    public void atomicallyMovedDatafileIsSwappedIn() throws Exception {
+        writeDatafile("10");
+        fileProjectConfigManager.start();
+
+        Path tempPath = temporaryFolder.newFolder().toPath().resolve("datafile.json.tmp");
+        Files.write(tempPath, String.format(DATAFILE_FORMAT, "11").getBytes(StandardCharsets.UTF_8));
+        Files.move(tempPath, datafilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        awaitRevision("11");
+    }
+
+    @Test
+    public void olderRevisionIsIgnored() throws Exception {
+        writeDatafile("10");
+        assertTrue(fileProjectConfigManager.reload());
+
+        writeDatafile("9");
+        assertFalse(fileProjectConfigManager.reload());
+        assertEquals("10", fileProjectConfigManager.getConfig().getRevision());
+    }
+
+    @Test
+    public void invalidDatafileIsIgnored() throws Exception {
+        writeDatafile("10");
+        assertTrue(fileProjectConfigManager.reload());
+
+        Files.write(datafilePath, "{\"revision\": ".getBytes(StandardCharsets.UTF_8));
+        assertFalse(fileProjectConfigManager.reload());
+        assertEquals("10", fileProjectConfigManager.getConfig().getRevision());
+    }
+
+    @Test
+    public void unchangedDatafileIsNotReloaded() throws Exception {
+        writeDatafile("10");
+        assertTrue(fileProjectConfigManager.reload());
+        assertFalse(fileProjectConfigManager.reload());
+    }
+
+    @Test
+    public void closedManagerCannotBeStarted() throws Exception {
+        fileProjectConfigManager.close();
+        fileProjectConfigManager.start();
+
+        assertFalse(fileProjectConfigManager.isRunning());
+    }
+
+    //======== Helper methods ========//
+
+    private void writeDatafile(String revision) throws IOException {
+        Files.write(datafilePath, String.format(DATAFILE_FORMAT, revision).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void awaitRevision(String revision) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WATCH_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            ProjectConfig projectConfig = fileProjectConfigManager.getConfig();
+            if (projectConfig != null && revision.equals(projectConfig.getRevision())) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        assertEquals(revision, fileProjectConfigManager.getConfig() == null ? null :
+            fileProjectConfigManager.getConfig().getRevision());
+    }
+}
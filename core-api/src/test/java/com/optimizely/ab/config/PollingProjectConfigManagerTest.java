@@ -0,0 +1,178 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.optimizely.ab.config.audience.Audience;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV3;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV4;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link PollingProjectConfigManager}.
+ */
+public class PollingProjectConfigManagerTest {
+
+    private static final long POLLING_PERIOD = 10;
+    private static final TimeUnit POLLING_UNIT = TimeUnit.MILLISECONDS;
+
+    private TestProjectConfigManager testProjectConfigManager;
+
+    @Before
+    public void setUp() {
+        testProjectConfigManager = new TestProjectConfigManager(5, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        testProjectConfigManager.close();
+    }
+
+    @Test
+    public void getConfigIsNullBeforeStart() {
+        assertNull(testProjectConfigManager.getConfig());
+    }
+
+    @Test
+    public void getConfigBlocksUntilFirstPoll() {
+        testProjectConfigManager.nextConfig = validProjectConfigV4();
+        testProjectConfigManager.start();
+
+        assertSame(validProjectConfigV4(), testProjectConfigManager.getConfig());
+        assertTrue(testProjectConfigManager.isRunning());
+    }
+
+    @Test
+    public void getConfigReturnsNullAfterBlockingTimeout() {
+        testProjectConfigManager.close();
+        testProjectConfigManager = new TestProjectConfigManager(10, TimeUnit.MILLISECONDS);
+        testProjectConfigManager.start();
+
+        assertNull(testProjectConfigManager.getConfig());
+    }
+
+    @Test
+    public void getConfigDoesNotWaitAgainAfterBlockingTimeout() {
+        testProjectConfigManager.close();
+        testProjectConfigManager = new TestProjectConfigManager(500, TimeUnit.MILLISECONDS);
+        testProjectConfigManager.start();
+
+        assertNull(testProjectConfigManager.getConfig());
+
+        long start = System.nanoTime();
+        assertNull(testProjectConfigManager.getConfig());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    @Test
+    public void setConfigIgnoresSameRevision() {
+        ProjectConfig projectConfig = validProjectConfigV4();
+        ProjectConfig sameRevision = emptyProjectConfig(projectConfig.getRevision());
+
+        assertTrue(testProjectConfigManager.setConfig(projectConfig));
+        assertFalse(testProjectConfigManager.setConfig(sameRevision));
+        assertSame(projectConfig, testProjectConfigManager.getConfig());
+    }
+
+    @Test
+    public void setConfigPublishesNewRevision() {
+        assertTrue(testProjectConfigManager.setConfig(validProjectConfigV3()));
+        assertTrue(testProjectConfigManager.setConfig(validProjectConfigV4()));
+        assertSame(validProjectConfigV4(), testProjectConfigManager.getConfig());
+    }
+
+    @Test
+    public void setConfigIgnoresNull() {
+        assertFalse(testProjectConfigManager.setConfig(null));
+        assertNull(testProjectConfigManager.getConfig());
+    }
+
+    @Test
+    public void pollingContinuesAfterException() throws Exception {
+        testProjectConfigManager.throwOnPoll = true;
+        testProjectConfigManager.start();
+
+        assertTrue(testProjectConfigManager.pollLatch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void stopAndRestart() throws Exception {
+        testProjectConfigManager.start();
+        testProjectConfigManager.stop();
+        assertFalse(testProjectConfigManager.isRunning());
+
+        testProjectConfigManager.start();
+        assertTrue(testProjectConfigManager.isRunning());
+    }
+
+    @Test
+    public void closedManagerCannotBeStarted() {
+        testProjectConfigManager.close();
+        testProjectConfigManager.start();
+
+        assertFalse(testProjectConfigManager.isRunning());
+    }
+
+    private static ProjectConfig emptyProjectConfig(String revision) {
+        return new ProjectConfig(
+            "accountId",
+            false,
+            null,
+            "projectId",
+            revision,
+            ProjectConfig.Version.V4.toString(),
+            Collections.<Attribute>emptyList(),
+            Collections.<Audience>emptyList(),
+            null,
+            Collections.<EventType>emptyList(),
+            Collections.<Experiment>emptyList(),
+            null,
+            Collections.<Group>emptyList(),
+            null
+        );
+    }
+
+    private static class TestProjectConfigManager extends PollingProjectConfigManager {
+
+        private final CountDownLatch pollLatch = new CountDownLatch(3);
+        private volatile ProjectConfig nextConfig;
+        private volatile boolean throwOnPoll;
+
+        private TestProjectConfigManager(long blockingTimeoutPeriod, TimeUnit blockingTimeoutUnit) {
+            super(POLLING_PERIOD, POLLING_UNIT, blockingTimeoutPeriod, blockingTimeoutUnit);
+        }
+
+        @Override
+        protected ProjectConfig poll() {
+            pollLatch.countDown();
+            if (throwOnPoll) {
+                throw new RuntimeException("poll failed");
+            }
+            return nextConfig;
+        }
+    }
+}
@@ -16,16 +16,29 @@
  */
 package com.optimizely.ab.config;
 
+import com.optimizely.ab.bucketing.Bucketer;
 import com.optimizely.ab.config.parser.ConfigParseException;
+import com.optimizely.ab.config.parser.DatafileProjection;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
 import static com.optimizely.ab.config.ProjectConfigTestUtils.invalidProjectConfigV5;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV4;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Tests for {@link com.optimizely.ab.config.ProjectConfig.Builder}.
@@ -59,6 +72,37 @@ public class ProjectConfigBuilderTest {
         assertEquals("4", projectConfig.getVersion());
     }
 
+    @Test
+    public void withParsingPool() throws Exception {
+        ProjectConfig projectConfig = new ProjectConfig.Builder()
+            .withDatafile(validConfigJsonV4())
+            .withParsingPool(ForkJoinPool.commonPool())
+            .build();
+        ProjectConfigTestUtils.verifyProjectConfig(projectConfig, ProjectConfigTestUtils.validProjectConfigV4());
+    }
+
+    @Test
+    public void withProjectionDecidesLikeFullConfig() throws Exception {
+        ProjectConfig fullConfig = new ProjectConfig.Builder()
+            .withDatafile(validConfigJsonV4())
+            .build();
+        ProjectConfig projectedConfig = new ProjectConfig.Builder()
+            .withDatafile(validConfigJsonV4())
+            .withProjection(DatafileProjection.ofExperiments(Collections.singleton("first_grouped_experiment")))
+            .build();
+
+        Experiment fullExperiment = fullConfig.getExperimentKeyMapping().get("first_grouped_experiment");
+        Experiment projectedExperiment = projectedConfig.getExperimentKeyMapping().get("first_grouped_experiment");
+        Bucketer fullBucketer = new Bucketer(fullConfig);
+        Bucketer projectedBucketer = new Bucketer(projectedConfig);
+        for (int i = 0; i < 1000; i++) {
+            // users bucketed into the grouped experiment left out are in no experiment of the projection
+            Variation expected = fullBucketer.bucket(fullExperiment, "user" + i);
+            Variation actual = projectedBucketer.bucket(projectedExperiment, "user" + i);
+            assertEquals(expected == null ? null : expected.getId(), actual == null ? null : actual.getId());
+        }
+    }
+
     @Test
     public void withUnsupportedDatafile() throws Exception {
         thrown.expect(ConfigParseException.class);
@@ -66,4 +110,56 @@ public class ProjectConfigBuilderTest {
             .withDatafile(invalidProjectConfigV5())
             .build();
     }
+
+    @Test
+    public void withLazyIndexes() throws Exception {
+        ProjectConfig eager = new ProjectConfig.Builder()
+            .withDatafile(validConfigJsonV4())
+            .build();
+        ProjectConfig lazy = new ProjectConfig.Builder()
+            .withDatafile(validConfigJsonV4())
+            .withLazyIndexes(true)
+            .build();
+
+        assertEquals(eager.getAttributeKeyMapping().keySet(), lazy.getAttributeKeyMapping().keySet());
+        assertEquals(eager.getEventNameMapping().keySet(), lazy.getEventNameMapping().keySet());
+        assertEquals(eager.getExperimentKeyMapping().keySet(), lazy.getExperimentKeyMapping().keySet());
+        assertEquals(eager.getFeatureKeyMapping().keySet(), lazy.getFeatureKeyMapping().keySet());
+        assertEquals(eager.getAudienceIdMapping().keySet(), lazy.getAudienceIdMapping().keySet());
+        assertEquals(eager.getExperimentIdMapping().keySet(), lazy.getExperimentIdMapping().keySet());
+        assertEquals(eager.getGroupIdMapping().keySet(), lazy.getGroupIdMapping().keySet());
+        assertEquals(eager.getRolloutIdMapping().keySet(), lazy.getRolloutIdMapping().keySet());
+        assertEquals(eager.getVariationIdToExperimentMapping().keySet(),
+            lazy.getVariationIdToExperimentMapping().keySet());
+
+        // once built, a mapping is kept
+        assertSame(lazy.getExperimentKeyMapping(), lazy.getExperimentKeyMapping());
+    }
+
+    @Test
+    public void lazyIndexesAgreeUnderConcurrentFirstAccess() throws Exception {
+        final ProjectConfig projectConfig = new ProjectConfig.Builder()
+            .withDatafile(validConfigJsonV4())
+            .withLazyIndexes(true)
+            .build();
+        String experimentKey = projectConfig.getExperiments().get(0).getKey();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Map<String, Experiment>>> futures = new ArrayList<Future<Map<String, Experiment>>>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(new Callable<Map<String, Experiment>>() {
+                    @Override
+                    public Map<String, Experiment> call() {
+                        return projectConfig.getExperimentKeyMapping();
+                    }
+                }));
+            }
+            for (Future<Map<String, Experiment>> future : futures) {
+                assertSame(projectConfig.getExperiments().get(0), future.get().get(experimentKey));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
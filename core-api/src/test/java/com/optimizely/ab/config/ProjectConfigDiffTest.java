@@ -0,0 +1,118 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV4;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ProjectConfigDiff}.
+ */
+public class ProjectConfigDiffTest {
+
+    @Test
+    public void identicalConfigsChangeNothing() throws Exception {
+        ProjectConfig previous = parse(validConfigJsonV4());
+        ProjectConfig next = parse(validConfigJsonV4().replace("\"revision\": \"1480511547\"", "\"revision\": \"2\""));
+
+        ProjectConfigDiff diff = ProjectConfigDiff.between(previous, next);
+
+        assertTrue(diff.isEmpty());
+        assertEquals("1480511547", diff.getPreviousRevision());
+        assertEquals("2", diff.getRevision());
+    }
+
+    @Test
+    public void changedAudiencePropagatesToExperimentsAndFeatures() throws Exception {
+        ProjectConfig previous = parse(validConfigJsonV4());
+        ProjectConfig next = parse(validConfigJsonV4().replace("\"Slytherins\"", "\"Ravenclaws\""));
+
+        ProjectConfigDiff diff = ProjectConfigDiff.between(previous, next);
+
+        assertEquals(Collections.singleton("3988293898"), diff.getChangedAudienceIds());
+        // an experiment and a rule of the multi_variate_feature rollout target it
+        assertEquals(new HashSet<String>(Arrays.asList("2201520193", "600050626")), diff.getChangedExperimentIds());
+        assertEquals(new HashSet<String>(Arrays.asList("double_single_variable_feature", "multi_variate_feature")),
+            diff.getChangedFeatureKeys());
+    }
+
+    @Test
+    public void changedRolloutRulePropagatesToFeature() throws Exception {
+        ProjectConfig previous = parse(validConfigJsonV4());
+        ProjectConfig next = parse(validConfigJsonV4().replaceFirst(
+            "(\"id\": \"3794675122\",\\s+\"key\": \"3794675122\",\\s+\"status\": )\"Running\"", "$1\"Paused\""));
+
+        ProjectConfigDiff diff = ProjectConfigDiff.between(previous, next);
+
+        assertTrue(diff.getChangedAudienceIds().isEmpty());
+        assertEquals(Collections.singleton("3794675122"), diff.getChangedExperimentIds());
+        assertEquals(Collections.singleton("integer_single_variable_feature"), diff.getChangedFeatureKeys());
+    }
+
+    @Test
+    public void removedFeatureIsChanged() throws Exception {
+        ProjectConfig previous = parse(validConfigJsonV4());
+        ProjectConfig next = parse(validConfigJsonV4().replace("\"boolean_feature\"", "\"renamed_feature\""));
+
+        ProjectConfigDiff diff = ProjectConfigDiff.between(previous, next);
+
+        assertTrue(diff.getChangedFeatureKeys().contains("boolean_feature"));
+        assertTrue(diff.getChangedFeatureKeys().contains("renamed_feature"));
+        assertTrue(diff.getChangedExperimentIds().isEmpty());
+    }
+
+    @Test
+    public void mergedConfigReusesUnchangedEntities() throws Exception {
+        ProjectConfig previous = parse(validConfigJsonV4());
+        ProjectConfig next = ProjectConfigMerger.merge(previous,
+            parse(validConfigJsonV4().replace("\"Slytherins\"", "\"Ravenclaws\"")));
+
+        ProjectConfigDiff diff = ProjectConfigDiff.between(previous, next);
+
+        assertEquals(Collections.singleton("3988293898"), diff.getChangedAudienceIds());
+        assertEquals(new HashSet<String>(Arrays.asList("2201520193", "600050626")), diff.getChangedExperimentIds());
+    }
+
+    @Test
+    public void addedConfigChangesEverything() throws Exception {
+        ProjectConfig projectConfig = parse(validConfigJsonV4());
+
+        ProjectConfigDiff diff = ProjectConfigDiff.added(projectConfig);
+
+        assertNull(diff.getPreviousRevision());
+        assertEquals("1480511547", diff.getRevision());
+        assertEquals(projectConfig.getFeatureKeyMapping().keySet(), diff.getChangedFeatureKeys());
+        assertEquals(projectConfig.getAudienceIdMapping().keySet(), diff.getChangedAudienceIds());
+        assertTrue(diff.getChangedExperimentIds().containsAll(projectConfig.getExperimentIdMapping().keySet()));
+        // rollout rules are included
+        assertTrue(diff.getChangedExperimentIds().contains("3794675122"));
+    }
+
+    //======== Helper methods ========//
+
+    private static ProjectConfig parse(String datafile) throws Exception {
+        return new ProjectConfig.Builder().withDatafile(datafile).build();
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.optimizely.ab.config.audience.Audience;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV2;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV4;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.verifyProjectConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link ProjectConfigMerger}.
+ */
+public class ProjectConfigMergerTest {
+
+    private static final String BASIC_EXPERIMENT_ID = "1323241596";
+    private static final String SLYTHERINS_AUDIENCE_ID = "3988293898";
+    private static final String ROLLOUT_ID = "813411034";
+    private static final String CHANGED_ROLLOUT_RULE_ID = "600050626";
+
+    @Test
+    public void mergeWithoutPreviousConfigReturnsNextConfig() throws Exception {
+        ProjectConfig next = parse(validConfigJsonV4());
+
+        assertSame(next, ProjectConfigMerger.merge(null, next));
+    }
+
+    @Test
+    public void mergeAcrossDatafileVersionsReturnsNextConfig() throws Exception {
+        ProjectConfig previous = parse(validConfigJsonV2());
+        ProjectConfig next = parse(validConfigJsonV4());
+
+        assertSame(next, ProjectConfigMerger.merge(previous, next));
+    }
+
+    @Test
+    public void mergeUnchangedDatafileReusesEveryEntity() throws Exception {
+        ProjectConfig previous = parse(validConfigJsonV4());
+        ProjectConfig next = parse(validConfigJsonV4().replace("\"revision\": \"1480511547\"", "\"revision\": \"1480511548\""));
+
+        ProjectConfig merged = ProjectConfigMerger.merge(previous, next);
+
+        verifyProjectConfig(merged, next);
+        assertEquals("1480511548", merged.getRevision());
+        assertSameInstances(previous.getExperiments(), merged.getExperiments());
+        assertSameInstances(previous.getAudiences(), merged.getAudiences());
+        assertSameInstances(previous.getTypedAudiences(), merged.getTypedAudiences());
+        assertSameInstances(previous.getAttributes(), merged.getAttributes());
+        assertSameInstances(previous.getEventTypes(), merged.getEventTypes());
+        assertSameInstances(previous.getFeatureFlags(), merged.getFeatureFlags());
+        assertSameInstances(previous.getGroups(), merged.getGroups());
+        assertSameInstances(previous.getRollouts(), merged.getRollouts());
+    }
+
+    @Test
+    public void mergeRebuildsOnlyChangedExperiment() throws Exception {
+        ProjectConfig previous = parse(validConfigJsonV4());
+        ProjectConfig next = parse(changed(validConfigJsonV4(),
+            "\"layerId\": \"1630555626\"", "\"layerId\": \"1630555627\""));
+
+        ProjectConfig merged = ProjectConfigMerger.merge(previous, next);
+
+        verifyProjectConfig(merged, next);
+        Experiment experiment = merged.getExperimentIdMapping().get(BASIC_EXPERIMENT_ID);
+        assertSame(next.getExperimentIdMapping().get(BASIC_EXPERIMENT_ID), experiment);
+        assertEquals("1630555627", experiment.getLayerId());
+        for (Experiment mergedExperiment : merged.getExperiments()) {
+            if (!mergedExperiment.getId().equals(BASIC_EXPERIMENT_ID)) {
+                assertSame(previous.getExperimentIdMapping().get(mergedExperiment.getId()), mergedExperiment);
+            }
+        }
+    }
+
+    @Test
+    public void mergeRebuildsOnlyChangedAudience() throws Exception {
+        ProjectConfig previous = parse(validConfigJsonV4());
+        ProjectConfig next = parse(changed(validConfigJsonV4(),
+            "\"match\":\"substring\", \"value\":\"Slytherin\"", "\"match\":\"substring\", \"value\":\"Ravenclaw\""));
+
+        ProjectConfig merged = ProjectConfigMerger.merge(previous, next);
+
+        verifyProjectConfig(merged, next);
+        Audience audience = merged.getAudienceIdMapping().get(SLYTHERINS_AUDIENCE_ID);
+        assertNotSame(previous.getAudienceIdMapping().get(SLYTHERINS_AUDIENCE_ID), audience);
+        assertEquals(next.getAudienceIdMapping().get(SLYTHERINS_AUDIENCE_ID).getConditions(), audience.getConditions());
+        for (Audience mergedAudience : merged.getTypedAudiences()) {
+            if (!mergedAudience.getId().equals(SLYTHERINS_AUDIENCE_ID)) {
+                assertSame(previous.getAudienceIdMapping().get(mergedAudience.getId()), mergedAudience);
+            }
+        }
+        // experiments only refer to audiences by id, so they are unaffected
+        assertSameInstances(previous.getExperiments(), merged.getExperiments());
+    }
+
+    @Test
+    public void mergeRebuildsChangedRolloutAroundUnchangedRules() throws Exception {
+        ProjectConfig previous = parse(validConfigJsonV4());
+        ProjectConfig next = parse(changed(validConfigJsonV4(),
+            "\"entityId\": \"180042646\",\n              \"endOfRange\": 5000",
+            "\"entityId\": \"180042646\",\n              \"endOfRange\": 2500"));
+
+        ProjectConfig merged = ProjectConfigMerger.merge(previous, next);
+
+        verifyProjectConfig(merged, next);
+        Rollout previousRollout = previous.getRolloutIdMapping().get(ROLLOUT_ID);
+        Rollout rollout = merged.getRolloutIdMapping().get(ROLLOUT_ID);
+        assertNotSame(previousRollout, rollout);
+        assertEquals(previousRollout.getExperiments().size(), rollout.getExperiments().size());
+        for (int i = 0; i < rollout.getExperiments().size(); i++) {
+            Experiment rule = rollout.getExperiments().get(i);
+            if (rule.getId().equals(CHANGED_ROLLOUT_RULE_ID)) {
+                assertEquals(2500, rule.getTrafficAllocation().get(0).getEndOfRange());
+            } else {
+                assertSame(previousRollout.getExperiments().get(i), rule);
+            }
+        }
+        for (Rollout mergedRollout : merged.getRollouts()) {
+            if (!mergedRollout.getId().equals(ROLLOUT_ID)) {
+                assertSame(previous.getRolloutIdMapping().get(mergedRollout.getId()), mergedRollout);
+            }
+        }
+    }
+
+    //======== Helper methods ========//
+
+    private static ProjectConfig parse(String datafile) throws Exception {
+        return new ProjectConfig.Builder().withDatafile(datafile).build();
+    }
+
+    private static String changed(String datafile, String target, String replacement) {
+        String changed = datafile.replace(target, replacement);
+        assertFalse("datafile does not contain " + target, datafile.equals(changed));
+        return changed;
+    }
+
+    private static void assertSameInstances(List<?> expected, List<?> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+    }
+}
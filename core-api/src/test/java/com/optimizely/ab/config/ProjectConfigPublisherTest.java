@@ -0,0 +1,114 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV3;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV4;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ProjectConfigPublisher}.
+ */
+public class ProjectConfigPublisherTest {
+
+    private ProjectConfigPublisher publisher;
+    private RecordingListener listener;
+
+    @Before
+    public void setUp() {
+        publisher = new ProjectConfigPublisher();
+        listener = new RecordingListener();
+    }
+
+    @Test
+    public void listenerIsCalledWithEveryPublishedConfig() {
+        publisher.addListener(listener);
+        assertTrue(listener.calls.isEmpty());
+
+        publisher.publish(validProjectConfigV3());
+        publisher.publish(validProjectConfigV4());
+
+        assertEquals(2, listener.calls.size());
+        assertNull(listener.calls.get(0)[0]);
+        assertSame(validProjectConfigV3(), listener.calls.get(0)[1]);
+        assertSame(validProjectConfigV3(), listener.calls.get(1)[0]);
+        assertSame(validProjectConfigV4(), listener.calls.get(1)[1]);
+        assertSame(validProjectConfigV4(), publisher.get());
+    }
+
+    @Test
+    public void listenerAddedLaterIsCalledWithCurrentConfig() {
+        publisher.publish(validProjectConfigV4());
+        publisher.addListener(listener);
+
+        assertEquals(1, listener.calls.size());
+        assertNull(listener.calls.get(0)[0]);
+        assertSame(validProjectConfigV4(), listener.calls.get(0)[1]);
+    }
+
+    @Test
+    public void clearingCallsNoListener() {
+        publisher.addListener(listener);
+        publisher.publish(null);
+
+        assertNull(publisher.get());
+        assertTrue(listener.calls.isEmpty());
+    }
+
+    @Test
+    public void removedListenerIsNotCalled() {
+        publisher.addListener(listener);
+        publisher.removeListener(listener);
+        publisher.publish(validProjectConfigV4());
+
+        assertTrue(listener.calls.isEmpty());
+    }
+
+    @Test
+    public void failingListenerDoesNotStopPublishing() {
+        publisher.addListener(new ObservableProjectConfigManager.Listener() {
+            @Override
+            public void onConfigPublished(ProjectConfig previousConfig, ProjectConfig projectConfig) {
+                throw new IllegalStateException("listener failed");
+            }
+        });
+        publisher.addListener(listener);
+        publisher.publish(validProjectConfigV4());
+
+        assertSame(validProjectConfigV4(), publisher.get());
+        assertEquals(1, listener.calls.size());
+    }
+
+    private static class RecordingListener implements ObservableProjectConfigManager.Listener {
+
+        private final List<ProjectConfig[]> calls = new ArrayList<ProjectConfig[]>();
+
+        @Override
+        public void onConfigPublished(ProjectConfig previousConfig, ProjectConfig projectConfig) {
+            calls.add(new ProjectConfig[]{previousConfig, projectConfig});
+        }
+    }
+}
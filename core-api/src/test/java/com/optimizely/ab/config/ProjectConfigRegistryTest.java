@@ -0,0 +1,147 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.optimizely.ab.config.parser.ConfigParseException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV4;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ProjectConfigRegistry}.
+ */
+public class ProjectConfigRegistryTest {
+
+    private static final String REVISION = "1480511547";
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private final ProjectConfigRegistry registry = new ProjectConfigRegistry(2, 1, TimeUnit.HOURS);
+
+    @Test
+    public void sameRevisionIsShared() throws Exception {
+        ProjectConfigRegistry.Lease first = registry.acquire(validConfigJsonV4());
+        ProjectConfigRegistry.Lease second = registry.acquire(validConfigJsonV4());
+
+        assertSame(first.getConfig(), second.getConfig());
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void parsedConfigIsShared() throws Exception {
+        ProjectConfigRegistry.Lease registered = registry.acquire(validConfigJsonV4());
+        ProjectConfig parsed = new ProjectConfig.Builder().withDatafile(validConfigJsonV4()).build();
+
+        assertSame(registered.getConfig(), registry.acquire(parsed).getConfig());
+    }
+
+    @Test
+    public void differentRevisionsAreNotShared() throws Exception {
+        ProjectConfigRegistry.Lease first = registry.acquire(validConfigJsonV4());
+        ProjectConfigRegistry.Lease second = registry.acquire(datafileWithRevision("2"));
+
+        assertNotSame(first.getConfig(), second.getConfig());
+        assertEquals("2", second.getConfig().getRevision());
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedUnreferencedConfigIsEvicted() throws Exception {
+        registry.acquire(datafileWithRevision("1")).close();
+        registry.acquire(datafileWithRevision("2")).close();
+        registry.acquire(datafileWithRevision("1")).close();
+        registry.acquire(datafileWithRevision("3")).close();
+
+        assertEquals(2, registry.size());
+        assertTrue(registry.contains("3918735994", "1"));
+        assertFalse(registry.contains("3918735994", "2"));
+        assertTrue(registry.contains("3918735994", "3"));
+    }
+
+    @Test
+    public void referencedConfigsAreNotEvicted() throws Exception {
+        ProjectConfigRegistry.Lease first = registry.acquire(datafileWithRevision("1"));
+        registry.acquire(datafileWithRevision("2"));
+        registry.acquire(datafileWithRevision("3"));
+
+        assertEquals(3, registry.size());
+
+        first.close();
+        assertEquals(2, registry.size());
+        assertFalse(registry.contains("3918735994", "1"));
+    }
+
+    @Test
+    public void idleConfigIsEvicted() throws Exception {
+        ProjectConfigRegistry idleRegistry = new ProjectConfigRegistry(10, 0, TimeUnit.NANOSECONDS);
+        ProjectConfigRegistry.Lease lease = idleRegistry.acquire(validConfigJsonV4());
+        assertEquals(1, idleRegistry.size());
+
+        lease.close();
+        assertEquals(0, idleRegistry.size());
+    }
+
+    @Test
+    public void closingLeaseTwiceReleasesOnce() throws Exception {
+        ProjectConfigRegistry idleRegistry = new ProjectConfigRegistry(10, 0, TimeUnit.NANOSECONDS);
+        ProjectConfigRegistry.Lease first = idleRegistry.acquire(validConfigJsonV4());
+        ProjectConfigRegistry.Lease second = idleRegistry.acquire(validConfigJsonV4());
+
+        first.close();
+        first.close();
+        assertTrue(idleRegistry.contains("3918735994", REVISION));
+
+        second.close();
+        assertFalse(idleRegistry.contains("3918735994", REVISION));
+    }
+
+    @Test
+    public void datafileWithoutRevisionIsNotRegistered() throws Exception {
+        String datafile = validConfigJsonV4().replace("\"revision\": \"" + REVISION + "\",", "");
+        ProjectConfigRegistry.Lease lease = registry.acquire(datafile);
+
+        assertEquals(0, registry.size());
+        assertEquals(null, lease.getConfig().getRevision());
+    }
+
+    /**
+     * Verify that an invalid datafile results in a {@link ConfigParseException} being thrown.
+     */
+    @Test
+    public void invalidDatafileExceptionWrapping() throws Exception {
+        thrown.expect(ConfigParseException.class);
+
+        registry.acquire("{invalidDatafile}");
+    }
+
+    //======== Helper methods ========//
+
+    private static String datafileWithRevision(String revision) throws IOException {
+        return validConfigJsonV4().replace("\"revision\": \"" + REVISION + "\"", "\"revision\": \"" + revision + "\"");
+    }
+}
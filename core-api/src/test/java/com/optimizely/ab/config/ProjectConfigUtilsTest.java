@@ -0,0 +1,100 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ProjectConfigUtils}.
+ */
+public class ProjectConfigUtilsTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void isNewerRevisionComparesNumericRevisions() {
+        assertTrue(ProjectConfigUtils.isNewerRevision("10", "9"));
+        assertFalse(ProjectConfigUtils.isNewerRevision("9", "10"));
+        assertFalse(ProjectConfigUtils.isNewerRevision("10", "10"));
+    }
+
+    @Test
+    public void isNewerRevisionComparesOtherRevisionsForEquality() {
+        assertTrue(ProjectConfigUtils.isNewerRevision("b", "a"));
+        assertTrue(ProjectConfigUtils.isNewerRevision("a", "b"));
+        assertFalse(ProjectConfigUtils.isNewerRevision("a", "a"));
+    }
+
+    @Test
+    public void generateIdMappingSharesEmptyMapping() {
+        assertSame(Collections.emptyMap(), ProjectConfigUtils.generateIdMapping(Collections.<Attribute>emptyList()));
+    }
+
+    @Test
+    public void generateIdMappingMatchesHashMapForSmallAndLargeMappings() {
+        for (int size : new int[]{1, ArrayMap.MAX_SIZE, ArrayMap.MAX_SIZE + 1, 100}) {
+            List<Attribute> attributes = new ArrayList<Attribute>();
+            Map<String, Attribute> expected = new HashMap<String, Attribute>();
+            for (int i = 0; i < size; i++) {
+                Attribute attribute = new Attribute(String.valueOf(i), "key" + i);
+                attributes.add(attribute);
+                expected.put(attribute.getId(), attribute);
+            }
+
+            Map<String, Attribute> actual = ProjectConfigUtils.generateIdMapping(attributes);
+            assertEquals(expected, actual);
+            assertEquals(expected.hashCode(), actual.hashCode());
+            for (Attribute attribute : attributes) {
+                assertSame(attribute, actual.get(attribute.getId()));
+            }
+        }
+    }
+
+    @Test
+    public void generateIdMappingKeepsLastDuplicate() {
+        Attribute first = new Attribute("1", "first");
+        Attribute second = new Attribute("1", "second");
+        Map<String, Attribute> mapping = ProjectConfigUtils.generateIdMapping(Arrays.asList(first, second));
+
+        assertEquals(1, mapping.size());
+        assertSame(second, mapping.get("1"));
+    }
+
+    @Test
+    public void generateNameMappingIsUnmodifiable() {
+        Map<String, Attribute> mapping =
+            ProjectConfigUtils.generateNameMapping(Collections.singletonList(new Attribute("1", "key")));
+
+        thrown.expect(UnsupportedOperationException.class);
+        mapping.put("other", new Attribute("2", "other"));
+    }
+}
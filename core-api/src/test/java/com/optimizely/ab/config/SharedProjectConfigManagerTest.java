@@ -0,0 +1,228 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV4;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV4;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.verifyProjectConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SharedProjectConfigManager}.
+ */
+public class SharedProjectConfigManagerTest {
+
+    private static final String DATAFILE_FORMAT = "{\"accountId\":\"1\",\"projectId\":\"2\",\"revision\":\"%s\"," +
+        "\"version\":\"4\",\"anonymizeIP\":false,\"attributes\":[],\"audiences\":[],\"events\":[]," +
+        "\"experiments\":[],\"groups\":[],\"featureFlags\":[],\"rollouts\":[]}";
+
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path sharedFilePath;
+    private SharedProjectConfigManager leader;
+    private SharedProjectConfigManager follower;
+
+    @Before
+    public void setUp() {
+        sharedFilePath = temporaryFolder.getRoot().toPath().resolve("config.shared");
+        leader = SharedProjectConfigManager.builder(sharedFilePath)
+            .withSource(new AtomicProjectConfigManager())
+            .build();
+        follower = SharedProjectConfigManager.builder(sharedFilePath)
+            .withPollingInterval(10, TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    @After
+    public void tearDown() {
+        leader.close();
+        follower.close();
+    }
+
+    @Test
+    public void followerReadsConfigWrittenByLeader() throws Exception {
+        ProjectConfig projectConfig = validProjectConfigV4();
+        leader.write(projectConfig);
+
+        assertTrue(leader.isLeader());
+        assertFalse(follower.isLeader());
+        verifyProjectConfig(follower.read(), projectConfig);
+    }
+
+    @Test
+    public void followerReadsOnlyWhenSequenceMoves() throws Exception {
+        leader.write(config("10"));
+        assertEquals("10", follower.read().getRevision());
+        assertNull(follower.read());
+
+        leader.write(config("11"));
+        assertEquals("11", follower.read().getRevision());
+    }
+
+    @Test
+    public void leaderGrowsFileForLargerSnapshot() throws Exception {
+        leader.write(config("10"));
+        assertEquals("10", follower.read().getRevision());
+        long size = Files.size(sharedFilePath);
+
+        leader.write(new ProjectConfig.Builder().withDatafile(validConfigJsonV4()).build());
+        assertTrue(Files.size(sharedFilePath) > size);
+        assertEquals(validProjectConfigV4().getRevision(), follower.read().getRevision());
+    }
+
+    @Test
+    public void missingFileIsReadOnceCreated() throws Exception {
+        assertNull(follower.read());
+
+        leader.write(config("10"));
+        assertEquals("10", follower.read().getRevision());
+    }
+
+    @Test
+    public void snapshotBeingWrittenIsNotRead() throws Exception {
+        leader.write(config("10"));
+        long sequence = readSequence();
+        writeSequence(sequence + 1);
+
+        assertNull(follower.read());
+
+        writeSequence(sequence);
+        assertEquals("10", follower.read().getRevision());
+    }
+
+    @Test
+    public void corruptSnapshotIsReadAgainOnNextPoll() throws Exception {
+        leader.write(config("10"));
+        // flip a byte in the middle of the snapshot
+        long position = SharedProjectConfigManager.HEADER_SIZE + read(16, 4).getInt(0) / 2;
+        byte original = read(position, 1).get(0);
+        write(ByteBuffer.wrap(new byte[]{(byte) ~original}), position);
+
+        assertNull(follower.read());
+
+        write(ByteBuffer.wrap(new byte[]{original}), position);
+        assertEquals("10", follower.read().getRevision());
+    }
+
+    @Test
+    public void leaderRecoversFromInterruptedWrite() throws Exception {
+        leader.write(config("10"));
+        writeSequence(readSequence() + 1);
+
+        leader.write(config("11"));
+        assertEquals(0, readSequence() % 2);
+        assertEquals("11", follower.read().getRevision());
+    }
+
+    @Test
+    public void fileOfAnotherFormatIsNotOverwritten() throws Exception {
+        Files.write(sharedFilePath, String.format(DATAFILE_FORMAT, "10").getBytes("UTF-8"));
+
+        thrown.expect(IOException.class);
+        leader.write(config("10"));
+    }
+
+    @Test
+    public void startedFollowerPicksUpSourceConfigOfStartedLeader() throws Exception {
+        AtomicProjectConfigManager source = new AtomicProjectConfigManager(config("10"));
+        leader.close();
+        leader = SharedProjectConfigManager.builder(sharedFilePath)
+            .withSource(source)
+            .withPollingInterval(10, TimeUnit.MILLISECONDS)
+            .build();
+        leader.start();
+        follower.start();
+
+        awaitRevision("10");
+
+        source.setConfig(config("11"));
+        awaitRevision("11");
+        assertEquals("11", leader.getConfig().getRevision());
+    }
+
+    //======== Helper methods ========//
+
+    private static ProjectConfig config(String revision) throws Exception {
+        return new ProjectConfig.Builder().withDatafile(String.format(DATAFILE_FORMAT, revision)).build();
+    }
+
+    private void awaitRevision(String revision) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            ProjectConfig projectConfig = follower.getConfig();
+            if (projectConfig != null && revision.equals(projectConfig.getRevision())) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        assertEquals(revision, follower.getConfig() == null ? null : follower.getConfig().getRevision());
+    }
+
+    private long readSequence() throws IOException {
+        return read(8, 8).getLong(0);
+    }
+
+    private void writeSequence(long sequence) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putLong(0, sequence);
+        write(buffer, 8);
+    }
+
+    private ByteBuffer read(long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        FileChannel channel = FileChannel.open(sharedFilePath, StandardOpenOption.READ);
+        try {
+            channel.read(buffer, position);
+        } finally {
+            channel.close();
+        }
+        return buffer;
+    }
+
+    private void write(ByteBuffer buffer, long position) throws IOException {
+        FileChannel channel = FileChannel.open(sharedFilePath, StandardOpenOption.WRITE);
+        try {
+            channel.write(buffer, position);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,414 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config.parser;
+
+import com.optimizely.ab.config.Experiment;
+import com.optimizely.ab.config.Group;
+import com.optimizely.ab.config.ProjectConfig;
+import com.optimizely.ab.config.audience.AndCondition;
+import com.optimizely.ab.config.audience.Audience;
+import com.optimizely.ab.config.audience.AudienceIdCondition;
+import com.optimizely.ab.config.audience.Condition;
+import com.optimizely.ab.config.audience.EmptyCondition;
+import com.optimizely.ab.config.audience.OrCondition;
+import com.optimizely.ab.config.audience.UserAttribute;
+import com.optimizely.ab.internal.InvalidAudienceCondition;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.optimizely.ab.config.ProjectConfigTestUtils.nullFeatureEnabledConfigJsonV4;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV2;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV3;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV4;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV2;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV3;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV4;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.verifyProjectConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link BuiltInConfigParser}.
+ */
+public class BuiltInConfigParserTest {
+
+    private static final String DATAFILE_FORMAT = "{\"accountId\":\"1\",\"projectId\":\"2\",\"revision\":\"3\"," +
+        "\"version\":\"4\",\"anonymizeIP\":false,\"attributes\":[],\"audiences\":[],\"events\":[]," +
+        "\"experiments\":[],\"groups\":[],\"featureFlags\":[],\"rollouts\":[]%s}";
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private final BuiltInConfigParser parser = new BuiltInConfigParser();
+
+    @Test
+    public void parseProjectConfigV2() throws Exception {
+        ProjectConfig actual = parser.parseProjectConfig(validConfigJsonV2());
+        ProjectConfig expected = validProjectConfigV2();
+
+        verifyProjectConfig(actual, expected);
+    }
+
+    @Test
+    public void parseProjectConfigV3() throws Exception {
+        ProjectConfig actual = parser.parseProjectConfig(validConfigJsonV3());
+        ProjectConfig expected = validProjectConfigV3();
+
+        verifyProjectConfig(actual, expected);
+    }
+
+    @Test
+    public void parseProjectConfigV4() throws Exception {
+        ProjectConfig actual = parser.parseProjectConfig(validConfigJsonV4());
+        ProjectConfig expected = validProjectConfigV4();
+
+        verifyProjectConfig(actual, expected);
+    }
+
+    @Test
+    public void parseProjectConfigV4FromBytes() throws Exception {
+        ProjectConfig actual = parser.parseProjectConfig(validConfigJsonV4().getBytes(StandardCharsets.UTF_8));
+        ProjectConfig expected = validProjectConfigV4();
+
+        verifyProjectConfig(actual, expected);
+    }
+
+    @Test
+    public void parseProjectConfigV4FromInputStream() throws Exception {
+        byte[] json = validConfigJsonV4().getBytes(StandardCharsets.UTF_8);
+        ProjectConfig actual = parser.parseProjectConfig(new ByteArrayInputStream(json));
+        ProjectConfig expected = validProjectConfigV4();
+
+        verifyProjectConfig(actual, expected);
+    }
+
+    @Test
+    public void parseProjectConfigV3FromDirectByteBuffer() throws Exception {
+        byte[] json = validConfigJsonV3().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(json.length);
+        buffer.put(json).flip();
+        ProjectConfig actual = parser.parseProjectConfig(buffer);
+        ProjectConfig expected = validProjectConfigV3();
+
+        verifyProjectConfig(actual, expected);
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void parseNullFeatureEnabledProjectConfigV4() throws Exception {
+        ProjectConfig actual = parser.parseProjectConfig(nullFeatureEnabledConfigJsonV4());
+
+        assertNotNull(actual);
+        assertNotNull(actual.getExperiments());
+        assertNotNull(actual.getFeatureFlags());
+    }
+
+    /**
+     * Verify that the built-in parser produces the same config as the Jackson parser, which it replaces as the
+     * default.
+     */
+    @Test
+    public void parseProjectConfigMatchesJackson() throws Exception {
+        for (String json : new String[]{validConfigJsonV2(), validConfigJsonV3(), validConfigJsonV4()}) {
+            verifyProjectConfig(parser.parseProjectConfig(json), new JacksonConfigParser().parseProjectConfig(json));
+        }
+    }
+
+    @Test
+    public void parseTypedAudienceConditions() throws Exception {
+        String typedAudiences = ",\"typedAudiences\":[{\"id\":\"1\",\"name\":\"typed\",\"conditions\":" +
+            "[\"and\",{\"name\":\"int\",\"type\":\"custom_attribute\",\"match\":\"gt\",\"value\":10}," +
+            "{\"name\":\"double\",\"type\":\"custom_attribute\",\"match\":\"lt\",\"value\":1.5}," +
+            "{\"name\":\"bool\",\"type\":\"custom_attribute\",\"match\":\"exact\",\"value\":true}]}]";
+        ProjectConfig projectConfig = parser.parseProjectConfig(String.format(DATAFILE_FORMAT, typedAudiences));
+
+        Audience audience = projectConfig.getTypedAudiences().get(0);
+        AndCondition conditions = (AndCondition) audience.getConditions();
+        assertEquals(3, conditions.getConditions().size());
+        assertEquals(10, ((UserAttribute) conditions.getConditions().get(0)).getValue());
+        assertEquals(1.5, ((UserAttribute) conditions.getConditions().get(1)).getValue());
+        assertEquals(true, ((UserAttribute) conditions.getConditions().get(2)).getValue());
+    }
+
+    @Test
+    public void parseLegacyAudienceConditionsString() throws Exception {
+        String audiences = "{\"id\":\"1\",\"name\":\"legacy\",\"conditions\":" +
+            "\"[\\\"and\\\", [\\\"or\\\", {\\\"name\\\": \\\"browser\\\", \\\"type\\\": \\\"custom_attribute\\\", " +
+            "\\\"value\\\": \\\"chrome\\\"}]]\"}";
+        ProjectConfig projectConfig = parser.parseProjectConfig(
+            String.format(DATAFILE_FORMAT, "").replace("\"audiences\":[]", "\"audiences\":[" + audiences + "]"));
+
+        Condition conditions = projectConfig.getAudience("1").getConditions();
+        assertTrue(conditions instanceof AndCondition);
+        OrCondition orCondition = (OrCondition) ((AndCondition) conditions).getConditions().get(0);
+        assertEquals(new UserAttribute("browser", "custom_attribute", null, "chrome"), orCondition.getConditions().get(0));
+    }
+
+    @Test
+    public void parseAudienceIdConditions() throws Exception {
+        String experiments = "[{\"id\":\"10\",\"key\":\"exp\",\"status\":\"Running\",\"layerId\":\"20\"," +
+            "\"audienceIds\":[],\"audienceConditions\":[\"or\",\"1\",[\"not\",\"2\"]],\"variations\":[]," +
+            "\"forcedVariations\":{},\"trafficAllocation\":[]}," +
+            "{\"id\":\"11\",\"key\":\"empty\",\"status\":\"Running\",\"layerId\":\"21\",\"audienceIds\":[]," +
+            "\"audienceConditions\":[],\"variations\":[],\"forcedVariations\":{},\"trafficAllocation\":[]}]";
+        ProjectConfig projectConfig = parser.parseProjectConfig(
+            String.format(DATAFILE_FORMAT, "").replace("\"experiments\":[]", "\"experiments\":" + experiments));
+
+        OrCondition conditions = (OrCondition) projectConfig.getExperimentKeyMapping().get("exp").getAudienceConditions();
+        assertEquals(new AudienceIdCondition("1"), conditions.getConditions().get(0));
+        assertTrue(projectConfig.getExperimentKeyMapping().get("empty").getAudienceConditions() instanceof EmptyCondition);
+    }
+
+    @Test
+    public void parseInvalidAudienceConditions() throws Exception {
+        String experiments = "[{\"id\":\"10\",\"key\":\"exp\",\"status\":\"Running\",\"layerId\":\"20\"," +
+            "\"audienceIds\":[],\"audienceConditions\":[\"and\",\"1\",{\"name\":\"attr\",\"type\":\"custom_attribute\"," +
+            "\"value\":\"string\"}],\"variations\":[],\"forcedVariations\":{},\"trafficAllocation\":[]}]";
+        try {
+            parser.parseProjectConfig(
+                String.format(DATAFILE_FORMAT, "").replace("\"experiments\":[]", "\"experiments\":" + experiments));
+        } catch (ConfigParseException e) {
+            assertTrue(e.getCause() instanceof InvalidAudienceCondition);
+            return;
+        }
+        throw new AssertionError("expected ConfigParseException");
+    }
+
+    @Test
+    public void parseEscapedAndNonAsciiStrings() throws Exception {
+        String experiments = "[{\"id\":\"10\",\"key\":\"caf\u00e9 \\\"quoted\\\" \\u00e9\\ud83d\\ude00\"," +
+            "\"status\":\"Running\",\"layerId\":\"20\",\"audienceIds\":[],\"variations\":[]," +
+            "\"forcedVariations\":{\"user\\n1\":\"v\"},\"trafficAllocation\":[]}]";
+        ProjectConfig projectConfig = parser.parseProjectConfig(
+            String.format(DATAFILE_FORMAT, "").replace("\"experiments\":[]", "\"experiments\":" + experiments));
+
+        Experiment experiment = projectConfig.getExperiments().get(0);
+        assertEquals("caf\u00e9 \"quoted\" \u00e9\ud83d\ude00", experiment.getKey());
+        assertEquals("v", experiment.getUserIdToVariationKeyMap().get("user\n1"));
+    }
+
+    @Test
+    public void unknownMembersAreSkipped() throws Exception {
+        ProjectConfig projectConfig = parser.parseProjectConfig(String.format(DATAFILE_FORMAT,
+            ",\"newSection\":{\"nested\":[1,2.5e3,-3,true,false,null,\"s\",{\"a\":[]}]}"));
+
+        assertEquals("3", projectConfig.getRevision());
+        assertFalse(projectConfig.getAnonymizeIP());
+    }
+
+    /**
+     * Verify that a trailing comma results in a {@link ConfigParseException} being thrown.
+     */
+    @Test
+    public void trailingCommaExceptionWrapping() throws Exception {
+        thrown.expect(ConfigParseException.class);
+
+        parser.parseProjectConfig(String.format(DATAFILE_FORMAT, ","));
+    }
+
+    /**
+     * Verify that content after the root object results in a {@link ConfigParseException} being thrown.
+     */
+    @Test
+    public void trailingContentExceptionWrapping() throws Exception {
+        thrown.expect(ConfigParseException.class);
+
+        parser.parseProjectConfig(String.format(DATAFILE_FORMAT, "") + "{}");
+    }
+
+    /**
+     * Verify that invalid JSON results in a {@link ConfigParseException} being thrown.
+     */
+    @Test
+    public void invalidJsonExceptionWrapping() throws Exception {
+        thrown.expect(ConfigParseException.class);
+
+        parser.parseProjectConfig("invalid config");
+    }
+
+    /**
+     * Verify that valid JSON without a required field results in a {@link ConfigParseException} being thrown.
+     */
+    @Test
+    public void validJsonRequiredFieldMissingExceptionWrapping() throws Exception {
+        thrown.expect(ConfigParseException.class);
+
+        parser.parseProjectConfig("{\"valid\": \"json\"}");
+    }
+
+    /**
+     * Verify that truncated JSON bytes result in a {@link ConfigParseException} being thrown.
+     */
+    @Test
+    public void truncatedJsonBytesExceptionWrapping() throws Exception {
+        thrown.expect(ConfigParseException.class);
+
+        byte[] json = validConfigJsonV4().getBytes(StandardCharsets.UTF_8);
+        parser.parseProjectConfig(ByteBuffer.wrap(json, 0, json.length / 2));
+    }
+
+    /**
+     * Verify that empty string JSON results in a {@link ConfigParseException} being thrown.
+     */
+    @Test
+    public void emptyJsonExceptionWrapping() throws Exception {
+        thrown.expect(ConfigParseException.class);
+
+        parser.parseProjectConfig("");
+    }
+
+    /**
+     * Verify that null JSON results in a {@link ConfigParseException} being thrown.
+     */
+    @Test
+    @SuppressFBWarnings(value = "NP_NONNULL_PARAM_VIOLATION", justification = "Testing nullness contract violation")
+    public void nullJsonExceptionWrapping() throws Exception {
+        thrown.expect(ConfigParseException.class);
+
+        parser.parseProjectConfig((String) null);
+    }
+
+    @Test
+    public void parsedStringsAreDeduplicated() throws Exception {
+        ProjectConfig projectConfig = parser.parseProjectConfig(validConfigJsonV4());
+
+        List<Experiment> experiments = projectConfig.getExperiments();
+        assertSame(experiments.get(0).getStatus(), experiments.get(1).getStatus());
+        String variationId = experiments.get(0).getTrafficAllocation().get(0).getEntityId();
+        assertSame(experiments.get(0).getVariationIdToVariationMap().get(variationId).getId(), variationId);
+    }
+
+    @Test
+    public void parseSectionsInParallel() throws Exception {
+        // one element per chunk, so that every section is spread over several tasks
+        BuiltInConfigParser parallelParser = new BuiltInConfigParser(ForkJoinPool.commonPool(), 0, 1);
+
+        verifyProjectConfig(parallelParser.parseProjectConfig(validConfigJsonV2()), validProjectConfigV2());
+        verifyProjectConfig(parallelParser.parseProjectConfig(validConfigJsonV3()), validProjectConfigV3());
+        verifyProjectConfig(parallelParser.parseProjectConfig(validConfigJsonV4()), validProjectConfigV4());
+        verifyProjectConfig(parallelParser.parseProjectConfig(validConfigJsonV4().getBytes(StandardCharsets.UTF_8)),
+            validProjectConfigV4());
+    }
+
+    @Test
+    public void parseSectionsInParallelKeepsNullAndEmptySections() throws Exception {
+        BuiltInConfigParser parallelParser = new BuiltInConfigParser(ForkJoinPool.commonPool(), 0, 1);
+        ProjectConfig projectConfig = parallelParser.parseProjectConfig(
+            String.format(DATAFILE_FORMAT, ",\"typedAudiences\":null"));
+
+        assertTrue(projectConfig.getExperiments().isEmpty());
+        assertTrue(projectConfig.getTypedAudiences().isEmpty());
+    }
+
+    /**
+     * Verify that an invalid element parsed on the pool results in a {@link ConfigParseException} being thrown.
+     */
+    @Test
+    public void parallelElementExceptionWrapping() throws Exception {
+        thrown.expect(ConfigParseException.class);
+
+        BuiltInConfigParser parallelParser = new BuiltInConfigParser(ForkJoinPool.commonPool(), 0, 1);
+        String datafile = validConfigJsonV4().replaceFirst("\"experiments\": \\[", "\"experiments\": [1, ");
+        parallelParser.parseProjectConfig(datafile);
+    }
+
+    @Test
+    public void projectionKeepsFeatureDependencies() throws Exception {
+        BuiltInConfigParser projectingParser = new BuiltInConfigParser(
+            DatafileProjection.ofFeatures(Collections.singleton("multi_variate_feature")));
+        ProjectConfig projectConfig = projectingParser.parseProjectConfig(validConfigJsonV4());
+
+        assertEquals(Collections.singleton("multi_variate_feature"), projectConfig.getFeatureKeyMapping().keySet());
+        assertEquals(Collections.singleton("multivariate_experiment"),
+            projectConfig.getExperimentKeyMapping().keySet());
+        assertEquals(Collections.singleton("813411034"), projectConfig.getRolloutIdMapping().keySet());
+        assertEquals(4, projectConfig.getRollouts().get(0).getExperiments().size());
+        assertTrue(projectConfig.getGroups().isEmpty());
+        // the audiences of the experiment and of the rollout rules
+        assertEquals(new HashSet<String>(Arrays.asList("3468206642", "3988293898", "4194404272")),
+            projectConfig.getAudienceIdMapping().keySet());
+        // attributes and events are kept in full
+        ProjectConfig fullConfig = validProjectConfigV4();
+        assertEquals(fullConfig.getAttributes().size(), projectConfig.getAttributes().size());
+        assertEquals(fullConfig.getEventTypes().size(), projectConfig.getEventTypes().size());
+    }
+
+    @Test
+    public void projectionKeepsGroupedExperimentsOfFeature() throws Exception {
+        BuiltInConfigParser projectingParser = new BuiltInConfigParser(
+            DatafileProjection.ofFeatures(Collections.singleton("mutex_group_feature")));
+        ProjectConfig projectConfig = projectingParser.parseProjectConfig(validConfigJsonV4());
+
+        assertEquals(Collections.singleton("2606208781"), projectConfig.getGroupIdMapping().keySet());
+        assertEquals(new HashSet<String>(Arrays.asList("mutex_group_2_experiment_1", "mutex_group_2_experiment_2")),
+            projectConfig.getExperimentKeyMapping().keySet());
+        assertTrue(projectConfig.getRollouts().isEmpty());
+        assertTrue(projectConfig.getAudienceIdMapping().isEmpty());
+    }
+
+    @Test
+    public void projectionKeepsGroupTrafficAllocation() throws Exception {
+        BuiltInConfigParser projectingParser = new BuiltInConfigParser(
+            DatafileProjection.ofExperiments(Collections.singleton("first_grouped_experiment")));
+        ProjectConfig projectConfig = projectingParser.parseProjectConfig(validConfigJsonV4());
+
+        assertTrue(projectConfig.getFeatureFlags().isEmpty());
+        assertEquals(1, projectConfig.getGroups().size());
+        Group group = projectConfig.getGroups().get(0);
+        assertEquals(1, group.getExperiments().size());
+        assertEquals("first_grouped_experiment", group.getExperiments().get(0).getKey());
+        assertEquals(2, group.getTrafficAllocation().size());
+        assertEquals(Collections.singleton("3468206642"), projectConfig.getAudienceIdMapping().keySet());
+    }
+
+    @Test
+    public void projectionOfUnknownKeysKeepsNoEntities() throws Exception {
+        BuiltInConfigParser projectingParser = new BuiltInConfigParser(
+            DatafileProjection.of(Collections.singleton("unknown_feature"), Collections.singleton("unknown")));
+        ProjectConfig projectConfig = projectingParser.parseProjectConfig(validConfigJsonV2());
+
+        assertEquals(validProjectConfigV2().getRevision(), projectConfig.getRevision());
+        assertTrue(projectConfig.getExperiments().isEmpty());
+        assertTrue(projectConfig.getGroups().isEmpty());
+        assertTrue(projectConfig.getAudiences().isEmpty());
+    }
+
+    @Test
+    public void projectionKeepsNullAndEmptySections() throws Exception {
+        BuiltInConfigParser projectingParser = new BuiltInConfigParser(
+            DatafileProjection.ofExperiments(Collections.singleton("unknown")));
+        ProjectConfig projectConfig = projectingParser.parseProjectConfig(
+            String.format(DATAFILE_FORMAT, ",\"typedAudiences\":null"));
+
+        assertTrue(projectConfig.getExperiments().isEmpty());
+        assertTrue(projectConfig.getTypedAudiences().isEmpty());
+    }
+}
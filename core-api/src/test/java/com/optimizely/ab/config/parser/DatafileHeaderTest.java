@@ -0,0 +1,89 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config.parser;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV2;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV4;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link DatafileHeader}.
+ */
+public class DatafileHeaderTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void readHeader() throws Exception {
+        DatafileHeader header = DatafileHeader.read(validConfigJsonV4());
+
+        assertEquals("4", header.getVersion());
+        assertEquals("3918735994", header.getProjectId());
+        assertEquals("1480511547", header.getRevision());
+    }
+
+    @Test
+    public void readHeaderV2() throws Exception {
+        DatafileHeader header = DatafileHeader.read(validConfigJsonV2());
+
+        assertEquals("2", header.getVersion());
+        assertEquals("42", header.getRevision());
+    }
+
+    @Test
+    public void missingFieldsAreNull() throws Exception {
+        DatafileHeader header = DatafileHeader.read("{\"version\":\"4\",\"revision\":null,\"experiments\":[]}");
+
+        assertEquals("4", header.getVersion());
+        assertNull(header.getProjectId());
+        assertNull(header.getRevision());
+    }
+
+    @Test
+    public void scanningStopsOnceAllFieldsAreSeen() throws Exception {
+        String datafile = "{\"version\":\"4\",\"projectId\":\"1\",\"revision\":\"2\",invalid";
+        DatafileHeader header = DatafileHeader.read(datafile);
+
+        assertEquals("2", header.getRevision());
+    }
+
+    /**
+     * Verify that invalid JSON results in a {@link ConfigParseException} being thrown.
+     */
+    @Test
+    public void invalidJsonExceptionWrapping() throws Exception {
+        thrown.expect(ConfigParseException.class);
+
+        DatafileHeader.read("{invalidDatafile}");
+    }
+
+    /**
+     * Verify that empty JSON results in a {@link ConfigParseException} being thrown.
+     */
+    @Test
+    public void emptyJsonExceptionWrapping() throws Exception {
+        thrown.expect(ConfigParseException.class);
+
+        DatafileHeader.read("");
+    }
+}
@@ -1,6 +1,6 @@
 /**
  *
- *    Copyright 2016-2017, Optimizely and contributors
+ *    Copyright 2016-2017, 2019, Optimizely and contributors
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -18,11 +18,18 @@ package com.optimizely.ab.config.parser;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertTrue;
+
 /**
  * Tests for {@link DefaultConfigParser}.
  */
 public class DefaultConfigParserTest {
 
+    @Test
+    public void defaultsToBuiltInParser() throws Exception {
+        assertTrue(DefaultConfigParser.getInstance() instanceof BuiltInConfigParser);
+    }
+
     @Test
     public void createThrowException() throws Exception {
         // FIXME - mdodsworth: hmmm, this isn't going to be the easiest thing to test
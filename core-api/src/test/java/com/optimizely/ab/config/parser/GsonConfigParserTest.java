@@ -34,6 +34,10 @@ import org.junit.rules.ExpectedException;
 import java.lang.reflect.Type;
 import java.util.List;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import static com.optimizely.ab.config.ProjectConfigTestUtils.nullFeatureEnabledConfigJsonV4;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV2;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV3;
@@ -42,6 +46,7 @@ import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfig
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV3;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV4;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.verifyProjectConfig;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 /**
@@ -79,6 +84,38 @@ public class GsonConfigParserTest {
         verifyProjectConfig(actual, expected);
     }
 
+    @Test
+    public void parseProjectConfigV4FromBytes() throws Exception {
+        GsonConfigParser parser = new GsonConfigParser();
+        ProjectConfig actual = parser.parseProjectConfig(validConfigJsonV4().getBytes(StandardCharsets.UTF_8));
+        ProjectConfig expected = validProjectConfigV4();
+
+        verifyProjectConfig(actual, expected);
+    }
+
+    @Test
+    public void parseProjectConfigV4FromInputStream() throws Exception {
+        GsonConfigParser parser = new GsonConfigParser();
+        byte[] json = validConfigJsonV4().getBytes(StandardCharsets.UTF_8);
+        ProjectConfig actual = parser.parseProjectConfig(new ByteArrayInputStream(json));
+        ProjectConfig expected = validProjectConfigV4();
+
+        verifyProjectConfig(actual, expected);
+    }
+
+    @Test
+    public void parseProjectConfigV3FromDirectByteBuffer() throws Exception {
+        GsonConfigParser parser = new GsonConfigParser();
+        byte[] json = validConfigJsonV3().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(json.length);
+        buffer.put(json).flip();
+        ProjectConfig actual = parser.parseProjectConfig(buffer);
+        ProjectConfig expected = validProjectConfigV3();
+
+        verifyProjectConfig(actual, expected);
+        assertEquals(0, buffer.position());
+    }
+
     @Test
     public void parseNullFeatureEnabledProjectConfigV4() throws Exception {
         GsonConfigParser parser = new GsonConfigParser();
@@ -244,6 +281,47 @@ public class GsonConfigParserTest {
         parser.parseProjectConfig("{\"valid\": \"json\"}");
     }
 
+    /**
+     * Verify that a datafile without a required section results in a {@link ConfigParseException} naming it.
+     */
+    @Test
+    public void missingRequiredSectionNamesSection() throws Exception {
+        thrown.expect(ConfigParseException.class);
+        thrown.expectMessage("Missing required field \"rollouts\"");
+
+        JsonObject datafile = new Gson().fromJson(validConfigJsonV4(), JsonObject.class);
+        datafile.remove("rollouts");
+
+        GsonConfigParser parser = new GsonConfigParser();
+        parser.parseProjectConfig(datafile.toString());
+    }
+
+    /**
+     * Verify that a null required section results in a {@link ConfigParseException} naming it.
+     */
+    @Test
+    public void nullRequiredSectionNamesSection() throws Exception {
+        thrown.expect(ConfigParseException.class);
+        thrown.expectMessage("Missing required field \"attributes\"");
+
+        JsonObject datafile = new Gson().fromJson(validConfigJsonV3(), JsonObject.class);
+        datafile.add("attributes", null);
+
+        GsonConfigParser parser = new GsonConfigParser();
+        parser.parseProjectConfig(datafile.toString());
+    }
+
+    /**
+     * Verify that invalid JSON bytes result in a {@link ConfigParseException} being thrown.
+     */
+    @Test
+    public void invalidJsonBytesExceptionWrapping() throws Exception {
+        thrown.expect(ConfigParseException.class);
+
+        GsonConfigParser parser = new GsonConfigParser();
+        parser.parseProjectConfig("invalid config".getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * Verify that empty string JSON results in a {@link ConfigParseException} being thrown.
      */
@@ -264,6 +342,6 @@ public class GsonConfigParserTest {
         thrown.expect(ConfigParseException.class);
 
         GsonConfigParser parser = new GsonConfigParser();
-        parser.parseProjectConfig(null);
+        parser.parseProjectConfig((String) null);
     }
 }
@@ -28,6 +28,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import static com.optimizely.ab.config.ProjectConfigTestUtils.nullFeatureEnabledConfigJsonV4;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV2;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV3;
@@ -36,6 +40,7 @@ import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfig
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV3;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV4;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.verifyProjectConfig;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 /**
@@ -73,6 +78,38 @@ public class JacksonConfigParserTest {
         verifyProjectConfig(actual, expected);
     }
 
+    @Test
+    public void parseProjectConfigV4FromBytes() throws Exception {
+        JacksonConfigParser parser = new JacksonConfigParser();
+        ProjectConfig actual = parser.parseProjectConfig(validConfigJsonV4().getBytes(StandardCharsets.UTF_8));
+        ProjectConfig expected = validProjectConfigV4();
+
+        verifyProjectConfig(actual, expected);
+    }
+
+    @Test
+    public void parseProjectConfigV4FromInputStream() throws Exception {
+        JacksonConfigParser parser = new JacksonConfigParser();
+        byte[] json = validConfigJsonV4().getBytes(StandardCharsets.UTF_8);
+        ProjectConfig actual = parser.parseProjectConfig(new ByteArrayInputStream(json));
+        ProjectConfig expected = validProjectConfigV4();
+
+        verifyProjectConfig(actual, expected);
+    }
+
+    @Test
+    public void parseProjectConfigV3FromDirectByteBuffer() throws Exception {
+        JacksonConfigParser parser = new JacksonConfigParser();
+        byte[] json = validConfigJsonV3().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(json.length);
+        buffer.put(json).flip();
+        ProjectConfig actual = parser.parseProjectConfig(buffer);
+        ProjectConfig expected = validProjectConfigV3();
+
+        verifyProjectConfig(actual, expected);
+        assertEquals(0, buffer.position());
+    }
+
     @Test
     public void parseNullFeatureEnabledProjectConfigV4() throws Exception {
         JacksonConfigParser parser = new JacksonConfigParser();
@@ -237,6 +274,17 @@ public class JacksonConfigParserTest {
         parser.parseProjectConfig("{\"valid\": \"json\"}");
     }
 
+    /**
+     * Verify that invalid JSON bytes result in a {@link ConfigParseException} being thrown.
+     */
+    @Test
+    public void invalidJsonBytesExceptionWrapping() throws Exception {
+        thrown.expect(ConfigParseException.class);
+
+        JacksonConfigParser parser = new JacksonConfigParser();
+        parser.parseProjectConfig("invalid config".getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * Verify that empty string JSON results in a {@link ConfigParseException} being thrown.
      */
@@ -257,6 +305,6 @@ public class JacksonConfigParserTest {
         thrown.expect(ConfigParseException.class);
 
         JacksonConfigParser parser = new JacksonConfigParser();
-        parser.parseProjectConfig(null);
+        parser.parseProjectConfig((String) null);
     }
 }
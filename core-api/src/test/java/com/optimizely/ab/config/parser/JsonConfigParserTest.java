@@ -30,6 +30,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import static com.optimizely.ab.config.ProjectConfigTestUtils.nullFeatureEnabledConfigJsonV4;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV2;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV4;
@@ -38,6 +42,7 @@ import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV3;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV3;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV4;
 import static com.optimizely.ab.config.ProjectConfigTestUtils.verifyProjectConfig;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 /**
@@ -75,6 +80,38 @@ public class JsonConfigParserTest {
         verifyProjectConfig(actual, expected);
     }
 
+    @Test
+    public void parseProjectConfigV4FromBytes() throws Exception {
+        JsonConfigParser parser = new JsonConfigParser();
+        ProjectConfig actual = parser.parseProjectConfig(validConfigJsonV4().getBytes(StandardCharsets.UTF_8));
+        ProjectConfig expected = validProjectConfigV4();
+
+        verifyProjectConfig(actual, expected);
+    }
+
+    @Test
+    public void parseProjectConfigV4FromInputStream() throws Exception {
+        JsonConfigParser parser = new JsonConfigParser();
+        byte[] json = validConfigJsonV4().getBytes(StandardCharsets.UTF_8);
+        ProjectConfig actual = parser.parseProjectConfig(new ByteArrayInputStream(json));
+        ProjectConfig expected = validProjectConfigV4();
+
+        verifyProjectConfig(actual, expected);
+    }
+
+    @Test
+    public void parseProjectConfigV3FromDirectByteBuffer() throws Exception {
+        JsonConfigParser parser = new JsonConfigParser();
+        byte[] json = validConfigJsonV3().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(json.length);
+        buffer.put(json).flip();
+        ProjectConfig actual = parser.parseProjectConfig(buffer);
+        ProjectConfig expected = validProjectConfigV3();
+
+        verifyProjectConfig(actual, expected);
+        assertEquals(0, buffer.position());
+    }
+
     @Test
     public void parseNullFeatureEnabledProjectConfigV4() throws Exception {
         JsonConfigParser parser = new JsonConfigParser();
@@ -188,6 +225,17 @@ public class JsonConfigParserTest {
         parser.parseProjectConfig("{\"valid\": \"json\"}");
     }
 
+    /**
+     * Verify that invalid JSON bytes result in a {@link ConfigParseException} being thrown.
+     */
+    @Test
+    public void invalidJsonBytesExceptionWrapping() throws Exception {
+        thrown.expect(ConfigParseException.class);
+
+        JsonConfigParser parser = new JsonConfigParser();
+        parser.parseProjectConfig("invalid config".getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * Verify that empty string JSON results in a {@link ConfigParseException} being thrown.
      */
@@ -208,6 +256,6 @@ public class JsonConfigParserTest {
         thrown.expect(ConfigParseException.class);
 
         JsonConfigParser parser = new JsonConfigParser();
-        parser.parseProjectConfig(null);
+        parser.parseProjectConfig((String) null);
     }
 }
@@ -0,0 +1,181 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config.parser;
+
+import com.optimizely.ab.config.ProjectConfig;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV2;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV3;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validConfigJsonV4;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV2;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV3;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.validProjectConfigV4;
+import static com.optimizely.ab.config.ProjectConfigTestUtils.verifyProjectConfig;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ProjectConfigSnapshot}.
+ */
+public class ProjectConfigSnapshotTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTripV2() throws Exception {
+        ProjectConfig expected = validProjectConfigV2();
+        ProjectConfig actual = ProjectConfigSnapshot.read(ByteBuffer.wrap(ProjectConfigSnapshot.toBytes(expected)), null);
+
+        verifyProjectConfig(actual, expected);
+    }
+
+    @Test
+    public void roundTripV3() throws Exception {
+        ProjectConfig expected = validProjectConfigV3();
+        ProjectConfig actual = ProjectConfigSnapshot.read(ByteBuffer.wrap(ProjectConfigSnapshot.toBytes(expected)), null);
+
+        verifyProjectConfig(actual, expected);
+    }
+
+    @Test
+    public void roundTripV4() throws Exception {
+        ProjectConfig expected = validProjectConfigV4();
+        ProjectConfig actual = ProjectConfigSnapshot.read(ByteBuffer.wrap(ProjectConfigSnapshot.toBytes(expected)), null);
+
+        verifyProjectConfig(actual, expected);
+    }
+
+    @Test
+    public void roundTripThroughMappedFile() throws Exception {
+        ProjectConfig expected = new ProjectConfig.Builder().withDatafile(validConfigJsonV4()).build();
+        Path snapshotPath = temporaryFolder.getRoot().toPath().resolve("config.snapshot");
+
+        ProjectConfigSnapshot.write(expected, snapshotPath);
+        ProjectConfig actual = ProjectConfigSnapshot.read(snapshotPath, expected.getRevision());
+
+        verifyProjectConfig(actual, expected);
+        assertEquals(expected.getTypedAudiences().toString(), actual.getTypedAudiences().toString());
+        assertEquals(1, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void readDeduplicatesStrings() throws Exception {
+        ProjectConfig expected = validProjectConfigV4();
+        ProjectConfig actual = ProjectConfigSnapshot.read(ByteBuffer.wrap(ProjectConfigSnapshot.toBytes(expected)), null);
+
+        assertSame(actual.getExperiments().get(0).getLayerId(), actual.getExperiments().get(0).getLayerId());
+        String experimentId = actual.getExperiments().get(0).getId();
+        assertSame(experimentId, actual.getExperimentIdMapping().get(experimentId).getId());
+    }
+
+    @Test
+    public void readMissingSnapshotReturnsNull() throws Exception {
+        assertNull(ProjectConfigSnapshot.read(temporaryFolder.getRoot().toPath().resolve("missing"), null));
+    }
+
+    @Test
+    public void readStaleRevisionReturnsNull() throws Exception {
+        ProjectConfig projectConfig = validProjectConfigV4();
+        byte[] snapshot = ProjectConfigSnapshot.toBytes(projectConfig);
+
+        assertNull(ProjectConfigSnapshot.read(ByteBuffer.wrap(snapshot), projectConfig.getRevision() + "1"));
+    }
+
+    @Test
+    public void readCorruptSnapshotReturnsNull() throws Exception {
+        byte[] snapshot = ProjectConfigSnapshot.toBytes(validProjectConfigV4());
+        snapshot[snapshot.length - 5] ^= 0x7f;
+
+        assertNull(ProjectConfigSnapshot.read(ByteBuffer.wrap(snapshot), null));
+    }
+
+    @Test
+    public void readTruncatedSnapshotReturnsNull() throws Exception {
+        byte[] snapshot = ProjectConfigSnapshot.toBytes(validProjectConfigV4());
+
+        assertNull(ProjectConfigSnapshot.read(ByteBuffer.wrap(snapshot, 0, snapshot.length / 2), null));
+    }
+
+    @Test
+    public void readUnknownFormatVersionReturnsNull() throws Exception {
+        byte[] snapshot = ProjectConfigSnapshot.toBytes(validProjectConfigV4());
+        ByteBuffer.wrap(snapshot).putInt(4, ProjectConfigSnapshot.FORMAT_VERSION + 1);
+
+        assertNull(ProjectConfigSnapshot.read(ByteBuffer.wrap(snapshot), null));
+    }
+
+    @Test
+    public void readNonSnapshotReturnsNull() throws Exception {
+        byte[] datafile = validConfigJsonV4().getBytes(StandardCharsets.UTF_8);
+
+        assertNull(ProjectConfigSnapshot.read(ByteBuffer.wrap(datafile), null));
+    }
+
+    @Test
+    public void loadWritesSnapshotAndThenReadsIt() throws Exception {
+        byte[] datafile = validConfigJsonV3().getBytes(StandardCharsets.UTF_8);
+        Path snapshotPath = temporaryFolder.getRoot().toPath().resolve("config.snapshot");
+
+        ProjectConfig parsed = ProjectConfigSnapshot.load(snapshotPath, datafile);
+        assertTrue(Files.exists(snapshotPath));
+        assertArrayEquals(ProjectConfigSnapshot.toBytes(parsed), Files.readAllBytes(snapshotPath));
+
+        ProjectConfig loaded = ProjectConfigSnapshot.load(snapshotPath, datafile);
+        verifyProjectConfig(loaded, parsed);
+    }
+
+    @Test
+    public void loadReplacesStaleSnapshot() throws Exception {
+        Path snapshotPath = temporaryFolder.getRoot().toPath().resolve("config.snapshot");
+        ProjectConfigSnapshot.write(validProjectConfigV2(), snapshotPath);
+
+        String datafile = validConfigJsonV4();
+        ProjectConfig loaded = ProjectConfigSnapshot.load(snapshotPath, datafile.getBytes(StandardCharsets.UTF_8));
+
+        verifyProjectConfig(loaded, new ProjectConfig.Builder().withDatafile(datafile).build());
+        ProjectConfig replaced = ProjectConfigSnapshot.read(snapshotPath, loaded.getRevision());
+        assertNotNull(replaced);
+        assertEquals(loaded.getVersion(), replaced.getVersion());
+    }
+
+    @Test
+    public void loadParsesDatafileWhenSnapshotCannotBeWritten() throws Exception {
+        File notADirectory = temporaryFolder.newFile("not-a-directory");
+        Path snapshotPath = notADirectory.toPath().resolve("config.snapshot");
+
+        String datafile = validConfigJsonV4();
+        ProjectConfig loaded = ProjectConfigSnapshot.load(snapshotPath, datafile.getBytes(StandardCharsets.UTF_8));
+
+        verifyProjectConfig(loaded, new ProjectConfig.Builder().withDatafile(datafile).build());
+        assertFalse(Files.exists(snapshotPath));
+    }
+}
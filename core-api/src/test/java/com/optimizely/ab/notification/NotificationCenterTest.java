@@ -18,6 +18,7 @@ package com.optimizely.ab.notification;
 
 import ch.qos.logback.classic.Level;
 import com.optimizely.ab.config.Experiment;
+import com.optimizely.ab.config.ProjectConfigDiff;
 import com.optimizely.ab.config.Variation;
 import com.optimizely.ab.event.LogEvent;
 import com.optimizely.ab.internal.LogbackVerifier;
@@ -113,6 +114,24 @@ public class NotificationCenterTest {
         assertEquals(NotificationCenter.NotificationType.Activate.getNotificationTypeClass(),
             ActivateNotificationListener.class);
         assertEquals(NotificationCenter.NotificationType.Track.getNotificationTypeClass(), TrackNotificationListener.class);
+        assertEquals(NotificationCenter.NotificationType.ConfigUpdate.getNotificationTypeClass(),
+            ConfigUpdateNotificationListener.class);
+    }
+
+    @Test
+    public void testAddConfigUpdateNotificationInterface() {
+        assertFalse(notificationCenter.hasNotificationListeners(NotificationCenter.NotificationType.ConfigUpdate));
+        int notificationId = notificationCenter.addConfigUpdateNotificationListener(
+            new ConfigUpdateNotificationListenerInterface() {
+                @Override
+                public void onConfigUpdate(@Nonnull ProjectConfigDiff diff) {
+
+                }
+            });
+        assertNotSame(notificationId, -1);
+        assertTrue(notificationCenter.hasNotificationListeners(NotificationCenter.NotificationType.ConfigUpdate));
+        assertTrue(notificationCenter.removeNotificationListener(notificationId));
+        assertFalse(notificationCenter.hasNotificationListeners(NotificationCenter.NotificationType.ConfigUpdate));
     }
 
     @Test
@@ -17,6 +17,9 @@
 package com.optimizely.ab;
 
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 
 /**
  * Provides defaults and utility methods for using {@link org.apache.http.client.HttpClient}.
@@ -35,4 +38,28 @@ public final class HttpClientUtils {
         .setConnectionRequestTimeout(CONNECTION_REQUEST_TIMEOUT_MS)
         .setSocketTimeout(SOCKET_TIMEOUT_MS)
         .build();
+
+    /**
+     * Creates a cookie-less {@link CloseableHttpClient} backed by a pooling connection manager.
+     *
+     * @param maxTotalConnections     the maximum number of connections allowed across all routes
+     * @param maxPerRoute             the maximum number of connections allowed for a route
+     * @param validateAfterInactivity period of inactivity in milliseconds after which persistent connections must
+     *                                be re-validated prior to being leased
+     * @return the created http client
+     */
+    public static CloseableHttpClient createPooledHttpClient(int maxTotalConnections,
+                                                             int maxPerRoute,
+                                                             int validateAfterInactivity) {
+        PoolingHttpClientConnectionManager poolingHttpClientConnectionManager = new PoolingHttpClientConnectionManager();
+        poolingHttpClientConnectionManager.setMaxTotal(maxTotalConnections);
+        poolingHttpClientConnectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        poolingHttpClientConnectionManager.setValidateAfterInactivity(validateAfterInactivity);
+
+        return HttpClients.custom()
+            .setDefaultRequestConfig(DEFAULT_REQUEST_CONFIG)
+            .setConnectionManager(poolingHttpClientConnectionManager)
+            .disableCookieManagement()
+            .build();
+    }
 }
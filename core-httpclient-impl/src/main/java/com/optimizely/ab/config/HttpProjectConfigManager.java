@@ -0,0 +1,348 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.optimizely.ab.HttpClientUtils;
+import com.optimizely.ab.annotations.VisibleForTesting;
+import com.optimizely.ab.config.parser.ConfigParseException;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PollingProjectConfigManager} that fetches the datafile over HTTP.
+ * <p>
+ * Requests are conditional: the {@code ETag} and {@code Last-Modified} values of the previous response are sent
+ * back as {@code If-None-Match} and {@code If-Modified-Since}, so an unchanged datafile costs a {@code 304} and no
+ * parsing. A {@code 200} whose body is identical to the last one fetched is not parsed either. Both are only
+ * recorded once the fetched datafile has been published, so one that failed to parse is fetched again.
+ * <p>
+ * With a {@link DatafileCache}, every datafile that parses successfully is also persisted to disk, and
+ * {@link #start()} publishes the cached datafile before the first poll. Decisions are then served right away,
+ * even while the datafile cannot be fetched, and are switched to the fetched datafile once it arrives.
+ * <p>
+ * Example usage:
+ * <pre>
+ *     HttpProjectConfigManager projectConfigManager = HttpProjectConfigManager.builder()
+ *         .withSdkKey(sdkKey)
+ *         .withPollingInterval(5, TimeUnit.MINUTES)
+ *         .build();
+ *     projectConfigManager.start();
+ *
+ *     Optimizely optimizely = Optimizely.builder()
+ *         .withConfigManager(projectConfigManager)
+ *         .withEventHandler(eventHandler)
+ *         .build();
+ * </pre>
+ */
+public class HttpProjectConfigManager extends PollingProjectConfigManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpProjectConfigManager.class);
+
+    private final CloseableHttpClient httpClient;
+    private final String url;
+    @Nullable
+    private final DatafileCache datafileCache;
+
+    // only accessed from the polling thread, or by start() before it is scheduled
+    private String lastETag;
+    private String lastModified;
+    private byte[] lastDatafile;
+    // the last fetched response, only recorded as the above once its config has been published
+    private String fetchedETag;
+    private String fetchedLastModified;
+    private byte[] fetchedDatafile;
+
+    private HttpProjectConfigManager(long period,
+                                     TimeUnit timeUnit,
+                                     long blockingTimeoutPeriod,
+                                     TimeUnit blockingTimeoutUnit,
+                                     CloseableHttpClient httpClient,
+                                     String url,
+                                     @Nullable DatafileCache datafileCache) {
+        super(period, timeUnit, blockingTimeoutPeriod, blockingTimeoutUnit);
+        this.httpClient = httpClient;
+        this.url = url;
+        this.datafileCache = datafileCache;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Publishes the cached datafile, if there is one and no config has been published yet, then starts polling.
+     */
+    @Override
+    public synchronized void start() {
+        if (datafileCache != null && !isRunning() && getConfig() == null) {
+            loadCachedDatafile();
+        }
+        super.start();
+    }
+
+    @Override
+    @CheckForNull
+    protected ProjectConfig poll() {
+        byte[] datafile;
+        try {
+            datafile = fetchDatafile();
+        } catch (IOException e) {
+            logger.error("Error fetching datafile from {}", url, e);
+            return null;
+        }
+
+        if (datafile == null) {
+            return null;
+        }
+
+        ProjectConfig projectConfig;
+        try {
+            projectConfig = new ProjectConfig.Builder().withUtf8Datafile(datafile).build();
+        } catch (ConfigParseException e) {
+            logger.error("Unable to parse the datafile fetched from {}", url, e);
+            return null;
+        }
+
+        if (datafileCache != null) {
+            try {
+                datafileCache.write(datafile, projectConfig.getRevision());
+            } catch (IOException e) {
+                logger.warn("Unable to write the datafile cache {}", datafileCache.getPath(), e);
+            }
+        }
+        return projectConfig;
+    }
+
+    /**
+     * @return the fetched datafile, or {@code null} if it has not changed since the last fetch
+     */
+    @VisibleForTesting
+    @CheckForNull
+    byte[] fetchDatafile() throws IOException {
+        HttpGet httpGet = new HttpGet(url);
+        if (lastETag != null) {
+            httpGet.setHeader(HttpHeaders.IF_NONE_MATCH, lastETag);
+        }
+        if (lastModified != null) {
+            httpGet.setHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
+
+        CloseableHttpResponse response = httpClient.execute(httpGet);
+        try {
+            int status = response.getStatusLine().getStatusCode();
+            if (status == HttpStatus.SC_NOT_MODIFIED) {
+                logger.debug("Datafile at {} has not been modified.", url);
+                return null;
+            }
+
+            if (status < 200 || status >= 300) {
+                logger.error("Unexpected response fetching datafile from {}, status: {}", url, status);
+                EntityUtils.consumeQuietly(response.getEntity());
+                return null;
+            }
+
+            // kept as bytes, the parser reads UTF-8 directly
+            byte[] datafile = EntityUtils.toByteArray(response.getEntity());
+            String eTag = headerValue(response, HttpHeaders.ETAG);
+            String modified = headerValue(response, HttpHeaders.LAST_MODIFIED);
+
+            if (Arrays.equals(datafile, lastDatafile)) {
+                logger.debug("Datafile at {} is unchanged.", url);
+                // same content as the published datafile, so its validators are safe to keep
+                lastETag = eTag;
+                lastModified = modified;
+                return null;
+            }
+
+            fetchedETag = eTag;
+            fetchedLastModified = modified;
+            fetchedDatafile = datafile;
+            return datafile;
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Records the fetched datafile once its config has been published, so that a datafile that failed to parse or
+     * was not published is fetched and parsed again by the next poll rather than answered with a {@code 304}.
+     */
+    @Override
+    protected boolean setConfig(@Nullable ProjectConfig projectConfig) {
+        if (!super.setConfig(projectConfig)) {
+            return false;
+        }
+        recordFetchedDatafile();
+        return true;
+    }
+
+    /**
+     * Makes the last fetched datafile, and its {@code ETag} and {@code Last-Modified} values, the ones the next
+     * fetch is compared with. For callers publishing the result of {@link #poll()} to a config of their own.
+     */
+    void recordFetchedDatafile() {
+        if (fetchedDatafile == null) {
+            return;
+        }
+        lastETag = fetchedETag;
+        lastModified = fetchedLastModified;
+        lastDatafile = fetchedDatafile;
+        fetchedETag = null;
+        fetchedLastModified = null;
+        fetchedDatafile = null;
+    }
+
+    @Override
+    public synchronized void close() {
+        super.close();
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            logger.warn("Unable to close the datafile http client", e);
+        }
+    }
+
+    private void loadCachedDatafile() {
+        byte[] datafile = datafileCache.read();
+        if (datafile == null) {
+            return;
+        }
+
+        ProjectConfig projectConfig;
+        try {
+            projectConfig = new ProjectConfig.Builder().withUtf8Datafile(datafile).build();
+        } catch (ConfigParseException e) {
+            logger.warn("Unable to parse the datafile cached in {}", datafileCache.getPath(), e);
+            return;
+        }
+
+        if (setConfig(projectConfig)) {
+            logger.info("Using the datafile cached in {} until the datafile is fetched from {}",
+                datafileCache.getPath(), url);
+            // a fetched datafile identical to the cached one is not parsed again
+            lastDatafile = datafile;
+        }
+    }
+
+    private static String headerValue(CloseableHttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link HttpProjectConfigManager} builder. Either {@link #withSdkKey(String)} or {@link #withUrl(String)} must
+     * be provided.
+     */
+    public static class Builder {
+
+        private static final String DEFAULT_DATAFILE_URL_FORMAT = "https://cdn.optimizely.com/datafiles/%s.json";
+
+        private String url;
+        private String sdkKey;
+        private CloseableHttpClient httpClient;
+        private long period = 5;
+        private TimeUnit timeUnit = TimeUnit.MINUTES;
+        private long blockingTimeoutPeriod = 10;
+        private TimeUnit blockingTimeoutUnit = TimeUnit.SECONDS;
+        private int maxTotalConnections = 10;
+        private int maxPerRoute = 5;
+        private int validateAfterInactivity = 5000;
+        private DatafileCache datafileCache;
+
+        public Builder withSdkKey(@Nonnull String sdkKey) {
+            this.sdkKey = sdkKey;
+            return this;
+        }
+
+        public Builder withUrl(@Nonnull String url) {
+            this.url = url;
+            return this;
+        }
+
+        public Builder withPollingInterval(long period, @Nonnull TimeUnit timeUnit) {
+            this.period = period;
+            this.timeUnit = timeUnit;
+            return this;
+        }
+
+        /**
+         * Bounds how long {@link HttpProjectConfigManager#getConfig()} waits for the first datafile after
+         * {@link HttpProjectConfigManager#start()}. A timeout of zero never blocks.
+         */
+        public Builder withBlockingTimeout(long period, @Nonnull TimeUnit timeUnit) {
+            this.blockingTimeoutPeriod = period;
+            this.blockingTimeoutUnit = timeUnit;
+            return this;
+        }
+
+        public Builder withConnectionPool(int maxTotalConnections, int maxPerRoute, int validateAfterInactivity) {
+            this.maxTotalConnections = maxTotalConnections;
+            this.maxPerRoute = maxPerRoute;
+            this.validateAfterInactivity = validateAfterInactivity;
+            return this;
+        }
+
+        /**
+         * Persists every successfully parsed datafile to the given cache, and starts from the cached datafile.
+         */
+        public Builder withDatafileCache(@Nonnull DatafileCache datafileCache) {
+            this.datafileCache = datafileCache;
+            return this;
+        }
+
+        @VisibleForTesting
+        Builder withHttpClient(CloseableHttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        public HttpProjectConfigManager build() {
+            if (url == null) {
+                if (sdkKey == null) {
+                    throw new IllegalStateException("sdkKey or url must be set");
+                }
+                url = String.format(DEFAULT_DATAFILE_URL_FORMAT, sdkKey);
+            }
+
+            if (httpClient == null) {
+                httpClient = HttpClientUtils.createPooledHttpClient(maxTotalConnections, maxPerRoute,
+                    validateAfterInactivity);
+            }
+
+            return new HttpProjectConfigManager(period, timeUnit, blockingTimeoutPeriod, blockingTimeoutUnit,
+                httpClient, url, datafileCache);
+        }
+    }
+}
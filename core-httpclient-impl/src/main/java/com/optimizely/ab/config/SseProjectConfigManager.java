@@ -0,0 +1,535 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.optimizely.ab.HttpClientUtils;
+import com.optimizely.ab.NamedThreadFactory;
+import com.optimizely.ab.annotations.VisibleForTesting;
+import com.optimizely.ab.config.parser.ConfigParseException;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ProjectConfigManager} that receives datafile updates over a long-lived
+ * <a href="https://html.spec.whatwg.org/multipage/server-sent-events.html">server-sent events</a> connection
+ * instead of polling.
+ * <p>
+ * Two kinds of events are understood:
+ * <ul>
+ * <li>{@code datafile} events, or unnamed events whose data is a JSON object, carry a complete datafile.</li>
+ * <li>{@code revision} events, or unnamed events with any other data, carry only the new revision. The datafile is
+ * then fetched from the datafile url, if one is configured.</li>
+ * </ul>
+ * A config is only published when its revision is newer than the current one. The datafile url is also fetched
+ * after every (re)connect so that updates missed while disconnected are not lost.
+ * <p>
+ * A dropped connection is re-established with exponential backoff and jitter, starting from the server's
+ * {@code retry} value when one was sent. The {@code Last-Event-ID} of the last received event is sent on
+ * reconnect.
+ * <p>
+ * Example usage:
+ * <pre>
+ *     SseProjectConfigManager projectConfigManager = SseProjectConfigManager.builder()
+ *         .withStreamUrl(streamUrl)
+ *         .withDatafileUrl(datafileUrl)
+ *         .build();
+ *     projectConfigManager.start();
+ *
+ *     Optimizely optimizely = Optimizely.builder()
+ *         .withConfigManager(projectConfigManager)
+ *         .withEventHandler(eventHandler)
+ *         .build();
+ * </pre>
+ */
+@ThreadSafe
+public class SseProjectConfigManager implements ObservableProjectConfigManager, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseProjectConfigManager.class);
+
+    static final String DATAFILE_EVENT = "datafile";
+    static final String REVISION_EVENT = "revision";
+    private static final String DEFAULT_EVENT = "message";
+
+    private final ProjectConfigPublisher publisher = new ProjectConfigPublisher();
+    private final CountDownLatch initialConfigLatch = new CountDownLatch(1);
+    private final ExecutorService executorService;
+    private final Random random = new Random();
+
+    private final CloseableHttpClient httpClient;
+    private final String streamUrl;
+    private final HttpProjectConfigManager datafileFetcher;
+    private final RequestConfig streamRequestConfig;
+    private final long initialReconnectDelayMillis;
+    private final long maxReconnectDelayMillis;
+    private final long blockingTimeoutPeriod;
+    private final TimeUnit blockingTimeoutUnit;
+
+    private volatile boolean started;
+    private volatile boolean closed;
+    private volatile HttpGet currentRequest;
+    // System#nanoTime() after which callers stop waiting for the first config, set by the first caller that waits
+    private volatile Long initialConfigDeadline;
+
+    // only accessed from the streaming thread
+    private String lastEventId;
+    private long serverRetryMillis = -1;
+    private int reconnectAttempts;
+
+    private SseProjectConfigManager(CloseableHttpClient httpClient,
+                                    String streamUrl,
+                                    @Nullable HttpProjectConfigManager datafileFetcher,
+                                    int readTimeoutMillis,
+                                    long initialReconnectDelayMillis,
+                                    long maxReconnectDelayMillis,
+                                    long blockingTimeoutPeriod,
+                                    TimeUnit blockingTimeoutUnit) {
+        this.httpClient = httpClient;
+        this.streamUrl = streamUrl;
+        this.datafileFetcher = datafileFetcher;
+        this.streamRequestConfig = RequestConfig.copy(HttpClientUtils.DEFAULT_REQUEST_CONFIG)
+            .setSocketTimeout(readTimeoutMillis)
+            .build();
+        this.initialReconnectDelayMillis = initialReconnectDelayMillis;
+        this.maxReconnectDelayMillis = maxReconnectDelayMillis;
+        this.blockingTimeoutPeriod = blockingTimeoutPeriod;
+        this.blockingTimeoutUnit = blockingTimeoutUnit;
+        this.executorService = Executors.newSingleThreadExecutor(
+            new NamedThreadFactory("optimizely-sse-config-thread-%s", true));
+    }
+
+    public String getStreamUrl() {
+        return streamUrl;
+    }
+
+    @Override
+    @CheckForNull
+    public ProjectConfig getConfig() {
+        ProjectConfig projectConfig = publisher.get();
+        if (projectConfig != null || !started || blockingTimeoutPeriod == 0) {
+            return projectConfig;
+        }
+
+        long remainingNanos = getInitialConfigDeadline() - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return null;
+        }
+
+        try {
+            initialConfigLatch.await(remainingNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return publisher.get();
+    }
+
+    /**
+     * Opens the event stream on a background thread.
+     */
+    public synchronized void start() {
+        if (started) {
+            logger.warn("SSE project config manager is already started.");
+            return;
+        }
+
+        if (closed) {
+            logger.warn("Not starting. SSE project config manager has already been closed.");
+            return;
+        }
+
+        executorService.submit(new EventStreamReader());
+        started = true;
+    }
+
+    /**
+     * Closes the event stream and releases the streaming thread. A closed manager can't be restarted.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        started = false;
+
+        HttpGet request = currentRequest;
+        if (request != null) {
+            // unblocks the streaming thread if it is waiting for data
+            request.abort();
+        }
+        executorService.shutdownNow();
+
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            logger.warn("Unable to close the event stream http client", e);
+        }
+        if (datafileFetcher != null) {
+            datafileFetcher.close();
+        }
+    }
+
+    @Override
+    public void addListener(@Nonnull Listener listener) {
+        publisher.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(@Nonnull Listener listener) {
+        publisher.removeListener(listener);
+    }
+
+    public boolean isRunning() {
+        return started;
+    }
+
+    /**
+     * Applies a single dispatched event.
+     */
+    @VisibleForTesting
+    void onEvent(@Nonnull String eventType, @Nonnull String data) {
+        String trimmedData = data.trim();
+        if (DATAFILE_EVENT.equals(eventType) || (DEFAULT_EVENT.equals(eventType) && trimmedData.startsWith("{"))) {
+            try {
+                setConfig(new ProjectConfig.Builder().withDatafile(trimmedData).build());
+            } catch (ConfigParseException e) {
+                logger.error("Unable to parse the datafile pushed by {}", streamUrl, e);
+            }
+        } else if (REVISION_EVENT.equals(eventType) || DEFAULT_EVENT.equals(eventType)) {
+            ProjectConfig projectConfig = publisher.get();
+            if (projectConfig == null || ProjectConfigUtils.isNewerRevision(trimmedData, projectConfig.getRevision())) {
+                logger.debug("Received revision {}. Fetching datafile.", trimmedData);
+                fetchDatafile();
+            }
+        } else {
+            logger.debug("Ignoring event of type {}.", eventType);
+        }
+    }
+
+    /**
+     * Applies the reconnect delay sent by the server in a {@code retry} field.
+     */
+    @VisibleForTesting
+    void onRetry(@Nonnull String value) {
+        try {
+            serverRetryMillis = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring invalid retry value {}", value);
+        }
+    }
+
+    /**
+     * Publishes the given config if its revision is newer than the current one.
+     *
+     * @return whether the config was published
+     */
+    @VisibleForTesting
+    boolean setConfig(@Nullable ProjectConfig projectConfig) {
+        if (projectConfig == null) {
+            return false;
+        }
+
+        ProjectConfig oldProjectConfig = publisher.get();
+        String previousRevision = oldProjectConfig == null ? null : oldProjectConfig.getRevision();
+
+        if (previousRevision != null && !ProjectConfigUtils.isNewerRevision(projectConfig.getRevision(), previousRevision)) {
+            logger.debug("Datafile revision {} is not newer than {}. Keeping the current config.",
+                projectConfig.getRevision(), previousRevision);
+            return false;
+        }
+
+        // share the entities this revision did not change with the config currently in use
+        projectConfig = ProjectConfigMerger.merge(oldProjectConfig, projectConfig);
+
+        // compile the decision tables here rather than on the first decision made with the new config
+        projectConfig.getDecisionTables();
+
+        logger.info("New datafile set with revision: {}. Old revision: {}", projectConfig.getRevision(), previousRevision);
+        publisher.publish(projectConfig);
+        initialConfigLatch.countDown();
+        return true;
+    }
+
+    /**
+     * @return the delay before the next reconnect attempt, doubling with every attempt up to the maximum, with the
+     * upper half randomized so that many clients dropped at once don't reconnect in lockstep
+     */
+    @VisibleForTesting
+    long nextReconnectDelayMillis() {
+        long baseDelay = serverRetryMillis >= 0 ? serverRetryMillis : initialReconnectDelayMillis;
+        int shift = Math.min(reconnectAttempts, 20);
+        // the retry value comes from the server, so saturate rather than shift it past the maximum and overflow
+        long delay = baseDelay > (maxReconnectDelayMillis >> shift) ? maxReconnectDelayMillis : baseDelay << shift;
+        reconnectAttempts++;
+
+        long half = delay / 2;
+        return half + (half == 0 ? 0 : (long) (random.nextDouble() * half));
+    }
+
+    //======== Helper methods ========//
+
+    private long getInitialConfigDeadline() {
+        Long deadline = initialConfigDeadline;
+        if (deadline == null) {
+            synchronized (this) {
+                if (initialConfigDeadline == null) {
+                    initialConfigDeadline = System.nanoTime() + blockingTimeoutUnit.toNanos(blockingTimeoutPeriod);
+                }
+                deadline = initialConfigDeadline;
+            }
+        }
+        return deadline;
+    }
+
+    private void fetchDatafile() {
+        if (datafileFetcher == null) {
+            logger.warn("Received a revision notification but no datafile url is configured.");
+            return;
+        }
+        if (setConfig(datafileFetcher.poll())) {
+            datafileFetcher.recordFetchedDatafile();
+        }
+    }
+
+    /**
+     * Opens the stream and dispatches events until the stream ends or fails.
+     */
+    private void readStream() throws IOException {
+        HttpGet httpGet = new HttpGet(streamUrl);
+        httpGet.setConfig(streamRequestConfig);
+        httpGet.setHeader(HttpHeaders.ACCEPT, "text/event-stream");
+        httpGet.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (lastEventId != null) {
+            httpGet.setHeader("Last-Event-ID", lastEventId);
+        }
+
+        currentRequest = httpGet;
+        if (closed) {
+            return;
+        }
+
+        CloseableHttpResponse response = httpClient.execute(httpGet);
+        try {
+            int status = response.getStatusLine().getStatusCode();
+            HttpEntity entity = response.getEntity();
+            if (status != HttpStatus.SC_OK || entity == null) {
+                logger.error("Unexpected response opening event stream {}, status: {}", streamUrl, status);
+                EntityUtils.consumeQuietly(entity);
+                return;
+            }
+
+            logger.info("Connected to event stream {}", streamUrl);
+            reconnectAttempts = 0;
+
+            // catch up on anything published while disconnected
+            fetchDatafile();
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8));
+            readEvents(reader);
+        } finally {
+            response.close();
+            currentRequest = null;
+        }
+    }
+
+    /**
+     * Parses the event stream format: events are separated by blank lines, {@code data} lines are joined with
+     * newlines and lines starting with a colon are comments (typically keep-alives).
+     */
+    private void readEvents(BufferedReader reader) throws IOException {
+        String eventType = null;
+        StringBuilder data = new StringBuilder();
+
+        String line;
+        while (!closed && (line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                if (data.length() > 0) {
+                    // the last newline is not part of the data
+                    data.setLength(data.length() - 1);
+                    onEvent(eventType == null ? DEFAULT_EVENT : eventType, data.toString());
+                }
+                eventType = null;
+                data.setLength(0);
+                continue;
+            }
+
+            if (line.startsWith(":")) {
+                continue;
+            }
+
+            int colon = line.indexOf(':');
+            String field = colon < 0 ? line : line.substring(0, colon);
+            String value = "";
+            if (colon >= 0) {
+                int valueStart = colon + 1;
+                if (valueStart < line.length() && line.charAt(valueStart) == ' ') {
+                    valueStart++;
+                }
+                value = line.substring(valueStart);
+            }
+
+            if ("data".equals(field)) {
+                data.append(value).append('\n');
+            } else if ("event".equals(field)) {
+                eventType = value;
+            } else if ("id".equals(field)) {
+                lastEventId = value;
+            } else if ("retry".equals(field)) {
+                onRetry(value);
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    //======== Helper classes ========//
+
+    /**
+     * Keeps the event stream open, reconnecting with backoff, until the manager is closed.
+     */
+    private class EventStreamReader implements Runnable {
+
+        @Override
+        public void run() {
+            while (!closed) {
+                try {
+                    readStream();
+                } catch (Exception e) {
+                    if (closed) {
+                        return;
+                    }
+                    logger.warn("Event stream {} failed: {}", streamUrl, e.toString());
+                }
+
+                if (closed) {
+                    return;
+                }
+
+                long delay = nextReconnectDelayMillis();
+                logger.debug("Reconnecting to event stream {} in {} ms", streamUrl, delay);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * {@link SseProjectConfigManager} builder. {@link #withStreamUrl(String)} must be provided.
+     */
+    public static class Builder {
+
+        private String streamUrl;
+        private String datafileUrl;
+        private CloseableHttpClient httpClient;
+        private int readTimeoutMillis = (int) TimeUnit.MINUTES.toMillis(5);
+        private long initialReconnectDelayMillis = TimeUnit.SECONDS.toMillis(1);
+        private long maxReconnectDelayMillis = TimeUnit.MINUTES.toMillis(5);
+        private long blockingTimeoutPeriod = 10;
+        private TimeUnit blockingTimeoutUnit = TimeUnit.SECONDS;
+
+        public Builder withStreamUrl(@Nonnull String streamUrl) {
+            this.streamUrl = streamUrl;
+            return this;
+        }
+
+        /**
+         * Url to fetch the datafile from when a revision notification is received and after every (re)connect.
+         */
+        public Builder withDatafileUrl(@Nonnull String datafileUrl) {
+            this.datafileUrl = datafileUrl;
+            return this;
+        }
+
+        /**
+         * Maximum time without receiving any data, keep-alive comments included, before the connection is
+         * considered dead and re-established.
+         */
+        public Builder withReadTimeout(long period, @Nonnull TimeUnit timeUnit) {
+            this.readTimeoutMillis = (int) Math.min(timeUnit.toMillis(period), Integer.MAX_VALUE);
+            return this;
+        }
+
+        public Builder withReconnectDelay(long initialDelay, long maxDelay, @Nonnull TimeUnit timeUnit) {
+            if (initialDelay <= 0 || maxDelay < initialDelay) {
+                throw new IllegalArgumentException("reconnect delays must satisfy 0 < initialDelay <= maxDelay");
+            }
+            this.initialReconnectDelayMillis = timeUnit.toMillis(initialDelay);
+            this.maxReconnectDelayMillis = timeUnit.toMillis(maxDelay);
+            return this;
+        }
+
+        /**
+         * Bounds how long {@link SseProjectConfigManager#getConfig()} waits for the first datafile after
+         * {@link SseProjectConfigManager#start()}. A timeout of zero never blocks.
+         */
+        public Builder withBlockingTimeout(long period, @Nonnull TimeUnit timeUnit) {
+            this.blockingTimeoutPeriod = period;
+            this.blockingTimeoutUnit = timeUnit;
+            return this;
+        }
+
+        @VisibleForTesting
+        Builder withHttpClient(CloseableHttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        public SseProjectConfigManager build() {
+            if (streamUrl == null) {
+                throw new IllegalStateException("streamUrl must be set");
+            }
+
+            if (httpClient == null) {
+                // a single long-lived connection
+                httpClient = HttpClientUtils.createPooledHttpClient(1, 1, 5000);
+            }
+
+            HttpProjectConfigManager datafileFetcher = null;
+            if (datafileUrl != null) {
+                datafileFetcher = HttpProjectConfigManager.builder().withUrl(datafileUrl).build();
+            }
+
+            return new SseProjectConfigManager(httpClient, streamUrl, datafileFetcher, readTimeoutMillis,
+                initialReconnectDelayMillis, maxReconnectDelayMillis, blockingTimeoutPeriod, blockingTimeoutUnit);
+        }
+    }
+}
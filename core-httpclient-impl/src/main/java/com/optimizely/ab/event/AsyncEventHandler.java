@@ -29,8 +29,6 @@ import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -80,11 +78,7 @@ public class AsyncEventHandler implements EventHandler {
         this.maxPerRoute = connectionsPerRoute;
         this.validateAfterInactivity = validateAfter;
 
-        this.httpClient = HttpClients.custom()
-            .setDefaultRequestConfig(HttpClientUtils.DEFAULT_REQUEST_CONFIG)
-            .setConnectionManager(poolingHttpClientConnectionManager())
-            .disableCookieManagement()
-            .build();
+        this.httpClient = HttpClientUtils.createPooledHttpClient(maxTotalConnections, maxPerRoute, validateAfterInactivity);
 
         this.workerExecutor = new ThreadPoolExecutor(numWorkers, numWorkers,
             0L, TimeUnit.MILLISECONDS,
@@ -98,14 +92,6 @@ public class AsyncEventHandler implements EventHandler {
         this.workerExecutor = workerExecutor;
     }
 
-    private PoolingHttpClientConnectionManager poolingHttpClientConnectionManager() {
-        PoolingHttpClientConnectionManager poolingHttpClientConnectionManager = new PoolingHttpClientConnectionManager();
-        poolingHttpClientConnectionManager.setMaxTotal(maxTotalConnections);
-        poolingHttpClientConnectionManager.setDefaultMaxPerRoute(maxPerRoute);
-        poolingHttpClientConnectionManager.setValidateAfterInactivity(validateAfterInactivity);
-        return poolingHttpClientConnectionManager;
-    }
-
     @Override
     public void dispatchEvent(LogEvent logEvent) {
         try {
@@ -0,0 +1,271 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link HttpProjectConfigManager} against a local stub datafile server.
+ */
+public class HttpProjectConfigManagerTest {
+
+    private static final String DATAFILE_FORMAT = "{\"accountId\":\"1\",\"projectId\":\"2\",\"revision\":\"%s\"," +
+        "\"version\":\"4\",\"anonymizeIP\":false,\"attributes\":[],\"audiences\":[],\"events\":[]," +
+        "\"experiments\":[],\"groups\":[],\"featureFlags\":[],\"rollouts\":[]}";
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpServer server;
+    private DatafileHandler datafileHandler;
+    private HttpProjectConfigManager projectConfigManager;
+
+    @Before
+    public void setUp() throws IOException {
+        datafileHandler = new DatafileHandler();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/datafile.json", datafileHandler);
+        server.start();
+
+        projectConfigManager = HttpProjectConfigManager.builder()
+            .withUrl("http://localhost:" + server.getAddress().getPort() + "/datafile.json")
+            .withPollingInterval(1, TimeUnit.HOURS)
+            .withBlockingTimeout(5, TimeUnit.SECONDS)
+            .build();
+    }
+
+    @After
+    public void tearDown() {
+        projectConfigManager.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void pollParsesFetchedDatafile() {
+        datafileHandler.datafile = String.format(DATAFILE_FORMAT, "1");
+
+        ProjectConfig projectConfig = projectConfigManager.poll();
+        assertNotNull(projectConfig);
+        assertEquals("1", projectConfig.getRevision());
+    }
+
+    @Test
+    public void notModifiedResponseIsNotParsed() throws Exception {
+        datafileHandler.datafile = String.format(DATAFILE_FORMAT, "1");
+        datafileHandler.eTag = "\"etag-1\"";
+
+        assertTrue(projectConfigManager.setConfig(projectConfigManager.poll()));
+        assertNull(projectConfigManager.fetchDatafile());
+        assertEquals("\"etag-1\"", datafileHandler.lastIfNoneMatch);
+        assertEquals(1, datafileHandler.notModifiedCount.get());
+    }
+
+    @Test
+    public void unchangedDatafileIsNotReturned() throws Exception {
+        datafileHandler.datafile = String.format(DATAFILE_FORMAT, "1");
+
+        assertTrue(projectConfigManager.setConfig(projectConfigManager.poll()));
+        assertNull(projectConfigManager.fetchDatafile());
+
+        datafileHandler.datafile = String.format(DATAFILE_FORMAT, "2");
+        assertEquals(datafileHandler.datafile, new String(projectConfigManager.fetchDatafile(), StandardCharsets.UTF_8));
+        assertEquals(3, datafileHandler.requestCount.get());
+    }
+
+    @Test
+    public void errorResponseReturnsNull() {
+        datafileHandler.status = 500;
+
+        assertNull(projectConfigManager.poll());
+    }
+
+    @Test
+    public void invalidDatafileReturnsNull() {
+        datafileHandler.datafile = "{\"invalid\": ";
+
+        assertNull(projectConfigManager.poll());
+    }
+
+    @Test
+    public void invalidDatafileIsFetchedAgain() {
+        datafileHandler.datafile = "{\"invalid\": ";
+        datafileHandler.eTag = "\"etag-1\"";
+        assertNull(projectConfigManager.poll());
+
+        datafileHandler.datafile = String.format(DATAFILE_FORMAT, "1");
+        ProjectConfig projectConfig = projectConfigManager.poll();
+        assertNotNull(projectConfig);
+        assertEquals("1", projectConfig.getRevision());
+        assertNull(datafileHandler.lastIfNoneMatch);
+        assertEquals(0, datafileHandler.notModifiedCount.get());
+    }
+
+    @Test
+    public void unpublishedDatafileIsFetchedAgain() throws Exception {
+        datafileHandler.datafile = String.format(DATAFILE_FORMAT, "1");
+
+        assertNotNull(projectConfigManager.fetchDatafile());
+        assertNotNull(projectConfigManager.fetchDatafile());
+    }
+
+    @Test
+    public void getConfigReturnsFirstPolledConfig() {
+        datafileHandler.datafile = String.format(DATAFILE_FORMAT, "1");
+        projectConfigManager.start();
+
+        ProjectConfig projectConfig = projectConfigManager.getConfig();
+        assertNotNull(projectConfig);
+        assertEquals("1", projectConfig.getRevision());
+    }
+
+    @Test
+    public void pollWritesDatafileCache() throws Exception {
+        DatafileCache datafileCache = new DatafileCache(temporaryFolder.newFolder().toPath().resolve("datafile.bin"));
+        HttpProjectConfigManager cachingManager = cachingManager(datafileCache);
+        try {
+            datafileHandler.datafile = String.format(DATAFILE_FORMAT, "1");
+            assertNotNull(cachingManager.poll());
+
+            assertEquals(datafileHandler.datafile, new String(datafileCache.read(), StandardCharsets.UTF_8));
+        } finally {
+            cachingManager.close();
+        }
+    }
+
+    @Test
+    public void startPublishesCachedDatafileWhileFetchFails() throws Exception {
+        DatafileCache datafileCache = new DatafileCache(temporaryFolder.newFolder().toPath().resolve("datafile.bin"));
+        datafileCache.write(String.format(DATAFILE_FORMAT, "1").getBytes(StandardCharsets.UTF_8), "1");
+        datafileHandler.status = 500;
+
+        HttpProjectConfigManager cachingManager = cachingManager(datafileCache);
+        try {
+            cachingManager.start();
+
+            ProjectConfig projectConfig = cachingManager.getConfig();
+            assertNotNull(projectConfig);
+            assertEquals("1", projectConfig.getRevision());
+        } finally {
+            cachingManager.close();
+        }
+    }
+
+    @Test
+    public void fetchedDatafileIdenticalToCachedOneIsNotParsed() throws Exception {
+        DatafileCache datafileCache = new DatafileCache(temporaryFolder.newFolder().toPath().resolve("datafile.bin"));
+        datafileHandler.datafile = String.format(DATAFILE_FORMAT, "1");
+        datafileCache.write(datafileHandler.datafile.getBytes(StandardCharsets.UTF_8), "1");
+
+        HttpProjectConfigManager cachingManager = cachingManager(datafileCache);
+        try {
+            cachingManager.start();
+            cachingManager.stop();
+
+            assertNull(cachingManager.fetchDatafile());
+        } finally {
+            cachingManager.close();
+        }
+    }
+
+    @Test
+    public void buildWithSdkKeyUsesDefaultUrl() {
+        HttpProjectConfigManager manager = HttpProjectConfigManager.builder().withSdkKey("sdkKey").build();
+        try {
+            assertEquals("https://cdn.optimizely.com/datafiles/sdkKey.json", manager.getUrl());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void buildWithoutUrlOrSdkKeyThrows() {
+        thrown.expect(IllegalStateException.class);
+        HttpProjectConfigManager.builder().build();
+    }
+
+    //======== Helper methods ========//
+
+    private HttpProjectConfigManager cachingManager(DatafileCache datafileCache) {
+        return HttpProjectConfigManager.builder()
+            .withUrl("http://localhost:" + server.getAddress().getPort() + "/datafile.json")
+            .withPollingInterval(1, TimeUnit.HOURS)
+            .withBlockingTimeout(0, TimeUnit.SECONDS)
+            .withDatafileCache(datafileCache)
+            .build();
+    }
+
+    //======== Helper classes ========//
+
+    private static class DatafileHandler implements HttpHandler {
+
+        private final AtomicInteger requestCount = new AtomicInteger();
+        private final AtomicInteger notModifiedCount = new AtomicInteger();
+        private volatile String datafile;
+        private volatile String eTag;
+        private volatile String lastIfNoneMatch;
+        private volatile int status = 200;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requestCount.incrementAndGet();
+            lastIfNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+
+            if (eTag != null && eTag.equals(lastIfNoneMatch)) {
+                notModifiedCount.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+
+            if (eTag != null) {
+                exchange.getResponseHeaders().set("ETag", eTag);
+            }
+
+            byte[] body = status == 200 ? datafile.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            OutputStream outputStream = exchange.getResponseBody();
+            try {
+                outputStream.write(body);
+            } finally {
+                outputStream.close();
+            }
+        }
+    }
+}
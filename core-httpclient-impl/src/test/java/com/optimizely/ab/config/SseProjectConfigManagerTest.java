@@ -0,0 +1,330 @@
+/**
+ *
+ *    Copyright 2019, Optimizely and contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.optimizely.ab.config;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SseProjectConfigManager} against a local stub event stream server.
+ */
+public class SseProjectConfigManagerTest {
+
+    private static final String DATAFILE_FORMAT = "{\"accountId\":\"1\",\"projectId\":\"2\",\"revision\":\"%s\"," +
+        "\"version\":\"4\",\"anonymizeIP\":false,\"attributes\":[],\"audiences\":[],\"events\":[]," +
+        "\"experiments\":[],\"groups\":[],\"featureFlags\":[],\"rollouts\":[]}";
+
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final String CLOSE_STREAM = "close";
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private HttpServer server;
+    private StreamHandler streamHandler;
+    private DatafileHandler datafileHandler;
+    private SseProjectConfigManager projectConfigManager;
+
+    @Before
+    public void setUp() throws IOException {
+        streamHandler = new StreamHandler();
+        datafileHandler = new DatafileHandler();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/stream", streamHandler);
+        server.createContext("/datafile.json", datafileHandler);
+        // the stream handler blocks, so requests need their own threads
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (projectConfigManager != null) {
+            projectConfigManager.close();
+        }
+        streamHandler.events.offer(CLOSE_STREAM);
+        server.stop(0);
+    }
+
+    @Test
+    public void pushedDatafileIsApplied() throws Exception {
+        projectConfigManager = builder().build();
+        projectConfigManager.start();
+
+        streamHandler.events.put("event: datafile\ndata: " + String.format(DATAFILE_FORMAT, "1") + "\n\n");
+
+        ProjectConfig projectConfig = projectConfigManager.getConfig();
+        assertNotNull(projectConfig);
+        assertEquals("1", projectConfig.getRevision());
+    }
+
+    @Test
+    public void multiLineDatafileIsApplied() throws Exception {
+        projectConfigManager = builder().build();
+        projectConfigManager.start();
+
+        String datafile = String.format(DATAFILE_FORMAT, "1");
+        int middle = datafile.indexOf(",\"version\"");
+        streamHandler.events.put(": keep-alive\n\ndata: " + datafile.substring(0, middle) + "\ndata:" +
+            datafile.substring(middle) + "\n\n");
+
+        awaitRevision("1");
+    }
+
+    @Test
+    public void revisionNotificationFetchesDatafile() throws Exception {
+        datafileHandler.revision = "1";
+        projectConfigManager = builder().withDatafileUrl(url("/datafile.json")).build();
+        projectConfigManager.start();
+
+        // fetched once on connect
+        awaitRevision("1");
+
+        datafileHandler.revision = "2";
+        streamHandler.events.put("event: revision\ndata: 2\n\n");
+        awaitRevision("2");
+    }
+
+    @Test
+    public void staleRevisionNotificationIsIgnored() throws Exception {
+        datafileHandler.revision = "5";
+        projectConfigManager = builder().withDatafileUrl(url("/datafile.json")).build();
+        projectConfigManager.start();
+        awaitRevision("5");
+        int requestCount = datafileHandler.requestCount.get();
+
+        projectConfigManager.onEvent(SseProjectConfigManager.REVISION_EVENT, "4");
+        assertEquals(requestCount, datafileHandler.requestCount.get());
+    }
+
+    @Test
+    public void olderPushedDatafileIsIgnored() {
+        projectConfigManager = builder().build();
+
+        projectConfigManager.onEvent(SseProjectConfigManager.DATAFILE_EVENT, String.format(DATAFILE_FORMAT, "2"));
+        projectConfigManager.onEvent(SseProjectConfigManager.DATAFILE_EVENT, String.format(DATAFILE_FORMAT, "1"));
+        assertEquals("2", projectConfigManager.getConfig().getRevision());
+    }
+
+    @Test
+    public void invalidPushedDatafileIsIgnored() {
+        projectConfigManager = builder().build();
+
+        projectConfigManager.onEvent(SseProjectConfigManager.DATAFILE_EVENT, String.format(DATAFILE_FORMAT, "1"));
+        projectConfigManager.onEvent(SseProjectConfigManager.DATAFILE_EVENT, "{\"revision\": ");
+        assertEquals("1", projectConfigManager.getConfig().getRevision());
+    }
+
+    @Test
+    public void reconnectsWithLastEventIdAfterDisconnect() throws Exception {
+        projectConfigManager = builder().build();
+        projectConfigManager.start();
+
+        streamHandler.events.put("id: 42\nevent: datafile\ndata: " + String.format(DATAFILE_FORMAT, "1") + "\n\n");
+        awaitRevision("1");
+        streamHandler.events.put(CLOSE_STREAM);
+
+        streamHandler.events.put("event: datafile\ndata: " + String.format(DATAFILE_FORMAT, "2") + "\n\n");
+        awaitRevision("2");
+        assertEquals(2, streamHandler.connectionCount.get());
+        assertEquals("42", streamHandler.lastEventId);
+    }
+
+    @Test
+    public void reconnectsAfterErrorResponse() throws Exception {
+        streamHandler.failures.set(2);
+        projectConfigManager = builder().build();
+        projectConfigManager.start();
+
+        streamHandler.events.put("event: datafile\ndata: " + String.format(DATAFILE_FORMAT, "1") + "\n\n");
+        awaitRevision("1");
+        assertEquals(3, streamHandler.connectionCount.get());
+    }
+
+    @Test
+    public void getConfigDoesNotWaitAgainAfterBlockingTimeout() {
+        streamHandler.failures.set(Integer.MAX_VALUE);
+        projectConfigManager = builder()
+            .withBlockingTimeout(500, TimeUnit.MILLISECONDS)
+            .build();
+        projectConfigManager.start();
+
+        assertNull(projectConfigManager.getConfig());
+
+        long start = System.nanoTime();
+        assertNull(projectConfigManager.getConfig());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    @Test
+    public void reconnectDelayBacksOffUpToMaximum() {
+        projectConfigManager = SseProjectConfigManager.builder()
+            .withStreamUrl(url("/stream"))
+            .withReconnectDelay(100, 1000, TimeUnit.MILLISECONDS)
+            .build();
+
+        long previousUpperBound = 0;
+        for (int attempt = 0; attempt < 10; attempt++) {
+            long upperBound = Math.min(100L << attempt, 1000);
+            long delay = projectConfigManager.nextReconnectDelayMillis();
+            assertTrue(delay >= upperBound / 2);
+            assertTrue(delay <= upperBound);
+            assertTrue(upperBound >= previousUpperBound);
+            previousUpperBound = upperBound;
+        }
+    }
+
+    @Test
+    public void reconnectDelayWithHugeServerRetryStaysAtMaximum() {
+        projectConfigManager = SseProjectConfigManager.builder()
+            .withStreamUrl(url("/stream"))
+            .withReconnectDelay(100, 1000, TimeUnit.MILLISECONDS)
+            .build();
+        projectConfigManager.onRetry(String.valueOf(Long.MAX_VALUE / 2));
+
+        for (int attempt = 0; attempt < 30; attempt++) {
+            long delay = projectConfigManager.nextReconnectDelayMillis();
+            assertTrue(delay >= 500);
+            assertTrue(delay <= 1000);
+        }
+    }
+
+    @Test
+    public void closedManagerCannotBeStarted() {
+        projectConfigManager = builder().build();
+        projectConfigManager.close();
+        projectConfigManager.start();
+
+        assertFalse(projectConfigManager.isRunning());
+    }
+
+    @Test
+    public void buildWithoutStreamUrlThrows() {
+        thrown.expect(IllegalStateException.class);
+        SseProjectConfigManager.builder().build();
+    }
+
+    //======== Helper methods ========//
+
+    private SseProjectConfigManager.Builder builder() {
+        return SseProjectConfigManager.builder()
+            .withStreamUrl(url("/stream"))
+            .withReconnectDelay(10, 50, TimeUnit.MILLISECONDS)
+            .withBlockingTimeout(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    private void awaitRevision(String revision) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            ProjectConfig projectConfig = projectConfigManager.getConfig();
+            if (projectConfig != null && revision.equals(projectConfig.getRevision())) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        ProjectConfig projectConfig = projectConfigManager.getConfig();
+        assertEquals(revision, projectConfig == null ? null : projectConfig.getRevision());
+    }
+
+    //======== Helper classes ========//
+
+    /**
+     * Writes queued events to the open stream. {@link #CLOSE_STREAM} ends the current connection.
+     */
+    private static class StreamHandler implements HttpHandler {
+
+        private final BlockingQueue<String> events = new LinkedBlockingQueue<String>();
+        private final AtomicInteger connectionCount = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile String lastEventId;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            connectionCount.incrementAndGet();
+            lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+
+            if (failures.getAndDecrement() > 0) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream outputStream = exchange.getResponseBody();
+            try {
+                while (true) {
+                    String event = events.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (event == null || CLOSE_STREAM.equals(event)) {
+                        return;
+                    }
+                    outputStream.write(event.getBytes(StandardCharsets.UTF_8));
+                    outputStream.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private static class DatafileHandler implements HttpHandler {
+
+        private final AtomicInteger requestCount = new AtomicInteger();
+        private volatile String revision;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requestCount.incrementAndGet();
+            byte[] body = String.format(DATAFILE_FORMAT, revision).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream outputStream = exchange.getResponseBody();
+            try {
+                outputStream.write(body);
+            } finally {
+                outputStream.close();
+            }
+        }
+    }
+}